@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+/**
+ * Writes authorization audit events to xa_access_audit with plain JDBC,
+ * bypassing JPA. Rows are sent with JDBC batching and, where the database
+ * supports it, as multi-row INSERT statements. Column values go through
+ * AuthzAuditEventDbObj, so the configured column truncation still applies.
+ */
+public class AuthzAuditEventBatchWriter {
+	static final Logger logger = Logger.getLogger(AuthzAuditEventBatchWriter.class);
+
+	public enum DbFlavor { MYSQL, POSTGRES, ORACLE, SQLSERVER, SQLANYWHERE, H2, DERBY, UNKNOWN }
+
+	static final String TABLE_NAME    = "xa_access_audit";
+	static final String SEQUENCE_NAME = "XA_ACCESS_AUDIT_SEQ";
+
+	static final String[] COLUMNS = {
+		"repo_type", "repo_name", "request_user", "event_time", "access_type",
+		"resource_path", "resource_type", "action", "access_result", "agent_id",
+		"policy_id", "result_reason", "acl_enforcer", "session_id", "client_type",
+		"client_ip", "request_data", "seq_num", "event_count", "event_dur_ms",
+		"tags"
+	};
+
+	private final JdbcConnectionPool connectionPool;
+	private final DbFlavor           dbFlavor;
+	private final int                batchSize;
+	private final int                rowsPerInsert;
+	private final String             singleRowSql;
+	private final String             multiRowSql;
+
+	/**
+	 * @param batchSize     number of statements sent in one executeBatch() call
+	 * @param rowsPerInsert number of rows per multi-row INSERT; ignored (1) for
+	 *                      databases that don't support it
+	 */
+	public AuthzAuditEventBatchWriter(JdbcConnectionPool connectionPool, int batchSize, int rowsPerInsert) {
+		this.connectionPool = connectionPool;
+		this.dbFlavor       = getDbFlavor(connectionPool.getJdbcURL());
+		this.batchSize      = batchSize > 0 ? batchSize : 1;
+		this.rowsPerInsert  = isMultiRowInsertSupported(dbFlavor) && rowsPerInsert > 1 ? rowsPerInsert : 1;
+		this.singleRowSql   = buildInsertSql(dbFlavor, 1);
+		this.multiRowSql    = this.rowsPerInsert > 1 ? buildInsertSql(dbFlavor, this.rowsPerInsert) : null;
+
+		logger.info("AuthzAuditEventBatchWriter: dbFlavor=" + dbFlavor + ", batchSize=" + this.batchSize + ", rowsPerInsert=" + this.rowsPerInsert + ", maxConnections=" + connectionPool.getMaxSize());
+	}
+
+	public DbFlavor getDbFlavor() {
+		return dbFlavor;
+	}
+
+	/**
+	 * Writes all events in a single transaction.
+	 *
+	 * @return false if no connection could be obtained from the pool
+	 * @throws SQLException if the insert failed; the transaction is rolled back
+	 */
+	public boolean write(Collection<AuditEventBase> events) throws SQLException, InterruptedException {
+		if (events == null || events.isEmpty()) {
+			return true;
+		}
+
+		List<AuthzAuditEventDbObj> rows = new ArrayList<AuthzAuditEventDbObj>(events.size());
+
+		for (AuditEventBase event : events) {
+			rows.add(new AuthzAuditEventDbObj((AuthzAuditEvent) event));
+		}
+
+		JdbcConnectionPool.PooledConnection pooledConn = connectionPool.getConnection();
+
+		if (pooledConn == null) {
+			logger.warn("AuthzAuditEventBatchWriter.write(): timed out waiting for a database connection");
+
+			return false;
+		}
+
+		boolean    isBroken = true;
+		Connection conn     = pooledConn.getConnection();
+
+		try {
+			conn.setAutoCommit(false);
+
+			int rowIdx = 0;
+
+			if (multiRowSql != null) {
+				int               multiRowCount = rows.size() / rowsPerInsert;
+				PreparedStatement stmt          = pooledConn.prepareStatement(multiRowSql);
+
+				for (int i = 0; i < multiRowCount; i++) {
+					for (int j = 0; j < rowsPerInsert; j++) {
+						setRowParams(stmt, j * COLUMNS.length, rows.get(rowIdx++));
+					}
+
+					stmt.addBatch();
+
+					if ((i + 1) % batchSize == 0) {
+						stmt.executeBatch();
+					}
+				}
+
+				if (multiRowCount % batchSize != 0) {
+					stmt.executeBatch();
+				}
+			}
+
+			if (rowIdx < rows.size()) {
+				PreparedStatement stmt       = pooledConn.prepareStatement(singleRowSql);
+				int               pendingCnt = 0;
+
+				for (; rowIdx < rows.size(); rowIdx++) {
+					setRowParams(stmt, 0, rows.get(rowIdx));
+
+					stmt.addBatch();
+
+					if (++pendingCnt == batchSize) {
+						stmt.executeBatch();
+						pendingCnt = 0;
+					}
+				}
+
+				if (pendingCnt > 0) {
+					stmt.executeBatch();
+				}
+			}
+
+			conn.commit();
+
+			isBroken = false;
+		} catch (SQLException excp) {
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackExcp) {
+				logger.warn("AuthzAuditEventBatchWriter.write(): rollback failed", rollbackExcp);
+			}
+
+			throw excp;
+		} finally {
+			connectionPool.releaseConnection(pooledConn, isBroken);
+		}
+
+		return true;
+	}
+
+	public void close() {
+		connectionPool.close();
+	}
+
+	private void setRowParams(PreparedStatement stmt, int offset, AuthzAuditEventDbObj row) throws SQLException {
+		int idx = offset;
+
+		stmt.setInt(++idx, row.getRepositoryType());
+		setString(stmt, ++idx, row.getRepositoryName());
+		setString(stmt, ++idx, row.getUser());
+		if (row.getTimeStamp() != null) {
+			stmt.setTimestamp(++idx, new Timestamp(row.getTimeStamp().getTime()));
+		} else {
+			stmt.setNull(++idx, Types.TIMESTAMP);
+		}
+		setString(stmt, ++idx, row.getAccessType());
+		setString(stmt, ++idx, row.getResourcePath());
+		setString(stmt, ++idx, row.getResourceType());
+		setString(stmt, ++idx, row.getAction());
+		stmt.setInt(++idx, row.getAccessResult());
+		setString(stmt, ++idx, row.getAgentId());
+		stmt.setLong(++idx, row.getPolicyId());
+		setString(stmt, ++idx, row.getResultReason());
+		setString(stmt, ++idx, row.getAclEnforcer());
+		setString(stmt, ++idx, row.getSessionId());
+		setString(stmt, ++idx, row.getClientType());
+		setString(stmt, ++idx, row.getClientIP());
+		setString(stmt, ++idx, row.getRequestData());
+		stmt.setLong(++idx, row.getSeqNum());
+		stmt.setLong(++idx, row.getEventCount());
+		stmt.setLong(++idx, row.getEventDurationMS());
+		setString(stmt, ++idx, row.getTags());
+	}
+
+	private static void setString(PreparedStatement stmt, int idx, String value) throws SQLException {
+		if (value != null) {
+			stmt.setString(idx, value);
+		} else {
+			stmt.setNull(idx, Types.VARCHAR);
+		}
+	}
+
+	static DbFlavor getDbFlavor(String jdbcURL) {
+		String url = jdbcURL != null ? jdbcURL.toLowerCase() : "";
+
+		if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+			return DbFlavor.MYSQL;
+		} else if (url.startsWith("jdbc:postgresql:")) {
+			return DbFlavor.POSTGRES;
+		} else if (url.startsWith("jdbc:oracle:")) {
+			return DbFlavor.ORACLE;
+		} else if (url.startsWith("jdbc:sqlserver:")) {
+			return DbFlavor.SQLSERVER;
+		} else if (url.startsWith("jdbc:sqlanywhere:")) {
+			return DbFlavor.SQLANYWHERE;
+		} else if (url.startsWith("jdbc:h2:")) {
+			return DbFlavor.H2;
+		} else if (url.startsWith("jdbc:derby:")) {
+			return DbFlavor.DERBY;
+		}
+
+		return DbFlavor.UNKNOWN;
+	}
+
+	static boolean isMultiRowInsertSupported(DbFlavor dbFlavor) {
+		switch (dbFlavor) {
+			case MYSQL:
+			case POSTGRES:
+			case H2:
+			case DERBY:
+				return true;
+
+			default:
+				// Oracle has no multi-row VALUES; SQL Server caps parameters per statement
+				return false;
+		}
+	}
+
+	static String buildInsertSql(DbFlavor dbFlavor, int rowCount) {
+		// Oracle has no identity column for xa_access_audit; id comes from the sequence
+		boolean       isIdFromSequence = dbFlavor == DbFlavor.ORACLE;
+		StringBuilder sb               = new StringBuilder("INSERT INTO ").append(TABLE_NAME).append(" (");
+
+		if (isIdFromSequence) {
+			sb.append("id, ");
+		}
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(COLUMNS[i]);
+		}
+
+		sb.append(") VALUES ");
+
+		for (int row = 0; row < rowCount; row++) {
+			if (row > 0) {
+				sb.append(", ");
+			}
+
+			sb.append("(");
+
+			if (isIdFromSequence) {
+				sb.append(SEQUENCE_NAME).append(".NEXTVAL, ");
+			}
+
+			for (int i = 0; i < COLUMNS.length; i++) {
+				sb.append(i > 0 ? ", ?" : "?");
+			}
+
+			sb.append(")");
+		}
+
+		return sb.toString();
+	}
+}
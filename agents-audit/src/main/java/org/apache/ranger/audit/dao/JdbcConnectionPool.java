@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A small bounded pool of JDBC connections used by the audit batch writer.
+ * Each pooled connection keeps the statements prepared on it, so that the
+ * same INSERT statements are reused across batches.
+ */
+public class JdbcConnectionPool {
+	static final Logger logger = Logger.getLogger(JdbcConnectionPool.class);
+
+	private final String     jdbcURL;
+	private final Properties connProps;
+	private final int        maxSize;
+	private final long       maxWaitMs;
+
+	private final BlockingQueue<PooledConnection> idleConnections = new LinkedBlockingQueue<PooledConnection>();
+	private final Semaphore                       permits;
+
+	private volatile boolean isClosed = false;
+
+	public JdbcConnectionPool(String jdbcDriver, String jdbcURL, String user, String password, int maxSize, long maxWaitMs) throws ClassNotFoundException {
+		if (jdbcDriver != null && !jdbcDriver.isEmpty()) {
+			Class.forName(jdbcDriver);
+		}
+
+		this.jdbcURL   = jdbcURL;
+		this.connProps = new Properties();
+		this.maxSize   = maxSize > 0 ? maxSize : 1;
+		this.maxWaitMs = maxWaitMs;
+		this.permits   = new Semaphore(this.maxSize);
+
+		if (user != null) {
+			connProps.setProperty("user", user);
+		}
+		if (password != null) {
+			connProps.setProperty("password", password);
+		}
+	}
+
+	public String getJdbcURL() {
+		return jdbcURL;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns an idle connection, or opens a new one when fewer than maxSize
+	 * connections are in use. Waits up to maxWaitMs for a connection to be
+	 * released; returns null if none became available.
+	 */
+	public PooledConnection getConnection() throws SQLException, InterruptedException {
+		if (isClosed) {
+			throw new SQLException("connection pool is closed. url=" + jdbcURL);
+		}
+
+		if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+			return null;
+		}
+
+		PooledConnection ret = null;
+
+		try {
+			for (PooledConnection conn = idleConnections.poll(); conn != null; conn = idleConnections.poll()) {
+				if (conn.isValid()) {
+					ret = conn;
+					break;
+				}
+
+				conn.close();
+			}
+
+			if (ret == null) {
+				ret = new PooledConnection(DriverManager.getConnection(jdbcURL, connProps));
+			}
+		} finally {
+			if (ret == null) {
+				permits.release();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the connection to the pool. Connections that saw an error are
+	 * closed rather than reused.
+	 */
+	public void releaseConnection(PooledConnection conn, boolean isBroken) {
+		if (conn == null) {
+			return;
+		}
+
+		try {
+			if (isBroken || isClosed) {
+				conn.close();
+			} else {
+				idleConnections.offer(conn);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	public void close() {
+		isClosed = true;
+
+		for (PooledConnection conn = idleConnections.poll(); conn != null; conn = idleConnections.poll()) {
+			conn.close();
+		}
+	}
+
+	public static class PooledConnection {
+		private final Connection                     connection;
+		private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		public PreparedStatement prepareStatement(String sql) throws SQLException {
+			PreparedStatement ret = statements.get(sql);
+
+			if (ret == null) {
+				ret = connection.prepareStatement(sql);
+
+				statements.put(sql, ret);
+			}
+
+			return ret;
+		}
+
+		boolean isValid() {
+			try {
+				return !connection.isClosed();
+			} catch (SQLException excp) {
+				return false;
+			}
+		}
+
+		void close() {
+			for (PreparedStatement stmt : statements.values()) {
+				try {
+					stmt.close();
+				} catch (SQLException excp) {
+					// ignore
+				}
+			}
+			statements.clear();
+
+			try {
+				connection.close();
+			} catch (SQLException excp) {
+				logger.warn("JdbcConnectionPool: failed to close connection", excp);
+			}
+		}
+	}
+}
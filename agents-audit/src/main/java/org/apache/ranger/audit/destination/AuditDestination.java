@@ -24,6 +24,7 @@ import java.util.Properties;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.queue.AuditFileSpool;
 
 /**
  * This class needs to be extended by anyone who wants to build custom
@@ -32,6 +33,10 @@ import org.apache.ranger.audit.provider.BaseAuditHandler;
 public abstract class AuditDestination extends BaseAuditHandler {
 	private static final Log logger = LogFactory.getLog(AuditDestination.class);
 
+	// File spool of the queue in front of this destination, if enabled.
+	// Destinations that deliver asynchronously stash failed events here
+	protected AuditFileSpool fileSpooler = null;
+
 	public AuditDestination() {
 		logger.info("AuditDestination() enter");
 	}
@@ -77,5 +82,13 @@ public abstract class AuditDestination extends BaseAuditHandler {
 	public void waitToComplete(long timeout) {
 		
 	}
+
+	public AuditFileSpool getFileSpooler() {
+		return fileSpooler;
+	}
+
+	public void setFileSpooler(AuditFileSpool fileSpooler) {
+		this.fileSpooler = fileSpooler;
+	}
 	
 }
@@ -32,7 +32,9 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
 
+import org.apache.ranger.audit.dao.AuthzAuditEventBatchWriter;
 import org.apache.ranger.audit.dao.DaoManager;
+import org.apache.ranger.audit.dao.JdbcConnectionPool;
 import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.MiscUtil;
@@ -47,9 +49,15 @@ public class DBAuditDestination extends AuditDestination {
 	public static final String PROP_DB_USER = "user";
 	public static final String PROP_DB_PASSWORD = "password";
 	public static final String PROP_DB_PASSWORD_ALIAS = "password.alias";
+	public static final String PROP_DB_JDBC_BATCH_ENABLE = "jdbc.batch.enable";
+	public static final String PROP_DB_JDBC_BATCH_SIZE = "jdbc.batch.size";
+	public static final String PROP_DB_JDBC_BATCH_ROWS_PER_INSERT = "jdbc.batch.rows.per.insert";
+	public static final String PROP_DB_JDBC_POOL_SIZE = "jdbc.pool.size";
+	public static final String PROP_DB_JDBC_POOL_WAIT_MS = "jdbc.pool.wait.ms";
 
 	private EntityManagerFactory entityManagerFactory;
 	private DaoManager daoManager;
+	private AuthzAuditEventBatchWriter batchWriter;
 
 	private String jdbcDriver = null;
 	private String jdbcURL = null;
@@ -83,8 +91,10 @@ public class DBAuditDestination extends AuditDestination {
 		boolean retValue = false;
 		logStatusIfRequired();
 		addTotalCount(events.size());
-		
-		if (beginTransaction()) {
+
+		if (isJdbcBatchEnabled()) {
+			retValue = logWithBatchWriter(events);
+		} else if (beginTransaction()) {
 			boolean isFailed = false;
 			for (AuditEventBase event : events) {
 				try {
@@ -118,8 +128,32 @@ public class DBAuditDestination extends AuditDestination {
 	}
 
 	// Local methods
+	private boolean isJdbcBatchEnabled() {
+		return MiscUtil.getBooleanProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_BATCH_ENABLE, false);
+	}
+
+	private boolean logWithBatchWriter(Collection<AuditEventBase> events) {
+		if (batchWriter == null) {
+			connect();
+		}
+
+		AuthzAuditEventBatchWriter writer = batchWriter;
+		if (writer == null) {
+			return false;
+		}
+
+		try {
+			return writer.write(events);
+		} catch (Throwable t) {
+			logger.error("Error writing audit events to database. count="
+					+ events.size(), t);
+		}
+		return false;
+	}
+
 	protected void connect() {
-		if (isDbConnected()) {
+		if (isJdbcBatchEnabled() ? batchWriter != null : isDbConnected()) {
 			return;
 		}
 		try {
@@ -169,6 +203,28 @@ public class DBAuditDestination extends AuditDestination {
 					+ dbPasswordAlias + ", credFile=" + credFile
 					+ ", usingPassword=" + (dbPassword == null ? "no" : "yes"));
 
+			if (isJdbcBatchEnabled()) {
+				int batchSize = MiscUtil.getIntProperty(props, propPrefix + "."
+						+ PROP_DB_JDBC_BATCH_SIZE, 1000);
+				int rowsPerInsert = MiscUtil.getIntProperty(props, propPrefix
+						+ "." + PROP_DB_JDBC_BATCH_ROWS_PER_INSERT, 50);
+				int poolSize = MiscUtil.getIntProperty(props, propPrefix + "."
+						+ PROP_DB_JDBC_POOL_SIZE, 1);
+				long poolWaitMs = MiscUtil.getLongProperty(props, propPrefix
+						+ "." + PROP_DB_JDBC_POOL_WAIT_MS, 30 * 1000);
+
+				JdbcConnectionPool connectionPool = new JdbcConnectionPool(
+						jdbcDriver, jdbcURL, dbUser, dbPassword, poolSize,
+						poolWaitMs);
+
+				batchWriter = new AuthzAuditEventBatchWriter(connectionPool,
+						batchSize, rowsPerInsert);
+
+				logger.info("Using JDBC batch writer for audit database. dbURL="
+						+ jdbcURL + ", dbUser=" + dbUser);
+				return;
+			}
+
 			Map<String, String> dbProperties = new HashMap<String, String>();
 			dbProperties.put("javax.persistence.jdbc.driver", jdbcDriver);
 			dbProperties.put("javax.persistence.jdbc.url", jdbcURL);
@@ -213,6 +269,16 @@ public class DBAuditDestination extends AuditDestination {
 			entityManagerFactory = null;
 			daoManager = null;
 		}
+
+		try {
+			if (batchWriter != null) {
+				batchWriter.close();
+			}
+		} catch (Exception excp) {
+			logger.error("DBAuditDestination.cleanUp(): failed to close batch writer", excp);
+		} finally {
+			batchWriter = null;
+		}
 		logStatus();
 	}
 
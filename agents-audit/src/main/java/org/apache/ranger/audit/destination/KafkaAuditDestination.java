@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.provider.kafka.KafkaAuditProvider;
+
+/**
+ * Sends audit events to a Kafka topic using the asynchronous KafkaProducer.
+ * Records are keyed by repository name, so that events of a repository go
+ * to the same partition. Deliveries are acknowledged in a callback; events
+ * that fail delivery are handed back to the thread calling this destination,
+ * which stashes them in the file spool of the queue in front of it, when one
+ * is enabled.
+ */
+public class KafkaAuditDestination extends AuditDestination {
+	private static final Log LOG = LogFactory
+			.getLog(KafkaAuditDestination.class);
+
+	public static final String PROP_KAFKA_BOOTSTRAP_SERVERS = "bootstrap.servers";
+	public static final String PROP_KAFKA_TOPIC = "topic";
+	public static final String PROP_KAFKA_ACKS = "acks";
+	public static final String PROP_KAFKA_LINGER_MS = "linger.ms";
+	public static final String PROP_KAFKA_BATCH_SIZE = "batch.size";
+	public static final String PROP_KAFKA_COMPRESSION_TYPE = "compression.type";
+	public static final String PROP_KAFKA_BUFFER_MEMORY = "buffer.memory";
+	public static final String PROP_KAFKA_MAX_BLOCK_MS = "max.block.ms";
+	public static final String PROP_KAFKA_RETRIES = "retries";
+	public static final String PROP_KAFKA_CLOSE_TIMEOUT_MS = "close.timeout.ms";
+
+	public static final String DEFAULT_TOPIC = "ranger_audits";
+	public static final String DEFAULT_BOOTSTRAP_SERVERS = "localhost:9092";
+	public static final String DEFAULT_COMPRESSION_TYPE = "lz4";
+
+	private volatile Producer<String, String> producer = null;
+	private String topic = DEFAULT_TOPIC;
+	private Properties producerProps = null;
+	private long closeTimeoutMs = 30 * 1000;
+
+	private final AtomicLong inflightCount = new AtomicLong(0);
+
+	// Filled on the producer's I/O thread; drained on the thread that calls
+	// log(), flush() or stop(), so that the file spool doesn't slow down
+	// the acknowledgement of other deliveries
+	private final Queue<FailedDelivery> failedDeliveries = new ConcurrentLinkedQueue<FailedDelivery>();
+
+	public KafkaAuditDestination() {
+	}
+
+	@Override
+	public void init(Properties props, String propPrefix) {
+		LOG.info("init() called");
+		super.init(props, propPrefix);
+
+		topic = getProperty(PROP_KAFKA_TOPIC, null);
+		if (topic == null) {
+			topic = getLegacyProperty(KafkaAuditProvider.AUDIT_KAFKA_TOPIC_NAME,
+					PROP_KAFKA_TOPIC, DEFAULT_TOPIC);
+		}
+		closeTimeoutMs = MiscUtil.getLongProperty(props, propPrefix + "."
+				+ PROP_KAFKA_CLOSE_TIMEOUT_MS, closeTimeoutMs);
+
+		producerProps = new Properties();
+		String bootstrapServers = getProperty(PROP_KAFKA_BOOTSTRAP_SERVERS, null);
+		if (bootstrapServers == null) {
+			bootstrapServers = getLegacyProperty(
+					KafkaAuditProvider.AUDIT_KAFKA_BROKER_LIST,
+					PROP_KAFKA_BOOTSTRAP_SERVERS, DEFAULT_BOOTSTRAP_SERVERS);
+		}
+		producerProps.put("bootstrap.servers", bootstrapServers);
+		producerProps.put("key.serializer", StringSerializer.class.getName());
+		producerProps.put("value.serializer", StringSerializer.class.getName());
+		producerProps.put("acks", getProperty(PROP_KAFKA_ACKS, "1"));
+		producerProps.put("linger.ms", getProperty(PROP_KAFKA_LINGER_MS, "50"));
+		producerProps.put("batch.size", getProperty(PROP_KAFKA_BATCH_SIZE, "262144"));
+		producerProps.put("compression.type", getProperty(
+				PROP_KAFKA_COMPRESSION_TYPE, DEFAULT_COMPRESSION_TYPE));
+		producerProps.put("buffer.memory", getProperty(PROP_KAFKA_BUFFER_MEMORY, "33554432"));
+		producerProps.put("max.block.ms", getProperty(PROP_KAFKA_MAX_BLOCK_MS, "10000"));
+		producerProps.put("retries", getProperty(PROP_KAFKA_RETRIES, "3"));
+
+		// Anything else, e.g. security.protocol or sasl.kerberos.service.name,
+		// can be given as <propPrefix>.config.<kafka property>
+		for (Map.Entry<String, String> entry : configProps.entrySet()) {
+			producerProps.put(entry.getKey(), entry.getValue());
+		}
+
+		LOG.info("Kafka producer properties for " + getName() + ": topic="
+				+ topic + ", " + producerProps);
+
+		connect();
+	}
+
+	// For testing
+	void setProducer(Producer<String, String> producer) {
+		this.producer = producer;
+	}
+
+	synchronized void connect() {
+		if (producer != null || producerProps == null) {
+			return;
+		}
+
+		try {
+			PrivilegedExceptionAction<Producer<String, String>> action = new PrivilegedExceptionAction<Producer<String, String>>() {
+				@Override
+				public Producer<String, String> run() throws Exception {
+					return new KafkaProducer<String, String>(producerProps);
+				}
+			};
+
+			UserGroupInformation ugi = MiscUtil.getUGILoginUser();
+			if (ugi != null) {
+				producer = ugi.doAs(action);
+			} else {
+				producer = action.run();
+			}
+			LOG.info("Connected to Kafka. topic=" + topic + ", name=" + getName());
+		} catch (Throwable t) {
+			logError("Can't connect to Kafka. bootstrap.servers="
+					+ producerProps.get("bootstrap.servers"), t);
+		}
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+		handleFailedDeliveries();
+		addTotalCount(events.size());
+
+		if (producer == null) {
+			connect();
+			if (producer == null) {
+				// Kafka is still not reachable. Let the queue retry or spool
+				addDeferredCount(events.size());
+				return false;
+			}
+		}
+
+		for (AuditEventBase event : events) {
+			send(event);
+		}
+
+		return true;
+	}
+
+	private void send(final AuditEventBase event) {
+		String key = null;
+		if (event instanceof AuthzAuditEvent) {
+			key = ((AuthzAuditEvent) event).getRepositoryName();
+		}
+
+		ProducerRecord<String, String> record = new ProducerRecord<String, String>(
+				topic, key, MiscUtil.stringify(event));
+
+		inflightCount.incrementAndGet();
+		try {
+			producer.send(record, new Callback() {
+				@Override
+				public void onCompletion(RecordMetadata metadata, Exception excp) {
+					try {
+						if (excp == null) {
+							addCounts(1, 0, 0);
+						} else {
+							failedDeliveries.add(new FailedDelivery(event, excp));
+						}
+					} finally {
+						inflightCount.decrementAndGet();
+					}
+				}
+			});
+		} catch (Throwable t) {
+			// send() throws when the record can't be queued, e.g. when the
+			// buffer stays full for max.block.ms
+			inflightCount.decrementAndGet();
+			failedDeliveries.add(new FailedDelivery(event, t));
+		}
+	}
+
+	private void handleFailedDeliveries() {
+		List<AuditEventBase> toStash = null;
+
+		for (FailedDelivery delivery = failedDeliveries.poll(); delivery != null; delivery = failedDeliveries.poll()) {
+			if (fileSpooler != null) {
+				if (toStash == null) {
+					toStash = new ArrayList<AuditEventBase>();
+				}
+				toStash.add(delivery.event);
+			} else {
+				addCounts(0, 1, 0);
+				logFailedEvent(delivery.event, delivery.excp);
+			}
+		}
+
+		if (toStash != null) {
+			fileSpooler.stashLogs(toStash);
+			addCounts(0, 0, toStash.size());
+		}
+	}
+
+	// The counters in BaseAuditHandler are not thread-safe; deliveries are
+	// acknowledged on the producer's I/O thread
+	private synchronized void addCounts(int successCount, int failedCount,
+			int stashedCount) {
+		if (successCount > 0) {
+			addSuccessCount(successCount);
+		}
+		if (failedCount > 0) {
+			addFailedCount(failedCount);
+		}
+		if (stashedCount > 0) {
+			addStashedCount(stashedCount);
+		}
+	}
+
+	@Override
+	public void flush() {
+		Producer<String, String> me = producer;
+		if (me != null) {
+			try {
+				me.flush();
+			} catch (Throwable t) {
+				logError("Error flushing Kafka producer", t);
+			}
+		}
+		handleFailedDeliveries();
+	}
+
+	@Override
+	public void waitToComplete() {
+		flush();
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		flush();
+	}
+
+	@Override
+	public void stop() {
+		LOG.info("stop() called");
+		Producer<String, String> me = producer;
+		producer = null;
+		if (me != null) {
+			try {
+				me.close(closeTimeoutMs, TimeUnit.MILLISECONDS);
+			} catch (Throwable t) {
+				logError("Error closing Kafka producer", t);
+			}
+		}
+		// close() completes the callbacks of the pending deliveries
+		handleFailedDeliveries();
+		if (inflightCount.get() > 0) {
+			LOG.warn("Kafka producer closed with " + inflightCount.get()
+					+ " unacknowledged audit events. name=" + getName());
+		}
+		logStatus();
+	}
+
+	public boolean isAsync() {
+		return true;
+	}
+
+	private String getProperty(String propName, String defaultValue) {
+		String ret = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ propName);
+		return ret == null || ret.trim().isEmpty() ? defaultValue : ret.trim();
+	}
+
+	// xasecure.audit.kafka.broker_list and topic_name configured the
+	// KafkaAuditProvider that used to handle the kafka destination
+	private String getLegacyProperty(String legacyPropName, String propName,
+			String defaultValue) {
+		String ret = MiscUtil.getStringProperty(props, legacyPropName);
+		if (ret != null && !ret.trim().isEmpty()) {
+			LOG.warn(legacyPropName + " is deprecated. Use " + propPrefix + "."
+					+ propName + " instead");
+			return ret.trim();
+		}
+		return defaultValue;
+	}
+
+	private static class FailedDelivery {
+		final AuditEventBase event;
+		final Throwable excp;
+
+		FailedDelivery(AuditEventBase event, Throwable excp) {
+			this.event = event;
+			this.excp = excp;
+		}
+	}
+}
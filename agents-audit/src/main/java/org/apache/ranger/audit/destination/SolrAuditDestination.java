@@ -27,6 +27,7 @@ import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.audit.utils.InMemoryJAASConfiguration;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.Krb5HttpClientConfigurer;
@@ -35,6 +36,7 @@ import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
@@ -42,6 +44,13 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class SolrAuditDestination extends AuditDestination {
@@ -52,12 +61,35 @@ public class SolrAuditDestination extends AuditDestination {
 	public static final String PROP_SOLR_ZK = "zookeepers";
 	public static final String PROP_SOLR_COLLECTION = "collection";
 	public static final String PROP_SOLR_FORCE_USE_INMEMORY_JAAS_CONFIG = "force.use.inmemory.jaas.config";
+	public static final String PROP_SOLR_MAX_INFLIGHT_REQUESTS = "max.inflight.requests";
+	public static final String PROP_SOLR_REQUEST_BATCH_SIZE = "request.batch.size";
+	public static final String PROP_SOLR_INFLIGHT_WAIT_MS = "inflight.wait.ms";
+	public static final String PROP_SOLR_RETRY_COUNT = "retry.count";
+	public static final String PROP_SOLR_RETRY_SLEEP_MS = "retry.sleep.ms";
 
 	public static final String DEFAULT_COLLECTION_NAME = "ranger_audits";
 	public static final String PROP_JAVA_SECURITY_AUTH_LOGIN_CONFIG = "java.security.auth.login.config";
 
 	private volatile SolrClient solrClient = null;
 
+	// Async update pipeline. With maxInflightRequests <= 1 updates are sent
+	// synchronously from the calling queue thread, as before
+	private int maxInflightRequests = 1;
+	private int requestBatchSize = 0;
+	private long inflightWaitMs = 60 * 1000;
+	private ExecutorService updateExecutor = null;
+	private Semaphore inflightPermits = null;
+
+	private final AtomicLong updateRequestCount = new AtomicLong(0);
+	private final AtomicLong updateDocCount = new AtomicLong(0);
+	private final AtomicLong updateTimeMs = new AtomicLong(0);
+	private final AtomicLong updateMaxTimeMs = new AtomicLong(0);
+	private final AtomicLong updateRetryCount = new AtomicLong(0);
+	private long lastUpdateRequestCount = 0;
+	private long lastUpdateDocCount = 0;
+	private long lastUpdateTimeMs = 0;
+	private long lastUpdateStatusLogTime = System.currentTimeMillis();
+
 	public SolrAuditDestination() {
 	}
 
@@ -66,15 +98,25 @@ public class SolrAuditDestination extends AuditDestination {
 		LOG.info("init() called");
 		super.init(props, propPrefix);
 		init();
+		initUpdatePipeline();
 		connect();
 	}
 
 	@Override
 	public void stop() {
 		super.stop();
+		waitToComplete(inflightWaitMs);
+		if (updateExecutor != null) {
+			updateExecutor.shutdown();
+		}
 		logStatus();
 	}
 
+	// For testing
+	void setSolrClient(SolrClient solrClient) {
+		this.solrClient = solrClient;
+	}
+
 	synchronized void connect() {
 		SolrClient me = solrClient;
 		if (me == null) {
@@ -118,7 +160,7 @@ public class SolrAuditDestination extends AuditDestination {
 								@Override
 								public CloudSolrClient run()  throws Exception {
 									CloudSolrClient solrCloudClient = new CloudSolrClient(
-											zkhosts);
+											zkhosts, true);
 									return solrCloudClient;
 								};
 							};
@@ -131,6 +173,10 @@ public class SolrAuditDestination extends AuditDestination {
 								solrCloudClient = action.run();
 							}
 							solrCloudClient.setDefaultCollection(collectionName);
+							// Route each document directly to its shard leader, and
+							// send the per-shard sub-requests in parallel
+							solrCloudClient.setIdField("id");
+							solrCloudClient.setParallelUpdates(true);
 							me = solrClient = solrCloudClient;
 						} catch (Throwable t) {
 							LOG.fatal("Can't connect to Solr server. ZooKeepers="
@@ -227,29 +273,23 @@ public class SolrAuditDestination extends AuditDestination {
 				}
 			}
 
-			final Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+			final List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 			for (AuditEventBase event : events) {
 				AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
 				// Convert AuditEventBase to Solr document
 				SolrInputDocument document = toSolrDoc(authzEvent);
 				docs.add(document);
 			}
+
+			// Failed async updates are stashed in the file spool of the queue,
+			// so without a spool the update is sent synchronously and a failure
+			// is reported to the queue
+			if (updateExecutor != null && fileSpooler != null) {
+				return submitDocs(events, docs);
+			}
+
 			try {
-				PrivilegedExceptionAction<UpdateResponse> action = new PrivilegedExceptionAction<UpdateResponse>() {
-					@Override
-					public UpdateResponse run()  throws Exception {
-						UpdateResponse response = solrClient.add(docs);
-						return response;
-					};
-				};
-
-				UpdateResponse response = null;
-				UserGroupInformation ugi = MiscUtil.getUGILoginUser();
-				if (ugi != null) {
-					response = ugi.doAs(action);
-				} else {
-					response = action.run();
-				}
+				UpdateResponse response = sendDocs(docs);
 				if (response.getStatus() != 0) {
 					addFailedCount(events.size());
 					logFailedEvent(events, response.toString());
@@ -268,6 +308,209 @@ public class SolrAuditDestination extends AuditDestination {
 		return true;
 	}
 
+	/**
+	 * Splits the batch into update requests of requestBatchSize documents and
+	 * hands them to the update pool. The caller only waits when
+	 * maxInflightRequests are already outstanding; if no slot frees up within
+	 * inflightWaitMs the remaining documents are reported as deferred, so that
+	 * the queue can spool and retry them. Resending documents that were already
+	 * submitted is harmless, since Solr overwrites documents with the same id.
+	 * Update requests that still fail after the retries are stashed in the file
+	 * spool.
+	 */
+	private boolean submitDocs(Collection<AuditEventBase> events,
+			List<SolrInputDocument> docs) throws InterruptedException {
+		List<AuditEventBase> eventList = new ArrayList<AuditEventBase>(events);
+		int chunkSize = requestBatchSize > 0 ? requestBatchSize : docs.size();
+
+		for (int fromIdx = 0; fromIdx < docs.size(); fromIdx += chunkSize) {
+			int toIdx = Math.min(fromIdx + chunkSize, docs.size());
+
+			if (!inflightPermits.tryAcquire(inflightWaitMs, TimeUnit.MILLISECONDS)) {
+				addDeferredCount(docs.size() - fromIdx);
+				logError("Timed out waiting for in-flight Solr update requests to complete. maxInflightRequests="
+						+ maxInflightRequests);
+				return false;
+			}
+
+			final List<AuditEventBase> chunkEvents = new ArrayList<AuditEventBase>(eventList.subList(fromIdx, toIdx));
+			final List<SolrInputDocument> chunkDocs = new ArrayList<SolrInputDocument>(docs.subList(fromIdx, toIdx));
+
+			try {
+				updateExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							sendDocsWithRetry(chunkEvents, chunkDocs);
+						} finally {
+							inflightPermits.release();
+						}
+					}
+				});
+			} catch (Throwable t) {
+				inflightPermits.release();
+				addDeferredCount(docs.size() - fromIdx);
+				logError("Error submitting update request to Solr", t);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void sendDocsWithRetry(Collection<AuditEventBase> events,
+			Collection<SolrInputDocument> docs) {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				UpdateResponse response = sendDocs(docs);
+				if (response.getStatus() != 0) {
+					addCounts(0, events.size(), 0);
+					logFailedEvent(events, response.toString());
+				} else {
+					addCounts(events.size(), 0, 0);
+				}
+				return;
+			} catch (Throwable t) {
+				boolean isRetriable = !(t instanceof SolrException)
+						|| ((SolrException) t).code() >= 500;
+
+				if (!isRetriable) {
+					// Rejected by Solr, resending won't help
+					addCounts(0, events.size(), 0);
+					logFailedEvent(events, t);
+					return;
+				}
+
+				if (attempt >= failedRetryTimes) {
+					stashDocs(events, t);
+					return;
+				}
+
+				updateRetryCount.incrementAndGet();
+				logError("Error sending message to Solr. Will retry. attempt="
+						+ (attempt + 1) + "/" + failedRetryTimes, t);
+
+				try {
+					Thread.sleep(failedRetrySleep);
+				} catch (InterruptedException excp) {
+					stashDocs(events, excp);
+					return;
+				}
+			}
+		}
+	}
+
+	private UpdateResponse sendDocs(final Collection<SolrInputDocument> docs)
+			throws Exception {
+		PrivilegedExceptionAction<UpdateResponse> action = new PrivilegedExceptionAction<UpdateResponse>() {
+			@Override
+			public UpdateResponse run() throws SolrServerException, IOException {
+				UpdateResponse response = solrClient.add(docs);
+				return response;
+			};
+		};
+
+		long startTime = System.currentTimeMillis();
+		UpdateResponse response = null;
+		UserGroupInformation ugi = MiscUtil.getUGILoginUser();
+		if (ugi != null) {
+			response = ugi.doAs(action);
+		} else {
+			response = action.run();
+		}
+		long elapsedMs = System.currentTimeMillis() - startTime;
+
+		updateRequestCount.incrementAndGet();
+		updateDocCount.addAndGet(docs.size());
+		updateTimeMs.addAndGet(elapsedMs);
+		for (long maxMs = updateMaxTimeMs.get(); elapsedMs > maxMs; maxMs = updateMaxTimeMs.get()) {
+			if (updateMaxTimeMs.compareAndSet(maxMs, elapsedMs)) {
+				break;
+			}
+		}
+		return response;
+	}
+
+	private void stashDocs(Collection<AuditEventBase> events, Throwable excp) {
+		logError("Error sending message to Solr. Stashing " + events.size()
+				+ " events in the file spool", excp);
+		fileSpooler.stashLogs(events);
+		addCounts(0, 0, events.size());
+	}
+
+	// The counters in BaseAuditHandler are not thread-safe; update requests
+	// complete on the pool threads
+	private synchronized void addCounts(int successCount, int failedCount,
+			int stashedCount) {
+		if (successCount > 0) {
+			addSuccessCount(successCount);
+		}
+		if (failedCount > 0) {
+			addFailedCount(failedCount);
+		}
+		if (stashedCount > 0) {
+			addStashedCount(stashedCount);
+		}
+	}
+
+	@Override
+	public void logStatus() {
+		super.logStatus();
+
+		long currTime = System.currentTimeMillis();
+		long requestCount = updateRequestCount.get();
+		long docCount = updateDocCount.get();
+		long timeMs = updateTimeMs.get();
+
+		long diffRequests = requestCount - lastUpdateRequestCount;
+		if (diffRequests == 0) {
+			return;
+		}
+		long diffDocs = docCount - lastUpdateDocCount;
+		long diffTimeMs = timeMs - lastUpdateTimeMs;
+		long intervalMs = Math.max(1, currTime - lastUpdateStatusLogTime);
+
+		LOG.info("Solr Update Status: name=" + getName()
+				+ ", interval=" + formatIntervalForLog(intervalMs)
+				+ ", requests=" + diffRequests
+				+ ", docs=" + diffDocs
+				+ ", docsPerSec=" + (diffDocs * 1000 / intervalMs)
+				+ ", avgLatencyMs=" + (diffTimeMs / diffRequests)
+				+ ", maxLatencyMs=" + updateMaxTimeMs.getAndSet(0)
+				+ ", retries=" + updateRetryCount.get()
+				+ ", inflight=" + getInflightRequestCount());
+
+		lastUpdateRequestCount = requestCount;
+		lastUpdateDocCount = docCount;
+		lastUpdateTimeMs = timeMs;
+		lastUpdateStatusLogTime = currTime;
+	}
+
+	public int getInflightRequestCount() {
+		return inflightPermits != null ? maxInflightRequests - inflightPermits.availablePermits() : 0;
+	}
+
+	@Override
+	public void waitToComplete() {
+		waitToComplete(-1);
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		if (inflightPermits == null) {
+			return;
+		}
+		try {
+			long waitMs = timeout < 0 ? inflightWaitMs : timeout;
+			if (inflightPermits.tryAcquire(maxInflightRequests, waitMs, TimeUnit.MILLISECONDS)) {
+				inflightPermits.release(maxInflightRequests);
+			} else {
+				LOG.warn("Timed out waiting for in-flight Solr update requests. inflight=" + getInflightRequestCount());
+			}
+		} catch (InterruptedException excp) {
+			LOG.warn("Interrupted while waiting for in-flight Solr update requests. inflight=" + getInflightRequestCount());
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -275,7 +518,7 @@ public class SolrAuditDestination extends AuditDestination {
 	 */
 	@Override
 	public void flush() {
-
+		waitToComplete(inflightWaitMs);
 	}
 
 	SolrInputDocument toSolrDoc(AuthzAuditEvent auditEvent) {
@@ -310,6 +553,41 @@ public class SolrAuditDestination extends AuditDestination {
 		return true;
 	}
 
+	private void initUpdatePipeline() {
+		maxInflightRequests = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SOLR_MAX_INFLIGHT_REQUESTS, maxInflightRequests);
+		requestBatchSize = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SOLR_REQUEST_BATCH_SIZE, requestBatchSize);
+		inflightWaitMs = MiscUtil.getLongProperty(props, propPrefix + "."
+				+ PROP_SOLR_INFLIGHT_WAIT_MS, inflightWaitMs);
+		failedRetryTimes = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SOLR_RETRY_COUNT, failedRetryTimes);
+		failedRetrySleep = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_SOLR_RETRY_SLEEP_MS, failedRetrySleep);
+
+		LOG.info("Solr update pipeline: maxInflightRequests=" + maxInflightRequests
+				+ ", requestBatchSize=" + requestBatchSize
+				+ ", inflightWaitMs=" + inflightWaitMs
+				+ ", retryCount=" + failedRetryTimes
+				+ ", retrySleepMs=" + failedRetrySleep);
+
+		if (maxInflightRequests > 1) {
+			final String threadNamePrefix = "SolrAuditDestination-" + getName() + "-";
+			inflightPermits = new Semaphore(maxInflightRequests);
+			updateExecutor = Executors.newFixedThreadPool(maxInflightRequests,
+					new ThreadFactory() {
+						private final AtomicInteger threadCount = new AtomicInteger(0);
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+	}
+
 	private void init() {
 		LOG.info("==>SolrAuditDestination.init()" );
 		try {
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one handler in the audit pipeline: a queue, the file spool
+ * behind a queue, or a destination.
+ */
+public interface AuditHandlerMXBean {
+	String getName();
+
+	String getType();
+
+	long getQueueDepth();
+
+	long getTotalCount();
+
+	long getSuccessCount();
+
+	long getFailedCount();
+
+	long getDeferredCount();
+
+	long getStashedCount();
+
+	long getDroppedCount();
+
+	long getSampledOutCount();
+
+	long getRateLimitedCount();
+
+	long getSpoolBacklogBytes();
+
+	long getSpoolPendingFiles();
+
+	long getBatchCount();
+
+	long getBatchSizeMean();
+
+	long getBatchSizeMax();
+
+	long getLatencyMsMean();
+
+	long getLatencyMsP50();
+
+	long getLatencyMsP95();
+
+	long getLatencyMsP99();
+
+	long getLatencyMsMax();
+
+	Map<String, Long> getLatencyMsHistogram();
+}
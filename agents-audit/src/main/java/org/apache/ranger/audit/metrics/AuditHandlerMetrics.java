@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.util.Map;
+
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditSamplingQueue;
+
+public class AuditHandlerMetrics implements AuditHandlerMXBean {
+	private final BaseAuditHandler handler;
+
+	public AuditHandlerMetrics(BaseAuditHandler handler) {
+		this.handler = handler;
+	}
+
+	public BaseAuditHandler getHandler() {
+		return handler;
+	}
+
+	@Override
+	public String getName() {
+		return handler.getName();
+	}
+
+	@Override
+	public String getType() {
+		if (handler instanceof AuditQueue) {
+			return "queue";
+		} else if (handler instanceof AuditDestination) {
+			return "destination";
+		}
+		return "provider";
+	}
+
+	@Override
+	public long getQueueDepth() {
+		return handler instanceof AuditQueue ? ((AuditQueue) handler).getQueueSize() : 0;
+	}
+
+	@Override
+	public long getTotalCount() {
+		return handler.getTotalCount();
+	}
+
+	@Override
+	public long getSuccessCount() {
+		return handler.getTotalSuccessCount();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return handler.getTotalFailedCount();
+	}
+
+	@Override
+	public long getDeferredCount() {
+		return handler.getTotalDeferredCount();
+	}
+
+	@Override
+	public long getStashedCount() {
+		return handler.getTotalStashedCount();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return handler.getTotalDroppedCount();
+	}
+
+	@Override
+	public long getSampledOutCount() {
+		return handler instanceof AuditSamplingQueue ? ((AuditSamplingQueue) handler).getSampledOutCount() : 0;
+	}
+
+	@Override
+	public long getRateLimitedCount() {
+		return handler instanceof AuditSamplingQueue ? ((AuditSamplingQueue) handler).getRateLimitedCount() : 0;
+	}
+
+	@Override
+	public long getSpoolBacklogBytes() {
+		AuditFileSpool spool = getFileSpool();
+
+		return spool != null ? spool.getBacklogBytes() : 0;
+	}
+
+	@Override
+	public long getSpoolPendingFiles() {
+		AuditFileSpool spool = getFileSpool();
+
+		return spool != null ? spool.getPendingFileCount() : 0;
+	}
+
+	@Override
+	public long getBatchCount() {
+		return handler.getBatchSizeHistogram().getCount();
+	}
+
+	@Override
+	public long getBatchSizeMean() {
+		return handler.getBatchSizeHistogram().getMean();
+	}
+
+	@Override
+	public long getBatchSizeMax() {
+		return handler.getBatchSizeHistogram().getMax();
+	}
+
+	@Override
+	public long getLatencyMsMean() {
+		return handler.getLatencyHistogram().getMean();
+	}
+
+	@Override
+	public long getLatencyMsP50() {
+		return handler.getLatencyHistogram().getPercentile(50);
+	}
+
+	@Override
+	public long getLatencyMsP95() {
+		return handler.getLatencyHistogram().getPercentile(95);
+	}
+
+	@Override
+	public long getLatencyMsP99() {
+		return handler.getLatencyHistogram().getPercentile(99);
+	}
+
+	@Override
+	public long getLatencyMsMax() {
+		return handler.getLatencyHistogram().getMax();
+	}
+
+	@Override
+	public Map<String, Long> getLatencyMsHistogram() {
+		return handler.getLatencyHistogram().getBuckets();
+	}
+
+	private AuditFileSpool getFileSpool() {
+		return handler instanceof AuditQueue ? ((AuditQueue) handler).getFileSpooler() : null;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with fixed, roughly exponential bucket boundaries.
+ * Percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class AuditHistogram {
+	static final long[] BUCKET_BOUNDS = {
+		1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000,
+		50000, 100000, 300000, 1000000
+	};
+
+	private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+	private final AtomicLong      count        = new AtomicLong(0);
+	private final AtomicLong      sum          = new AtomicLong(0);
+	private final AtomicLong      max          = new AtomicLong(0);
+
+	public void record(long value) {
+		bucketCounts.incrementAndGet(getBucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		for (long currMax = max.get(); value > currMax; currMax = max.get()) {
+			if (max.compareAndSet(currMax, value)) {
+				break;
+			}
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMean() {
+		long cnt = count.get();
+
+		return cnt > 0 ? sum.get() / cnt : 0;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return upper bound of the bucket containing the given percentile; the
+	 *         max recorded value for the overflow bucket
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+
+		for (int i = 0; i < bucketCounts.length(); i++) {
+			total += bucketCounts.get(i);
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long threshold  = (long) Math.ceil(total * percentile / 100);
+		long cumulative = 0;
+
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			cumulative += bucketCounts.get(i);
+
+			if (cumulative >= threshold) {
+				return BUCKET_BOUNDS[i];
+			}
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * @return count per bucket, keyed by "le_<upper bound>" and "le_inf"
+	 */
+	public Map<String, Long> getBuckets() {
+		Map<String, Long> ret = new LinkedHashMap<String, Long>();
+
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			ret.put("le_" + BUCKET_BOUNDS[i], bucketCounts.get(i));
+		}
+		ret.put("le_inf", bucketCounts.get(BUCKET_BOUNDS.length));
+
+		return ret;
+	}
+
+	static int getBucketIndex(long value) {
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			if (value <= BUCKET_BOUNDS[i]) {
+				return i;
+			}
+		}
+
+		return BUCKET_BOUNDS.length;
+	}
+}
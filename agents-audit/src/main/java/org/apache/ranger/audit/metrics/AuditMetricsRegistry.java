@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.BaseAuditHandler;
+import org.apache.ranger.audit.provider.MultiDestAuditProvider;
+import org.apache.ranger.audit.queue.AuditQueue;
+
+/**
+ * Keeps metrics for every handler of the audit pipeline (queues, file spools
+ * and destinations), and publishes them as JMX MBeans and, optionally, as a
+ * Hadoop metrics2 source.
+ */
+public class AuditMetricsRegistry {
+	private static final Log LOG = LogFactory.getLog(AuditMetricsRegistry.class);
+
+	public static final String JMX_DOMAIN          = "org.apache.ranger.audit";
+	public static final String METRICS_SOURCE_NAME = "RangerAudit";
+
+	private static final AuditMetricsRegistry INSTANCE = new AuditMetricsRegistry();
+
+	private final Map<String, AuditHandlerMetrics> handlerMetrics = new ConcurrentHashMap<String, AuditHandlerMetrics>();
+	private final Map<String, ObjectName>          mbeanNames     = new ConcurrentHashMap<String, ObjectName>();
+
+	private boolean isMetricsSourceRegistered = false;
+
+	public static AuditMetricsRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the given handler and every handler downstream of it.
+	 */
+	public void register(AuditHandler pipeline, boolean isJmxEnabled) {
+		List<BaseAuditHandler> handlers = new ArrayList<BaseAuditHandler>();
+
+		collectHandlers(pipeline, handlers);
+
+		for (BaseAuditHandler handler : handlers) {
+			String name = handler.getName();
+
+			handlerMetrics.put(name, new AuditHandlerMetrics(handler));
+
+			if (isJmxEnabled) {
+				registerMBean(name, handlerMetrics.get(name));
+			}
+		}
+
+		LOG.info("Registered metrics for " + handlers.size() + " audit handlers. jmxEnabled=" + isJmxEnabled);
+	}
+
+	public synchronized void registerMetricsSource() {
+		if (isMetricsSourceRegistered) {
+			return;
+		}
+
+		try {
+			DefaultMetricsSystem.instance().register(METRICS_SOURCE_NAME, "Ranger audit pipeline metrics", new AuditMetricsSource(this));
+
+			isMetricsSourceRegistered = true;
+		} catch (Throwable excp) {
+			LOG.warn("Failed to register audit metrics with Hadoop metrics system", excp);
+		}
+	}
+
+	public List<AuditHandlerMetrics> getHandlerMetrics() {
+		return new ArrayList<AuditHandlerMetrics>(handlerMetrics.values());
+	}
+
+	public AuditHandlerMetrics getHandlerMetrics(String name) {
+		return handlerMetrics.get(name);
+	}
+
+	public void unregisterAll() {
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+		for (ObjectName objName : mbeanNames.values()) {
+			try {
+				if (mbs.isRegistered(objName)) {
+					mbs.unregisterMBean(objName);
+				}
+			} catch (Exception excp) {
+				LOG.warn("Failed to unregister MBean " + objName, excp);
+			}
+		}
+
+		mbeanNames.clear();
+		handlerMetrics.clear();
+	}
+
+	private void collectHandlers(AuditHandler handler, List<BaseAuditHandler> handlers) {
+		if (handler == null) {
+			return;
+		}
+
+		if (handler instanceof BaseAuditHandler) {
+			handlers.add((BaseAuditHandler) handler);
+		}
+
+		if (handler instanceof AuditQueue) {
+			collectHandlers(((AuditQueue) handler).getConsumer(), handlers);
+		} else if (handler instanceof MultiDestAuditProvider) {
+			for (AuditHandler provider : ((MultiDestAuditProvider) handler).getAuditProviders()) {
+				collectHandlers(provider, handlers);
+			}
+		}
+	}
+
+	private void registerMBean(String name, AuditHandlerMXBean mbean) {
+		try {
+			MBeanServer mbs     = ManagementFactory.getPlatformMBeanServer();
+			ObjectName  objName = new ObjectName(JMX_DOMAIN + ":type=AuditHandler,name=" + ObjectName.quote(name));
+
+			if (mbs.isRegistered(objName)) {
+				mbs.unregisterMBean(objName);
+			}
+
+			mbs.registerMBean(mbean, objName);
+
+			mbeanNames.put(name, objName);
+		} catch (Exception excp) {
+			LOG.warn("Failed to register MBean for audit handler " + name, excp);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.lib.Interns;
+
+/**
+ * Hadoop metrics2 view of the audit pipeline: one record per audit handler,
+ * tagged with the handler name.
+ */
+public class AuditMetricsSource implements MetricsSource {
+	static final String RECORD_NAME = "AuditHandler";
+	static final String CONTEXT     = "rangeraudit";
+
+	private final AuditMetricsRegistry registry;
+
+	public AuditMetricsSource(AuditMetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void getMetrics(MetricsCollector collector, boolean all) {
+		for (AuditHandlerMetrics metrics : registry.getHandlerMetrics()) {
+			collector.addRecord(RECORD_NAME)
+			         .setContext(CONTEXT)
+			         .tag(Interns.info("Handler", "Audit handler name"), metrics.getName())
+			         .tag(Interns.info("HandlerType", "Audit handler type"), metrics.getType())
+			         .addGauge(Interns.info("QueueDepth", "Events waiting in the queue"), metrics.getQueueDepth())
+			         .addGauge(Interns.info("SpoolBacklogBytes", "Bytes in unsent spool files"), metrics.getSpoolBacklogBytes())
+			         .addGauge(Interns.info("SpoolPendingFiles", "Unsent spool files"), metrics.getSpoolPendingFiles())
+			         .addCounter(Interns.info("TotalCount", "Events received"), metrics.getTotalCount())
+			         .addCounter(Interns.info("SuccessCount", "Events sent successfully"), metrics.getSuccessCount())
+			         .addCounter(Interns.info("FailedCount", "Events failed"), metrics.getFailedCount())
+			         .addCounter(Interns.info("DeferredCount", "Events deferred for retry"), metrics.getDeferredCount())
+			         .addCounter(Interns.info("StashedCount", "Events written to the file spool"), metrics.getStashedCount())
+			         .addCounter(Interns.info("DroppedCount", "Events dropped"), metrics.getDroppedCount())
+			         .addCounter(Interns.info("SampledOutCount", "Events suppressed by sampling"), metrics.getSampledOutCount())
+			         .addCounter(Interns.info("RateLimitedCount", "Events suppressed by rate limits"), metrics.getRateLimitedCount())
+			         .addCounter(Interns.info("BatchCount", "Batches sent downstream"), metrics.getBatchCount())
+			         .addGauge(Interns.info("BatchSizeMean", "Mean batch size"), metrics.getBatchSizeMean())
+			         .addGauge(Interns.info("BatchSizeMax", "Max batch size"), metrics.getBatchSizeMax())
+			         .addGauge(Interns.info("LatencyMsMean", "Mean enqueue-to-destination latency"), metrics.getLatencyMsMean())
+			         .addGauge(Interns.info("LatencyMsP95", "95th percentile enqueue-to-destination latency"), metrics.getLatencyMsP95())
+			         .addGauge(Interns.info("LatencyMsP99", "99th percentile enqueue-to-destination latency"), metrics.getLatencyMsP99())
+			         .addGauge(Interns.info("LatencyMsMax", "Max enqueue-to-destination latency"), metrics.getLatencyMsMax());
+		}
+	}
+}
@@ -25,6 +25,9 @@ import org.apache.ranger.audit.dao.DaoManager;
 
 public abstract class AuditEventBase {
 
+	// Time the event entered the audit queues; used only for latency metrics
+	private transient long enqueueTime = 0;
+
 	protected AuditEventBase() {
 	}
 
@@ -34,4 +37,12 @@ public abstract class AuditEventBase {
 	public abstract Date getEventTime ();
 	public abstract void setEventCount(long eventCount);
 	public abstract void setEventDurationMS(long eventDurationMS);
+
+	public long getEnqueueTime() {
+		return enqueueTime;
+	}
+
+	public void setEnqueueTime(long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}
 }
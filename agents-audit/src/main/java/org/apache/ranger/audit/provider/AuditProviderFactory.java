@@ -30,14 +30,17 @@ import org.apache.hadoop.util.ShutdownHookManager;
 import org.apache.ranger.audit.destination.DBAuditDestination;
 import org.apache.ranger.audit.destination.FileAuditDestination;
 import org.apache.ranger.audit.destination.HDFSAuditDestination;
+import org.apache.ranger.audit.destination.KafkaAuditDestination;
 import org.apache.ranger.audit.destination.Log4JAuditDestination;
 import org.apache.ranger.audit.destination.SolrAuditDestination;
+import org.apache.ranger.audit.metrics.AuditMetricsRegistry;
 import org.apache.ranger.audit.provider.hdfs.HdfsAuditProvider;
 import org.apache.ranger.audit.provider.kafka.KafkaAuditProvider;
 import org.apache.ranger.audit.provider.solr.SolrAuditProvider;
 import org.apache.ranger.audit.queue.AuditAsyncQueue;
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditSamplingQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 
 /*
@@ -61,6 +64,8 @@ public class AuditProviderFactory {
 	public static final String AUDIT_DEST_BASE = "xasecure.audit.destination";
 	public static final String AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC = "xasecure.audit.shutdown.hook.max.wait.seconds";
 	public static final int AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC_DEFAULT = 30;
+	public static final String AUDIT_METRICS_JMX_ENABLED_PROP = "xasecure.audit.metrics.jmx.enabled";
+	public static final String AUDIT_METRICS_HADOOP_ENABLED_PROP = "xasecure.audit.metrics.hadoop.enabled";
 
 	public static final int AUDIT_ASYNC_MAX_QUEUE_SIZE_DEFAULT = 10 * 1024;
 	public static final int AUDIT_ASYNC_MAX_FLUSH_INTERVAL_DEFAULT = 5 * 1000;
@@ -248,8 +253,34 @@ public class AuditProviderFactory {
 			asyncQueue.init(props, propPrefix);
 			asyncQueue.setParentPath(componentAppType);
 			mProvider = asyncQueue;
+
+			// Let's see if sampling is enabled, then filter before queuing
+			propPrefix = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + "sampling";
+			boolean samplingEnabled = MiscUtil.getBooleanProperty(props,
+					propPrefix + "." + "enabled", false);
+			if (samplingEnabled) {
+				LOG.info("AuditSamplingQueue is enabled");
+				AuditSamplingQueue samplingQueue = new AuditSamplingQueue(asyncQueue);
+				samplingQueue.init(props, propPrefix);
+				samplingQueue.setParentPath(componentAppType);
+				mProvider = samplingQueue;
+			} else {
+				LOG.info("AuditSamplingQueue is disabled");
+			}
 			LOG.info("Starting audit queue " + mProvider.getName());
 			mProvider.start();
+
+			boolean isJmxEnabled = MiscUtil.getBooleanProperty(props,
+					AUDIT_METRICS_JMX_ENABLED_PROP, true);
+			boolean isHadoopMetricsEnabled = MiscUtil.getBooleanProperty(props,
+					AUDIT_METRICS_HADOOP_ENABLED_PROP, false);
+			if (isJmxEnabled || isHadoopMetricsEnabled) {
+				AuditMetricsRegistry metricsRegistry = AuditMetricsRegistry.getInstance();
+				metricsRegistry.register(mProvider, isJmxEnabled);
+				if (isHadoopMetricsEnabled) {
+					metricsRegistry.registerMetricsSource();
+				}
+			}
 		} else {
 			LOG.info("No v3 audit configuration found. Trying v2 audit configurations");
 			if (!isEnabled
@@ -418,7 +449,7 @@ public class AuditProviderFactory {
 			} else if (providerName.equals("solr")) {
 				provider = new SolrAuditDestination();
 			} else if (providerName.equals("kafka")) {
-				provider = new KafkaAuditProvider();
+				provider = new KafkaAuditDestination();
 			} else if (providerName.equals("db")) {
 				provider = new DBAuditDestination();
 			} else if (providerName.equals("log4j")) {
@@ -20,6 +20,7 @@ package org.apache.ranger.audit.provider;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.metrics.AuditHistogram;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 
@@ -62,6 +63,11 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	long totalFailedCount = 0;
 	long totalStashedCount = 0;
 	long totalDeferredCount = 0;
+	AtomicLong totalDroppedCount = new AtomicLong(0);
+
+	// Enqueue-to-handler latency (ms) and sizes of batches sent downstream
+	protected final AuditHistogram latencyHistogram = new AuditHistogram();
+	protected final AuditHistogram batchSizeHistogram = new AuditHistogram();
 
 	long lastIntervalCount = 0;
 	long lastIntervalSuccessCount = 0;
@@ -221,6 +227,22 @@ public abstract class BaseAuditHandler implements AuditHandler {
 		return totalDeferredCount;
 	}
 
+	public long addDroppedCount(int count) {
+		return totalDroppedCount.addAndGet(count);
+	}
+
+	public void recordBatch(Collection<AuditEventBase> events) {
+		batchSizeHistogram.record(events.size());
+
+		long now = System.currentTimeMillis();
+		for (AuditEventBase event : events) {
+			long enqueueTime = event.getEnqueueTime();
+			if (enqueueTime > 0) {
+				latencyHistogram.record(now - enqueueTime);
+			}
+		}
+	}
+
 	public long getTotalCount() {
 		return totalCount;
 	}
@@ -249,6 +271,18 @@ public abstract class BaseAuditHandler implements AuditHandler {
 		return lastDeferredCount;
 	}
 
+	public long getTotalDroppedCount() {
+		return totalDroppedCount.get();
+	}
+
+	public AuditHistogram getLatencyHistogram() {
+		return latencyHistogram;
+	}
+
+	public AuditHistogram getBatchSizeHistogram() {
+		return batchSizeHistogram;
+	}
+
 	public void logStatusIfRequired() {
 		long currTime = System.currentTimeMillis();
 		if ((currTime - lastStatusLogTime) > statusLogIntervalMS) {
@@ -30,7 +30,9 @@ import javax.persistence.Persistence;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.dao.AuthzAuditEventBatchWriter;
 import org.apache.ranger.audit.dao.DaoManager;
+import org.apache.ranger.audit.dao.JdbcConnectionPool;
 import org.apache.ranger.audit.destination.AuditDestination;
 import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
 import org.apache.ranger.audit.model.AuditEventBase;
@@ -49,6 +51,10 @@ public class DbAuditProvider extends AuditDestination {
 	public static final String AUDIT_DB_IS_ASYNC_PROP           = "xasecure.audit.db.is.async";
 	public static final String AUDIT_DB_MAX_QUEUE_SIZE_PROP     = "xasecure.audit.db.async.max.queue.size" ;
 	public static final String AUDIT_DB_MAX_FLUSH_INTERVAL_PROP = "xasecure.audit.db.async.max.flush.interval.ms";
+	public static final String AUDIT_DB_JDBC_BATCH_ENABLE_PROP  = "xasecure.audit.db.jdbc.batch.enable";
+	public static final String AUDIT_DB_JDBC_ROWS_PER_INSERT_PROP = "xasecure.audit.db.jdbc.batch.rows.per.insert";
+	public static final String AUDIT_DB_JDBC_POOL_SIZE_PROP     = "xasecure.audit.db.jdbc.pool.size";
+	public static final String AUDIT_DB_JDBC_POOL_WAIT_TIMEOUT_PROP = "xasecure.audit.db.jdbc.pool.wait.timeout.ms";
 
 	private static final String AUDIT_DB_BATCH_SIZE_PROP            = "xasecure.audit.db.batch.size" ;
 	private static final String AUDIT_DB_RETRY_MIN_INTERVAL_PROP    = "xasecure.audit.db.config.retry.min.interval.ms";
@@ -56,6 +62,9 @@ public class DbAuditProvider extends AuditDestination {
 	private static final String AUDIT_DB_CREDENTIAL_PROVIDER_FILE   = "xasecure.audit.credential.provider.file";
 	private static final String AUDIT_DB_CREDENTIAL_PROVIDER_ALIAS	= "auditDBCred";
 	private static final String AUDIT_JPA_JDBC_PASSWORD  			= "javax.persistence.jdbc.password";
+	private static final String AUDIT_JPA_JDBC_DRIVER    			= "javax.persistence.jdbc.driver";
+	private static final String AUDIT_JPA_JDBC_URL       			= "javax.persistence.jdbc.url";
+	private static final String AUDIT_JPA_JDBC_USER      			= "javax.persistence.jdbc.user";
 
 	private EntityManagerFactory entityManagerFactory;
 	private DaoManager          daoManager;
@@ -66,6 +75,11 @@ public class DbAuditProvider extends AuditDestination {
 	private ArrayList<AuditEventBase> mUncommitted    = new ArrayList<AuditEventBase>();
 	private Map<String, String> mDbProperties         = null;
 	private long                mLastDbFailedTime     = 0;
+	private boolean             mUseJdbcBatch         = false;
+	private int                 mRowsPerInsert        = 50;
+	private int                 mJdbcPoolSize         = 1;
+	private int                 mJdbcPoolWaitTimeoutMs = 5 * 1000;
+	private AuthzAuditEventBatchWriter mBatchWriter   = null;
 
 	public DbAuditProvider() {
 		LOG.info("DbAuditProvider: creating..");
@@ -81,6 +95,11 @@ public class DbAuditProvider extends AuditDestination {
 		mCommitBatchSize      = MiscUtil.getIntProperty(props, AUDIT_DB_BATCH_SIZE_PROP, 1000);
 		mDbRetryMinIntervalMs = MiscUtil.getIntProperty(props, AUDIT_DB_RETRY_MIN_INTERVAL_PROP, 15 * 1000);
 
+		mUseJdbcBatch         = MiscUtil.getBooleanProperty(props, AUDIT_DB_JDBC_BATCH_ENABLE_PROP, false);
+		mRowsPerInsert        = MiscUtil.getIntProperty(props, AUDIT_DB_JDBC_ROWS_PER_INSERT_PROP, mRowsPerInsert);
+		mJdbcPoolSize         = MiscUtil.getIntProperty(props, AUDIT_DB_JDBC_POOL_SIZE_PROP, mJdbcPoolSize);
+		mJdbcPoolWaitTimeoutMs = MiscUtil.getIntProperty(props, AUDIT_DB_JDBC_POOL_WAIT_TIMEOUT_PROP, mJdbcPoolWaitTimeoutMs);
+
 		boolean isAsync = MiscUtil.getBooleanProperty(props, AUDIT_DB_IS_ASYNC_PROP, false);
 
 		if(! isAsync) {
@@ -101,6 +120,12 @@ public class DbAuditProvider extends AuditDestination {
 	public boolean log(AuditEventBase event) {
 		LOG.debug("DbAuditProvider.log()");
 
+		if(mUseJdbcBatch) {
+			mUncommitted.add(event);
+
+			return mUncommitted.size() < mCommitBatchSize || writeUncommitted();
+		}
+
 		boolean isSuccess = false;
 
 		try {
@@ -126,6 +151,12 @@ public class DbAuditProvider extends AuditDestination {
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
+		if(mUseJdbcBatch) {
+			mUncommitted.addAll(events);
+
+			return writeUncommitted();
+		}
+
 		boolean ret = true;
 		for (AuditEventBase event : events) {
 			ret = log(event);
@@ -171,7 +202,9 @@ public class DbAuditProvider extends AuditDestination {
 
 	@Override
 	public void flush() {
-		if(mUncommitted.size() > 0) {
+		if(mUseJdbcBatch) {
+			writeUncommitted();
+		} else if(mUncommitted.size() > 0) {
 			boolean isSuccess = commitTransaction();
 
 			if(! isSuccess) {
@@ -193,6 +226,11 @@ public class DbAuditProvider extends AuditDestination {
 
 		LOG.info("DbAuditProvider: init()");
 		LOG.info("java.library.path:"+System.getProperty("java.library.path"));
+
+		if(mUseJdbcBatch) {
+			return initBatchWriter();
+		}
+
 		try {
 			entityManagerFactory = Persistence.createEntityManagerFactory("xa_server", mDbProperties);
 
@@ -211,6 +249,55 @@ public class DbAuditProvider extends AuditDestination {
 		return true;
 	}
 	
+	private boolean initBatchWriter() {
+		try {
+			JdbcConnectionPool connectionPool = new JdbcConnectionPool(mDbProperties.get(AUDIT_JPA_JDBC_DRIVER),
+			                                                           mDbProperties.get(AUDIT_JPA_JDBC_URL),
+			                                                           mDbProperties.get(AUDIT_JPA_JDBC_USER),
+			                                                           mDbProperties.get(AUDIT_JPA_JDBC_PASSWORD),
+			                                                           mJdbcPoolSize,
+			                                                           mJdbcPoolWaitTimeoutMs);
+
+			mBatchWriter = new AuthzAuditEventBatchWriter(connectionPool, mCommitBatchSize, mRowsPerInsert);
+		} catch(Exception excp) {
+			logDbError("DbAuditProvider: JDBC batch writer initalization failed", excp);
+
+			cleanUp();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean writeUncommitted() {
+		if(mUncommitted.isEmpty()) {
+			return true;
+		}
+
+		boolean isSuccess = false;
+
+		try {
+			if(mBatchWriter != null || init()) {
+				isSuccess = mBatchWriter.write(mUncommitted);
+			}
+		} catch(Exception excp) {
+			logDbError("DbAuditProvider.writeUncommitted(): failed", excp);
+		} finally {
+			mLastCommitTime = System.currentTimeMillis();
+
+			if(! isSuccess) {
+				for(AuditEventBase evt : mUncommitted) {
+					logFailedEvent(evt);
+				}
+			}
+
+			mUncommitted.clear();
+		}
+
+		return isSuccess;
+	}
+
 	private synchronized void cleanUp() {
 		LOG.info("DbAuditProvider: cleanUp()");
 
@@ -224,6 +311,16 @@ public class DbAuditProvider extends AuditDestination {
 			entityManagerFactory = null;
 			daoManager    = null;
 		}
+
+		try {
+			if(mBatchWriter != null) {
+				mBatchWriter.close();
+			}
+		} catch(Exception excp) {
+			LOG.error("DbAuditProvider.cleanUp(): failed to close batch writer", excp);
+		} finally {
+			mBatchWriter = null;
+		}
 	}
 	
 	private boolean isDbConnected() {
@@ -58,12 +58,21 @@ public class AuditAsyncQueue extends AuditQueue implements Runnable {
 	public boolean log(AuditEventBase event) {
 		// Add to the queue and return ASAP
 		if (queue.size() >= getMaxQueueSize()) {
+			addDroppedCount(1);
 			return false;
 		}
+		if (event.getEnqueueTime() == 0) {
+			event.setEnqueueTime(System.currentTimeMillis());
+		}
 		queue.add(event);
 		return true;
 	}
 
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
 		boolean ret = true;
@@ -149,6 +158,7 @@ public class AuditAsyncQueue extends AuditQueue implements Runnable {
 					Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
 					eventList.add(event);
 					queue.drainTo(eventList, MAX_DRAIN - 1);
+					recordBatch(eventList);
 					consumer.log(eventList);
 				}
 			} catch (InterruptedException e) {
@@ -37,6 +37,9 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 
 	private BlockingQueue<AuditEventBase> queue = null;
 	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
+	// Size of localBatchBuffer, which only the consumer thread may touch;
+	// read by the metrics and by waitToComplete() on other threads
+	private volatile int localBatchBufferSize = 0;
 
 	Thread consumerThread = null;
 	static int threadCount = 0;
@@ -57,10 +60,19 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 	@Override
 	public boolean log(AuditEventBase event) {
 		// Add to batchQueue. Block if full
+		if (event.getEnqueueTime() == 0) {
+			event.setEnqueueTime(System.currentTimeMillis());
+		}
 		queue.add(event);
 		return true;
 	}
 
+	@Override
+	public int getQueueSize() {
+		BlockingQueue<AuditEventBase> tmpQueue = queue;
+		return (tmpQueue != null ? tmpQueue.size() : 0) + localBatchBufferSize;
+	}
+
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
 		boolean ret = true;
@@ -159,7 +171,7 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		long startTime = System.currentTimeMillis();
 		int prevQueueSize = -1;
 		int staticLoopCount = 0;
-		while ((queue.size() > 0 || localBatchBuffer.size() > 0)) {
+		while ((queue.size() > 0 || localBatchBufferSize > 0)) {
 			if (prevQueueSize == queue.size()) {
 				logger.error("Queue size is not changing. " + getName()
 						+ ".size=" + queue.size());
@@ -284,6 +296,8 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 				logger.error("Caught error during processing request.", t);
 			}
 
+			localBatchBufferSize = localBatchBuffer.size();
+
 			addTotalCount(localBatchBuffer.size());
 			if (localBatchBuffer.size() > 0 && isToSpool) {
 				// Let spool to the file directly
@@ -297,6 +311,7 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 				fileSpooler.stashLogs(localBatchBuffer);
 				addStashedCount(localBatchBuffer.size());
 				localBatchBuffer.clear();
+				localBatchBufferSize = 0;
 			} else if (localBatchBuffer.size() > 0
 					&& (isDrain()
 							|| localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
@@ -318,13 +333,16 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 					} else {
 						// We need to drop this event
 						addFailedCount(localBatchBuffer.size());
+						addDroppedCount(localBatchBuffer.size());
 						logFailedEvent(localBatchBuffer);
 					}
 				} else {
 					isDestActive = true;
 					addSuccessCount(localBatchBuffer.size());
+					recordBatch(localBatchBuffer);
 				}
 				localBatchBuffer.clear();
+				localBatchBufferSize = 0;
 			}
 
 			if (isDrain()) {
@@ -388,6 +388,31 @@ public class AuditFileSpool implements Runnable {
 		return isPending;
 	}
 
+	/**
+	 * Bytes in spool files that have not been fully sent to the destination
+	 * yet. Lines already sent from a partially consumed file are included.
+	 */
+	synchronized public long getBacklogBytes() {
+		long ret = 0;
+		for (AuditIndexRecord indexRecord : indexRecords) {
+			if (indexRecord.status != SPOOL_FILE_STATUS.done
+					&& indexRecord.filePath != null) {
+				ret += new File(indexRecord.filePath).length();
+			}
+		}
+		return ret;
+	}
+
+	synchronized public int getPendingFileCount() {
+		int ret = 0;
+		for (AuditIndexRecord indexRecord : indexRecords) {
+			if (indexRecord.status != SPOOL_FILE_STATUS.done) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+
 	/**
 	 * Milliseconds from last attempt time
 	 * 
@@ -116,6 +116,8 @@ public abstract class AuditQueue extends BaseAuditHandler {
 				fileSpoolerEnabled = false;
 				LOG.fatal("Couldn't initialize file spooler. Disabling it. queue="
 						+ getName() + ", consumer=" + consumer.getName());
+			} else if (consumer instanceof AuditDestination) {
+				((AuditDestination) consumer).setFileSpooler(fileSpooler);
 			}
 		} else {
 			LOG.info("File spool is disabled for " + getName());
@@ -157,6 +159,17 @@ public abstract class AuditQueue extends BaseAuditHandler {
 		return consumer;
 	}
 
+	public AuditFileSpool getFileSpooler() {
+		return fileSpoolerEnabled ? fileSpooler : null;
+	}
+
+	/**
+	 * @return number of events waiting in this queue
+	 */
+	public int getQueueSize() {
+		return 0;
+	}
+
 	public boolean isDrainMaxTimeElapsed() {
 		return (stopTime - System.currentTimeMillis()) > AUDIT_CONSUMER_THREAD_WAIT_MS;
 	}
@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * This is a pass-through stage that reduces the volume of allowed-access
+ * audits before they reach the queues. Each configured rule matches events by
+ * user and access type and can:
+ * - keep only a fraction of matching events, decided by a hash of the event
+ *   id, so the decision for a given event is always the same
+ * - limit matching events per (user, resource) with a token bucket
+ * Denied accesses are always passed through. Suppressed events are counted
+ * and periodically sent downstream as summary events, with eventCount set to
+ * the number of events they stand for. The token buckets of the least
+ * recently seen (user, resource) pairs are evicted beyond max.tracked.keys.
+ */
+public class AuditSamplingQueue extends AuditQueue {
+	private static final Log logger = LogFactory.getLog(AuditSamplingQueue.class);
+
+	public static final String PROP_SAMPLING_RULES = "rules";
+	public static final String PROP_SAMPLING_RULE = "rule";
+	public static final String PROP_RULE_USERS = "users";
+	public static final String PROP_RULE_ACCESS_TYPES = "access.types";
+	public static final String PROP_RULE_SAMPLE_RATE = "sample.rate";
+	public static final String PROP_RULE_RATE_LIMIT_PER_SEC = "rate.limit.per.sec";
+	public static final String PROP_RULE_RATE_LIMIT_BURST = "rate.limit.burst";
+	public static final String PROP_SUMMARY_INTERVAL = "summary.interval.ms";
+	public static final String PROP_MAX_TRACKED_KEYS = "max.tracked.keys";
+
+	static final String DEFAULT_NAME = "sampling";
+	static final String WILDCARD = "*";
+	static final int SAMPLE_BUCKETS = 10000;
+
+	private final List<SamplingRule> rules = new ArrayList<SamplingRule>();
+	private final Map<String, TokenBucket> tokenBuckets = Collections.synchronizedMap(new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+			return size() > maxTrackedKeys;
+		}
+	});
+	private final ConcurrentHashMap<String, SuppressedSummary> summaryMap = new ConcurrentHashMap<String, SuppressedSummary>();
+
+	private long summaryIntervalMs = 60 * 1000;
+	private int maxTrackedKeys = 100000;
+	private volatile long lastSummaryTime = System.currentTimeMillis();
+
+	public AuditSamplingQueue(AuditHandler consumer) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+	}
+
+	@Override
+	public void init(Properties props, String propPrefix) {
+		super.init(props, propPrefix);
+
+		summaryIntervalMs = MiscUtil.getLongProperty(props, propPrefix + "."
+				+ PROP_SUMMARY_INTERVAL, summaryIntervalMs);
+		maxTrackedKeys = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_MAX_TRACKED_KEYS, maxTrackedKeys);
+
+		String ruleNames = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_SAMPLING_RULES);
+		for (String ruleName : MiscUtil.toArray(ruleNames, ",")) {
+			ruleName = ruleName.trim();
+			if (ruleName.isEmpty()) {
+				continue;
+			}
+			String rulePrefix = propPrefix + "." + PROP_SAMPLING_RULE + "."
+					+ ruleName;
+			SamplingRule rule = new SamplingRule(ruleName,
+					toSet(MiscUtil.getStringProperty(props, rulePrefix + "." + PROP_RULE_USERS)),
+					toSet(MiscUtil.getStringProperty(props, rulePrefix + "." + PROP_RULE_ACCESS_TYPES)),
+					getDoubleProperty(props, rulePrefix + "." + PROP_RULE_SAMPLE_RATE, 1.0),
+					getDoubleProperty(props, rulePrefix + "." + PROP_RULE_RATE_LIMIT_PER_SEC, 0),
+					MiscUtil.getIntProperty(props, rulePrefix + "." + PROP_RULE_RATE_LIMIT_BURST, 0));
+			rules.add(rule);
+			logger.info("Audit sampling rule: " + rule + ", name=" + getName());
+		}
+
+		logger.info("summaryIntervalMs=" + summaryIntervalMs
+				+ ", maxTrackedKeys=" + maxTrackedKeys + ", rules="
+				+ rules.size() + ", name=" + getName());
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		logSummaryIfRequired();
+
+		if (!isSuppressed(event)) {
+			return consumer.log(event);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		logSummaryIfRequired();
+
+		List<AuditEventBase> toLog = new ArrayList<AuditEventBase>(events.size());
+		for (AuditEventBase event : events) {
+			if (!isSuppressed(event)) {
+				toLog.add(event);
+			}
+		}
+		return toLog.isEmpty() || consumer.log(toLog);
+	}
+
+	@Override
+	public void start() {
+		if (consumer != null) {
+			consumer.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		logger.info("Stop called. name=" + getName());
+		logSummary();
+		logStatus();
+		if (consumer != null) {
+			consumer.stop();
+		}
+	}
+
+	@Override
+	public void waitToComplete() {
+		logSummary();
+		super.waitToComplete();
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		logSummary();
+		super.waitToComplete(timeout);
+	}
+
+	@Override
+	public void logStatus() {
+		for (SamplingRule rule : rules) {
+			long sampled = rule.sampledOutCount.get();
+			long limited = rule.rateLimitedCount.get();
+			if (rule.matchedCount.get() > 0) {
+				logger.info("Audit Sampling Status: name=" + getName()
+						+ ", rule=" + rule.name + ", matched="
+						+ rule.matchedCount.get() + ", sampledOut=" + sampled
+						+ ", rateLimited=" + limited);
+			}
+		}
+	}
+
+	public long getSampledOutCount() {
+		long ret = 0;
+		for (SamplingRule rule : rules) {
+			ret += rule.sampledOutCount.get();
+		}
+		return ret;
+	}
+
+	public long getRateLimitedCount() {
+		long ret = 0;
+		for (SamplingRule rule : rules) {
+			ret += rule.rateLimitedCount.get();
+		}
+		return ret;
+	}
+
+	public long getSuppressedCount(String ruleName) {
+		for (SamplingRule rule : rules) {
+			if (rule.name.equals(ruleName)) {
+				return rule.sampledOutCount.get()
+						+ rule.rateLimitedCount.get();
+			}
+		}
+		return 0;
+	}
+
+	boolean isSuppressed(AuditEventBase event) {
+		if (rules.isEmpty() || !(event instanceof AuthzAuditEvent)) {
+			return false;
+		}
+
+		AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+		if (authzEvent.getAccessResult() == 0) {
+			// Denials are always audited
+			return false;
+		}
+
+		SamplingRule rule = getMatchingRule(authzEvent);
+		if (rule == null) {
+			return false;
+		}
+		rule.matchedCount.incrementAndGet();
+
+		if (!rule.isSampledIn(authzEvent)) {
+			rule.sampledOutCount.incrementAndGet();
+			addToSummary(authzEvent);
+			return true;
+		}
+
+		if (rule.rateLimitPerSec > 0) {
+			String key = rule.name + "|" + authzEvent.getUser() + "|"
+					+ authzEvent.getResourcePath();
+			TokenBucket bucket;
+			synchronized (tokenBuckets) {
+				bucket = tokenBuckets.get(key);
+				if (bucket == null) {
+					bucket = new TokenBucket(rule.rateLimitPerSec, rule.rateLimitBurst);
+					tokenBuckets.put(key, bucket);
+				}
+			}
+			if (!bucket.tryAcquire()) {
+				rule.rateLimitedCount.incrementAndGet();
+				addToSummary(authzEvent);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SamplingRule getMatchingRule(AuthzAuditEvent event) {
+		for (SamplingRule rule : rules) {
+			if (rule.isMatch(event)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	private void addToSummary(AuthzAuditEvent event) {
+		String key = event.getEventKey();
+		while (true) {
+			SuppressedSummary summary = summaryMap.get(key);
+			if (summary == null) {
+				if (summaryMap.size() >= maxTrackedKeys) {
+					logSummary();
+				}
+				summary = new SuppressedSummary();
+				SuppressedSummary existing = summaryMap.putIfAbsent(key, summary);
+				if (existing != null) {
+					summary = existing;
+				}
+			}
+			if (summary.add(event)) {
+				break;
+			}
+			// logSummary() sent this summary after it was looked up; start a new one
+			summaryMap.remove(key, summary);
+		}
+	}
+
+	private void logSummaryIfRequired() {
+		if (System.currentTimeMillis() - lastSummaryTime > summaryIntervalMs) {
+			logSummary();
+		}
+	}
+
+	private synchronized void logSummary() {
+		lastSummaryTime = System.currentTimeMillis();
+
+		List<AuditEventBase> summaryEvents = new ArrayList<AuditEventBase>();
+		for (String key : summaryMap.keySet()) {
+			SuppressedSummary summary = summaryMap.remove(key);
+			AuditEventBase event = summary != null ? summary.toEvent() : null;
+			if (event != null) {
+				summaryEvents.add(event);
+			}
+		}
+
+		if (!summaryEvents.isEmpty() && consumer != null) {
+			if (!consumer.log(summaryEvents)) {
+				logFailedEvent(summaryEvents);
+			}
+			logStatus();
+		}
+	}
+
+	private static Set<String> toSet(String value) {
+		Set<String> ret = new HashSet<String>();
+		for (String str : MiscUtil.toArray(value, ",")) {
+			str = str.trim();
+			if (!str.isEmpty()) {
+				ret.add(str);
+			}
+		}
+		if (ret.isEmpty()) {
+			ret.add(WILDCARD);
+		}
+		return ret;
+	}
+
+	private static double getDoubleProperty(Properties props, String propName, double defValue) {
+		String val = MiscUtil.getStringProperty(props, propName);
+		if (val != null) {
+			try {
+				return Double.parseDouble(val.trim());
+			} catch (NumberFormatException excp) {
+				logger.warn("Invalid value for " + propName + ": " + val + ". Using " + defValue);
+			}
+		}
+		return defValue;
+	}
+
+	static class SamplingRule {
+		final String name;
+		final Set<String> users;
+		final Set<String> accessTypes;
+		final int sampleBuckets;
+		final double rateLimitPerSec;
+		final int rateLimitBurst;
+
+		final AtomicLong matchedCount = new AtomicLong(0);
+		final AtomicLong sampledOutCount = new AtomicLong(0);
+		final AtomicLong rateLimitedCount = new AtomicLong(0);
+
+		SamplingRule(String name, Set<String> users, Set<String> accessTypes,
+				double sampleRate, double rateLimitPerSec, int rateLimitBurst) {
+			this.name = name;
+			this.users = users;
+			this.accessTypes = accessTypes;
+			this.sampleBuckets = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * SAMPLE_BUCKETS);
+			this.rateLimitPerSec = rateLimitPerSec;
+			this.rateLimitBurst = rateLimitBurst > 0 ? rateLimitBurst : (int) Math.max(1, Math.ceil(rateLimitPerSec));
+		}
+
+		boolean isMatch(AuthzAuditEvent event) {
+			return (users.contains(WILDCARD) || users.contains(event.getUser()))
+					&& (accessTypes.contains(WILDCARD) || accessTypes.contains(event.getAccessType()));
+		}
+
+		boolean isSampledIn(AuthzAuditEvent event) {
+			if (sampleBuckets >= SAMPLE_BUCKETS) {
+				return true;
+			}
+			String id = event.getEventId() != null ? event.getEventId() : event.getEventKey();
+			int bucket = (id.hashCode() & Integer.MAX_VALUE) % SAMPLE_BUCKETS;
+			return bucket < sampleBuckets;
+		}
+
+		@Override
+		public String toString() {
+			return "{name=" + name + ", users=" + users + ", accessTypes="
+					+ accessTypes + ", sampleRate="
+					+ ((double) sampleBuckets / SAMPLE_BUCKETS)
+					+ ", rateLimitPerSec=" + rateLimitPerSec
+					+ ", rateLimitBurst=" + rateLimitBurst + "}";
+		}
+	}
+
+	static class TokenBucket {
+		private final double tokensPerMs;
+		private final double maxTokens;
+		private double tokens;
+		private long lastRefillTime;
+
+		TokenBucket(double tokensPerSec, int burst) {
+			this.tokensPerMs = tokensPerSec / 1000;
+			this.maxTokens = burst;
+			this.tokens = burst;
+			this.lastRefillTime = System.currentTimeMillis();
+		}
+
+		synchronized boolean tryAcquire() {
+			long now = System.currentTimeMillis();
+			if (now > lastRefillTime) {
+				tokens = Math.min(maxTokens, tokens + (now - lastRefillTime) * tokensPerMs);
+				lastRefillTime = now;
+			}
+			if (tokens >= 1) {
+				tokens -= 1;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	static class SuppressedSummary {
+		private AuthzAuditEvent event = null;
+		private long count = 0;
+		private long startTime = 0;
+		private long endTime = 0;
+		private boolean isClosed = false;
+
+		synchronized boolean add(AuthzAuditEvent event) {
+			if (isClosed) {
+				return false;
+			}
+			long eventTime = event.getEventTime() != null ? event.getEventTime().getTime() : System.currentTimeMillis();
+			if (this.event == null) {
+				startTime = eventTime;
+			}
+			this.event = event;
+			this.endTime = eventTime;
+			this.count += Math.max(1, event.getEventCount());
+			return true;
+		}
+
+		synchronized AuditEventBase toEvent() {
+			isClosed = true;
+			if (event != null) {
+				event.setEventCount(count);
+				event.setEventDurationMS(Math.max(1, endTime - startTime));
+			}
+			return event;
+		}
+	}
+}
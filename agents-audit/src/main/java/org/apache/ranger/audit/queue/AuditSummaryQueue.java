@@ -81,12 +81,21 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 	public boolean log(AuditEventBase event) {
 		// Add to the queue and return ASAP
 		if (queue.size() >= getMaxQueueSize()) {
+			addDroppedCount(1);
 			return false;
 		}
+		if (event.getEnqueueTime() == 0) {
+			event.setEnqueueTime(System.currentTimeMillis());
+		}
 		queue.add(event);
 		return true;
 	}
 
+	@Override
+	public int getQueueSize() {
+		return queue.size() + summaryMap.size();
+	}
+
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
 		boolean ret = true;
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.dao;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ranger.audit.dao.AuthzAuditEventBatchWriter.DbFlavor;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Runs the batch writer against a stub JDBC driver, which records the
+ * connections and statements it hands out.
+ */
+public class TestAuthzAuditEventBatchWriter {
+
+	private static final String JDBC_URL = "jdbc:derby:memory:rangerAuditTest";
+
+	// index of request_user in a row; 1-based, as in PreparedStatement
+	private static final int USER_PARAM_IDX = 3;
+
+	private static StubDriver driver;
+
+	@BeforeClass
+	public static void registerDriver() throws SQLException {
+		driver = new StubDriver();
+
+		DriverManager.registerDriver(driver);
+	}
+
+	@AfterClass
+	public static void deregisterDriver() throws SQLException {
+		DriverManager.deregisterDriver(driver);
+	}
+
+	@Before
+	public void setup() {
+		driver.reset();
+	}
+
+	@Test
+	public void testBatchInsert() throws Exception {
+		AuthzAuditEventBatchWriter writer = createWriter(1, 1000, 2, 3);
+
+		Assert.assertEquals(DbFlavor.DERBY, writer.getDbFlavor());
+		Assert.assertTrue(writer.write(createEvents(8)));
+
+		Assert.assertEquals(1, driver.connections.size());
+
+		StubConnection    conn     = driver.connections.get(0);
+		PreparedStatement multiRow = conn.statements.get(AuthzAuditEventBatchWriter.buildInsertSql(DbFlavor.DERBY, 3));
+		PreparedStatement oneRow   = conn.statements.get(AuthzAuditEventBatchWriter.buildInsertSql(DbFlavor.DERBY, 1));
+		int               colCount = AuthzAuditEventBatchWriter.COLUMNS.length;
+
+		// 8 rows: two 3-row INSERTs in one batch, then the remaining 2 rows one at a time
+		Mockito.verify(multiRow, Mockito.times(2)).addBatch();
+		Mockito.verify(multiRow, Mockito.times(1)).executeBatch();
+		Mockito.verify(multiRow).setString(USER_PARAM_IDX, "user0");
+		Mockito.verify(multiRow).setString(colCount + USER_PARAM_IDX, "user1");
+		Mockito.verify(multiRow).setString(2 * colCount + USER_PARAM_IDX, "user5");
+		Mockito.verify(oneRow, Mockito.times(2)).addBatch();
+		Mockito.verify(oneRow, Mockito.times(1)).executeBatch();
+		Mockito.verify(oneRow).setString(USER_PARAM_IDX, "user6");
+		Mockito.verify(oneRow).setString(USER_PARAM_IDX, "user7");
+
+		Mockito.verify(conn.connection).setAutoCommit(false);
+		Mockito.verify(conn.connection).commit();
+		Mockito.verify(conn.connection, Mockito.never()).rollback();
+	}
+
+	@Test
+	public void testConnectionAndStatementsAreReused() throws Exception {
+		AuthzAuditEventBatchWriter writer = createWriter(2, 1000, 10, 5);
+
+		Assert.assertTrue(writer.write(createEvents(5)));
+		Assert.assertTrue(writer.write(createEvents(5)));
+
+		Assert.assertEquals(1, driver.connections.size());
+
+		StubConnection conn = driver.connections.get(0);
+
+		Assert.assertEquals(1, conn.statements.size());
+		Mockito.verify(conn.connection, Mockito.times(1)).prepareStatement(Mockito.anyString());
+		Mockito.verify(conn.connection, Mockito.times(2)).commit();
+
+		writer.close();
+
+		Mockito.verify(conn.connection).close();
+	}
+
+	@Test
+	public void testPoolWaitsForReleasedConnection() throws Exception {
+		JdbcConnectionPool         pool   = new JdbcConnectionPool(StubDriver.class.getName(), JDBC_URL, "user", "password", 1, 50);
+		AuthzAuditEventBatchWriter writer = new AuthzAuditEventBatchWriter(pool, 1000, 1);
+
+		JdbcConnectionPool.PooledConnection conn = pool.getConnection();
+
+		Assert.assertNotNull(conn);
+		Assert.assertNull(pool.getConnection());
+		// no connection within the wait timeout: the events are not written
+		Assert.assertFalse(writer.write(createEvents(1)));
+
+		pool.releaseConnection(conn, false);
+
+		Assert.assertTrue(writer.write(createEvents(1)));
+		Assert.assertSame(conn, pool.getConnection());
+		Assert.assertEquals(1, driver.connections.size());
+		Assert.assertEquals("user", driver.connections.get(0).info.getProperty("user"));
+	}
+
+	@Test
+	public void testFailedWriteIsRolledBackAndRetriedOnNewConnection() throws Exception {
+		AuthzAuditEventBatchWriter writer = createWriter(1, 1000, 10, 1);
+
+		driver.failedBatchCount = 1;
+
+		try {
+			writer.write(createEvents(3));
+
+			Assert.fail("expected SQLException");
+		} catch (SQLException excp) {
+			// expected
+		}
+
+		StubConnection failedConn = driver.connections.get(0);
+
+		Mockito.verify(failedConn.connection).rollback();
+		Mockito.verify(failedConn.connection, Mockito.never()).commit();
+		// a connection that saw an error is not returned to the pool
+		Mockito.verify(failedConn.connection).close();
+
+		Assert.assertTrue(writer.write(createEvents(3)));
+
+		Assert.assertEquals(2, driver.connections.size());
+		Mockito.verify(driver.connections.get(1).connection).commit();
+	}
+
+	private static AuthzAuditEventBatchWriter createWriter(int poolSize, long maxWaitMs, int batchSize, int rowsPerInsert) throws ClassNotFoundException {
+		JdbcConnectionPool pool = new JdbcConnectionPool(StubDriver.class.getName(), JDBC_URL, "user", "password", poolSize, maxWaitMs);
+
+		return new AuthzAuditEventBatchWriter(pool, batchSize, rowsPerInsert);
+	}
+
+	private static List<AuditEventBase> createEvents(int count) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setUser("user" + i);
+			event.setAccessType("read");
+			event.setResourcePath("/data/" + i);
+			event.setAccessResult((short) 1);
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	static class StubConnection {
+		final Connection                     connection;
+		final Properties                     info;
+		final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+		StubConnection(Connection connection, Properties info) {
+			this.connection = connection;
+			this.info       = info;
+		}
+	}
+
+	public static class StubDriver implements Driver {
+		final List<StubConnection> connections = Collections.synchronizedList(new ArrayList<StubConnection>());
+
+		// number of statements, yet to be prepared, whose executeBatch() fails
+		volatile int failedBatchCount = 0;
+
+		void reset() {
+			connections.clear();
+			failedBatchCount = 0;
+		}
+
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+
+			final StubConnection ret = new StubConnection(Mockito.mock(Connection.class), info);
+
+			Mockito.when(ret.connection.prepareStatement(Mockito.anyString())).thenAnswer(new Answer<PreparedStatement>() {
+				@Override
+				public PreparedStatement answer(InvocationOnMock invocation) throws Throwable {
+					PreparedStatement stmt = Mockito.mock(PreparedStatement.class);
+
+					if (failedBatchCount > 0) {
+						failedBatchCount--;
+
+						Mockito.when(stmt.executeBatch()).thenThrow(new SQLException("batch failed"));
+					}
+
+					ret.statements.put((String) invocation.getArguments()[0], stmt);
+
+					return stmt;
+				}
+			});
+
+			connections.add(ret);
+
+			return ret.connection;
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return JDBC_URL.equals(url);
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestKafkaAuditDestination {
+
+	private static final String PROP_PREFIX = "xasecure.audit.destination.kafka";
+
+	private File                         spoolDir;
+	private MockProducer<String, String> producer;
+	private KafkaAuditDestination        destination;
+
+	@Before
+	public void setUp() throws Exception {
+		spoolDir    = Files.createTempDirectory("kafka-audit-spool").toFile();
+		producer    = new MockProducer<String, String>(false, new StringSerializer(), new StringSerializer());
+		destination = new KafkaAuditDestination();
+
+		destination.setProducer(producer);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		deleteRecursively(spoolDir);
+	}
+
+	@Test
+	public void testFailedDeliveryIsStashed() throws Exception {
+		AuditFileSpool fileSpooler = createFileSpool(destination);
+
+		destination.setFileSpooler(fileSpooler);
+
+		Assert.assertTrue(destination.log(createEvents(3)));
+		Assert.assertEquals(3, producer.history().size());
+		Assert.assertEquals("repo1", producer.history().get(0).key());
+
+		Assert.assertTrue(producer.completeNext());
+		Assert.assertTrue(producer.errorNext(new RuntimeException("broker is down")));
+		Assert.assertTrue(producer.completeNext());
+
+		// the callback only hands the failed event over; nothing is stashed yet
+		Assert.assertEquals(2, destination.getTotalSuccessCount());
+		Assert.assertEquals(0, destination.getTotalStashedCount());
+		Assert.assertFalse(fileSpooler.isPending());
+
+		destination.flush();
+
+		Assert.assertEquals(3, destination.getTotalCount());
+		Assert.assertEquals(2, destination.getTotalSuccessCount());
+		Assert.assertEquals(1, destination.getTotalStashedCount());
+		Assert.assertEquals(0, destination.getTotalFailedCount());
+		Assert.assertTrue(fileSpooler.isPending());
+
+		String spooled = readSpoolFiles(spoolDir);
+
+		Assert.assertTrue(spooled.contains("event-1"));
+		Assert.assertFalse(spooled.contains("event-0"));
+		Assert.assertFalse(spooled.contains("event-2"));
+	}
+
+	@Test
+	public void testFailedDeliveryWithoutSpoolIsFailed() throws Exception {
+		Assert.assertTrue(destination.log(createEvents(2)));
+		Assert.assertTrue(producer.errorNext(new RuntimeException("broker is down")));
+		Assert.assertTrue(producer.completeNext());
+
+		Assert.assertEquals(1, destination.getTotalSuccessCount());
+		Assert.assertEquals(0, destination.getTotalFailedCount());
+
+		// the next call on the destination's thread takes care of the failure
+		Assert.assertTrue(destination.log(createEvents(1)));
+
+		Assert.assertEquals(3, destination.getTotalCount());
+		Assert.assertEquals(1, destination.getTotalSuccessCount());
+		Assert.assertEquals(1, destination.getTotalFailedCount());
+		Assert.assertEquals(0, destination.getTotalStashedCount());
+	}
+
+	private AuditFileSpool createFileSpool(KafkaAuditDestination destination) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + ".batch." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getAbsolutePath());
+
+		AuditFileSpool ret = new AuditFileSpool(new AuditBatchQueue(destination), destination);
+
+		Assert.assertTrue(ret.init(props, PROP_PREFIX + ".batch"));
+
+		return ret;
+	}
+
+	private String readSpoolFiles(File dir) throws IOException {
+		StringBuilder sb = new StringBuilder();
+
+		for (File file : dir.listFiles()) {
+			if (file.isFile() && file.getName().startsWith("spool_")) {
+				sb.append(new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8")));
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+
+		file.delete();
+	}
+
+	private List<AuditEventBase> createEvents(int count) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setEventId("event-" + i);
+			event.setRepositoryName("repo1");
+			event.setUser("user1");
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSolrAuditDestination {
+
+	private static final String PROP_PREFIX = "xasecure.audit.destination.solr";
+
+	private File spoolDir;
+
+	@Before
+	public void setUp() throws Exception {
+		spoolDir = Files.createTempDirectory("solr-audit-spool").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		deleteRecursively(spoolDir);
+	}
+
+	@Test
+	public void testFailedAsyncUpdateIsStashed() throws Exception {
+		FailingSolrClient    solrClient  = new FailingSolrClient();
+		SolrAuditDestination destination = createDestination(solrClient);
+		AuditFileSpool       fileSpooler = createFileSpool(destination);
+
+		destination.setFileSpooler(fileSpooler);
+
+		Assert.assertTrue(destination.log(createEvents(3)));
+
+		destination.waitToComplete(10 * 1000);
+
+		// one attempt and one retry, then the events go to the spool
+		Assert.assertEquals(2, solrClient.requestCount.get());
+		Assert.assertEquals(3, destination.getTotalStashedCount());
+		Assert.assertEquals(0, destination.getTotalSuccessCount());
+		Assert.assertEquals(0, destination.getTotalFailedCount());
+		Assert.assertTrue(fileSpooler.isPending());
+
+		String spooled = readSpoolFiles(spoolDir);
+
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(spooled.contains("event-" + i));
+		}
+	}
+
+	@Test
+	public void testFailedUpdateWithoutSpoolIsDeferred() throws Exception {
+		FailingSolrClient    solrClient  = new FailingSolrClient();
+		SolrAuditDestination destination = createDestination(solrClient);
+
+		// no spool to stash failed updates in: the failure is reported to the queue
+		Assert.assertFalse(destination.log(createEvents(3)));
+		Assert.assertEquals(3, destination.getTotalDeferredCount());
+		Assert.assertEquals(1, solrClient.requestCount.get());
+	}
+
+	private SolrAuditDestination createDestination(SolrClient solrClient) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + SolrAuditDestination.PROP_SOLR_MAX_INFLIGHT_REQUESTS, "2");
+		props.setProperty(PROP_PREFIX + "." + SolrAuditDestination.PROP_SOLR_RETRY_COUNT, "1");
+		props.setProperty(PROP_PREFIX + "." + SolrAuditDestination.PROP_SOLR_RETRY_SLEEP_MS, "10");
+
+		SolrAuditDestination ret = new SolrAuditDestination();
+
+		ret.init(props, PROP_PREFIX);
+		ret.setSolrClient(solrClient);
+
+		return ret;
+	}
+
+	private AuditFileSpool createFileSpool(SolrAuditDestination destination) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + ".batch." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getAbsolutePath());
+
+		AuditFileSpool ret = new AuditFileSpool(new AuditBatchQueue(destination), destination);
+
+		Assert.assertTrue(ret.init(props, PROP_PREFIX + ".batch"));
+
+		return ret;
+	}
+
+	private String readSpoolFiles(File dir) throws IOException {
+		StringBuilder sb = new StringBuilder();
+
+		for (File file : dir.listFiles()) {
+			if (file.isFile() && file.getName().startsWith("spool_")) {
+				sb.append(new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8")));
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+
+		file.delete();
+	}
+
+	private List<AuditEventBase> createEvents(int count) {
+		List<AuditEventBase> ret = new ArrayList<AuditEventBase>();
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setEventId("event-" + i);
+			event.setUser("user1");
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	static class FailingSolrClient extends SolrClient {
+		private static final long serialVersionUID = 1L;
+
+		final AtomicInteger requestCount = new AtomicInteger();
+
+		@Override
+		public NamedList<Object> request(@SuppressWarnings("rawtypes") SolrRequest request, String collection) throws SolrServerException, IOException {
+			requestCount.incrementAndGet();
+
+			throw new IOException("Solr is down");
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
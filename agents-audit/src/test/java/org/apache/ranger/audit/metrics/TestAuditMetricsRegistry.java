@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestAuditMetricsRegistry {
+
+	private static final String PROP_PREFIX = "xasecure.audit.destination.test.batch";
+
+	private BlockingDestination destination;
+	private AuditBatchQueue     queue;
+
+	@Before
+	public void setUp() {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_BATCH_SIZE, "3");
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_BATCH_INTERVAL, "500");
+
+		destination = new BlockingDestination();
+		destination.setName("test");
+
+		queue = new AuditBatchQueue(destination);
+		queue.init(props, PROP_PREFIX);
+
+		AuditMetricsRegistry.getInstance().register(queue, true);
+	}
+
+	@After
+	public void tearDown() {
+		destination.release.countDown();
+		queue.stop();
+
+		AuditMetricsRegistry.getInstance().unregisterAll();
+	}
+
+	@Test
+	public void testQueueDepthAndThroughputAreExported() throws Exception {
+		queue.start();
+
+		for (int i = 0; i < 5; i++) {
+			queue.log(createEvent(i));
+		}
+
+		// the consumer thread is now blocked in the destination with the
+		// first batch; the events in that batch still count as queued
+		Assert.assertTrue(destination.entered.await(10, TimeUnit.SECONDS));
+
+		ObjectName objName = new ObjectName(AuditMetricsRegistry.JMX_DOMAIN + ":type=AuditHandler,name=" + ObjectName.quote(queue.getName()));
+
+		Assert.assertEquals(5L, ManagementFactory.getPlatformMBeanServer().getAttribute(objName, "QueueDepth"));
+		Assert.assertEquals(5L, getMetrics().get(queue.getName()).get("QueueDepth"));
+		Assert.assertEquals(0L, getMetrics().get(queue.getName()).get("SuccessCount"));
+
+		destination.release.countDown();
+
+		waitForQueueToDrain(5);
+
+		Map<String, Number> queueMetrics = getMetrics().get(queue.getName());
+
+		Assert.assertEquals(0L, queueMetrics.get("QueueDepth"));
+		Assert.assertEquals(5L, queueMetrics.get("SuccessCount"));
+		Assert.assertEquals(2L, queueMetrics.get("BatchCount"));
+		Assert.assertEquals(3L, queueMetrics.get("BatchSizeMax"));
+		Assert.assertEquals("queue", AuditMetricsRegistry.getInstance().getHandlerMetrics(queue.getName()).getType());
+		Assert.assertEquals(5, destination.events.size());
+	}
+
+	private void waitForQueueToDrain(long successCount) throws InterruptedException {
+		AuditHandlerMetrics metrics = AuditMetricsRegistry.getInstance().getHandlerMetrics(queue.getName());
+
+		for (int i = 0; i < 100; i++) {
+			if (metrics.getQueueDepth() == 0 && metrics.getSuccessCount() == successCount) {
+				return;
+			}
+
+			Thread.sleep(100);
+		}
+
+		Assert.fail("queue not drained: queueDepth=" + metrics.getQueueDepth() + ", successCount=" + metrics.getSuccessCount());
+	}
+
+	// metric values, by handler name, as collected by the Hadoop metrics2 source
+	private static Map<String, Map<String, Number>> getMetrics() {
+		final Map<String, Map<String, Number>> ret       = new HashMap<String, Map<String, Number>>();
+		MetricsCollector                       collector = Mockito.mock(MetricsCollector.class);
+
+		Mockito.when(collector.addRecord(Mockito.anyString())).thenAnswer(new Answer<MetricsRecordBuilder>() {
+			@Override
+			public MetricsRecordBuilder answer(InvocationOnMock invocation) {
+				final Map<String, Number> values = new HashMap<String, Number>();
+
+				return Mockito.mock(MetricsRecordBuilder.class, new Answer<Object>() {
+					@Override
+					public Object answer(InvocationOnMock invocation) {
+						String   methodName = invocation.getMethod().getName();
+						Object[] args       = invocation.getArguments();
+
+						if (methodName.equals("tag") && ((MetricsInfo) args[0]).name().equals("Handler")) {
+							ret.put((String) args[1], values);
+						} else if (methodName.equals("addGauge") || methodName.equals("addCounter")) {
+							values.put(((MetricsInfo) args[0]).name(), (Number) args[1]);
+						}
+
+						return invocation.getMock();
+					}
+				});
+			}
+		});
+
+		new AuditMetricsSource(AuditMetricsRegistry.getInstance()).getMetrics(collector, true);
+
+		return ret;
+	}
+
+	private static AuthzAuditEvent createEvent(int idx) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setEventId("event-" + idx);
+		ret.setUser("user1");
+
+		return ret;
+	}
+
+	/*
+	 * Blocks in log() until released, so that events stay in the queue.
+	 */
+	static class BlockingDestination extends AuditDestination {
+		final CountDownLatch       entered = new CountDownLatch(1);
+		final CountDownLatch       release = new CountDownLatch(1);
+		final List<AuditEventBase> events  = new ArrayList<AuditEventBase>();
+
+		@Override
+		public boolean log(Collection<AuditEventBase> events) {
+			entered.countDown();
+
+			try {
+				release.await();
+			} catch (InterruptedException excp) {
+				return false;
+			}
+
+			synchronized (this.events) {
+				this.events.addAll(events);
+			}
+
+			return true;
+		}
+	}
+}
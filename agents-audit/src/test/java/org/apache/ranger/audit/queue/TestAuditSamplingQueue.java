@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.metrics.AuditHandlerMetrics;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAuditSamplingQueue {
+
+	private static final String PROP_PREFIX = "xasecure.audit.sampling";
+
+	@Test
+	public void testSuppressedCountsInMetrics() {
+		Properties props = createProperties("100000", null);
+		props.setProperty(PROP_PREFIX + ".rule.r1." + AuditSamplingQueue.PROP_RULE_SAMPLE_RATE, "0");
+
+		AuditSamplingQueue queue = createQueue(props, new CollectingDestination());
+
+		for (int i = 0; i < 5; i++) {
+			Assert.assertTrue(queue.log(createEvent("user1", "/data/" + i, 1)));
+		}
+		// denials are never suppressed
+		Assert.assertTrue(queue.log(createEvent("user1", "/data/0", 0)));
+
+		AuditHandlerMetrics metrics = new AuditHandlerMetrics(queue);
+
+		Assert.assertEquals(5, metrics.getSampledOutCount());
+		Assert.assertEquals(0, metrics.getRateLimitedCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedBucketIsEvicted() {
+		Properties props = createProperties("2", null);
+		props.setProperty(PROP_PREFIX + ".rule.r1." + AuditSamplingQueue.PROP_RULE_RATE_LIMIT_PER_SEC, "0.001");
+		props.setProperty(PROP_PREFIX + ".rule.r1." + AuditSamplingQueue.PROP_RULE_RATE_LIMIT_BURST, "1");
+
+		AuditSamplingQueue queue = createQueue(props, new CollectingDestination());
+
+		Assert.assertFalse(queue.isSuppressed(createEvent("user1", "/a", 1)));
+		Assert.assertFalse(queue.isSuppressed(createEvent("user1", "/b", 1)));
+		Assert.assertTrue(queue.isSuppressed(createEvent("user1", "/a", 1)));
+
+		// the bucket of /b, the least recently used one, is evicted for /c
+		Assert.assertFalse(queue.isSuppressed(createEvent("user1", "/c", 1)));
+		Assert.assertTrue(queue.isSuppressed(createEvent("user1", "/a", 1)));
+		Assert.assertFalse(queue.isSuppressed(createEvent("user1", "/b", 1)));
+
+		Assert.assertEquals(2, queue.getRateLimitedCount());
+	}
+
+	@Test
+	public void testSummaryCountsEverySuppressedEvent() throws Exception {
+		final int threadCount     = 4;
+		final int eventsPerThread = 5000;
+
+		Properties props = createProperties("100000", "3600000");
+		props.setProperty(PROP_PREFIX + ".rule.r1." + AuditSamplingQueue.PROP_RULE_SAMPLE_RATE, "0");
+
+		CollectingDestination    destination = new CollectingDestination();
+		final AuditSamplingQueue queue       = createQueue(props, destination);
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < eventsPerThread; j++) {
+						queue.log(createEvent("user1", "/data", 1));
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		// send summaries while the events are being suppressed
+		for (int i = 0; i < 50; i++) {
+			queue.waitToComplete(0);
+			Thread.sleep(1);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		queue.waitToComplete(0);
+
+		long summarized = 0;
+		for (AuditEventBase event : destination.getEvents()) {
+			summarized += ((AuthzAuditEvent) event).getEventCount();
+		}
+
+		Assert.assertEquals(threadCount * eventsPerThread, summarized);
+	}
+
+	private Properties createProperties(String maxTrackedKeys, String summaryIntervalMs) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_SAMPLING_RULES, "r1");
+		props.setProperty(PROP_PREFIX + ".rule.r1." + AuditSamplingQueue.PROP_RULE_USERS, "user1");
+		props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_MAX_TRACKED_KEYS, maxTrackedKeys);
+		if (summaryIntervalMs != null) {
+			props.setProperty(PROP_PREFIX + "." + AuditSamplingQueue.PROP_SUMMARY_INTERVAL, summaryIntervalMs);
+		}
+
+		return props;
+	}
+
+	private AuditSamplingQueue createQueue(Properties props, AuditDestination destination) {
+		AuditSamplingQueue ret = new AuditSamplingQueue(destination);
+
+		ret.init(props, PROP_PREFIX);
+
+		return ret;
+	}
+
+	private static AuthzAuditEvent createEvent(String user, String resourcePath, int accessResult) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setUser(user);
+		ret.setAccessType("read");
+		ret.setResourcePath(resourcePath);
+		ret.setAccessResult((short) accessResult);
+
+		return ret;
+	}
+
+	static class CollectingDestination extends AuditDestination {
+		private final List<AuditEventBase> events = Collections.synchronizedList(new ArrayList<AuditEventBase>());
+
+		@Override
+		public boolean log(Collection<AuditEventBase> events) {
+			this.events.addAll(events);
+			return true;
+		}
+
+		List<AuditEventBase> getEvents() {
+			return events;
+		}
+	}
+}
@@ -23,6 +23,7 @@
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +39,9 @@ import java.lang.reflect.Type;
 import java.security.PrivilegedAction;
 import java.util.List;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+
 public class RangerAdminRESTClient implements RangerAdminClient {
 	private static final Log LOG = LogFactory.getLog(RangerAdminRESTClient.class);
  
@@ -45,6 +49,8 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 	private String           pluginId    = null;
 	private RangerRESTClient restClient  = null;
 	private RangerRESTUtils  restUtils   = new RangerRESTUtils();
+	private boolean          isPolicyDownloadCompressed = true;
+	private volatile String  policyDownloadETag         = null;
 
 	public RangerAdminRESTClient() {
 	}
@@ -78,6 +84,9 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		int	 restClientConnTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.connection.timeoutMs", 120 * 1000);
 		int	 restClientReadTimeOutMs	= RangerConfiguration.getInstance().getInt(propertyPrefix + ".policy.rest.client.read.timeoutMs", 30 * 1000);
 		
+		isPolicyDownloadCompressed = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.rest.client.compression.enabled", true);
+
+
 		init(url, sslConfigFileName, restClientConnTimeOutMs , restClientReadTimeOutMs);
 	}
 
@@ -101,7 +110,7 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 					WebResource secureWebResource = createWebResource(RangerRESTUtils.REST_URL_POLICY_GET_FOR_SECURE_SERVICE_IF_UPDATED + serviceName)
 												.queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
 												.queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
-					return secureWebResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+					return getPolicyDownloadRequest(secureWebResource, lastKnownVersion).get(ClientResponse.class);
 				};
 			};				
 			response = user.doAs(action);
@@ -112,11 +121,15 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 			WebResource webResource = createWebResource(RangerRESTUtils.REST_URL_POLICY_GET_FOR_SERVICE_IF_UPDATED + serviceName)
                                                                                 .queryParam(RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, Long.toString(lastKnownVersion))
                                                                                 .queryParam(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
-			response = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
+			response = getPolicyDownloadRequest(webResource, lastKnownVersion).get(ClientResponse.class);
 		}
 		
 		if(response != null && response.getStatus() == 200) {
 			ret = response.getEntity(ServicePolicies.class);
+
+			EntityTag eTag = response.getEntityTag();
+
+			policyDownloadETag = eTag != null ? eTag.toString() : null;
 		} else if(!(response != null && response.getStatus() == 304)) {
 			RESTResponse resp = RESTResponse.fromClientResponse(response);
 			LOG.error("Error getting policies. secureMode=" + isSecureMode + ", user=" + user + ", response=" + resp.toString() + ", serviceName=" + serviceName);
@@ -131,6 +144,25 @@ public class RangerAdminRESTClient implements RangerAdminClient {
 		return ret;
 	}
 
+	/*
+	 * Asks for a gzip-compressed response, and sends back the ETag of the
+	 * policies last downloaded so that Ranger Admin can reply 304.
+	 */
+	private WebResource.Builder getPolicyDownloadRequest(WebResource webResource, long lastKnownVersion) {
+		if (isPolicyDownloadCompressed) {
+			webResource.addFilter(new GZIPContentEncodingFilter(false));
+		}
+
+		WebResource.Builder ret  = webResource.accept(RangerRESTUtils.REST_MIME_TYPE_JSON);
+		String              eTag = policyDownloadETag;
+
+		if (lastKnownVersion != -1 && eTag != null) {
+			ret = ret.header(HttpHeaders.IF_NONE_MATCH, eTag);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public void grantAccess(final GrantRevokeRequest request) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -70,6 +70,8 @@ public interface RangerPolicyEngine {
 
 	List<RangerPolicy> getAllowedPolicies(String user, Set<String> userGroups, String accessType);
 
+	List<RangerPolicy> filterAllowedPolicies(List<RangerPolicy> policies, String user, Set<String> userGroups, String accessType);
+
 	RangerResourceAccessInfo getResourceAccessInfo(RangerAccessRequest request);
 
 	void reorderPolicyEvaluators();
@@ -19,28 +19,53 @@
 
 package org.apache.ranger.plugin.policyengine;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.store.ServiceStore;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+/**
+ * Policy engines of services, kept up to date with the policies in the service-store.
+ * At most one engine is built at a time for a service. When the policies of a service
+ * change, the new engine is built in the background and the previous engine is served
+ * until the new one is ready; only the first request for a service waits for its engine.
+ */
 public class RangerPolicyEngineCache {
 	private static final Log LOG = LogFactory.getLog(RangerPolicyEngineCache.class);
 
+	private static final int BUILDER_THREAD_COUNT        = 2;
+	private static final int BUILDER_THREAD_KEEPALIVE_MS = 60 * 1000;
+
 	private static final RangerPolicyEngineCache sInstance = new RangerPolicyEngineCache();
 
-	private final Map<String, RangerPolicyEngine> policyEngineCache = Collections.synchronizedMap(new HashMap<String, RangerPolicyEngine>());
+	private final ConcurrentMap<String, RangerPolicyEngine> policyEngineCache = new ConcurrentHashMap<String, RangerPolicyEngine>();
+	private final ConcurrentMap<String, PolicyEngineBuilder> pendingBuilders  = new ConcurrentHashMap<String, PolicyEngineBuilder>();
+	private final ThreadPoolExecutor                        builderExecutor;
 
-	private RangerPolicyEngineOptions options = null;
+	private volatile RangerPolicyEngineOptions options = null;
 
 	public static RangerPolicyEngineCache getInstance() {
 		return sInstance;
 	}
 
+	private RangerPolicyEngineCache() {
+		builderExecutor = new ThreadPoolExecutor(BUILDER_THREAD_COUNT, BUILDER_THREAD_COUNT, BUILDER_THREAD_KEEPALIVE_MS, TimeUnit.MILLISECONDS,
+												 new LinkedBlockingQueue<Runnable>(), new BuilderThreadFactory());
+
+		builderExecutor.allowCoreThreadTimeOut(true);
+	}
+
 	public RangerPolicyEngine getPolicyEngine(String serviceName, ServiceStore svcStore) {
 		RangerPolicyEngine ret = null;
 
@@ -55,9 +80,9 @@ public class RangerPolicyEngineCache {
 
 					if(policies != null) {
 						if(ret == null) {
-							ret = addPolicyEngine(policies);
+							ret = buildPolicyEngine(policies, true);
 						} else if(policies.getPolicyVersion() != null && !policies.getPolicyVersion().equals(policyVersion)) {
-							ret = addPolicyEngine(policies);
+							buildPolicyEngine(policies, false);
 						}
 					}
 				} catch(Exception excp) {
@@ -77,11 +102,98 @@ public class RangerPolicyEngineCache {
 		this.options = options;
 	}
 
-	private RangerPolicyEngine addPolicyEngine(ServicePolicies policies) {
-		RangerPolicyEngine ret = new RangerPolicyEngineImpl("ranger-admin", policies, options);
+	/*
+	 * Starts building an engine for the policies, unless one is already being built for the service;
+	 * with waitForEngine=true, waits for the engine being built (which could be of an earlier version)
+	 * and returns it.
+	 */
+	private RangerPolicyEngine buildPolicyEngine(ServicePolicies policies, boolean waitForEngine) throws Exception {
+		String              serviceName = policies.getServiceName();
+		PolicyEngineBuilder builder     = new PolicyEngineBuilder(policies);
+		PolicyEngineBuilder pending     = pendingBuilders.putIfAbsent(serviceName, builder);
+
+		if(pending == null) {
+			pending = builder;
+
+			if(LOG.isDebugEnabled()) {
+				LOG.debug("RangerPolicyEngineCache: building policy-engine for service=" + serviceName + ", policyVersion=" + policies.getPolicyVersion() + ", waitForEngine=" + waitForEngine);
+			}
+
+			if(waitForEngine) {
+				builder.run();
+			} else {
+				builderExecutor.execute(builder);
+			}
+		}
+
+		RangerPolicyEngine ret = null;
 
-		policyEngineCache.put(policies.getServiceName(), ret);
+		if(waitForEngine) {
+			try {
+				ret = pending.get();
+			} catch(ExecutionException excp) {
+				throw excp.getCause() instanceof Exception ? (Exception)excp.getCause() : excp;
+			}
+		}
 
 		return ret;
 	}
+
+	private void addPolicyEngine(String serviceName, RangerPolicyEngine policyEngine) {
+		while(true) {
+			RangerPolicyEngine existing = policyEngineCache.putIfAbsent(serviceName, policyEngine);
+
+			if(existing == null) {
+				break;
+			}
+
+			if(existing.getPolicyVersion() >= policyEngine.getPolicyVersion() || policyEngineCache.replace(serviceName, existing, policyEngine)) {
+				break;
+			}
+		}
+	}
+
+	private class PolicyEngineBuilder extends FutureTask<RangerPolicyEngine> {
+		private final String serviceName;
+
+		PolicyEngineBuilder(final ServicePolicies policies) {
+			super(new Callable<RangerPolicyEngine>() {
+				@Override
+				public RangerPolicyEngine call() throws Exception {
+					RangerPolicyEngine ret = new RangerPolicyEngineImpl("ranger-admin", policies, options);
+
+					addPolicyEngine(policies.getServiceName(), ret);
+
+					return ret;
+				}
+			});
+
+			this.serviceName = policies.getServiceName();
+		}
+
+		@Override
+		protected void done() {
+			pendingBuilders.remove(serviceName, this);
+		}
+
+		@Override
+		protected void setException(Throwable excp) {
+			LOG.error("RangerPolicyEngineCache: failed to build policy-engine for service=" + serviceName, excp);
+
+			super.setException(excp);
+		}
+	}
+
+	private static class BuilderThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadCount = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread ret = new Thread(runnable, "RangerPolicyEngineCache-builder-" + threadCount.incrementAndGet());
+
+			ret.setDaemon(true);
+
+			return ret;
+		}
+	}
 }
@@ -518,6 +518,60 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	/*
+	 * Same result as calling isAccessAllowed(policy.getResources(), user, userGroups, accessType) for each
+	 * policy, in one pass: whether a policy item allows the access to the user doesn't depend on the
+	 * resources, so it is evaluated once per evaluator and only the allowing evaluators are matched
+	 * against the resources of each policy.
+	 */
+	@Override
+	public List<RangerPolicy> filterAllowedPolicies(List<RangerPolicy> policies, String user, Set<String> userGroups, String accessType) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.filterAllowedPolicies(policyCount=" + (policies == null ? 0 : policies.size()) + ", " + user + ", " + userGroups + ", " + accessType + ")");
+		}
+
+		List<RangerPolicy> ret = new ArrayList<RangerPolicy>();
+
+		RangerPerfTracer perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_REQUEST_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.filterAllowedPolicies(user=" + user + ",accessType=" + accessType + ",policyCount=" + (policies == null ? 0 : policies.size()) + ")");
+		}
+
+		if (CollectionUtils.isNotEmpty(policies)) {
+			List<RangerPolicyEvaluator> allowingEvaluators = new ArrayList<RangerPolicyEvaluator>();
+
+			for (RangerPolicyEvaluator evaluator : policyRepository.getPolicyEvaluators()) {
+				if (evaluator.isAccessAllowed(user, userGroups, accessType)) {
+					allowingEvaluators.add(evaluator);
+				}
+			}
+
+			if (!allowingEvaluators.isEmpty()) {
+				for (RangerPolicy policy : policies) {
+					Map<String, Object> evalContext = new HashMap<String, Object>();
+					RangerAccessRequestUtil.setCurrentUserInContext(evalContext, user);
+
+					for (RangerPolicyEvaluator evaluator : allowingEvaluators) {
+						if (evaluator.isMatch(policy.getResources(), evalContext)) {
+							ret.add(policy);
+
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.filterAllowedPolicies(" + user + ", " + userGroups + ", " + accessType + "): policyCount=" + ret.size());
+		}
+
+		return ret;
+	}
+
 	@Override
 	public RangerResourceAccessInfo getResourceAccessInfo(RangerAccessRequest request) {
 		if(LOG.isDebugEnabled()) {
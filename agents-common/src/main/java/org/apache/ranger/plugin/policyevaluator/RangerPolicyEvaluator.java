@@ -73,6 +73,8 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 
 	boolean isMatch(RangerAccessResource resource, Map<String, Object> evalContext);
 
+	boolean isMatch(Map<String, RangerPolicyResource> resources, Map<String, Object> evalContext);
+
 	boolean isCompleteMatch(RangerAccessResource resource, Map<String, Object> evalContext);
 
 	boolean isCompleteMatch(Map<String, RangerPolicyResource> resources, Map<String, Object> evalContext);
@@ -81,6 +83,8 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 
 	boolean isAccessAllowed(Map<String, RangerPolicyResource> resources, String user, Set<String> userGroups, String accessType);
 
+	boolean isAccessAllowed(String user, Set<String> userGroups, String accessType);
+
 	void getResourceAccessInfo(RangerAccessRequest request, RangerResourceAccessInfo result);
 
 }
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +105,13 @@ public class TestPolicyDb {
 				boolean result = policyEngine.isAccessAllowed(test.resources, test.user, test.userGroups, test.accessType);
 
 				assertEquals("isAccessAllowed mismatched! - " + test.name, expected, result);
+
+				RangerPolicy policy = new RangerPolicy();
+				policy.setResources(test.resources);
+
+				List<RangerPolicy> allowedPolicies = policyEngine.filterAllowedPolicies(Collections.singletonList(policy), test.user, test.userGroups, test.accessType);
+
+				assertEquals("filterAllowedPolicies mismatched! - " + test.name, expected, allowedPolicies.contains(policy));
 			}
 		}
 	}
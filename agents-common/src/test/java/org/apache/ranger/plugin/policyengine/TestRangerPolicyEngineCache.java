@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.store.ServiceStore;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestRangerPolicyEngineCache {
+
+	@Test
+	public void testEngineRebuiltInBackground() throws Exception {
+		String       serviceName = "testEngineRebuiltInBackground";
+		ServiceStore svcStore    = Mockito.mock(ServiceStore.class);
+
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, -1L)).thenReturn(servicePolicies(serviceName, 1L));
+
+		RangerPolicyEngine engine1 = RangerPolicyEngineCache.getInstance().getPolicyEngine(serviceName, svcStore);
+
+		assertNotNull(engine1);
+		assertEquals(1L, engine1.getPolicyVersion());
+
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, 1L)).thenReturn(servicePolicies(serviceName, 2L));
+
+		// the previous engine is served while the new one is being built
+		RangerPolicyEngine engine = RangerPolicyEngineCache.getInstance().getPolicyEngine(serviceName, svcStore);
+
+		assertSame(engine1, engine);
+
+		for(int i = 0; i < 100 && engine.getPolicyVersion() != 2L; i++) {
+			Thread.sleep(50);
+
+			engine = RangerPolicyEngineCache.getInstance().getPolicyEngine(serviceName, svcStore);
+		}
+
+		assertEquals(2L, engine.getPolicyVersion());
+	}
+
+	private ServicePolicies servicePolicies(String serviceName, Long policyVersion) {
+		RangerServiceDef serviceDef = new RangerServiceDef();
+		serviceDef.setName("hdfs");
+
+		ServicePolicies ret = new ServicePolicies();
+		ret.setServiceName(serviceName);
+		ret.setPolicyVersion(policyVersion);
+		ret.setServiceDef(serviceDef);
+		ret.setPolicies(new ArrayList<RangerPolicy>());
+
+		return ret;
+	}
+}
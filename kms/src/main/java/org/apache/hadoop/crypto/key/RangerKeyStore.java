@@ -45,8 +45,8 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.SealedObject;
 import javax.xml.bind.DatatypeConverter;
@@ -83,8 +83,10 @@ public class RangerKeyStore extends KeyStoreSpi {
         int version;
     }
 
-    private Hashtable<String, Object> keyEntries = new Hashtable<String, Object>();
-    private Hashtable<String, Object> deltaEntries = new Hashtable<String, Object>();
+    // readers use keyEntries without locking; engineLoad() replaces it with a fully loaded map
+    private volatile ConcurrentHashMap<String, Object> keyEntries = new ConcurrentHashMap<String, Object>();
+    private final ConcurrentHashMap<String, Object> deltaEntries = new ConcurrentHashMap<String, Object>();
+    private final Object keyEntriesLock = new Object();
     
     RangerKeyStore() {
     }
@@ -172,7 +174,7 @@ public class RangerKeyStore extends KeyStoreSpi {
             	throw new KeyStoreException(e.getMessage());
             }      
         }
-        synchronized(keyEntries) {
+        synchronized(keyEntriesLock) {
         	try {
         		keyEntries.put(convertAlias(alias), entry);
         	}catch (Exception e) {
@@ -186,7 +188,7 @@ public class RangerKeyStore extends KeyStoreSpi {
     public void engineDeleteEntry(String alias)
         throws KeyStoreException
     {
-        synchronized(keyEntries) {
+        synchronized(keyEntriesLock) {
         		dbOperationDelete(convertAlias(alias));
         		keyEntries.remove(convertAlias(alias));        	
         }
@@ -323,7 +325,7 @@ public class RangerKeyStore extends KeyStoreSpi {
 	public void engineLoad(InputStream stream, char[] password)
         throws IOException	, NoSuchAlgorithmException, CertificateException
     {
-        synchronized(keyEntries) {
+        synchronized(keyEntriesLock) {
         	List<XXRangerKeyStore> rangerKeyDetails = dbOperationLoad();
         		
             DataInputStream dis;
@@ -333,7 +335,7 @@ public class RangerKeyStore extends KeyStoreSpi {
         		return;
         	}
 			
-			keyEntries.clear();     
+			ConcurrentHashMap<String, Object> loadedEntries = new ConcurrentHashMap<String, Object>();
 			if(password!=null){
 				md = getKeyedMessageDigest(password);
 			}
@@ -398,7 +400,7 @@ public class RangerKeyStore extends KeyStoreSpi {
 					}
 					
 					//Add the entry to the list
-					keyEntries.put(alias, entry);		            
+					loadedEntries.put(alias, entry);
 				 }finally {
 	                if (ois != null) {
 	                    ois.close();
@@ -407,6 +409,7 @@ public class RangerKeyStore extends KeyStoreSpi {
 	                }
 	            }
             }
+            keyEntries = loadedEntries;
         }
     }
 
@@ -558,7 +561,7 @@ public class RangerKeyStore extends KeyStoreSpi {
 	public void engineLoadToKeyStoreFile(OutputStream stream, char[] storePass, char[] keyPass, char[] masterKey, String fileFormat)
 	        throws IOException, NoSuchAlgorithmException, CertificateException
 	{
-			synchronized(keyEntries) {
+			synchronized(keyEntriesLock) {
 				KeyStore ks;
 				try {
 					ks = KeyStore.getInstance(fileFormat);
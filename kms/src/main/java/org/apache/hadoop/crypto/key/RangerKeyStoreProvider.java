@@ -32,9 +32,10 @@ import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.spec.SecretKeySpec;
 
@@ -47,9 +48,8 @@ import org.apache.ranger.credentialapi.CredentialReader;
 import org.apache.ranger.kms.dao.DaoManager;
 import org.apache.log4j.Logger;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 @InterfaceAudience.Private
 public class RangerKeyStoreProvider extends KeyProvider{
@@ -68,14 +68,20 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	private static final String HSM_ENABLED = "ranger.ks.hsm.enabled";
 	private static final String HSM_PARTITION_PASSWORD_ALIAS = "ranger.ks.hsm.partition.password.alias";
 	private static final String HSM_PARTITION_PASSWORD = "ranger.ks.hsm.partition.password";
+	private static final String KEY_CACHE_MAX_SIZE = "ranger.ks.key.cache.max.size";
+	private static final String KEY_CACHE_TTL_MS = "ranger.ks.key.cache.ttl.ms";
+	private static final long KEY_CACHE_MAX_SIZE_DEFAULT = 10000;
+	private static final long KEY_CACHE_TTL_MS_DEFAULT = 60 * 1000;
 	
 	private final RangerKeyStore dbStore;
 	private char[] masterKey;
 	private boolean changed = false;
-	private final Map<String, Metadata> cache = new HashMap<String, Metadata>();
+	// metadata of keys created or rolled since the last flush()
+	private final Map<String, Metadata> cache = new ConcurrentHashMap<String, Metadata>();
+	// unsealed key versions and metadata read from dbStore, so that the read path needn't unseal keys on every call
+	private final Cache<String, KeyVersion> keyVersionCache;
+	private final Cache<String, Metadata> metadataCache;
 	private DaoManager daoManager;
-	
-	private Lock readLock;
 
 	public RangerKeyStoreProvider(Configuration conf) throws Throwable {
 		super(conf);
@@ -101,6 +107,10 @@ public class RangerKeyStoreProvider extends KeyProvider{
 			}
 		}
 		dbStore = new RangerKeyStore(daoManager);
+		long cacheMaxSize = conf.getLong(KEY_CACHE_MAX_SIZE, KEY_CACHE_MAX_SIZE_DEFAULT);
+		long cacheTtlMs = conf.getLong(KEY_CACHE_TTL_MS, KEY_CACHE_TTL_MS_DEFAULT);
+		keyVersionCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize).expireAfterWrite(cacheTtlMs, TimeUnit.MILLISECONDS).build();
+		metadataCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize).expireAfterWrite(cacheTtlMs, TimeUnit.MILLISECONDS).build();
 		rangerMasterKey.generateMasterKey(password);		
 		//code to retrieve rangerMasterKey password		
 		masterKey = rangerMasterKey.getMasterKey(password).toCharArray();
@@ -109,8 +119,6 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	        throw new IOException("Ranger MasterKey does not exists");
 		}
         reloadKeys();
-		ReadWriteLock lock = new ReentrantReadWriteLock(true);
-	    readLock = lock.readLock();
 	}
 
 	public static Configuration getDBKSConf() {
@@ -206,6 +214,7 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	        throw new IOException("Problem removing " + name + " from " + this, e);
 	      }
 	      cache.remove(name);
+	      invalidateCache(name, meta.getVersions());
 	      changed = true;	
 	}
 
@@ -244,33 +253,32 @@ public class RangerKeyStoreProvider extends KeyProvider{
 
 	@Override
 	public KeyVersion getKeyVersion(String versionName) throws IOException {
-		readLock.lock();
-	    try {
-	    	SecretKeySpec key = null;
-	    	try {
-	    		if (!dbStore.engineContainsAlias(versionName)) {
-  	    		        dbStore.engineLoad(null, masterKey);
-	    			if (!dbStore.engineContainsAlias(versionName)) {
-	    				return null;
-	    			}
+		KeyVersion ret = keyVersionCache.getIfPresent(versionName);
+		if (ret != null) {
+			return ret;
+		}
+		SecretKeySpec key = null;
+		try {
+			if (!dbStore.engineContainsAlias(versionName)) {
+				dbStore.engineLoad(null, masterKey);
+				if (!dbStore.engineContainsAlias(versionName)) {
+					return null;
+				}
 			}
-	    		key = (SecretKeySpec) dbStore.engineGetKey(versionName, masterKey);
-	    	} catch (NoSuchAlgorithmException e) {
-	    		throw new IOException("Can't get algorithm for key " + key, e);
-	    	} catch (UnrecoverableKeyException e) {
-	    		throw new IOException("Can't recover key " + key, e);
-	    	}
-		catch (CertificateException e) {
-	    		throw new IOException("Certificate exception storing key", e);
+			key = (SecretKeySpec) dbStore.engineGetKey(versionName, masterKey);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Can't get algorithm for key " + key, e);
+		} catch (UnrecoverableKeyException e) {
+			throw new IOException("Can't recover key " + key, e);
+		} catch (CertificateException e) {
+			throw new IOException("Certificate exception storing key", e);
 		}
-	    	if (key == null) {
-	    		return null;
-	    	} else {
-	    		return new KeyVersion(getBaseName(versionName), versionName, key.getEncoded());
-	    	}
-	    } finally {
-	        readLock.unlock();
-	    }
+		if (key == null) {
+			return null;
+		}
+		ret = new KeyVersion(getBaseName(versionName), versionName, key.getEncoded());
+		keyVersionCache.put(versionName, ret);
+		return ret;
 	}
 
 	@Override
@@ -311,11 +319,13 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	@Override
 	public Metadata getMetadata(String name) throws IOException {
 		try {
-			readLock.lock();
-            if (cache.containsKey(name)) {
-	    		Metadata meta = cache.get(name);
-	    		return meta;
-	    	}
+			Metadata meta = cache.get(name);
+			if (meta == null) {
+				meta = metadataCache.getIfPresent(name);
+			}
+			if (meta != null) {
+				return meta;
+			}
 	    	try {
 	    		if (!dbStore.engineContainsAlias(name)) {
 	    			dbStore.engineLoad(null, masterKey);
@@ -325,8 +335,8 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	    		}
 	    		Key key = dbStore.engineGetKey(name, masterKey);
 	    		if(key != null){
-	    			Metadata meta = ((KeyMetadata) key).metadata;
-	    			cache.put(name, meta);
+	    			meta = ((KeyMetadata) key).metadata;
+	    			metadataCache.put(name, meta);
 	    			return meta;
 	    		}
 	    	} catch (NoSuchAlgorithmException e) {
@@ -339,9 +349,6 @@ public class RangerKeyStoreProvider extends KeyProvider{
 		catch(Exception e){
 			throw new IOException("Please try again ", e);
 		}
-		 finally {
-	      readLock.unlock();
-	    }
 	}
 
 	@Override
@@ -354,6 +361,9 @@ public class RangerKeyStoreProvider extends KeyProvider{
 	    if (meta.getBitLength() != 8 * material.length) {
 	        throw new IOException("Wrong key length. Required " + meta.getBitLength() + ", but got " + (8 * material.length));
 	    }
+	    // metadata is written to dbStore by flush()
+	    cache.put(name, meta);
+	    metadataCache.invalidate(name);
 	    int nextVersion = meta.addVersion();
 	    String versionName = buildVersionName(name, nextVersion);
 	    return innerSetKeyVersion(name, versionName, material, meta.getCipher(), meta.getBitLength(), meta.getDescription(), meta.getVersions(), meta.getAttributes());
@@ -379,6 +389,8 @@ public class RangerKeyStoreProvider extends KeyProvider{
     private void reloadKeys() throws IOException {
         try {
         	cache.clear();
+        	keyVersionCache.invalidateAll();
+        	metadataCache.invalidateAll();
             loadKeys(masterKey);           
         } catch (NoSuchAlgorithmException e) {
             throw new IOException("Can't load Keys");
@@ -387,6 +399,13 @@ public class RangerKeyStoreProvider extends KeyProvider{
         } 
     }
 	
+    private void invalidateCache(String name, int versions) {
+        metadataCache.invalidate(name);
+        for (int v = 0; v < versions; ++v) {
+            keyVersionCache.invalidate(buildVersionName(name, v));
+        }
+    }
+	
 	/**
 	 * The factory to create JksProviders, which is used by the ServiceLoader.
 	*/
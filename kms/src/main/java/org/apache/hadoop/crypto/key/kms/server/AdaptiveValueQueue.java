@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto.key.kms.server;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.crypto.key.kms.ValueQueue.QueueRefiller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A per-key queue of pre-generated values, like
+ * {@link org.apache.hadoop.crypto.key.kms.ValueQueue}, whose size follows
+ * the demand for each key. The target size of a queue is the number of values
+ * requested in the last demand window, bounded by the minimum and maximum
+ * sizes. A queue is refilled in the background as soon as it falls below the
+ * low watermark of its target size; a request that finds its queue empty
+ * generates a single value synchronously, instead of a whole batch.
+ *
+ * When a {@link MetricRegistry} is given, the depth, target size, misses and
+ * refill latency of each queue are registered in it, under
+ * <code>metricsPrefix + keyName</code>.
+ */
+@InterfaceAudience.Private
+public class AdaptiveValueQueue<E> {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(AdaptiveValueQueue.class);
+
+  private static final String REFILL_THREAD_NAME = "KMS EEK refill thread-%d";
+  private static final int REFILL_BATCH_SIZE = 100;
+
+  private final int minSize;
+  private final int maxSize;
+  private final float lowWatermark;
+  private final long demandWindowMs;
+  private final QueueRefiller<E> refiller;
+  private final ThreadPoolExecutor executor;
+  private final LoadingCache<String, KeyQueue> keyQueues;
+  private final MetricRegistry metricRegistry;
+  private final String metricsPrefix;
+
+  private class KeyQueue {
+    private final String keyName;
+    private final LinkedBlockingQueue<E> values = new LinkedBlockingQueue<E>();
+    private final AtomicBoolean isRefillScheduled = new AtomicBoolean(false);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final Counter missCounter = new Counter();
+    private final Timer refillTimer = new Timer();
+    private volatile int targetSize = minSize;
+    private volatile long windowStartTime = System.currentTimeMillis();
+    // incremented by drain(), so that values generated before it are dropped
+    private int generation = 0;
+
+    KeyQueue(String keyName) {
+      this.keyName = keyName;
+    }
+  }
+
+  public AdaptiveValueQueue(int minSize, int maxSize, float lowWatermark,
+      long expiryMs, long demandWindowMs, int numRefillThreads,
+      QueueRefiller<E> refiller, MetricRegistry metricRegistry,
+      String metricsPrefix) {
+    this.minSize = minSize;
+    this.maxSize = Math.max(minSize, maxSize);
+    this.lowWatermark = lowWatermark;
+    this.demandWindowMs = demandWindowMs;
+    this.refiller = refiller;
+    this.metricRegistry = metricRegistry;
+    this.metricsPrefix = metricsPrefix;
+
+    executor = new ThreadPoolExecutor(numRefillThreads, numRefillThreads, 0L,
+        TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat(REFILL_THREAD_NAME).build());
+
+    keyQueues = CacheBuilder.newBuilder()
+        .expireAfterAccess(expiryMs, TimeUnit.MILLISECONDS)
+        .removalListener(new RemovalListener<String, KeyQueue>() {
+          @Override
+          public void onRemoval(RemovalNotification<String, KeyQueue> entry) {
+            unregisterMetrics(entry.getKey());
+          }
+        })
+        .build(new CacheLoader<String, KeyQueue>() {
+          @Override
+          public KeyQueue load(String keyName) {
+            KeyQueue keyQueue = new KeyQueue(keyName);
+            registerMetrics(keyQueue);
+            return keyQueue;
+          }
+        });
+  }
+
+  /**
+   * Fills the queues of the given keys up to their target size, synchronously.
+   */
+  public void initializeQueuesForKeys(String... keyNames)
+      throws ExecutionException {
+    for (String keyName : keyNames) {
+      KeyQueue keyQueue = keyQueues.get(keyName);
+
+      if (keyQueue.isRefillScheduled.compareAndSet(false, true)) {
+        refill(keyQueue);
+      }
+    }
+  }
+
+  public E getNext(String keyName) throws IOException, ExecutionException {
+    KeyQueue keyQueue = keyQueues.get(keyName);
+
+    keyQueue.requestCount.incrementAndGet();
+
+    E ret = keyQueue.values.poll();
+
+    if (ret == null) {
+      keyQueue.missCounter.inc();
+
+      Queue<E> values = new LinkedList<E>();
+
+      refiller.fillQueueForKey(keyName, values, 1);
+
+      ret = values.poll();
+
+      if (ret == null) {
+        throw new IOException("No value generated for key " + keyName);
+      }
+    }
+
+    if (keyQueue.values.size() < lowWatermark * keyQueue.targetSize) {
+      scheduleRefill(keyQueue);
+    }
+
+    return ret;
+  }
+
+  public void drain(String keyName) {
+    KeyQueue keyQueue = keyQueues.getIfPresent(keyName);
+
+    if (keyQueue != null) {
+      synchronized (keyQueue) {
+        keyQueue.generation++;
+        keyQueue.values.clear();
+      }
+    }
+  }
+
+  public int getSize(String keyName) throws ExecutionException {
+    return keyQueues.get(keyName).values.size();
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void scheduleRefill(final KeyQueue keyQueue) {
+    if (keyQueue.isRefillScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            refill(keyQueue);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        keyQueue.isRefillScheduled.set(false);
+      }
+    }
+  }
+
+  private void refill(KeyQueue keyQueue) {
+    try {
+      updateTargetSize(keyQueue);
+
+      int generation;
+      synchronized (keyQueue) {
+        generation = keyQueue.generation;
+      }
+
+      int numValues = keyQueue.targetSize - keyQueue.values.size();
+      long startTime = System.nanoTime();
+
+      while (numValues > 0) {
+        int batchSize = Math.min(numValues, REFILL_BATCH_SIZE);
+        Queue<E> values = new LinkedList<E>();
+
+        refiller.fillQueueForKey(keyQueue.keyName, values, batchSize);
+
+        synchronized (keyQueue) {
+          if (generation != keyQueue.generation) {
+            break;
+          }
+          keyQueue.values.addAll(values);
+        }
+
+        numValues -= batchSize;
+      }
+
+      keyQueue.refillTimer.update(System.nanoTime() - startTime,
+          TimeUnit.NANOSECONDS);
+    } catch (Exception e) {
+      LOG.warn("Failed to refill the queue of key " + keyQueue.keyName, e);
+    } finally {
+      keyQueue.isRefillScheduled.set(false);
+    }
+  }
+
+  private void updateTargetSize(KeyQueue keyQueue) {
+    long now = System.currentTimeMillis();
+    long elapsed = now - keyQueue.windowStartTime;
+
+    if (elapsed >= demandWindowMs) {
+      long requests = keyQueue.requestCount.getAndSet(0);
+      long demand = requests * demandWindowMs / Math.max(elapsed, 1);
+
+      keyQueue.windowStartTime = now;
+      keyQueue.targetSize = (int) Math.max(minSize, Math.min(maxSize, demand));
+    } else {
+      // the demand in the current window already exceeds the target size
+      long requests = keyQueue.requestCount.get();
+
+      if (requests > keyQueue.targetSize) {
+        keyQueue.targetSize = (int) Math.min(maxSize, requests);
+      }
+    }
+  }
+
+  private void registerMetrics(final KeyQueue keyQueue) {
+    if (metricRegistry == null) {
+      return;
+    }
+
+    String name = metricsPrefix + keyQueue.keyName;
+
+    unregisterMetrics(keyQueue.keyName);
+
+    metricRegistry.register(name + ".queue.depth", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return keyQueue.values.size();
+      }
+    });
+    metricRegistry.register(name + ".queue.target.size", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return keyQueue.targetSize;
+      }
+    });
+    metricRegistry.register(name + ".misses", keyQueue.missCounter);
+    metricRegistry.register(name + ".refill.timer", keyQueue.refillTimer);
+  }
+
+  private void unregisterMetrics(String keyName) {
+    if (metricRegistry == null) {
+      return;
+    }
+
+    // removed by their exact names: the metrics of key "foo.bar" also start with "foo."
+    String name = metricsPrefix + keyName;
+
+    metricRegistry.remove(name + ".queue.depth");
+    metricRegistry.remove(name + ".queue.target.size");
+    metricRegistry.remove(name + ".misses");
+    metricRegistry.remove(name + ".refill.timer");
+  }
+}
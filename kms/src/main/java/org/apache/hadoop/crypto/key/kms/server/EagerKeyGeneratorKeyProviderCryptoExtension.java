@@ -30,7 +30,8 @@ import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension;
 import org.apache.hadoop.crypto.key.kms.ValueQueue;
-import org.apache.hadoop.crypto.key.kms.ValueQueue.SyncGenerationPolicy;
+
+import com.codahale.metrics.MetricRegistry;
 
 /**
  * A {@link KeyProviderCryptoExtension} that pre-generates and caches encrypted
@@ -59,6 +60,16 @@ public class EagerKeyGeneratorKeyProviderCryptoExtension
       KEY_CACHE_PREFIX + "num.fill.threads";
   public static final int KMS_KEY_CACHE_NUM_REFILL_THREADS_DEFAULT = 2;
 
+  public static final String KMS_KEY_CACHE_MAX_SIZE =
+      KEY_CACHE_PREFIX + "max.size";
+  public static final int KMS_KEY_CACHE_MAX_SIZE_DEFAULT = 1000;
+
+  public static final String KMS_KEY_CACHE_DEMAND_WINDOW_MS =
+      KEY_CACHE_PREFIX + "demand.window.ms";
+  public static final long KMS_KEY_CACHE_DEMAND_WINDOW_MS_DEFAULT = 5000;
+
+  private static final String KMS_KEY_CACHE_METRICS_PREFIX =
+      "hadoop.kms.eek.cache.";
 
   private static class CryptoExtension
       implements KeyProviderCryptoExtension.CryptoExtension {
@@ -84,22 +95,28 @@ public class EagerKeyGeneratorKeyProviderCryptoExtension
     }
 
     private KeyProviderCryptoExtension keyProviderCryptoExtension;
-    private final ValueQueue<EncryptedKeyVersion> encKeyVersionQueue;
+    private final AdaptiveValueQueue<EncryptedKeyVersion> encKeyVersionQueue;
 
     public CryptoExtension(Configuration conf,
-        KeyProviderCryptoExtension keyProviderCryptoExtension) {
+        KeyProviderCryptoExtension keyProviderCryptoExtension,
+        MetricRegistry metricRegistry) {
       this.keyProviderCryptoExtension = keyProviderCryptoExtension;
       encKeyVersionQueue =
-          new ValueQueue<KeyProviderCryptoExtension.EncryptedKeyVersion>(
+          new AdaptiveValueQueue<KeyProviderCryptoExtension.EncryptedKeyVersion>(
               conf.getInt(KMS_KEY_CACHE_SIZE,
                   KMS_KEY_CACHE_SIZE_DEFAULT),
+              conf.getInt(KMS_KEY_CACHE_MAX_SIZE,
+                  KMS_KEY_CACHE_MAX_SIZE_DEFAULT),
               conf.getFloat(KMS_KEY_CACHE_LOW_WATERMARK,
                   KMS_KEY_CACHE_LOW_WATERMARK_DEFAULT),
               conf.getInt(KMS_KEY_CACHE_EXPIRY_MS,
                   KMS_KEY_CACHE_EXPIRY_DEFAULT),
+              conf.getLong(KMS_KEY_CACHE_DEMAND_WINDOW_MS,
+                  KMS_KEY_CACHE_DEMAND_WINDOW_MS_DEFAULT),
               conf.getInt(KMS_KEY_CACHE_NUM_REFILL_THREADS,
                   KMS_KEY_CACHE_NUM_REFILL_THREADS_DEFAULT),
-              SyncGenerationPolicy.LOW_WATERMARK, new EncryptedQueueRefiller()
+              new EncryptedQueueRefiller(), metricRegistry,
+              KMS_KEY_CACHE_METRICS_PREFIX
           );
     }
 
@@ -140,7 +157,8 @@ public class EagerKeyGeneratorKeyProviderCryptoExtension
   /**
    * This class is a proxy for a <code>KeyProviderCryptoExtension</code> that
    * decorates the underlying <code>CryptoExtension</code> with one that eagerly
-   * caches pre-generated Encrypted Keys using a <code>ValueQueue</code>
+   * caches pre-generated Encrypted Keys using an
+   * <code>AdaptiveValueQueue</code>
    *
    * @param conf Configuration object to load parameters from
    * @param keyProviderCryptoExtension <code>KeyProviderCryptoExtension</code>
@@ -148,8 +166,18 @@ public class EagerKeyGeneratorKeyProviderCryptoExtension
    */
   public EagerKeyGeneratorKeyProviderCryptoExtension(Configuration conf,
       KeyProviderCryptoExtension keyProviderCryptoExtension) {
+    this(conf, keyProviderCryptoExtension, null);
+  }
+
+  /**
+   * Same as above, registering the per-key queue depth, target size, misses
+   * and refill latency in the given <code>MetricRegistry</code>.
+   */
+  public EagerKeyGeneratorKeyProviderCryptoExtension(Configuration conf,
+      KeyProviderCryptoExtension keyProviderCryptoExtension,
+      MetricRegistry metricRegistry) {
     super(keyProviderCryptoExtension,
-        new CryptoExtension(conf, keyProviderCryptoExtension));
+        new CryptoExtension(conf, keyProviderCryptoExtension, metricRegistry));
   }
 
   @Override
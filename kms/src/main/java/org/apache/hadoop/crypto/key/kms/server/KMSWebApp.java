@@ -193,7 +193,7 @@ public class KMSWebApp implements ServletContextListener {
           createKeyProviderCryptoExtension(keyProvider);
       keyProviderCryptoExtension =
           new EagerKeyGeneratorKeyProviderCryptoExtension(kmsConf,
-              keyProviderCryptoExtension);
+              keyProviderCryptoExtension, metricRegistry);
       if (kmsConf.getBoolean(KMSConfiguration.KEY_AUTHORIZATION_ENABLE,
           KMSConfiguration.KEY_AUTHORIZATION_ENABLE_DEFAULT)) {
         keyProviderCryptoExtension =
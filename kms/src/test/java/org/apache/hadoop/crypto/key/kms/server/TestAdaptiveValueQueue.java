@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto.key.kms.server;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.crypto.key.kms.ValueQueue.QueueRefiller;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class TestAdaptiveValueQueue {
+
+  private static class FillCountingRefiller implements QueueRefiller<String> {
+    private final AtomicInteger numFilled = new AtomicInteger();
+
+    @Override
+    public void fillQueueForKey(String keyName, Queue<String> keyQueue,
+        int numValues) throws IOException {
+      for (int i = 0; i < numValues; i++) {
+        keyQueue.add(keyName + "-" + numFilled.incrementAndGet());
+      }
+    }
+  }
+
+  @Test
+  public void testMissAndBackgroundRefill() throws Exception {
+    FillCountingRefiller refiller = new FillCountingRefiller();
+    MetricRegistry metricRegistry = new MetricRegistry();
+    AdaptiveValueQueue<String> vq = new AdaptiveValueQueue<String>(10, 100,
+        0.5f, 300000, 60000, 1, refiller, metricRegistry, "test.");
+
+    // a miss generates a single value, the rest is filled in the background
+    Assert.assertEquals("k1-1", vq.getNext("k1"));
+    waitForSize(vq, "k1", 10);
+    Assert.assertEquals(11, refiller.numFilled.get());
+    Assert.assertEquals(1,
+        ((Counter) metricRegistry.getMetrics().get("test.k1.misses"))
+            .getCount());
+    Assert.assertEquals(10,
+        ((Gauge<?>) metricRegistry.getMetrics().get("test.k1.queue.depth"))
+            .getValue());
+
+    // no refill until the low watermark is reached
+    for (int i = 0; i < 5; i++) {
+      vq.getNext("k1");
+    }
+    Assert.assertEquals(5, vq.getSize("k1"));
+    Assert.assertEquals(11, refiller.numFilled.get());
+
+    vq.drain("k1");
+    Assert.assertEquals(0, vq.getSize("k1"));
+    vq.shutdown();
+  }
+
+  @Test
+  public void testTargetSizeFollowsDemand() throws Exception {
+    FillCountingRefiller refiller = new FillCountingRefiller();
+    MetricRegistry metricRegistry = new MetricRegistry();
+    AdaptiveValueQueue<String> vq = new AdaptiveValueQueue<String>(10, 50,
+        0.5f, 300000, 60000, 1, refiller, metricRegistry, "test.");
+
+    vq.initializeQueuesForKeys("k1");
+    Assert.assertEquals(10, vq.getSize("k1"));
+
+    for (int i = 0; i < 40; i++) {
+      vq.getNext("k1");
+    }
+    refillAndWait(vq, "k1", 40);
+
+    Gauge<?> targetSize =
+        (Gauge<?>) metricRegistry.getMetrics().get("test.k1.queue.target.size");
+    Assert.assertEquals(40, targetSize.getValue());
+
+    // bounded by the maximum size
+    for (int i = 0; i < 100; i++) {
+      vq.getNext("k1");
+    }
+    refillAndWait(vq, "k1", 50);
+    Assert.assertEquals(50, targetSize.getValue());
+    Assert.assertNotNull(metricRegistry.getTimers().get("test.k1.refill.timer"));
+    vq.shutdown();
+  }
+
+  @Test
+  public void testMetricsOfKeyWithSharedPrefixAreKept() throws Exception {
+    FillCountingRefiller refiller = new FillCountingRefiller();
+    MetricRegistry metricRegistry = new MetricRegistry();
+    AdaptiveValueQueue<String> vq = new AdaptiveValueQueue<String>(1, 10,
+        0.5f, 300000, 60000, 1, refiller, metricRegistry, "test.");
+
+    vq.initializeQueuesForKeys("foo.bar");
+    // registering the metrics of "foo" removes the previous ones of "foo" only
+    vq.initializeQueuesForKeys("foo");
+
+    Assert.assertEquals(8, metricRegistry.getMetrics().size());
+    Assert.assertNotNull(
+        metricRegistry.getMetrics().get("test.foo.bar.queue.depth"));
+    Assert.assertNotNull(
+        metricRegistry.getMetrics().get("test.foo.bar.queue.target.size"));
+    Assert.assertNotNull(metricRegistry.getMetrics().get("test.foo.bar.misses"));
+    Assert.assertNotNull(
+        metricRegistry.getMetrics().get("test.foo.bar.refill.timer"));
+    vq.shutdown();
+  }
+
+  private void waitForSize(AdaptiveValueQueue<String> vq, String keyName,
+      int size) throws Exception {
+    for (int i = 0; i < 100 && vq.getSize(keyName) < size; i++) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(size, vq.getSize(keyName));
+  }
+
+  // a synchronous refill is skipped while a background one is in progress
+  private void refillAndWait(AdaptiveValueQueue<String> vq, String keyName,
+      int size) throws Exception {
+    for (int i = 0; i < 100 && vq.getSize(keyName) != size; i++) {
+      vq.initializeQueuesForKeys(keyName);
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(size, vq.getSize(keyName));
+  }
+}
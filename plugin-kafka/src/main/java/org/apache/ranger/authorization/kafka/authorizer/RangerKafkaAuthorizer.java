@@ -21,6 +21,11 @@ package org.apache.ranger.authorization.kafka.authorizer;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
 
@@ -35,12 +40,15 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.kafka.common.security.authenticator.LoginManager;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.apache.ranger.plugin.util.ServicePolicies;
 
 import scala.collection.immutable.HashSet;
 import scala.collection.immutable.Set;
@@ -61,7 +69,7 @@ public class RangerKafkaAuthorizer implements Authorizer {
 	public static final String ACCESS_TYPE_DESCRIBE = "describe";
 	public static final String ACCESS_TYPE_KAFKA_ADMIN = "kafka_admin";
 
-	private static volatile RangerBasePlugin rangerPlugin = null;
+	private static volatile RangerKafkaPlugin rangerPlugin = null;
 	long lastLogTime = 0;
 	int errorLogFreq = 30000; // Log after every 30 seconds
 
@@ -75,7 +83,7 @@ public class RangerKafkaAuthorizer implements Authorizer {
 	 */
 	@Override
 	public void configure(Map<String, ?> configs) {
-		RangerBasePlugin me = rangerPlugin;
+		RangerKafkaPlugin me = rangerPlugin;
 		if (me == null) {
 			synchronized(RangerKafkaAuthorizer.class) {
 				me = rangerPlugin;
@@ -92,14 +100,12 @@ public class RangerKafkaAuthorizer implements Authorizer {
 					} catch (Throwable t) {
 						logger.error("Error getting principal.", t);
 					}
-					me = rangerPlugin = new RangerBasePlugin("kafka", "kafka");
+					me = rangerPlugin = new RangerKafkaPlugin();
 				}
 			}
 		}
 		logger.info("Calling plugin.init()");
 		rangerPlugin.init();
-		RangerDefaultAuditHandler auditHandler = new RangerDefaultAuditHandler();
-		rangerPlugin.setResultProcessor(auditHandler);
 	}
 
 	@Override
@@ -132,6 +138,22 @@ public class RangerKafkaAuthorizer implements Authorizer {
 			return true;
 		}
 
+		RangerKafkaPlugin plugin = rangerPlugin;
+		String principal = session.principal() != null ? session.principal().getName() : null;
+		String host = session.clientAddress().getHostAddress();
+		// results are cached in the map of the policies this request is evaluated with
+		Map<String, CachedResult> cache = plugin.getDecisionCache();
+		String cacheKey = plugin.getCacheKey(principal, host, operation, resource);
+		Boolean isAllowed = plugin.getCachedDecision(cache, cacheKey);
+
+		if (isAllowed != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("cached decision: principal=" + principal + ", host=" + host + ", operation=" + operation
+						+ ", resource=" + resource + ", return=" + isAllowed);
+			}
+			return isAllowed;
+		}
+
 		String userName = null;
 		if (session.principal() != null) {
 			userName = session.principal().getName();
@@ -140,7 +162,7 @@ public class RangerKafkaAuthorizer implements Authorizer {
 		}
 		java.util.Set<String> userGroups = MiscUtil
 				.getGroupsForRequestUser(userName);
-		String ip = session.clientAddress().getHostAddress();
+		String ip = host;
 
 		// skip leading slash
 		if (StringUtils.isNotEmpty(ip) && ip.charAt(0) == '/') {
@@ -195,13 +217,14 @@ public class RangerKafkaAuthorizer implements Authorizer {
 		} else {
 
 			try {
-				RangerAccessResult result = rangerPlugin
+				RangerAccessResult result = plugin
 						.isAccessAllowed(rangerRequest);
 				if (result == null) {
 					logger.error("Ranger Plugin returned null. Returning false");
 					returnValue = false;
 				} else {
 					returnValue = result.getIsAllowed();
+					plugin.cacheResult(cache, cacheKey, result);
 				}
 			} catch (Throwable t) {
 				logger.error("Error while calling isAccessAllowed(). request="
@@ -314,4 +337,225 @@ public class RangerKafkaAuthorizer implements Authorizer {
 		}
 		return null;
 	}
+
+	static class RangerKafkaPlugin extends RangerBasePlugin {
+		private static final String PROP_DECISION_CACHE_SIZE       = "ranger.plugin.kafka.decision.cache.size";
+		private static final String PROP_DECISION_CACHE_TTL_MS     = "ranger.plugin.kafka.decision.cache.ttl.ms";
+		private static final String PROP_AUDIT_SUMMARY_ENABLED     = "ranger.plugin.kafka.audit.summary.enabled";
+		private static final String PROP_AUDIT_SUMMARY_INTERVAL_MS = "ranger.plugin.kafka.audit.summary.interval.ms";
+
+		private RangerDefaultAuditHandler auditHandler           = null;
+		private int                       decisionCacheSize      = 10000;
+		private long                      decisionCacheTtlMs     = 30 * 1000;
+		private boolean                   auditSummaryEnabled    = false;
+		private long                      auditSummaryIntervalMs = 5 * 1000;
+		private ScheduledExecutorService  auditSummaryExecutor   = null;
+
+		// results of the current policies, by principal/host/operation/resource; replaced when policies change
+		private volatile Map<String, CachedResult> decisionCache = new ConcurrentHashMap<String, CachedResult>();
+
+		// allowed accesses served from the cache since the last flush, by cache key
+		private final ConcurrentHashMap<String, AuditSummary> auditSummaries = new ConcurrentHashMap<String, AuditSummary>();
+
+		public RangerKafkaPlugin() {
+			super("kafka", "kafka");
+		}
+
+		@Override
+		public void init() {
+			super.init();
+
+			auditHandler = new RangerDefaultAuditHandler();
+
+			super.setResultProcessor(auditHandler);
+
+			decisionCacheSize      = RangerConfiguration.getInstance().getInt(PROP_DECISION_CACHE_SIZE, decisionCacheSize);
+			decisionCacheTtlMs     = RangerConfiguration.getInstance().getLong(PROP_DECISION_CACHE_TTL_MS, decisionCacheTtlMs);
+			auditSummaryEnabled    = RangerConfiguration.getInstance().getBoolean(PROP_AUDIT_SUMMARY_ENABLED, auditSummaryEnabled);
+			auditSummaryIntervalMs = RangerConfiguration.getInstance().getLong(PROP_AUDIT_SUMMARY_INTERVAL_MS, auditSummaryIntervalMs);
+
+			if (auditSummaryEnabled && auditSummaryExecutor == null) {
+				auditSummaryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "RangerKafkaAuditSummary");
+
+						t.setDaemon(true);
+
+						return t;
+					}
+				});
+
+				auditSummaryExecutor.scheduleWithFixedDelay(new Runnable() {
+					@Override
+					public void run() {
+						flushAuditSummaries();
+					}
+				}, auditSummaryIntervalMs, auditSummaryIntervalMs, TimeUnit.MILLISECONDS);
+			}
+
+			logger.info("decisionCacheSize=" + decisionCacheSize + ", decisionCacheTtlMs=" + decisionCacheTtlMs
+					+ ", auditSummaryEnabled=" + auditSummaryEnabled + ", auditSummaryIntervalMs=" + auditSummaryIntervalMs);
+		}
+
+		@Override
+		public void setPolicies(ServicePolicies policies) {
+			super.setPolicies(policies);
+
+			// results cached by evaluations still running on the old policies go to the discarded map
+			decisionCache = new ConcurrentHashMap<String, CachedResult>();
+		}
+
+		@Override
+		public void cleanup() {
+			if (auditSummaryExecutor != null) {
+				auditSummaryExecutor.shutdownNow();
+				auditSummaryExecutor = null;
+			}
+
+			flushAuditSummaries();
+
+			super.cleanup();
+		}
+
+		Map<String, CachedResult> getDecisionCache() {
+			return decisionCache;
+		}
+
+		String getCacheKey(String principal, String host, Operation operation, Resource resource) {
+			return principal + '\n' + host + '\n' + operation.name() + '\n' + resource.resourceType().name() + '\n' + resource.name();
+		}
+
+		/*
+		 * Returns null if no unexpired result is cached. An audited result is audited again for this access, or
+		 * counted in its audit summary when allowed and the summary mode is enabled.
+		 */
+		Boolean getCachedDecision(Map<String, CachedResult> cache, String cacheKey) {
+			CachedResult cached = decisionCacheSize > 0 ? cache.get(cacheKey) : null;
+
+			if (cached == null || cached.expiryTime < System.currentTimeMillis()) {
+				return null;
+			}
+
+			RangerAccessResult result = cached.result;
+
+			if (result.getIsAudited()) {
+				if (auditSummaryEnabled && result.getIsAllowed()) {
+					addToAuditSummary(cacheKey, result);
+				} else {
+					auditHandler.processResult(copyResult(result));
+				}
+			}
+
+			return result.getIsAllowed();
+		}
+
+		void cacheResult(Map<String, CachedResult> cache, String cacheKey, RangerAccessResult result) {
+			if (decisionCacheSize > 0) {
+				if (cache.size() >= decisionCacheSize) {
+					cache.clear();
+				}
+
+				cache.put(cacheKey, new CachedResult(result, System.currentTimeMillis() + decisionCacheTtlMs));
+			}
+		}
+
+		private void addToAuditSummary(String cacheKey, RangerAccessResult result) {
+			while (true) {
+				AuditSummary summary = auditSummaries.get(cacheKey);
+
+				if (summary == null) {
+					summary = new AuditSummary(copyResult(result));
+
+					AuditSummary existing = auditSummaries.putIfAbsent(cacheKey, summary);
+
+					if (existing == null) {
+						return;
+					}
+
+					summary = existing;
+				}
+
+				synchronized (summary) {
+					// a flushed summary is no longer in the map; retry with a new one
+					if (!summary.isFlushed) {
+						summary.count++;
+						summary.lastAccessTime = System.currentTimeMillis();
+
+						return;
+					}
+				}
+			}
+		}
+
+		private void flushAuditSummaries() {
+			for (String cacheKey : auditSummaries.keySet()) {
+				AuditSummary summary = auditSummaries.remove(cacheKey);
+
+				if (summary == null) {
+					continue;
+				}
+
+				synchronized (summary) {
+					summary.isFlushed = true;
+				}
+
+				try {
+					AuthzAuditEvent event = auditHandler.getAuthzEvents(summary.result);
+
+					if (event != null) {
+						long duration = summary.lastAccessTime - summary.result.getAccessRequest().getAccessTime().getTime();
+
+						event.setEventCount(summary.count);
+						event.setEventDurationMS(duration > 0 ? duration : 1);
+
+						auditHandler.logAuthzAudit(event);
+					}
+				} catch (Throwable t) {
+					logger.error("Error while logging audit summary. request=" + summary.result.getAccessRequest(), t);
+				}
+			}
+		}
+
+		/*
+		 * A result of the cached decision, for this access: with its own access time and id.
+		 */
+		private RangerAccessResult copyResult(RangerAccessResult cached) {
+			RangerAccessRequestImpl request = new RangerAccessRequestImpl(cached.getAccessRequest().getResource(), cached.getAccessRequest().getAccessType(),
+					cached.getAccessRequest().getUser(), cached.getAccessRequest().getUserGroups());
+
+			request.setClientIPAddress(cached.getAccessRequest().getClientIPAddress());
+			request.setAction(cached.getAccessRequest().getAction());
+			request.setRequestData(cached.getAccessRequest().getRequestData());
+			request.setAccessTime(new Date());
+
+			RangerAccessResult ret = new RangerAccessResult(cached.getServiceName(), cached.getServiceDef(), request);
+
+			ret.setAccessResultFrom(cached);
+			ret.setAuditResultFrom(cached);
+
+			return ret;
+		}
+	}
+
+	static class CachedResult {
+		final RangerAccessResult result;
+		final long               expiryTime;
+
+		CachedResult(RangerAccessResult result, long expiryTime) {
+			this.result     = result;
+			this.expiryTime = expiryTime;
+		}
+	}
+
+	static class AuditSummary {
+		final RangerAccessResult result;
+		long                     count          = 1;
+		long                     lastAccessTime = System.currentTimeMillis();
+		boolean                  isFlushed      = false;
+
+		AuditSummary(RangerAccessResult result) {
+			this.result = result;
+		}
+	}
 }
@@ -21,9 +21,15 @@ package org.apache.ranger.authorization.kms.authorizer;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -41,11 +47,14 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authorize.AccessControlList;
 import org.apache.hadoop.security.authorize.AuthorizationException;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.apache.ranger.plugin.util.ServicePolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -210,9 +219,7 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 		    }
 		    
 			if(plugin != null && ret) {				
-				RangerKMSAccessRequest request = new RangerKMSAccessRequest("", rangerAccessType, ugi, clientIp);
-				RangerAccessResult result = plugin.isAccessAllowed(request);
-				ret = result == null ? false : result.getIsAllowed();
+				ret = plugin.isAccessAllowed("", rangerAccessType, ugi, clientIp);
 			}
 			
 			if(LOG.isDebugEnabled()) {
@@ -236,9 +243,7 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 		    }
 		    
 			if(plugin != null && ret) {				
-				RangerKMSAccessRequest request = new RangerKMSAccessRequest(keyName, rangerAccessType, ugi, clientIp);
-				RangerAccessResult result = plugin.isAccessAllowed(request);
-				ret = result == null ? false : result.getIsAllowed();
+				ret = plugin.isAccessAllowed(keyName, rangerAccessType, ugi, clientIp);
 			}
 			
 			if(LOG.isDebugEnabled()) {
@@ -248,6 +253,39 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 			return ret;
 	  }
 
+	  /**
+	   * Checks the user's access to several keys at once, for callers like EEK queue refills that
+	   * work on many keys. Decisions are shared with, and cached like, those of hasAccess().
+	   * @return the access of the user to each of the keys
+	   */
+	  public Map<String, Boolean> hasAccess(Type type, UserGroupInformation ugi, Collection<String> keyNames, String clientIp) {
+		  if(LOG.isDebugEnabled()) {
+				LOG.debug("==> RangerKmsAuthorizer.hasAccess(" + type + ", " + ugi + " , "+keyNames+")");
+			}
+			Map<String, Boolean> ret = new LinkedHashMap<String, Boolean>();
+			RangerKMSPlugin plugin = kmsPlugin;
+			String rangerAccessType = getRangerAccessType(type);
+			AccessControlList blacklist = blacklistedAcls.get(type);
+			boolean isAllowed = (blacklist == null) || !blacklist.isUserInList(ugi);
+		    if(!isAllowed){
+		    	LOG.debug("Operation "+rangerAccessType+" blocked in the blacklist for user "+ugi.getUserName());
+		    }
+
+			if(plugin != null && isAllowed) {
+				ret = plugin.isAccessAllowed(keyNames, rangerAccessType, ugi, clientIp);
+			} else {
+				for (String keyName : keyNames) {
+					ret.put(keyName, isAllowed);
+				}
+			}
+
+			if(LOG.isDebugEnabled()) {
+				LOG.debug("<== RangerKmsAuthorizer.hasAccess(" + type + ", " + ugi + " , "+keyNames+"): " + ret);
+			}
+
+			return ret;
+	  }
+
 	  @Override
 	  public void assertAccess(Type aclType, UserGroupInformation ugi, KMSOp operation, String key, String clientIp)
 	      throws AccessControlException {
@@ -329,6 +367,16 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 
 	
 	class RangerKMSPlugin extends RangerBasePlugin {
+		private static final String PROP_DECISION_CACHE_SIZE   = "ranger.plugin.kms.decision.cache.size";
+		private static final String PROP_DECISION_CACHE_TTL_MS = "ranger.plugin.kms.decision.cache.ttl.ms";
+
+		private RangerDefaultAuditHandler auditHandler = null;
+		private int                       decisionCacheSize  = 10000;
+		private long                      decisionCacheTtlMs = 30 * 1000;
+
+		// results of the current policies, by user/key/access-type/client-ip; replaced when policies change
+		private volatile Map<String, CachedResult> decisionCache = new ConcurrentHashMap<String, CachedResult>();
+
 		public RangerKMSPlugin() {
 			super("kms", "kms");
 		}
@@ -337,9 +385,114 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 		public void init() {
 			super.init();
 
-			RangerDefaultAuditHandler auditHandler = new RangerDefaultAuditHandler();
+			auditHandler = new RangerDefaultAuditHandler();
 
 			super.setResultProcessor(auditHandler);
+
+			decisionCacheSize  = RangerConfiguration.getInstance().getInt(PROP_DECISION_CACHE_SIZE, decisionCacheSize);
+			decisionCacheTtlMs = RangerConfiguration.getInstance().getLong(PROP_DECISION_CACHE_TTL_MS, decisionCacheTtlMs);
+		}
+
+		@Override
+		public void setPolicies(ServicePolicies policies) {
+			super.setPolicies(policies);
+
+			// results cached by evaluations still running on the old policies go to the discarded map
+			decisionCache = new ConcurrentHashMap<String, CachedResult>();
+		}
+
+		public boolean isAccessAllowed(String keyName, String accessType, UserGroupInformation ugi, String clientIp) {
+			Map<String, CachedResult> cache     = decisionCache;
+			String                    cacheKey  = getCacheKey(keyName, accessType, ugi, clientIp);
+			Boolean                   isAllowed = getCachedDecision(cache, cacheKey, keyName, accessType, ugi, clientIp);
+
+			if (isAllowed == null) {
+				RangerAccessResult result = isAccessAllowed(new RangerKMSAccessRequest(keyName, accessType, ugi, clientIp));
+
+				cacheResult(cache, cacheKey, result);
+
+				isAllowed = result != null && result.getIsAllowed();
+			}
+
+			return isAllowed;
+		}
+
+		public Map<String, Boolean> isAccessAllowed(Collection<String> keyNames, String accessType, UserGroupInformation ugi, String clientIp) {
+			Map<String, Boolean>         ret      = new LinkedHashMap<String, Boolean>();
+			Map<String, CachedResult>    cache    = decisionCache;
+			List<RangerAccessRequest>    requests = new ArrayList<RangerAccessRequest>();
+
+			for (String keyName : keyNames) {
+				Boolean isAllowed = getCachedDecision(cache, getCacheKey(keyName, accessType, ugi, clientIp), keyName, accessType, ugi, clientIp);
+
+				ret.put(keyName, isAllowed);
+
+				if (isAllowed == null) {
+					requests.add(new RangerKMSAccessRequest(keyName, accessType, ugi, clientIp));
+				}
+			}
+
+			if (!requests.isEmpty()) {
+				Collection<RangerAccessResult> results = isAccessAllowed(requests);
+				Iterator<RangerAccessResult>   iter    = results != null ? results.iterator() : null;
+
+				for (RangerAccessRequest request : requests) {
+					String             keyName = ((RangerKMSResource) request.getResource()).getKeyName();
+					RangerAccessResult result  = iter != null && iter.hasNext() ? iter.next() : null;
+
+					cacheResult(cache, getCacheKey(keyName, accessType, ugi, clientIp), result);
+
+					ret.put(keyName, result != null && result.getIsAllowed());
+				}
+			}
+
+			return ret;
+		}
+
+		private String getCacheKey(String keyName, String accessType, UserGroupInformation ugi, String clientIp) {
+			return ugi.getShortUserName() + '\n' + keyName + '\n' + accessType + '\n' + clientIp;
+		}
+
+		/*
+		 * Returns null if no unexpired result is cached. An audited result is audited again, for this access.
+		 */
+		private Boolean getCachedDecision(Map<String, CachedResult> cache, String cacheKey, String keyName, String accessType, UserGroupInformation ugi, String clientIp) {
+			CachedResult cached = decisionCacheSize > 0 ? cache.get(cacheKey) : null;
+
+			if (cached == null || cached.expiryTime < System.currentTimeMillis()) {
+				return null;
+			}
+
+			if (cached.result.getIsAudited()) {
+				RangerAccessResult result = new RangerAccessResult(cached.result.getServiceName(), cached.result.getServiceDef(), new RangerKMSAccessRequest(keyName, accessType, ugi, clientIp));
+
+				result.setAccessResultFrom(cached.result);
+				result.setAuditResultFrom(cached.result);
+
+				auditHandler.processResult(result);
+			}
+
+			return cached.result.getIsAllowed();
+		}
+
+		private void cacheResult(Map<String, CachedResult> cache, String cacheKey, RangerAccessResult result) {
+			if (result != null && decisionCacheSize > 0) {
+				if (cache.size() >= decisionCacheSize) {
+					cache.clear();
+				}
+
+				cache.put(cacheKey, new CachedResult(result, System.currentTimeMillis() + decisionCacheTtlMs));
+			}
+		}
+	}
+
+	class CachedResult {
+		final RangerAccessResult result;
+		final long               expiryTime;
+
+		CachedResult(RangerAccessResult result, long expiryTime) {
+			this.result     = result;
+			this.expiryTime = expiryTime;
 		}
 	}
 
@@ -349,6 +502,10 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 		public RangerKMSResource(String keyname) {			
 			setValue(KEY_NAME, keyname != null ? keyname : null);
 		}
+
+		public String getKeyName() {
+			return getValue(KEY_NAME);
+		}
 	}
 
 	class RangerKMSAccessRequest extends RangerAccessRequestImpl {
@@ -21,9 +21,13 @@
 package org.apache.ranger.authorization.yarn.authorizer;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,6 +46,7 @@ import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.apache.ranger.plugin.util.ServicePolicies;
 
 import com.google.common.collect.Sets;
 
@@ -56,8 +61,8 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 
 	private static volatile RangerYarnPlugin yarnPlugin = null;
 
-	private AccessControlList admins = null;
-	private Map<PrivilegedEntity, Map<AccessType, AccessControlList>> yarnAcl = new HashMap<PrivilegedEntity, Map<AccessType, AccessControlList>>();
+	private volatile AccessControlList admins  = null;
+	private volatile YarnAclSnapshot   yarnAcl = new YarnAclSnapshot(Collections.<PrivilegedEntity, Map<AccessType, AccessControlList>>emptyMap());
 
 	@Override
 	public void init(Configuration conf) {
@@ -97,19 +102,58 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 		RangerYarnPlugin       plugin       = yarnPlugin;
 		RangerYarnAuditHandler auditHandler = null;
 		RangerAccessResult     result       = null;
+		String                 cacheKey     = null;
+		CachedDecision         cached       = null;
+
+		// the cache map is taken before the ACL snapshot: setPermission() replaces the map after the snapshot, so a
+		// decision evaluated on an older snapshot is stored in a discarded map
+		Map<String, CachedDecision> cache       = plugin != null ? plugin.getDecisionCache() : null;
+		YarnAclSnapshot             aclSnapshot = yarnAcl;
 
 		if(plugin != null) {
-			RangerYarnAccessRequest request = new RangerYarnAccessRequest(entity, getRangerAccessType(accessType), accessType.name(), ugi);
+			cacheKey = plugin.getCacheKey(accessType, entity, ugi, RangerYarnAccessRequest.getRemoteIp());
+			cached   = plugin.getCachedDecision(cache, cacheKey);
+		}
 
-			auditHandler = new RangerYarnAuditHandler();
+		if(cached != null) {
+			ret = cached.isAllowed;
 
-			result = plugin.isAccessAllowed(request, auditHandler);
-		}
+			// an audited decision is audited again, for this access
+			if(cached.isAudited) {
+				auditHandler = new RangerYarnAuditHandler();
+
+				RangerYarnAccessRequest request = new RangerYarnAccessRequest(entity, getRangerAccessType(accessType), accessType.name(), ugi);
+				RangerAccessResult      copy    = new RangerAccessResult(cached.result.getServiceName(), cached.result.getServiceDef(), request);
+
+				copy.setAccessResultFrom(cached.result);
+				copy.setAuditResultFrom(cached.result);
+
+				auditHandler.processResult(copy);
 
-		if(RangerYarnAuthorizer.yarnAuthEnabled && (result == null || !result.getIsAccessDetermined())) {
-			ret = isAllowedByYarnAcl(accessType, entity, ugi, auditHandler);
+				if(cached.isYarnAclChecked) {
+					auditHandler.logYarnAclEvent(ret);
+				}
+			}
 		} else {
-			ret = result == null ? false : result.getIsAllowed();
+			if(plugin != null) {
+				RangerYarnAccessRequest request = new RangerYarnAccessRequest(entity, getRangerAccessType(accessType), accessType.name(), ugi);
+
+				auditHandler = new RangerYarnAuditHandler();
+
+				result = plugin.isAccessAllowed(request, auditHandler);
+			}
+
+			boolean isYarnAclChecked = RangerYarnAuthorizer.yarnAuthEnabled && (result == null || !result.getIsAccessDetermined());
+
+			if(isYarnAclChecked) {
+				ret = isAllowedByYarnAcl(aclSnapshot, accessType, entity, ugi, auditHandler);
+			} else {
+				ret = result == null ? false : result.getIsAllowed();
+			}
+
+			if(plugin != null && result != null) {
+				plugin.cacheDecision(cache, cacheKey, new CachedDecision(result, ret, isYarnAclChecked, auditHandler.isAuditEnabled()));
+			}
 		}
 
 		if(auditHandler != null) {
@@ -152,6 +196,12 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 
 		admins = acl;
 
+		RangerYarnPlugin plugin = yarnPlugin;
+
+		if(plugin != null) {
+			plugin.clearDecisionCache();
+		}
+
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerYarnAuthorizer.setAdmins(" + acl + ", " + ugi + ")");
 		}
@@ -163,7 +213,20 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 			LOG.debug("==> RangerYarnAuthorizer.setPermission(" + toString(entity) + ", " + permission + ", " + ugi + ")");
 		}
 
-		yarnAcl.put(entity, permission);
+		// copy-on-write: checkPermission() reads the current snapshot without locking
+		synchronized(this) {
+			Map<PrivilegedEntity, Map<AccessType, AccessControlList>> acls = new HashMap<PrivilegedEntity, Map<AccessType, AccessControlList>>(yarnAcl.acls);
+
+			acls.put(entity, permission);
+
+			yarnAcl = new YarnAclSnapshot(acls);
+		}
+
+		RangerYarnPlugin plugin = yarnPlugin;
+
+		if(plugin != null) {
+			plugin.clearDecisionCache();
+		}
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerYarnAuthorizer.setPermission(" + toString(entity) + ", " + permission + ", " + ugi + ")");
@@ -171,19 +234,20 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 	}
 
 	public boolean isAllowedByYarnAcl(AccessType accessType, PrivilegedEntity entity, UserGroupInformation ugi, RangerYarnAuditHandler auditHandler) {
+		return isAllowedByYarnAcl(yarnAcl, accessType, entity, ugi, auditHandler);
+	}
+
+	private boolean isAllowedByYarnAcl(YarnAclSnapshot aclSnapshot, AccessType accessType, PrivilegedEntity entity, UserGroupInformation ugi, RangerYarnAuditHandler auditHandler) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerYarnAuthorizer.isAllowedByYarnAcl(" + accessType + ", " + toString(entity) + ", " + ugi + ")");
 		}
 
 		boolean ret = false;
 
-		for(Map.Entry<PrivilegedEntity, Map<AccessType, AccessControlList>> e : yarnAcl.entrySet()) {
-			PrivilegedEntity                   aclEntity         = e.getKey();
-			Map<AccessType, AccessControlList> entityPermissions = e.getValue();
-
+		for(Map<AccessType, AccessControlList> entityPermissions : aclSnapshot.getApplicablePermissions(entity)) {
 			AccessControlList acl = entityPermissions == null ? null : entityPermissions.get(accessType);
 
-			if(acl != null && acl.isUserAllowed(ugi) && isSelfOrChildOf(entity, aclEntity)) {
+			if(acl != null && acl.isUserAllowed(ugi)) {
 			    ret = true;
 		    	break;
             }
@@ -216,35 +280,96 @@ public class RangerYarnAuthorizer extends YarnAuthorizationProvider {
 		return ret;
 	}
 
-	private boolean isSelfOrChildOf(PrivilegedEntity queue, PrivilegedEntity parentQueue) {
-		boolean ret = queue.equals(parentQueue);
+	private String toString(PrivilegedEntity entity) {
+		if(entity != null) {
+			return "{name=" + entity.getName() + "; type=" + entity.getType() + "}";
+		}
+
+		return "null";
+	}
+}
+
+/*
+ * An immutable snapshot of the YARN queue ACLs. The ACLs that apply to an entity - its own and,
+ * for a queue, those of its parent queues - are found through the parent chain of the queue name
+ * and kept for the lifetime of the snapshot.
+ */
+class YarnAclSnapshot {
+	final Map<PrivilegedEntity, Map<AccessType, AccessControlList>> acls;
+
+	// permissions of the ACL entities, by queue name without the trailing '.'
+	private final Map<String, List<Map<AccessType, AccessControlList>>>           parentAcls      = new HashMap<String, List<Map<AccessType, AccessControlList>>>();
+	private final Map<PrivilegedEntity, List<Map<AccessType, AccessControlList>>> applicableAcls  = new ConcurrentHashMap<PrivilegedEntity, List<Map<AccessType, AccessControlList>>>();
 
-		if(!ret && queue.getType() == EntityType.QUEUE) {
-			String queueName       = queue.getName();
-			String parentQueueName = parentQueue.getName();
+	YarnAclSnapshot(Map<PrivilegedEntity, Map<AccessType, AccessControlList>> acls) {
+		this.acls = Collections.unmodifiableMap(acls);
 
-			if(queueName.contains(".") && !StringUtil.isEmpty(parentQueueName)) {
-				if(parentQueueName.charAt(parentQueueName.length() - 1) != '.') {
-					parentQueueName += ".";
-				}
+		for(Map.Entry<PrivilegedEntity, Map<AccessType, AccessControlList>> e : acls.entrySet()) {
+			String parentQueueName = e.getKey().getName();
 
-				ret = queueName.startsWith(parentQueueName);
+			if(StringUtil.isEmpty(parentQueueName)) {
+				continue;
 			}
-		}
 
-		return ret;
+			if(parentQueueName.charAt(parentQueueName.length() - 1) == '.') {
+				parentQueueName = parentQueueName.substring(0, parentQueueName.length() - 1);
+			}
+
+			List<Map<AccessType, AccessControlList>> permissions = parentAcls.get(parentQueueName);
+
+			if(permissions == null) {
+				permissions = new ArrayList<Map<AccessType, AccessControlList>>();
+
+				parentAcls.put(parentQueueName, permissions);
+			}
+
+			permissions.add(e.getValue());
+		}
 	}
 
-	private String toString(PrivilegedEntity entity) {
-		if(entity != null) {
-			return "{name=" + entity.getName() + "; type=" + entity.getType() + "}";
+	/*
+	 * Returns the permissions of the entity itself and, for a queue, of every ACL entity whose name
+	 * followed by '.' is a prefix of the queue name.
+	 */
+	List<Map<AccessType, AccessControlList>> getApplicablePermissions(PrivilegedEntity entity) {
+		List<Map<AccessType, AccessControlList>> ret = applicableAcls.get(entity);
+
+		if(ret == null) {
+			ret = new ArrayList<Map<AccessType, AccessControlList>>();
+
+			if(acls.containsKey(entity)) {
+				ret.add(acls.get(entity));
+			}
+
+			String queueName = entity.getName();
+
+			if(entity.getType() == EntityType.QUEUE && queueName != null) {
+				for(int idx = queueName.indexOf('.'); idx != -1; idx = queueName.indexOf('.', idx + 1)) {
+					List<Map<AccessType, AccessControlList>> permissions = parentAcls.get(queueName.substring(0, idx));
+
+					if(permissions != null) {
+						ret.addAll(permissions);
+					}
+				}
+			}
+
+			applicableAcls.put(entity, ret);
 		}
 
-		return "null";
+		return ret;
 	}
 }
 
 class RangerYarnPlugin extends RangerBasePlugin {
+	private static final String PROP_DECISION_CACHE_SIZE   = "ranger.plugin.yarn.decision.cache.size";
+	private static final String PROP_DECISION_CACHE_TTL_MS = "ranger.plugin.yarn.decision.cache.ttl.ms";
+
+	private int  decisionCacheSize  = 10000;
+	private long decisionCacheTtlMs = 30 * 1000;
+
+	// decisions of the current policies and YARN ACLs, by user/access-type/entity/client-ip; replaced when either changes
+	private volatile Map<String, CachedDecision> decisionCache = new ConcurrentHashMap<String, CachedDecision>();
+
 	public RangerYarnPlugin() {
 		super("yarn", "yarn");
 	}
@@ -256,6 +381,65 @@ class RangerYarnPlugin extends RangerBasePlugin {
 		RangerDefaultAuditHandler auditHandler = new RangerDefaultAuditHandler();
 
 		super.setResultProcessor(auditHandler);
+
+		decisionCacheSize  = RangerConfiguration.getInstance().getInt(PROP_DECISION_CACHE_SIZE, decisionCacheSize);
+		decisionCacheTtlMs = RangerConfiguration.getInstance().getLong(PROP_DECISION_CACHE_TTL_MS, decisionCacheTtlMs);
+	}
+
+	@Override
+	public void setPolicies(ServicePolicies policies) {
+		super.setPolicies(policies);
+
+		clearDecisionCache();
+	}
+
+	public void clearDecisionCache() {
+		// decisions cached by evaluations still running on the old policies go to the discarded map
+		decisionCache = new ConcurrentHashMap<String, CachedDecision>();
+	}
+
+	public Map<String, CachedDecision> getDecisionCache() {
+		return decisionCache;
+	}
+
+	public String getCacheKey(AccessType accessType, PrivilegedEntity entity, UserGroupInformation ugi, String clientIp) {
+		return ugi.getShortUserName() + '\n' + accessType + '\n' + entity.getType() + '\n' + entity.getName() + '\n' + clientIp;
+	}
+
+	/*
+	 * Returns null if no unexpired decision is cached.
+	 */
+	public CachedDecision getCachedDecision(Map<String, CachedDecision> cache, String cacheKey) {
+		CachedDecision ret = decisionCacheSize > 0 ? cache.get(cacheKey) : null;
+
+		return ret == null || ret.expiryTime < System.currentTimeMillis() ? null : ret;
+	}
+
+	public void cacheDecision(Map<String, CachedDecision> cache, String cacheKey, CachedDecision decision) {
+		if(decisionCacheSize > 0) {
+			if(cache.size() >= decisionCacheSize) {
+				cache.clear();
+			}
+
+			decision.expiryTime = System.currentTimeMillis() + decisionCacheTtlMs;
+
+			cache.put(cacheKey, decision);
+		}
+	}
+}
+
+class CachedDecision {
+	final RangerAccessResult result;
+	final boolean            isAllowed;
+	final boolean            isYarnAclChecked;
+	final boolean            isAudited;
+	long                     expiryTime;
+
+	CachedDecision(RangerAccessResult result, boolean isAllowed, boolean isYarnAclChecked, boolean isAudited) {
+		this.result             = result;
+		this.isAllowed          = isAllowed;
+		this.isYarnAclChecked   = isYarnAclChecked;
+		this.isAudited          = isAudited;
 	}
 }
 
@@ -278,7 +462,7 @@ class RangerYarnAccessRequest extends RangerAccessRequestImpl {
 		super.setAction(action);
 	}
 	
-	private static String getRemoteIp() {
+	static String getRemoteIp() {
 		String ret = null ;
 		InetAddress ip = Server.getRemoteIp() ;
 		if (ip != null) {
@@ -316,6 +500,10 @@ class RangerYarnAuditHandler extends RangerDefaultAuditHandler {
 		}
 	}
 
+	public boolean isAuditEnabled() {
+		return isAuditEnabled;
+	}
+
 	public void logYarnAclEvent(boolean accessGranted) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerYarnAuditHandler.logYarnAclEvent(" + accessGranted + ")");
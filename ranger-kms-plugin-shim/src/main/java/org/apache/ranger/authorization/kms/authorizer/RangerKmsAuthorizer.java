@@ -19,6 +19,11 @@
 
 package org.apache.ranger.authorization.kms.authorizer;
 
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.crypto.key.kms.server.KMS.KMSOp;
@@ -39,6 +44,7 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 	private Object 	      	impl	     = null;
 	private Runnable      	implRunnable = null;
 	private KeyACLs      	implKeyACLs	 = null;
+	private Method      	implBulkHasAccess = null;
 
 	private static		RangerPluginClassLoader rangerPluginClassLoader   = null;
 
@@ -71,6 +77,7 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 			impl 			   = cls.newInstance();
 			implRunnable       = (Runnable)impl;
 			implKeyACLs 	   = (KeyACLs)impl;
+			implBulkHasAccess  = cls.getMethod("hasAccess", Type.class, UserGroupInformation.class, Collection.class, String.class);
 		} catch (Exception e) {
 			// check what need to be done
 			LOG.error("Error Enabling RangerKMSPlugin", e);
@@ -153,6 +160,40 @@ public class RangerKmsAuthorizer implements Runnable, KeyACLs {
 		return ret;
 	}
 
+	/**
+	 * Checks the user's access to several keys at once; see the plugin's RangerKmsAuthorizer.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Boolean> hasAccess(Type aclType, UserGroupInformation ugi, Collection<String> keyNames, String clientIp) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerKmsAuthorizer.hasAccess(" + aclType + ", " + ugi + ", " + keyNames + ")");
+		}
+
+		Map<String, Boolean> ret = null;
+
+		try {
+			activatePluginClassLoader();
+
+			ret = (Map<String, Boolean>)implBulkHasAccess.invoke(impl, aclType, ugi, keyNames, clientIp);
+		} catch (Exception e) {
+			LOG.error("RangerKmsAuthorizer.hasAccess(" + aclType + ", " + ugi + ", " + keyNames + ") failed", e);
+
+			ret = new LinkedHashMap<String, Boolean>();
+
+			for (String keyName : keyNames) {
+				ret.put(keyName, Boolean.FALSE);
+			}
+		} finally {
+			deactivatePluginClassLoader();
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerKmsAuthorizer.hasAccess(" + aclType + ", " + ugi + ", " + keyNames + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public void assertAccess(Type aclType, UserGroupInformation ugi,KMSOp operation, String key, String clientIp) throws AccessControlException {
 		if(LOG.isDebugEnabled()) {
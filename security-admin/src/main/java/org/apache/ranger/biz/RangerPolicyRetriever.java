@@ -30,6 +30,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.utils.StringUtil;
+import org.apache.ranger.common.RangerAdminNameCache;
 import org.apache.ranger.db.RangerDaoManager;
 import org.apache.ranger.entity.*;
 import org.apache.ranger.plugin.model.RangerPolicy;
@@ -197,6 +198,47 @@ public class RangerPolicyRetriever {
 		return ret;
 	}
 
+	/*
+	 * Builds RangerPolicy objects for the given policies only, like a page of search results,
+	 * instead of all policies of their services.
+	 */
+	public List<RangerPolicy> getPolicies(List<XXPolicy> xPolicies) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyRetriever.getPolicies(count=" + (xPolicies == null ? 0 : xPolicies.size()) + ")");
+		}
+
+		List<RangerPolicy>   ret      = new ArrayList<RangerPolicy>();
+		Map<Long, XXService> services = new HashMap<Long, XXService>();
+
+		if(xPolicies != null) {
+			for(XXPolicy xPolicy : xPolicies) {
+				XXService xService = services.get(xPolicy.getService());
+
+				if(xService == null) {
+					xService = getXXService(xPolicy.getService());
+
+					if(xService == null) {
+						continue;
+					}
+
+					services.put(xService.getId(), xService);
+				}
+
+				RangerPolicy policy = getPolicy(xPolicy, xService);
+
+				if(policy != null) {
+					ret.add(policy);
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyRetriever.getPolicies(count=" + (xPolicies == null ? 0 : xPolicies.size()) + "): " + ret.size());
+		}
+
+		return ret;
+	}
+
 	private XXService getXXService(Long serviceId) {
 		XXService ret = null;
 
@@ -235,6 +277,97 @@ public class RangerPolicyRetriever {
 		final Map<Long, String> conditions      = new HashMap<Long, String>();
 		final Map<Long, String> resourceDefs    = new HashMap<Long, String>();
 		final Map<Long, String> dataMasks       = new HashMap<Long, String>();
+		final RangerAdminNameCache nameCache    = RangerAdminNameCache.getInstance();
+
+		/*
+		 * Loads names of all users, groups, access-types, conditions, resources and
+		 * data-masks referenced by policies of the service in a few queries, instead
+		 * of one query per id on first use.
+		 */
+		void prefetch(XXService xService) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "RangerPolicyRetriever.LookupCache.prefetch(serviceName=" + xService.getName() + ")");
+			}
+
+			long version      = nameCache.getChangeVersion();
+			Long serviceId    = xService.getId();
+			Long serviceDefId = xService.getType();
+
+			List<Object[]> users = daoMgr.getXXUser().getIdNamesByServiceId(serviceId);
+
+			if(users != null) {
+				for(Object[] user : users) {
+					Long   userId   = (Long) user[0];
+					String userName = (String) user[1]; // Name is `loginId`
+
+					userNames.put(userId, userName);
+					nameCache.setUserName(userId, userName, version);
+				}
+			}
+
+			List<Object[]> groups = daoMgr.getXXGroup().getIdNamesByServiceId(serviceId);
+
+			if(groups != null) {
+				for(Object[] group : groups) {
+					Long   groupId   = (Long) group[0];
+					String groupName = (String) group[1];
+
+					groupNames.put(groupId, groupName);
+					nameCache.setGroupName(groupId, groupName, version);
+				}
+			}
+
+			List<XXPortalUser> portalUsers = daoMgr.getXXPortalUser().findByPolicyServiceId(serviceId);
+
+			if(portalUsers != null) {
+				for(XXPortalUser portalUser : portalUsers) {
+					String screenName = getScreenName(portalUser);
+
+					if(screenName != null) {
+						userScreenNames.put(portalUser.getId(), screenName);
+						nameCache.setUserScreenName(portalUser.getId(), screenName, version);
+					}
+				}
+			}
+
+			if(serviceDefId != null) {
+				List<XXAccessTypeDef> xAccessTypeDefs = daoMgr.getXXAccessTypeDef().findByServiceDefId(serviceDefId);
+
+				if(xAccessTypeDefs != null) {
+					for(XXAccessTypeDef xAccessTypeDef : xAccessTypeDefs) {
+						accessTypes.put(xAccessTypeDef.getId(), xAccessTypeDef.getName());
+					}
+				}
+
+				List<XXPolicyConditionDef> xConditionDefs = daoMgr.getXXPolicyConditionDef().findByServiceDefId(serviceDefId);
+
+				if(xConditionDefs != null) {
+					for(XXPolicyConditionDef xConditionDef : xConditionDefs) {
+						conditions.put(xConditionDef.getId(), xConditionDef.getName());
+					}
+				}
+
+				List<XXResourceDef> xResourceDefs = daoMgr.getXXResourceDef().findByServiceDefId(serviceDefId);
+
+				if(xResourceDefs != null) {
+					for(XXResourceDef xResourceDef : xResourceDefs) {
+						resourceDefs.put(xResourceDef.getId(), xResourceDef.getName());
+					}
+				}
+
+				List<XXDataMaskTypeDef> xDataMaskDefs = daoMgr.getXXDataMaskTypeDef().findByServiceDefId(serviceDefId);
+
+				if(xDataMaskDefs != null) {
+					for(XXDataMaskTypeDef xDataMaskDef : xDataMaskDefs) {
+						dataMasks.put(xDataMaskDef.getId(), xDataMaskDef.getName());
+					}
+				}
+			}
+
+			RangerPerfTracer.log(perf);
+		}
 
 		String getUserName(Long userId) {
 			String ret = null;
@@ -243,11 +376,20 @@ public class RangerPolicyRetriever {
 				ret = userNames.get(userId);
 
 				if(ret == null) {
-					XXUser user = daoMgr.getXXUser().getById(userId);
+					ret = nameCache.getUserName(userId);
+
+					if(ret == null) {
+						long   version = nameCache.getChangeVersion();
+						XXUser user    = daoMgr.getXXUser().getById(userId);
 
-					if(user != null) {
-						ret = user.getName(); // Name is `loginId`
+						if(user != null) {
+							ret = user.getName(); // Name is `loginId`
+
+							nameCache.setUserName(userId, ret, version);
+						}
+					}
 
+					if(ret != null) {
 						userNames.put(userId,  ret);
 					}
 				}
@@ -263,26 +405,21 @@ public class RangerPolicyRetriever {
 				ret = userScreenNames.get(userId);
 
 				if(ret == null) {
-					XXPortalUser user = daoMgr.getXXPortalUser().getById(userId);
+					ret = nameCache.getUserScreenName(userId);
 
-					if(user != null) {
-						ret = user.getPublicScreenName();
+					if(ret == null) {
+						long         version = nameCache.getChangeVersion();
+						XXPortalUser user    = daoMgr.getXXPortalUser().getById(userId);
 
-						if (StringUtil.isEmpty(ret)) {
-							ret = user.getFirstName();
+						if(user != null) {
+							ret = getScreenName(user);
 
-							if(StringUtil.isEmpty(ret)) {
-								ret = user.getLoginId();
-							} else {
-								if(!StringUtil.isEmpty(user.getLastName())) {
-									ret += (" " + user.getLastName());
-								}
-							}
+							nameCache.setUserScreenName(userId, ret, version);
 						}
+					}
 
-						if(ret != null) {
-							userScreenNames.put(userId, ret);
-						}
+					if(ret != null) {
+						userScreenNames.put(userId, ret);
 					}
 				}
 			}
@@ -297,11 +434,20 @@ public class RangerPolicyRetriever {
 				ret = groupNames.get(groupId);
 
 				if(ret == null) {
-					XXGroup group = daoMgr.getXXGroup().getById(groupId);
+					ret = nameCache.getGroupName(groupId);
 
-					if(group != null) {
-						ret = group.getName();
+					if(ret == null) {
+						long    version = nameCache.getChangeVersion();
+						XXGroup group   = daoMgr.getXXGroup().getById(groupId);
 
+						if(group != null) {
+							ret = group.getName();
+
+							nameCache.setGroupName(groupId, ret, version);
+						}
+					}
+
+					if(ret != null) {
 						groupNames.put(groupId,  ret);
 					}
 				}
@@ -389,6 +535,24 @@ public class RangerPolicyRetriever {
 
 			return ret;
 		}
+	
+		private String getScreenName(XXPortalUser user) {
+			String ret = user.getPublicScreenName();
+
+			if (StringUtil.isEmpty(ret)) {
+				ret = user.getFirstName();
+
+				if(StringUtil.isEmpty(ret)) {
+					ret = user.getLoginId();
+				} else {
+					if(!StringUtil.isEmpty(user.getLastName())) {
+						ret += (" " + user.getLastName());
+					}
+				}
+			}
+
+			return ret;
+		}
 	}
 
 	static List<XXPolicy> asList(XXPolicy policy) {
@@ -428,6 +592,10 @@ public class RangerPolicyRetriever {
 			List<XXPolicyItemDataMaskInfo>  xDataMaskInfos  = daoMgr.getXXPolicyItemDataMaskInfo().findByServiceId(serviceId);
 			List<XXPolicyItemRowFilterInfo> xRowFilterInfos = daoMgr.getXXPolicyItemRowFilterInfo().findByServiceId(serviceId);
 
+			if(xService != null) {
+				lookupCache.prefetch(xService);
+			}
+
 			this.service          = xService;
 			this.iterPolicy       = xPolicies.listIterator();
 			this.iterResources    = xResources.listIterator();
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.Date;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.DateUtil;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes x_tag_change_log entries older than the retention period. Caches holding tags
+ * older than that are brought up to date with a full reload instead of incrementally.
+ */
+@Component
+public class RangerTagChangeLogPurger {
+	private static final Log LOG = LogFactory.getLog(RangerTagChangeLogPurger.class);
+
+	private static final int  DEFAULT_RETENTION_DAYS = 7;
+	private static final long MS_PER_DAY             = 24 * 60 * 60 * 1000L;
+
+	@Autowired
+	RangerDaoManager daoManager;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	@Scheduled(fixedDelay = 60 * 60 * 1000)
+	public void purgeChangeLogs() {
+		int retentionDays = PropertiesUtil.getIntProperty("ranger.admin.tag.change.log.retention.days", DEFAULT_RETENTION_DAYS);
+
+		if (retentionDays <= 0) {
+			return;
+		}
+
+		final Date olderThan = new Date(DateUtil.getUTCDate().getTime() - retentionDays * MS_PER_DAY);
+
+		try {
+			TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+			Integer deletedCount = txTemplate.execute(new TransactionCallback<Integer>() {
+				@Override
+				public Integer doInTransaction(TransactionStatus status) {
+					return daoManager.getXXTagChangeLog().deleteOlderThan(olderThan);
+				}
+			});
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerTagChangeLogPurger.purgeChangeLogs(olderThan=" + olderThan + "): deletedCount=" + deletedCount);
+			}
+		} catch (Throwable excp) {
+			LOG.error("RangerTagChangeLogPurger.purgeChangeLogs(): failed to delete tag change logs", excp);
+		}
+	}
+}
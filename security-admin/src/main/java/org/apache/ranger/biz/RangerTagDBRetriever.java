@@ -20,10 +20,13 @@
 package org.apache.ranger.biz;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
@@ -78,6 +81,80 @@ public class RangerTagDBRetriever {
 		}
 	}
 
+	/**
+	 * Retrieves only the given service-resources, with their tag-resource-maps and tags, and
+	 * the given tags; resources that no longer exist in the service are skipped.
+	 */
+	public RangerTagDBRetriever(final RangerDaoManager daoMgr, final XXService xService, final Collection<Long> resourceIds, final Collection<Long> tagIds) {
+		this.daoMgr = daoMgr;
+		this.xService = xService;
+		this.lookupCache = new LookupCache();
+
+		serviceResources = new ArrayList<RangerServiceResource>();
+		tagDefs = new HashMap<Long, RangerTagDef>();
+		tags = new HashMap<Long, RangerTag>();
+		tagResourceMaps = new ArrayList<RangerTagResourceMap>();
+
+		if (this.daoMgr != null && this.xService != null) {
+
+			RangerPerfTracer perf = null;
+
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "RangerTagDBReceiver.getTags(serviceName=" + xService.getName() + ", resourceCount=" + resourceIds.size() + ", tagCount=" + tagIds.size());
+			}
+
+			List<Long> serviceResourceIds = new ArrayList<Long>();
+			Set<Long>  tagIdsToRetrieve   = new HashSet<Long>(tagIds);
+
+			for (Long resourceId : resourceIds) {
+				XXServiceResource xServiceResource = daoMgr.getXXServiceResource().getById(resourceId);
+
+				if (xServiceResource != null && xService.getId().equals(xServiceResource.getServiceId())) {
+					RangerServiceResource serviceResource = new TagRetrieverServiceResourceContext(xServiceResource, xService).getNextServiceResource();
+
+					if (serviceResource != null) {
+						serviceResources.add(serviceResource);
+						serviceResourceIds.add(serviceResource.getId());
+					}
+				}
+			}
+
+			tagResourceMaps = toTagResourceMaps(daoMgr.getXXTagResourceMap().findByResourceIds(serviceResourceIds));
+
+			for (RangerTagResourceMap tagResourceMap : tagResourceMaps) {
+				tagIdsToRetrieve.add(tagResourceMap.getTagId());
+			}
+
+			for (Long tagId : tagIdsToRetrieve) {
+				XXTag xTag = daoMgr.getXXTag().getById(tagId);
+
+				if (xTag == null) {
+					continue;
+				}
+
+				if (!tagDefs.containsKey(xTag.getType())) {
+					XXTagDef xTagDef = daoMgr.getXXTagDef().getById(xTag.getType());
+
+					if (xTagDef != null) {
+						RangerTagDef tagDef = new TagRetrieverTagDefContext(xTagDef, xService).getNextTagDef();
+
+						if (tagDef != null) {
+							tagDefs.put(tagDef.getId(), tagDef);
+						}
+					}
+				}
+
+				RangerTag tag = new TagRetrieverTagContext(xTag, xService).getNextTag();
+
+				if (tag != null) {
+					tags.put(tag.getId(), tag);
+				}
+			}
+
+			RangerPerfTracer.log(perf);
+		}
+	}
+
 	public List<RangerTagResourceMap> getTagResourceMaps() {
 		return tagResourceMaps;
 	}
@@ -96,7 +173,10 @@ public class RangerTagDBRetriever {
 
 	private List<RangerTagResourceMap> getAllTagResourceMaps() {
 
-		List<XXTagResourceMap> xTagResourceMaps = daoMgr.getXXTagResourceMap().findByServiceId(xService.getId());
+		return toTagResourceMaps(daoMgr.getXXTagResourceMap().findByServiceId(xService.getId()));
+	}
+
+	private List<RangerTagResourceMap> toTagResourceMaps(List<XXTagResourceMap> xTagResourceMaps) {
 		ListIterator<XXTagResourceMap> iterTagResourceMap = xTagResourceMaps.listIterator();
 
 		List<RangerTagResourceMap> ret = new ArrayList<RangerTagResourceMap>();
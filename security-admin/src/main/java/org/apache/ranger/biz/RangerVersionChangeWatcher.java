@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.common.PropertiesUtil;
+import org.apache.ranger.common.RangerServicePoliciesCache;
+import org.apache.ranger.common.RangerServiceTagsCache;
+import org.apache.ranger.common.RangerVersionChangeNotifier;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks the policy and tag versions of services that have long-poll clients
+ * waiting on them, and notifies the waiting clients of changes. Version changes
+ * made through this Ranger Admin are also seen when the caches reload; this
+ * picks up changes made by other Ranger Admin instances sharing the database.
+ */
+@Component
+public class RangerVersionChangeWatcher {
+	private static final Log LOG = LogFactory.getLog(RangerVersionChangeWatcher.class);
+
+	private static final int DEFAULT_CHECK_INTERVAL_MS = 2000;
+
+	@Autowired
+	RangerDaoManager daoManager;
+
+	@Autowired
+	@Qualifier(value = "transactionManager")
+	PlatformTransactionManager txManager;
+
+	private long lastCheckTimeMs = 0;
+
+	@Scheduled(fixedDelay = 1000)
+	public void checkVersions() {
+		int  checkIntervalMs = PropertiesUtil.getIntProperty("ranger.admin.longpoll.version.check.interval.ms", DEFAULT_CHECK_INTERVAL_MS);
+		long now             = System.currentTimeMillis();
+
+		if (now - lastCheckTimeMs < checkIntervalMs) {
+			return;
+		}
+
+		lastCheckTimeMs = now;
+
+		final RangerVersionChangeNotifier policyNotifier = RangerServicePoliciesCache.getInstance().getVersionChangeNotifier();
+		final RangerVersionChangeNotifier tagNotifier    = RangerServiceTagsCache.getInstance().getVersionChangeNotifier();
+		final Set<String>                 policyServices = policyNotifier.getWatchedServiceNames();
+		final Set<String>                 tagServices    = tagNotifier.getWatchedServiceNames();
+
+		if (CollectionUtils.isEmpty(policyServices) && CollectionUtils.isEmpty(tagServices)) {
+			return;
+		}
+
+		try {
+			TransactionTemplate txTemplate = new TransactionTemplate(txManager);
+
+			txTemplate.setReadOnly(true);
+			txTemplate.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					for (String serviceName : policyServices) {
+						XXServiceVersionInfo versionInfo = daoManager.getXXServiceVersionInfo().findByServiceName(serviceName);
+
+						if (versionInfo != null) {
+							policyNotifier.versionChanged(serviceName, versionInfo.getPolicyVersion());
+						}
+					}
+
+					for (String serviceName : tagServices) {
+						XXServiceVersionInfo versionInfo = daoManager.getXXServiceVersionInfo().findByServiceName(serviceName);
+
+						if (versionInfo != null) {
+							tagNotifier.versionChanged(serviceName, versionInfo.getTagVersion());
+						}
+					}
+
+					return null;
+				}
+			});
+		} catch (Throwable excp) {
+			LOG.error("RangerVersionChangeWatcher.checkVersions(): failed to read service versions", excp);
+		}
+	}
+}
@@ -32,13 +32,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.TreeMap;
 
@@ -62,6 +61,7 @@ import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
 import org.apache.ranger.common.RangerFactory;
+import org.apache.ranger.common.RangerPolicySearchIndex;
 import org.apache.ranger.common.RangerServicePoliciesCache;
 import org.apache.ranger.common.StringUtil;
 import org.apache.ranger.common.UserSessionBase;
@@ -168,13 +168,15 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
 
 @Component
 public class ServiceDBStore extends AbstractServiceStore {
@@ -189,6 +191,11 @@ public class ServiceDBStore extends AbstractServiceStore {
 	
 	private static final String KERBEROS_TYPE = "kerberos";
 
+	private static final String POLICY_EXPORT_PAGE_SIZE_PROP    = "ranger.admin.policy.export.page.size";
+	private static final int    DEFAULT_POLICY_EXPORT_PAGE_SIZE = 500;
+	private static final int    EXCEL_ROW_ACCESS_WINDOW         = 100;
+	private static final String EXCEL_CONTENT_TYPE              = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
 	@Autowired
 	RangerServiceDefService serviceDefService;
  
@@ -1614,6 +1621,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 		service.setVersion(version);
 
 		svcService.delete(service);
+		RangerPolicySearchIndex.getInstance().removeService(service.getName());
 
 		dataHistService.createObjectDataHistory(service, RangerDataHistService.ACTION_DELETE);
 
@@ -1788,6 +1796,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 		createNewRowFilterPolicyItemsForPolicy(policy, xCreatedPolicy, rowFilterItems, xServiceDef, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ROWFILTER);
 		handlePolicyUpdate(service);
 		RangerPolicy createdPolicy = policyService.getPopulatedViewObject(xCreatedPolicy);
+		updatePolicySearchIndex(service, createdPolicy, null);
 		dataHistService.createObjectDataHistory(createdPolicy, RangerDataHistService.ACTION_CREATE);
 
 		List<XXTrxLog> trxLogList = policyService.getTransactionLog(createdPolicy, RangerPolicyService.OPERATION_CREATE_CONTEXT);
@@ -1865,6 +1874,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 		handlePolicyUpdate(service);
 		RangerPolicy updPolicy = policyService.getPopulatedViewObject(newUpdPolicy);
+		updatePolicySearchIndex(service, updPolicy, null);
 		dataHistService.createObjectDataHistory(updPolicy, RangerDataHistService.ACTION_UPDATE);
 		
 		bizUtil.createTrxLog(trxLogList);
@@ -1908,6 +1918,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 		
 		policyService.delete(policy);
 		handlePolicyUpdate(service);
+		updatePolicySearchIndex(service, null, policyId);
 		
 		dataHistService.createObjectDataHistory(policy, RangerDataHistService.ACTION_DELETE);
 		
@@ -1996,57 +2007,208 @@ public class ServiceDBStore extends AbstractServiceStore {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceDBStore.getPoliciesInExcel()");
 		}
-		String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-		String excelFileName = "Ranger_Policies_"+timeStamp+".xls";
-		writeExcel(policies, excelFileName, response);
+		writeExcel(policies, null, getExcelFileName(), response);
+	}
+
+	/*
+	 * Writes the policies matching the filter to the response as they are read from the database,
+	 * instead of loading all of them first; see exportPoliciesForReports().
+	 */
+	public void getPoliciesInExcel(SearchFilter filter, HttpServletResponse response) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getPoliciesInExcel(" + filter + ")");
+		}
+		writeExcel(null, filter, getExcelFileName(), response);
 	}
 
 	public void getPoliciesInCSV(List<RangerPolicy> policies, HttpServletResponse response) throws Exception {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("==> ServiceDBStore.getPoliciesInCSV()");
-				}
-				InputStream in=null;
-				ServletOutputStream out=null;
-				String CSVFileName=null;
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getPoliciesInCSV()");
+		}
+		writeCSVReport(policies, null, response);
+	}
+
+	public void getPoliciesInCSV(SearchFilter filter, HttpServletResponse response) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getPoliciesInCSV(" + filter + ")");
+		}
+		writeCSVReport(null, filter, response);
+	}
+
+	public void getPoliciesInJson(SearchFilter filter, HttpServletResponse response) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getPoliciesInJson(" + filter + ")");
+		}
+		String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+		String jsonFileName = "Ranger_Policies_" + timeStamp + ".json";
+		JsonGenerator jsonGenerator = null;
+		try {
+			response.setContentType("application/json");
+			response.setCharacterEncoding("UTF-8");
+			response.setHeader("Content-Disposition", "attachment; filename=" + jsonFileName);
+
+			jsonGenerator = new ObjectMapper().getJsonFactory().createJsonGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+			// a failed export must not be completed into a valid, but partial, document on close()
+			jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
+			final JsonGenerator generator = jsonGenerator;
+
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("policies");
+			exportPoliciesForReports(filter, new RangerPolicyExportWriter() {
+				@Override
+				public void writePolicy(RangerPolicy policy) throws IOException {
+					generator.writeObject(policy);
+				}
+			});
+			generator.writeEndArray();
+			generator.writeEndObject();
+		} catch (Exception e) {
+			LOG.error("Error while generating report file " + jsonFileName, e);
+
+			throw e;
+		} finally {
+			if (jsonGenerator != null) {
 				try {
-					String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-					CSVFileName = "Ranger_Policies_" + timeStamp + ".csv";
-					out = response.getOutputStream();
-					StringBuffer sb = writeCSV(policies, CSVFileName, response);
-					in = new ByteArrayInputStream(sb.toString().getBytes());
-					byte[] outputByte = new byte[sb.length()];
-					while (in.read(outputByte, 0, sb.length()) != -1) {
-						out.write(outputByte, 0, sb.length());
-					}
+					jsonGenerator.close();
+				} catch (IOException ex) {
+				}
 			}
-				catch (Exception e) {
-					 LOG.error("Error while generating report file " + CSVFileName, e);
-					 e.printStackTrace();
+		}
+	}
+
+	private String getExcelFileName() {
+		String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+		return "Ranger_Policies_" + timeStamp + ".xlsx";
+	}
 
+	private void writeCSVReport(List<RangerPolicy> policies, SearchFilter filter, HttpServletResponse response) throws Exception {
+		String CSVFileName = null;
+		ServletOutputStream out = null;
+		try {
+			String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+			CSVFileName = "Ranger_Policies_" + timeStamp + ".csv";
+			out = response.getOutputStream();
+			writeCSV(policies, filter, CSVFileName, response);
+		} catch (Exception e) {
+			LOG.error("Error while generating report file " + CSVFileName, e);
+
+			throw e;
+		} finally {
+			try {
+				if (out != null) {
+					out.flush();
+					out.close();
 				}
-				finally {
-					try{
-						if(in!=null){
-							in.close();
-							in=null;
-						}
-					}catch(Exception ex){
-					}
-					try{
-						if(out!=null){
-							out.flush();
-							out.close();
-						}
-					}catch(Exception ex){
-					}
+			} catch (Exception ex) {
+			}
+		}
+	}
+
+	private interface RangerPolicyExportWriter {
+		void writePolicy(RangerPolicy policy) throws IOException;
+	}
+
+	private void writePolicies(List<RangerPolicy> policies, SearchFilter filter, RangerPolicyExportWriter writer) throws Exception {
+		if (policies != null) {
+			for (RangerPolicy policy : policies) {
+				writer.writePolicy(policy);
+			}
+		} else {
+			exportPoliciesForReports(filter, writer);
+		}
+	}
+
+	/*
+	 * Passes the policies of the report to the writer, reading them from the database a page at a time
+	 * (in policy-id order, paged on the last id seen) when the filter can be evaluated by the database.
+	 * Entities of each page are detached once written, so memory use doesn't grow with the number of
+	 * policies. Other filters, like 'user' that also matches policies of the user's groups, use
+	 * getPoliciesForReports().
+	 */
+	private void exportPoliciesForReports(SearchFilter filter, RangerPolicyExportWriter writer) throws Exception {
+		if (!isPaginatedExportSupported(filter)) {
+			filter.setStartIndex(0);
+			filter.setMaxRows(Integer.MAX_VALUE);
+
+			List<RangerPolicy> policies = getPoliciesForReports(filter);
+
+			if (policies != null) {
+				for (RangerPolicy policy : policies) {
+					writer.writePolicy(policy);
 				}
 			}
 
+			return;
+		}
+
+		String serviceTypeNames = filter.getParam(SearchFilter.SERVICE_TYPE);
+
+		if (serviceTypeNames == null) {
+			exportPoliciesForReports(filter, null, writer);
+		} else {
+			// each service type is exported in turn, as the filter takes a single type
+			for (String serviceType : serviceTypeNames.split("_")) {
+				if (StringUtils.isNotEmpty(serviceType)) {
+					exportPoliciesForReports(filter, serviceType, writer);
+				}
+			}
+		}
+	}
+
+	private void exportPoliciesForReports(SearchFilter filter, String serviceType, RangerPolicyExportWriter writer) throws Exception {
+		int                   pageSize        = PropertiesUtil.getIntProperty(POLICY_EXPORT_PAGE_SIZE_PROP, DEFAULT_POLICY_EXPORT_PAGE_SIZE);
+		SearchFilter          pageFilter      = new SearchFilter(filter.getParams() == null ? new HashMap<String, String>() : new HashMap<String, String>(filter.getParams()));
+		RangerPolicyRetriever policyRetriever = new RangerPolicyRetriever(daoMgr);
+		int                   count           = 0;
+
+		pageFilter.setParam(SearchFilter.SERVICE_TYPE, serviceType);
+		pageFilter.setStartIndex(0);
+		pageFilter.setMaxRows(pageSize);
+		pageFilter.setGetCount(false);
+		pageFilter.setSortBy(SearchFilter.POLICY_ID);
+		pageFilter.setSortType("asc");
+
+		while (true) {
+			List<XXPolicy> xPolicies = (List<XXPolicy>) policyService.searchResources(pageFilter, policyService.paginatedSearchFields, policyService.sortFields, null);
+
+			if (CollectionUtils.isEmpty(xPolicies)) {
+				break;
+			}
+
+			for (RangerPolicy policy : policyRetriever.getPolicies(xPolicies)) {
+				writer.writePolicy(policy);
+			}
+
+			count += xPolicies.size();
+
+			if (xPolicies.size() < pageSize) {
+				break;
+			}
+
+			pageFilter.setParam(SearchFilter.POLICY_ID_AFTER, xPolicies.get(xPolicies.size() - 1).getId().toString());
+
+			daoMgr.getEntityManager().clear();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("ServiceDBStore.exportPoliciesForReports(serviceType=" + serviceType + "): exported " + count + " policies");
+		}
+	}
+
+	private boolean isPaginatedExportSupported(SearchFilter filter) {
+		return filter != null && policyService.isPaginatedSearchSupported(filter);
+	}
+
 	public PList<RangerPolicy> getPaginatedPolicies(SearchFilter filter) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceDBStore.getPaginatedPolicies(+ " + filter + ")");
 		}
 
+		if (policyService.isPaginatedSearchSupported(filter)) {
+			return getPaginatedPoliciesFromDb(filter);
+		}
+
 		RangerPolicyList policyList = searchRangerPolicies(filter);
 
 		if (LOG.isDebugEnabled()) {
@@ -2067,6 +2229,27 @@ public class ServiceDBStore extends AbstractServiceStore {
 
 	}
 
+	/*
+	 * Filtering, sorting and paging are done by the database; RangerPolicy objects are
+	 * built only for the policies in the returned page.
+	 */
+	private PList<RangerPolicy> getPaginatedPoliciesFromDb(SearchFilter filter) {
+		RangerPolicyList policyList = new RangerPolicyList();
+
+		List<XXPolicy> xPolicies = (List<XXPolicy>) policyService.searchResources(filter, policyService.paginatedSearchFields, policyService.sortFields, policyList);
+
+		RangerPolicyRetriever policyRetriever = new RangerPolicyRetriever(daoMgr);
+
+		List<RangerPolicy> policies = policyRetriever.getPolicies(xPolicies);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceDBStore.getPaginatedPoliciesFromDb(" + filter + "): count=" + policies.size() + ", totalCount=" + policyList.getTotalCount());
+		}
+
+		return new PList<RangerPolicy>(policies, policyList.getStartIndex(), policyList.getPageSize(), policyList.getTotalCount(),
+				policies.size(), policyList.getSortType(), policyList.getSortBy());
+	}
+
 	@Override
 	public List<RangerPolicy> getServicePolicies(Long serviceId, SearchFilter filter) throws Exception {
 		if(LOG.isDebugEnabled()) {
@@ -2145,7 +2328,10 @@ public class ServiceDBStore extends AbstractServiceStore {
 		List<RangerPolicy> policies = servicePolicies != null ? servicePolicies.getPolicies() : null;
 
 		if(policies != null && filter != null) {
-			ret = new ArrayList<RangerPolicy>(policies);
+			// narrow down to the policies that may match, before evaluating the filter predicates
+			List<RangerPolicy> candidates = RangerPolicySearchIndex.getInstance().getCandidatePolicies(service.getName(), servicePolicies.getPolicyVersion(), policies, filter);
+
+			ret = new ArrayList<RangerPolicy>(candidates);
 			predicateUtil.applyFilter(ret, filter);
 		} else {
 			ret = policies;
@@ -2694,6 +2880,16 @@ public class ServiceDBStore extends AbstractServiceStore {
 		updatePolicyVersion(service);
 	}
 
+	private void updatePolicySearchIndex(RangerService service, RangerPolicy policy, Long deletedPolicyId) {
+		XXServiceVersionInfo serviceVersionInfo = daoMgr.getXXServiceVersionInfo().findByServiceId(service.getId());
+
+		if(serviceVersionInfo != null) {
+			RangerPolicySearchIndex.getInstance().policyChanged(service.getName(), serviceVersionInfo.getPolicyVersion(), policy, deletedPolicyId);
+		} else {
+			RangerPolicySearchIndex.getInstance().removeService(service.getName());
+		}
+	}
+
 	private void updatePolicyVersion(RangerService service) throws Exception {
 		if(service == null || service.getId() == null) {
 			return;
@@ -3181,245 +3377,188 @@ public class ServiceDBStore extends AbstractServiceStore {
 		return false;
 	}
 
-	private void writeExcel(List<RangerPolicy> policies, String excelFileName, HttpServletResponse response)
-			throws IOException {
-		Workbook workbook = null;
+	private void writeExcel(List<RangerPolicy> policies, SearchFilter filter, String excelFileName, HttpServletResponse response)
+			throws Exception {
+		SXSSFWorkbook workbook = null;
 		OutputStream outStream = null;
 		try {
-			workbook = new HSSFWorkbook();
-			Sheet sheet = workbook.createSheet();
+			// only the last EXCEL_ROW_ACCESS_WINDOW rows are kept in memory, earlier rows are flushed to a temp file
+			workbook = new SXSSFWorkbook(EXCEL_ROW_ACCESS_WINDOW);
+			final Sheet sheet = workbook.createSheet();
 			createHeaderRow(sheet);
-			int rowCount = 0;
-			if (!CollectionUtils.isEmpty(policies)) {
-				for (RangerPolicy policy : policies) {
-					long serviceType = daoMgr.getXXService().findByName(policy.getService()).getType();
-					List<RangerPolicyItem> policyItems = policy.getPolicyItems();
-					List<RangerRowFilterPolicyItem> rowFilterPolicyItems = policy.getRowFilterPolicyItems();
-					List<RangerDataMaskPolicyItem> dataMaskPolicyItems = policy.getDataMaskPolicyItems();
-
-					if (CollectionUtils.isNotEmpty(policyItems)) {
-						for (RangerPolicyItem policyItem : policyItems) {
-							Row row = sheet.createRow(++rowCount);
-							writeBookForPolicyItems(policy, policyItem, null, null, row);
-						}
-					} else if (CollectionUtils.isNotEmpty(dataMaskPolicyItems)) {
-						for (RangerDataMaskPolicyItem dataMaskPolicyItem : dataMaskPolicyItems) {
-							Row row = sheet.createRow(++rowCount);
-							writeBookForPolicyItems(policy, null, dataMaskPolicyItem, null, row);
-						}
-					} else if (CollectionUtils.isNotEmpty(rowFilterPolicyItems)) {
-						for (RangerRowFilterPolicyItem rowFilterPolicyItem : rowFilterPolicyItems) {
-							Row row = sheet.createRow(++rowCount);
-							writeBookForPolicyItems(policy, null, null, rowFilterPolicyItem, row);
-						}
-					} else if (serviceType == 100) {
-						Row row = sheet.createRow(++rowCount);
-						writeBookForTag(policy, row);
+			writePolicies(policies, filter, new RangerPolicyExportWriter() {
+				private final Map<String, Long> serviceTypes = new HashMap<String, Long>();
+				private int rowCount = 0;
+
+				@Override
+				public void writePolicy(RangerPolicy policy) {
+					Long serviceType = serviceTypes.get(policy.getService());
+					if (serviceType == null) {
+						serviceType = daoMgr.getXXService().findByName(policy.getService()).getType();
+						serviceTypes.put(policy.getService(), serviceType);
 					}
+					rowCount = writeExcelRows(policy, serviceType, sheet, rowCount);
 				}
-			}
-			ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
-			workbook.write(outByteStream);
-			byte[] outArray = outByteStream.toByteArray();
-			response.setContentType("application/ms-excel");
-			response.setContentLength(outArray.length);
+			});
+			response.setContentType(EXCEL_CONTENT_TYPE);
 			response.setHeader("Expires:", "0");
 			response.setHeader("Content-Disposition", "attachment; filename=" + excelFileName);
 			outStream = response.getOutputStream();
-			outStream.write(outArray);
+			workbook.write(outStream);
 			outStream.flush();
 		} catch (IOException ex) {
 			LOG.error("Failed to create report file " + excelFileName, ex);
+
+			throw ex;
 		} catch (Exception ex) {
 			LOG.error("Error while generating report file " + excelFileName, ex);
+
+			throw ex;
 		} finally {
 			if (outStream != null) {
 				outStream.close();
 			}
 			if (workbook != null) {
+				workbook.dispose();
 				workbook.close();
 			}
 		}
 	}
 
-	private StringBuffer writeCSV(List<RangerPolicy> policies, String cSVFileName, HttpServletResponse response) {
+	private int writeExcelRows(RangerPolicy policy, long serviceType, Sheet sheet, int rowCount) {
+		List<RangerPolicyItem> policyItems = policy.getPolicyItems();
+		List<RangerRowFilterPolicyItem> rowFilterPolicyItems = policy.getRowFilterPolicyItems();
+		List<RangerDataMaskPolicyItem> dataMaskPolicyItems = policy.getDataMaskPolicyItems();
+
+		if (CollectionUtils.isNotEmpty(policyItems)) {
+			for (RangerPolicyItem policyItem : policyItems) {
+				Row row = sheet.createRow(++rowCount);
+				writeBookForPolicyItems(policy, policyItem, null, null, row);
+			}
+		} else if (CollectionUtils.isNotEmpty(dataMaskPolicyItems)) {
+			for (RangerDataMaskPolicyItem dataMaskPolicyItem : dataMaskPolicyItems) {
+				Row row = sheet.createRow(++rowCount);
+				writeBookForPolicyItems(policy, null, dataMaskPolicyItem, null, row);
+			}
+		} else if (CollectionUtils.isNotEmpty(rowFilterPolicyItems)) {
+			for (RangerRowFilterPolicyItem rowFilterPolicyItem : rowFilterPolicyItems) {
+				Row row = sheet.createRow(++rowCount);
+				writeBookForPolicyItems(policy, null, null, rowFilterPolicyItem, row);
+			}
+		} else if (serviceType == 100) {
+			Row row = sheet.createRow(++rowCount);
+			writeBookForTag(policy, row);
+		}
+		return rowCount;
+	}
+
+	private void writeCSV(List<RangerPolicy> policies, SearchFilter filter, String cSVFileName, HttpServletResponse response) throws Exception {
 		response.setContentType("text/csv");
-		final String COMMA_DELIMITER = "|";
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=" + cSVFileName);
+
 		final String LINE_SEPARATOR = "\n";
 		final String FILE_HEADER = "ID|Name|Resources|Groups|Users|Accesses|Service Type|Status";
-		StringBuffer csvBuffer = new StringBuffer();
-		csvBuffer.append(FILE_HEADER);
-		csvBuffer.append(LINE_SEPARATOR);
-		for (RangerPolicy policy : policies) {
-			String policyStatus = "";
-			String policyName = "";
-			String ServiceType = "";
-			Long serviceTypeId = null;
-			List<String> groups = new ArrayList<String>();
-			List<String> users = new ArrayList<String>();
-			List<RangerPolicyItemAccess> accesses = new ArrayList<RangerPolicyItemAccess>();
-			String groupNames = "";
-			String userNames = "";
-			String accessType = "";
-			String resValue = "";
-			String resourceKeyVal = "";
-			String resKey = "";
-			policyName = policy.getName();
-			policyName=policyName.replace("|", "");
-			Long policyId = policy.getId();
-
-			if (policy.getIsEnabled()) {
-				policyStatus = "Enabled";
-			} else {
-				policyStatus = "Disabled";
-			}
-			XXService xxservice = daoMgr.getXXService().findByName(policy.getService());
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), "UTF-8"));
 
-			if (xxservice != null) {
-				serviceTypeId = xxservice.getType();
-				XXServiceDef xxservDef = daoMgr.getXXServiceDef().getById(serviceTypeId);
-				if (xxservDef != null) {
-					ServiceType = xxservDef.getName();
-				}
-			}
-			int policyType = policy.getPolicyType();
-			List<RangerPolicyItem> policyItems = new ArrayList<RangerPolicyItem>();
-			List<RangerPolicyItem> policyItems0 = new ArrayList<RangerPolicyItem>();
-			List<RangerDataMaskPolicyItem> policyItems1 = new ArrayList<RangerDataMaskPolicyItem>();
-			List<RangerRowFilterPolicyItem> policyItems2 = new ArrayList<RangerRowFilterPolicyItem>();
-			switch (policyType) {
-			case 0:
-				policyItems0 = policy.getPolicyItems();
-				policyItems.addAll(policyItems0);
-				break;
-			case 1:
-				policyItems1 = policy.getDataMaskPolicyItems();
-				policyItems.addAll(policyItems1);
-				break;
-			case 2:
-				policyItems2 = policy.getRowFilterPolicyItems();
-				policyItems.addAll(policyItems2);
-				break;
+		writer.write(FILE_HEADER);
+		writer.write(LINE_SEPARATOR);
+
+		writePolicies(policies, filter, new RangerPolicyExportWriter() {
+			@Override
+			public void writePolicy(RangerPolicy policy) throws IOException {
+				writer.write(getCSVRows(policy).toString());
 			}
+		});
 
-			if (serviceTypeId!=null && serviceTypeId.equals(Long.valueOf(100L))) {
-				Map<String, RangerPolicyResource> resources = policy.getResources();
+		writer.flush();
+	}
 
-				if (resources != null) {
-					for (Entry<String, RangerPolicyResource> resource : resources.entrySet()) {
-						resKey = resource.getKey();
-						RangerPolicyResource policyResource = resource.getValue();
-						List<String> resvalueList = policyResource.getValues();
-						resValue = resvalueList.toString();
-						resourceKeyVal = resourceKeyVal + " " + resKey + "=" + resValue;
-						resourceKeyVal = resourceKeyVal.replace("|", "");
-					}
-				}
+	private StringBuffer getCSVRows(RangerPolicy policy) {
+		final String COMMA_DELIMITER = "|";
+		final String LINE_SEPARATOR = "\n";
+		StringBuffer csvBuffer = new StringBuffer();
+		String policyStatus = "";
+		String policyName = "";
+		String ServiceType = "";
+		Long serviceTypeId = null;
+		List<String> groups = new ArrayList<String>();
+		List<String> users = new ArrayList<String>();
+		List<RangerPolicyItemAccess> accesses = new ArrayList<RangerPolicyItemAccess>();
+		String groupNames = "";
+		String userNames = "";
+		String accessType = "";
+		String resValue = "";
+		String resourceKeyVal = "";
+		String resKey = "";
+		policyName = policy.getName();
+		policyName=policyName.replace("|", "");
+		Long policyId = policy.getId();
 
-				if (!CollectionUtils.isEmpty(policyItems)) {
-					for (RangerPolicyItem policyItem : policyItems) {
-						groupNames = "";
-						userNames = "";
-						accessType = "";
-						groups = null;
-						users = null;
-						accesses = null;
-						groups = policyItem.getGroups();
-						accesses = policyItem.getAccesses();
-						users = policyItem.getUsers();
-
-						for (RangerPolicyItemAccess access : accesses) {
-							accessType = accessType + access.getType().replace("#", "").replace("|","") + "#";
-						}
-						accessType = accessType.substring(0, accessType.lastIndexOf("#"));
-						if (CollectionUtils.isNotEmpty(groups)) {
-							for (String group : groups){
-								group=group.replace("|", "");
-								group=group.replace("#", "");
-								groupNames=groupNames+group+ "#";
-							}
-							groupNames = groupNames.substring(0, groupNames.lastIndexOf("#"));
-						}
+		if (policy.getIsEnabled()) {
+			policyStatus = "Enabled";
+		} else {
+			policyStatus = "Disabled";
+		}
+		XXService xxservice = daoMgr.getXXService().findByName(policy.getService());
 
-						if (CollectionUtils.isNotEmpty(users)) {
-							for (String user : users){
-								user=user.replace("|", "");
-								user=user.replace("#", "");
-								userNames=userNames +user + "#";
-							}
-							userNames=userNames.substring(0,userNames.lastIndexOf("#"));
-						}
+		if (xxservice != null) {
+			serviceTypeId = xxservice.getType();
+			XXServiceDef xxservDef = daoMgr.getXXServiceDef().getById(serviceTypeId);
+			if (xxservDef != null) {
+				ServiceType = xxservDef.getName();
+			}
+		}
+		int policyType = policy.getPolicyType();
+		List<RangerPolicyItem> policyItems = new ArrayList<RangerPolicyItem>();
+		List<RangerPolicyItem> policyItems0 = new ArrayList<RangerPolicyItem>();
+		List<RangerDataMaskPolicyItem> policyItems1 = new ArrayList<RangerDataMaskPolicyItem>();
+		List<RangerRowFilterPolicyItem> policyItems2 = new ArrayList<RangerRowFilterPolicyItem>();
+		switch (policyType) {
+		case 0:
+			policyItems0 = policy.getPolicyItems();
+			policyItems.addAll(policyItems0);
+			break;
+		case 1:
+			policyItems1 = policy.getDataMaskPolicyItems();
+			policyItems.addAll(policyItems1);
+			break;
+		case 2:
+			policyItems2 = policy.getRowFilterPolicyItems();
+			policyItems.addAll(policyItems2);
+			break;
+		}
 
-						csvBuffer.append(policyId);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(policyName);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(resourceKeyVal);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(groupNames);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(userNames);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(accessType);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(ServiceType);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(policyStatus);
-						csvBuffer.append(COMMA_DELIMITER);
-						csvBuffer.append(LINE_SEPARATOR);
+		if (serviceTypeId!=null && serviceTypeId.equals(Long.valueOf(100L))) {
+			Map<String, RangerPolicyResource> resources = policy.getResources();
 
-					}
-				} else {
-					csvBuffer.append(policyId);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(policyName);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(resourceKeyVal);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(groupNames);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(userNames);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(accessType);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(ServiceType);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(policyStatus);
-					csvBuffer.append(COMMA_DELIMITER);
-					csvBuffer.append(LINE_SEPARATOR);
+			if (resources != null) {
+				for (Entry<String, RangerPolicyResource> resource : resources.entrySet()) {
+					resKey = resource.getKey();
+					RangerPolicyResource policyResource = resource.getValue();
+					List<String> resvalueList = policyResource.getValues();
+					resValue = resvalueList.toString();
+					resourceKeyVal = resourceKeyVal + " " + resKey + "=" + resValue;
+					resourceKeyVal = resourceKeyVal.replace("|", "");
 				}
 			}
 
-			else {
-				Map<String, RangerPolicyResource> resources = policy.getResources();
-				if (resources != null) {
-					for (Entry<String, RangerPolicyResource> resource : resources.entrySet()) {
-						resKey = resource.getKey();
-						RangerPolicyResource policyResource = resource.getValue();
-						List<String> resvalueList = policyResource.getValues();
-						resValue = resvalueList.toString();
-						resourceKeyVal = resourceKeyVal + " " + resKey + "=" + resValue;
-						resourceKeyVal = resourceKeyVal.replace("|", "");
-					}
-				}
-
+			if (!CollectionUtils.isEmpty(policyItems)) {
 				for (RangerPolicyItem policyItem : policyItems) {
-					groups = null;
-					users = null;
-					accesses = null;
 					groupNames = "";
 					userNames = "";
 					accessType = "";
+					groups = null;
+					users = null;
+					accesses = null;
 					groups = policyItem.getGroups();
-					users = policyItem.getUsers();
 					accesses = policyItem.getAccesses();
+					users = policyItem.getUsers();
 
-					if (CollectionUtils.isNotEmpty(accesses)) {
-						for (RangerPolicyItemAccess access : accesses) {
-							accessType = accessType + access.getType().replace("#", "").replace("|","") + "#";
-						}
-						accessType = accessType.substring(0, accessType.lastIndexOf("#"));
+					for (RangerPolicyItemAccess access : accesses) {
+						accessType = accessType + access.getType().replace("#", "").replace("|","") + "#";
 					}
+					accessType = accessType.substring(0, accessType.lastIndexOf("#"));
 					if (CollectionUtils.isNotEmpty(groups)) {
 						for (String group : groups){
 							group=group.replace("|", "");
@@ -3428,6 +3567,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 						}
 						groupNames = groupNames.substring(0, groupNames.lastIndexOf("#"));
 					}
+
 					if (CollectionUtils.isNotEmpty(users)) {
 						for (String user : users){
 							user=user.replace("|", "");
@@ -3436,6 +3576,7 @@ public class ServiceDBStore extends AbstractServiceStore {
 						}
 						userNames=userNames.substring(0,userNames.lastIndexOf("#"));
 					}
+
 					csvBuffer.append(policyId);
 					csvBuffer.append(COMMA_DELIMITER);
 					csvBuffer.append(policyName);
@@ -3453,10 +3594,94 @@ public class ServiceDBStore extends AbstractServiceStore {
 					csvBuffer.append(policyStatus);
 					csvBuffer.append(COMMA_DELIMITER);
 					csvBuffer.append(LINE_SEPARATOR);
+
+				}
+			} else {
+				csvBuffer.append(policyId);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(policyName);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(resourceKeyVal);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(groupNames);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(userNames);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(accessType);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(ServiceType);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(policyStatus);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(LINE_SEPARATOR);
+			}
+		}
+
+		else {
+			Map<String, RangerPolicyResource> resources = policy.getResources();
+			if (resources != null) {
+				for (Entry<String, RangerPolicyResource> resource : resources.entrySet()) {
+					resKey = resource.getKey();
+					RangerPolicyResource policyResource = resource.getValue();
+					List<String> resvalueList = policyResource.getValues();
+					resValue = resvalueList.toString();
+					resourceKeyVal = resourceKeyVal + " " + resKey + "=" + resValue;
+					resourceKeyVal = resourceKeyVal.replace("|", "");
 				}
 			}
+
+			for (RangerPolicyItem policyItem : policyItems) {
+				groups = null;
+				users = null;
+				accesses = null;
+				groupNames = "";
+				userNames = "";
+				accessType = "";
+				groups = policyItem.getGroups();
+				users = policyItem.getUsers();
+				accesses = policyItem.getAccesses();
+
+				if (CollectionUtils.isNotEmpty(accesses)) {
+					for (RangerPolicyItemAccess access : accesses) {
+						accessType = accessType + access.getType().replace("#", "").replace("|","") + "#";
+					}
+					accessType = accessType.substring(0, accessType.lastIndexOf("#"));
+				}
+				if (CollectionUtils.isNotEmpty(groups)) {
+					for (String group : groups){
+						group=group.replace("|", "");
+						group=group.replace("#", "");
+						groupNames=groupNames+group+ "#";
+					}
+					groupNames = groupNames.substring(0, groupNames.lastIndexOf("#"));
+				}
+				if (CollectionUtils.isNotEmpty(users)) {
+					for (String user : users){
+						user=user.replace("|", "");
+						user=user.replace("#", "");
+						userNames=userNames +user + "#";
+					}
+					userNames=userNames.substring(0,userNames.lastIndexOf("#"));
+				}
+				csvBuffer.append(policyId);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(policyName);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(resourceKeyVal);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(groupNames);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(userNames);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(accessType);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(ServiceType);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(policyStatus);
+				csvBuffer.append(COMMA_DELIMITER);
+				csvBuffer.append(LINE_SEPARATOR);
+			}
 		}
-		response.setHeader("Content-Disposition", "attachment; filename=" + cSVFileName);
 		return csvBuffer;
 	}
 
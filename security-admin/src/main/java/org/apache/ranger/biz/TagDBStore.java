@@ -20,15 +20,22 @@
 package org.apache.ranger.biz;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.common.ContextUtil;
+import org.apache.ranger.common.DateUtil;
 import org.apache.ranger.common.GUIDUtil;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
@@ -43,6 +50,8 @@ import org.apache.ranger.entity.XXServiceVersionInfo;
 import org.apache.ranger.entity.XXTag;
 import org.apache.ranger.entity.XXTagAttribute;
 import org.apache.ranger.entity.XXTagAttributeDef;
+import org.apache.ranger.entity.XXTagChangeLog;
+import org.apache.ranger.entity.XXTagDef;
 import org.apache.ranger.entity.XXServiceResourceElement;
 import org.apache.ranger.entity.XXServiceResourceElementValue;
 import org.apache.ranger.entity.XXTagResourceMap;
@@ -60,12 +69,24 @@ import org.apache.ranger.service.RangerTagResourceMapService;
 import org.apache.ranger.service.RangerTagService;
 import org.apache.ranger.service.RangerServiceResourceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Component
 public class TagDBStore extends AbstractTagStore {
 	private static final Log LOG = LogFactory.getLog(TagDBStore.class);
 
+	public static final String TAG_BULK_IMPORT_ENABLED_PROP    = "ranger.admin.tags.bulk.import.enabled";
+	public static final String TAG_BULK_IMPORT_BATCH_SIZE_PROP = "ranger.admin.tags.bulk.import.batch.size";
+	public static final String TAG_DELTA_MAX_CHANGES_PROP      = "ranger.admin.tag.delta.max.changes";
+
+	private static final int DEFAULT_TAG_BULK_IMPORT_BATCH_SIZE = 1000;
+	private static final int DEFAULT_TAG_DELTA_MAX_CHANGES      = 10000;
+
 	@Autowired
 	RangerTagDefService rangerTagDefService;
 
@@ -81,6 +102,10 @@ public class TagDBStore extends AbstractTagStore {
 	@Autowired
 	RangerDaoManager daoManager;
 
+	@Autowired
+	@Qualifier(value = "bulkTransactionManager")
+	PlatformTransactionManager bulkTxManager;
+
 	@Autowired
 	RESTErrorUtil errorUtil;
 
@@ -1019,6 +1044,94 @@ public class TagDBStore extends AbstractTagStore {
 
 	}
 
+	/**
+	 * Returns the changes made to the tags of the service after lastKnownVersion, as recorded
+	 * in x_tag_change_log: serviceResources and tags hold the changed resources (with their
+	 * tags) and the changed tags, and resourceToTagIds has an entry for every changed resource,
+	 * empty for those that were deleted or no longer have tags. Returns null when the changes
+	 * can't be applied incrementally - i.e. the log has gaps, marks the whole service as
+	 * changed, or is too large - and the tags must be reloaded with getServiceTags().
+	 */
+	public ServiceTags getServiceTagsDelta(String serviceName, Long lastKnownVersion) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> TagDBStore.getServiceTagsDelta(" + serviceName + ", " + lastKnownVersion + ")");
+		}
+
+		ServiceTags ret = null;
+
+		XXService xxService = daoManager.getXXService().findByName(serviceName);
+
+		if (xxService == null) {
+			throw new Exception("service does not exist. name=" + serviceName);
+		}
+
+		XXServiceVersionInfo serviceVersionInfoDbObj = daoManager.getXXServiceVersionInfo().findByServiceId(xxService.getId());
+		Long                 tagVersionInDb          = serviceVersionInfoDbObj == null ? null : serviceVersionInfoDbObj.getTagVersion();
+
+		if (lastKnownVersion != null && tagVersionInDb != null && tagVersionInDb > lastKnownVersion) {
+			List<XXTagChangeLog> changeLogs  = daoManager.getXXTagChangeLog().findByServiceIdAndVersionRange(xxService.getId(), lastKnownVersion, tagVersionInDb);
+			Set<Long>            versions    = new HashSet<Long>();
+			Set<Long>            resourceIds = new HashSet<Long>();
+			Set<Long>            tagIds      = new HashSet<Long>();
+			boolean              isComplete  = true;
+
+			for (XXTagChangeLog changeLog : changeLogs) {
+				versions.add(changeLog.getServiceTagsVersion());
+
+				if (changeLog.getChangeType() == null || changeLog.getChangeType() == XXTagChangeLog.CHANGE_TYPE_SERVICE) {
+					isComplete = false;
+
+					break;
+				} else if (changeLog.getChangeType() == XXTagChangeLog.CHANGE_TYPE_SERVICE_RESOURCE) {
+					resourceIds.add(changeLog.getServiceResourceId());
+				} else if (changeLog.getChangeType() == XXTagChangeLog.CHANGE_TYPE_TAG) {
+					tagIds.add(changeLog.getTagId());
+				}
+			}
+
+			// every version must have been logged: versions set without a log entry, or logs already purged, leave gaps
+			if (isComplete && versions.size() == tagVersionInDb - lastKnownVersion && resourceIds.size() + tagIds.size() <= getMaxTagDeltaChanges()) {
+				RangerTagDBRetriever tagDBRetriever = new RangerTagDBRetriever(daoManager, xxService, resourceIds, tagIds);
+
+				Map<Long, List<Long>> resourceToTagIds = new HashMap<Long, List<Long>>();
+
+				for (Long resourceId : resourceIds) {
+					resourceToTagIds.put(resourceId, new ArrayList<Long>());
+				}
+
+				for (RangerTagResourceMap tagResourceMap : tagDBRetriever.getTagResourceMaps()) {
+					resourceToTagIds.get(tagResourceMap.getResourceId()).add(tagResourceMap.getTagId());
+				}
+
+				List<RangerServiceResource> resources = new ArrayList<RangerServiceResource>();
+
+				for (RangerServiceResource resource : tagDBRetriever.getServiceResources()) {
+					if (CollectionUtils.isNotEmpty(resourceToTagIds.get(resource.getId()))) {
+						resources.add(resource);
+					}
+				}
+
+				ret = new ServiceTags();
+
+				ret.setServiceName(xxService.getName());
+				ret.setTagVersion(tagVersionInDb);
+				ret.setTagUpdateTime(serviceVersionInfoDbObj.getTagUpdateTime());
+				ret.setTagDefinitions(tagDBRetriever.getTagDefs());
+				ret.setTags(tagDBRetriever.getTags());
+				ret.setServiceResources(resources);
+				ret.setResourceToTagIds(resourceToTagIds);
+			} else if (LOG.isDebugEnabled()) {
+				LOG.debug("TagDBStore.getServiceTagsDelta(" + serviceName + "): changes from version " + lastKnownVersion + " to " + tagVersionInDb + " can't be applied incrementally");
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== TagDBStore.getServiceTagsDelta(" + serviceName + ", " + lastKnownVersion + "): " + (ret == null ? null : ("changedResourceCount=" + ret.getResourceToTagIds().size() + ", changedTagCount=" + ret.getTags().size())));
+		}
+
+		return ret;
+	}
+
 	private List<XXTagAttributeDef> createTagAttributeDefs(Long tagDefId, List<RangerTagAttributeDef> tagAttrDefList) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> TagDBStore.createTagAttributeDefs(" + tagDefId + ", attributeDefCount=" + (tagAttrDefList == null ? 0 : tagAttrDefList.size()) + ")");
@@ -1268,4 +1381,789 @@ public class TagDBStore extends AbstractTagStore {
 			LOG.debug("<== TagDBStore.deleteAllTagObjectsForService(" + serviceName + ")");
 		}
 	}
+
+	public boolean isBulkImportEnabled() {
+		return RangerConfiguration.getInstance().getBoolean(TAG_BULK_IMPORT_ENABLED_PROP, true);
+	}
+
+	/**
+	 * Set-based equivalent of ServiceTagsProcessor's add-or-update. Service-resources are
+	 * processed in batches: for each batch the existing resources, tags and tag-resource
+	 * mappings are read with one query each, new rows are persisted together and stale rows
+	 * are removed with bulk deletes. The tag-version of each affected service is updated
+	 * once, at the end, instead of once per row.
+	 */
+	public void addOrUpdateServiceTagsInBulk(final ServiceTags serviceTags) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> TagDBStore.addOrUpdateServiceTagsInBulk()");
+		}
+
+		final BulkImportContext context = new BulkImportContext(getBulkImportBatchSize());
+
+		executeInBulkWriteTransaction(new BulkWriteTask() {
+			@Override
+			public void execute() throws Exception {
+				addOrUpdateInBulk(serviceTags, context);
+
+				updateTagVersionsInBulk(context);
+			}
+		});
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== TagDBStore.addOrUpdateServiceTagsInBulk(): changedServiceCount=" + context.changedServiceIds.size());
+		}
+	}
+
+	/**
+	 * Set-based equivalent of ServiceTagsProcessor's replace: service-resources of the
+	 * service that are not in serviceTags are deleted, along with their tag associations,
+	 * before the rest is added or updated as in addOrUpdateServiceTagsInBulk().
+	 */
+	public void replaceServiceTagsInBulk(final ServiceTags serviceTags) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> TagDBStore.replaceServiceTagsInBulk(" + serviceTags.getServiceName() + ")");
+		}
+
+		final BulkImportContext context       = new BulkImportContext(getBulkImportBatchSize());
+		final List<String>      guidsToDelete = new ArrayList<String>();
+
+		executeInBulkWriteTransaction(new BulkWriteTask() {
+			@Override
+			public void execute() throws Exception {
+				replaceInBulk(serviceTags, guidsToDelete, context);
+			}
+		});
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== TagDBStore.replaceServiceTagsInBulk(" + serviceTags.getServiceName() + "): deletedResourceCount=" + guidsToDelete.size() + ", changedServiceCount=" + context.changedServiceIds.size());
+		}
+	}
+
+	private void replaceInBulk(ServiceTags serviceTags, List<String> guidsToDelete, BulkImportContext context) throws Exception {
+		Set<String> guidsToRetain = new HashSet<String>();
+
+		if (CollectionUtils.isNotEmpty(serviceTags.getServiceResources())) {
+			for (RangerServiceResource resource : serviceTags.getServiceResources()) {
+				if (!guidsToRetain.add(resource.getGuid())) {
+					LOG.warn("duplicate service-resource found: guid=" + resource.getGuid());
+				}
+			}
+		}
+
+		for (String guid : getServiceResourceGuidsByService(serviceTags.getServiceName())) {
+			if (!guidsToRetain.contains(guid)) {
+				guidsToDelete.add(guid);
+			}
+		}
+
+		for (int i = 0; i < guidsToDelete.size(); i += context.batchSize) {
+			deleteServiceResourcesInBulk(subList(guidsToDelete, i, context.batchSize), context);
+		}
+
+		addOrUpdateInBulk(serviceTags, context);
+
+		updateTagVersionsInBulk(context);
+	}
+
+	private interface BulkWriteTask {
+		void execute() throws Exception;
+	}
+
+	/*
+	 * Runs the task in a transaction of bulkPU, the persistence unit with JDBC batch writing
+	 * enabled; DAOs created by the task use its entity manager. Other writes are not batched.
+	 */
+	private void executeInBulkWriteTransaction(final BulkWriteTask task) throws Exception {
+		TransactionTemplate txTemplate = new TransactionTemplate(bulkTxManager);
+
+		try {
+			txTemplate.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					daoManager.setBulkWriteEnabled(true);
+
+					try {
+						task.execute();
+					} catch (RuntimeException excp) {
+						throw excp;
+					} catch (Exception excp) {
+						throw new BulkWriteException(excp);
+					} finally {
+						daoManager.setBulkWriteEnabled(false);
+					}
+
+					return null;
+				}
+			});
+		} catch (BulkWriteException excp) {
+			throw (Exception) excp.getCause();
+		}
+	}
+
+	// carries a checked exception of a BulkWriteTask out of the transaction, which is rolled back
+	private static class BulkWriteException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		BulkWriteException(Exception cause) {
+			super(cause);
+		}
+	}
+
+	private void addOrUpdateInBulk(ServiceTags serviceTags, BulkImportContext context) throws Exception {
+		if (MapUtils.isNotEmpty(serviceTags.getTagDefinitions())) {
+			// tag-defs are few, and are never updated by an import
+			for (RangerTagDef tagDef : serviceTags.getTagDefinitions().values()) {
+				RangerTagDef existing = null;
+
+				if (StringUtils.isNotEmpty(tagDef.getGuid())) {
+					existing = getTagDefByGuid(tagDef.getGuid());
+				}
+
+				if (existing == null && StringUtils.isNotEmpty(tagDef.getName())) {
+					existing = getTagDefByName(tagDef.getName());
+				}
+
+				if (existing == null) {
+					createTagDef(tagDef);
+				}
+			}
+		}
+
+		List<RangerServiceResource> resources        = serviceTags.getServiceResources();
+		Map<Long, List<Long>>       resourceToTagIds = serviceTags.getResourceToTagIds();
+		Set<Long>                   resourceIds      = new HashSet<Long>();
+
+		if (CollectionUtils.isNotEmpty(resources)) {
+			for (int i = 0; i < resources.size(); i += context.batchSize) {
+				List<RangerServiceResource> batch            = subList(resources, i, context.batchSize);
+				Map<Long, XXServiceResource> resourcesInStore = addOrUpdateServiceResourcesInBulk(batch, context);
+
+				if (MapUtils.isNotEmpty(resourceToTagIds)) {
+					addOrUpdateResourceTagsInBulk(batch, resourcesInStore, resourceToTagIds, serviceTags.getTags(), context);
+				}
+
+				for (RangerServiceResource resource : batch) {
+					resourceIds.add(resource.getId());
+				}
+
+				daoManager.getEntityManager().flush();
+				daoManager.getEntityManager().clear();
+			}
+		}
+
+		if (MapUtils.isNotEmpty(resourceToTagIds)) {
+			for (Long resourceId : resourceToTagIds.keySet()) {
+				if (!resourceIds.contains(resourceId)) {
+					LOG.error("Resource (id=" + resourceId + ") not found. Skipping tags update");
+				}
+			}
+		}
+	}
+
+	// returns service-resources in store, keyed by the id of the resource in the given batch
+	private Map<Long, XXServiceResource> addOrUpdateServiceResourcesInBulk(List<RangerServiceResource> resources, BulkImportContext context) {
+		Map<Long, XXServiceResource>   ret              = new HashMap<Long, XXServiceResource>();
+		Map<String, XXServiceResource> resourcesByGuid  = new HashMap<String, XXServiceResource>();
+		Map<String, XXServiceResource> resourcesBySig   = new HashMap<String, XXServiceResource>();
+		Map<Long, List<String>>        sigsByServiceId  = new HashMap<Long, List<String>>();
+		List<String>                   guids            = new ArrayList<String>();
+
+		for (RangerServiceResource resource : resources) {
+			if (StringUtils.isNotEmpty(resource.getGuid())) {
+				guids.add(resource.getGuid());
+			}
+		}
+
+		for (XXServiceResource xResource : daoManager.getXXServiceResource().findByGuids(guids)) {
+			resourcesByGuid.put(xResource.getGuid(), xResource);
+		}
+
+		for (RangerServiceResource resource : resources) {
+			if (MapUtils.isNotEmpty(resource.getResourceElements()) && !resourcesByGuid.containsKey(resource.getGuid())) {
+				Long serviceId = context.getServiceId(resource.getServiceName());
+
+				resource.setResourceSignature(new RangerServiceResourceSignature(resource).getSignature());
+
+				if (serviceId != null) {
+					List<String> sigs = sigsByServiceId.get(serviceId);
+
+					if (sigs == null) {
+						sigs = new ArrayList<String>();
+
+						sigsByServiceId.put(serviceId, sigs);
+					}
+
+					sigs.add(resource.getResourceSignature());
+				}
+			}
+		}
+
+		for (Map.Entry<Long, List<String>> entry : sigsByServiceId.entrySet()) {
+			for (XXServiceResource xResource : daoManager.getXXServiceResource().findByServiceAndResourceSignatures(entry.getKey(), entry.getValue())) {
+				resourcesBySig.put(xResource.getServiceId() + ":" + xResource.getResourceSignature(), xResource);
+			}
+		}
+
+		List<XXServiceResource>     resourcesToCreate  = new ArrayList<XXServiceResource>();
+		List<XXServiceResource>     elementsOwners     = new ArrayList<XXServiceResource>();
+		List<RangerServiceResource> elementsSources    = new ArrayList<RangerServiceResource>();
+		List<Long>                  resourcesToCleanup = new ArrayList<Long>();
+
+		for (RangerServiceResource resource : resources) {
+			XXServiceResource existing = resourcesByGuid.get(resource.getGuid());
+			Long              serviceId = context.getServiceId(resource.getServiceName());
+
+			if (existing == null && serviceId != null && StringUtils.isNotEmpty(resource.getResourceSignature())) {
+				existing = resourcesBySig.get(serviceId + ":" + resource.getResourceSignature());
+			}
+
+			if (StringUtils.isEmpty(resource.getResourceSignature())) {
+				resource.setResourceSignature(new RangerServiceResourceSignature(resource).getSignature());
+			}
+
+			XXServiceResource resourceInStore;
+
+			if (existing == null) {
+				if (serviceId == null) {
+					throw errorUtil.createRESTException("No Service found with name: " + resource.getServiceName(), MessageEnums.ERROR_CREATING_OBJECT);
+				}
+
+				resourceInStore = new XXServiceResource();
+
+				resourceInStore.setGuid(StringUtils.isEmpty(resource.getGuid()) ? guidUtil.genGUID() : resource.getGuid());
+				resourceInStore.setVersion(resource.getVersion());
+				resourceInStore.setIsEnabled(resource.getIsEnabled());
+				resourceInStore.setResourceSignature(resource.getResourceSignature());
+				resourceInStore.setServiceId(serviceId);
+				rangerAuditFields.populateAuditFieldsForCreate(resourceInStore);
+
+				resourcesToCreate.add(resourceInStore);
+				resourcesByGuid.put(resourceInStore.getGuid(), resourceInStore);
+
+				if (MapUtils.isNotEmpty(resource.getResourceElements())) {
+					elementsOwners.add(resourceInStore);
+					elementsSources.add(resource);
+				}
+			} else if (StringUtils.isEmpty(resource.getServiceName()) || MapUtils.isEmpty(resource.getResourceElements())) {
+				resourceInStore = existing;
+			} else {
+				if (serviceId == null) {
+					throw errorUtil.createRESTException("Error Populating XXServiceResource. No Service found with name: " + resource.getServiceName(), MessageEnums.INVALID_INPUT_DATA);
+				}
+
+				resourceInStore = existing;
+
+				if (!StringUtils.equals(existing.getResourceSignature(), resource.getResourceSignature())) {
+					resourcesToCleanup.add(existing.getId());
+					elementsOwners.add(existing);
+					elementsSources.add(resource);
+
+					context.addChangedResource(serviceId, existing.getId());
+				}
+
+				existing.setIsEnabled(resource.getIsEnabled());
+				existing.setResourceSignature(resource.getResourceSignature());
+				existing.setServiceId(serviceId);
+				existing.setUpdateTime(context.updateTime);
+				existing.setUpdatedByUserId(ContextUtil.getCurrentUserId());
+			}
+
+			ret.put(resource.getId(), resourceInStore);
+		}
+
+		daoManager.getXXServiceResource().batchCreate(resourcesToCreate);
+
+		if (!resourcesToCleanup.isEmpty()) {
+			daoManager.getEntityManager().flush();
+
+			daoManager.getXXServiceResourceElementValue().deleteByResourceIds(resourcesToCleanup);
+			daoManager.getXXServiceResourceElement().deleteByResourceIds(resourcesToCleanup);
+		}
+
+		createResourceElementsInBulk(elementsOwners, elementsSources, context);
+
+		return ret;
+	}
+
+	private void createResourceElementsInBulk(List<XXServiceResource> owners, List<RangerServiceResource> sources, BulkImportContext context) {
+		List<XXServiceResourceElement> elements       = new ArrayList<XXServiceResourceElement>();
+		List<List<String>>             elementsValues = new ArrayList<List<String>>();
+
+		for (int i = 0; i < owners.size(); i++) {
+			XXServiceResource xResource    = owners.get(i);
+			Long              serviceDefId = context.getServiceDefId(xResource.getServiceId());
+
+			for (Map.Entry<String, RangerPolicyResource> resElement : sources.get(i).getResourceElements().entrySet()) {
+				Long resDefId = context.getResourceDefId(serviceDefId, resElement.getKey());
+
+				if (resDefId == null) {
+					LOG.error("TagDBStore.createResource: ResourceType is not valid [" + resElement.getKey() + "]");
+					throw errorUtil.createRESTException("Resource Type is not valid [" + resElement.getKey() + "]", MessageEnums.DATA_NOT_FOUND);
+				}
+
+				RangerPolicyResource     policyRes       = resElement.getValue();
+				XXServiceResourceElement resourceElement = new XXServiceResourceElement();
+
+				resourceElement.setIsExcludes(policyRes.getIsExcludes());
+				resourceElement.setIsRecursive(policyRes.getIsRecursive());
+				resourceElement.setResDefId(resDefId);
+				resourceElement.setResourceId(xResource.getId());
+				rangerAuditFields.populateAuditFieldsForCreate(resourceElement);
+
+				elements.add(resourceElement);
+				elementsValues.add(policyRes.getValues());
+			}
+		}
+
+		daoManager.getXXServiceResourceElement().batchCreate(elements);
+
+		List<XXServiceResourceElementValue> values = new ArrayList<XXServiceResourceElementValue>();
+
+		for (int i = 0; i < elements.size(); i++) {
+			int sortOrder = 1;
+
+			for (String resVal : elementsValues.get(i)) {
+				XXServiceResourceElementValue resourceElementValue = new XXServiceResourceElementValue();
+
+				resourceElementValue.setResElementId(elements.get(i).getId());
+				resourceElementValue.setValue(resVal);
+				resourceElementValue.setSortOrder(sortOrder++);
+				rangerAuditFields.populateAuditFieldsForCreate(resourceElementValue);
+
+				values.add(resourceElementValue);
+			}
+		}
+
+		daoManager.getXXServiceResourceElementValue().batchCreate(values);
+	}
+
+	private void addOrUpdateResourceTagsInBulk(List<RangerServiceResource> resources, Map<Long, XXServiceResource> resourcesInStore,
+	                                           Map<Long, List<Long>> resourceToTagIds, Map<Long, RangerTag> incomingTags, BulkImportContext context) {
+		List<Long>  resourceIds = new ArrayList<Long>();
+		Set<String> tagGuids    = new HashSet<String>();
+
+		for (RangerServiceResource resource : resources) {
+			List<Long> tagIds = resourceToTagIds.get(resource.getId());
+
+			if (tagIds == null) {
+				continue;
+			}
+
+			resourceIds.add(resourcesInStore.get(resource.getId()).getId());
+
+			for (Long tagId : tagIds) {
+				RangerTag incomingTag = incomingTags != null ? incomingTags.get(tagId) : null;
+
+				if (incomingTag != null && StringUtils.isNotEmpty(incomingTag.getGuid())) {
+					tagGuids.add(incomingTag.getGuid());
+				}
+			}
+		}
+
+		if (resourceIds.isEmpty()) {
+			return;
+		}
+
+		// existing tags of the resources, and their mappings & attributes
+		Map<Long, XXTag>                  tagsById           = new HashMap<Long, XXTag>();
+		Map<String, XXTag>                tagsByGuid         = new HashMap<String, XXTag>();
+		Map<Long, List<XXTagResourceMap>> mapsByResourceId   = new HashMap<Long, List<XXTagResourceMap>>();
+		Map<Long, Map<String, String>>    attributesByTagId  = new HashMap<Long, Map<String, String>>();
+
+		for (XXTag xTag : daoManager.getXXTag().findByResourceIds(resourceIds)) {
+			tagsById.put(xTag.getId(), xTag);
+			attributesByTagId.put(xTag.getId(), new HashMap<String, String>());
+		}
+
+		for (XXTagAttribute xTagAttr : daoManager.getXXTagAttribute().findByResourceIds(resourceIds)) {
+			Map<String, String> attributes = attributesByTagId.get(xTagAttr.getTagId());
+
+			if (attributes != null) {
+				attributes.put(xTagAttr.getName(), xTagAttr.getValue());
+			}
+		}
+
+		for (XXTagResourceMap xTagResourceMap : daoManager.getXXTagResourceMap().findByResourceIds(resourceIds)) {
+			List<XXTagResourceMap> maps = mapsByResourceId.get(xTagResourceMap.getResourceId());
+
+			if (maps == null) {
+				maps = new ArrayList<XXTagResourceMap>();
+
+				mapsByResourceId.put(xTagResourceMap.getResourceId(), maps);
+			}
+
+			maps.add(xTagResourceMap);
+		}
+
+		for (XXTag xTag : daoManager.getXXTag().findByGuids(new ArrayList<String>(tagGuids))) {
+			XXTag tagInContext = tagsById.get(xTag.getId());
+
+			tagsByGuid.put(xTag.getGuid(), tagInContext != null ? tagInContext : xTag);
+		}
+
+		// XXDBBase.equals() compares audit fields, hence identity-based maps for entities
+		List<XXTag>                     tagsToCreate       = new ArrayList<XXTag>();
+		Map<XXTag, Map<String, String>> attributesToCreate = new IdentityHashMap<XXTag, Map<String, String>>();
+		List<XXTag>                     mapTags            = new ArrayList<XXTag>();
+		List<XXServiceResource>         mapResources       = new ArrayList<XXServiceResource>();
+		List<Long>                      updatedTagIds      = new ArrayList<Long>();
+		List<Long>                      mapIdsToDelete     = new ArrayList<Long>();
+		List<Long>                      tagIdsToDelete     = new ArrayList<Long>();
+
+		for (RangerServiceResource resource : resources) {
+			List<Long> tagIds = resourceToTagIds.get(resource.getId());
+
+			if (tagIds == null) {
+				continue;
+			}
+
+			XXServiceResource      resourceInStore = resourcesInStore.get(resource.getId());
+			List<XXTagResourceMap> existingMaps    = mapsByResourceId.get(resourceInStore.getId());
+			Map<XXTag, XXTag>      associatedTags  = new IdentityHashMap<XXTag, XXTag>();
+			Map<XXTag, XXTag>      tagsToRetain    = new IdentityHashMap<XXTag, XXTag>();
+
+			if (existingMaps != null) {
+				for (XXTagResourceMap existingMap : existingMaps) {
+					XXTag xTag = tagsById.get(existingMap.getTagId());
+
+					if (xTag != null) {
+						associatedTags.put(xTag, xTag);
+					}
+				}
+			}
+
+			for (Long tagId : tagIds) {
+				RangerTag incomingTag = incomingTags != null ? incomingTags.get(tagId) : null;
+
+				if (incomingTag == null) {
+					LOG.error("Tag (id=" + tagId + ") not found. Skipping addition of this tag for resource (id=" + resource.getId() + ")");
+					continue;
+				}
+
+				Long  tagDefId    = context.getTagDefId(incomingTag.getType());
+				XXTag matchingTag = findMatchingTagInBulk(incomingTag, tagDefId, associatedTags.keySet(), tagsByGuid, attributesByTagId, attributesToCreate);
+
+				if (matchingTag == null || isResourcePrivateTag(incomingTag.getOwner()) != isResourcePrivateTag(matchingTag.getOwner())) {
+					// create new tag from incoming tag and associate it with service-resource
+					XXTag newTag = new XXTag();
+
+					newTag.setGuid(StringUtils.isEmpty(incomingTag.getGuid()) ? guidUtil.genGUID() : incomingTag.getGuid());
+					newTag.setType(tagDefId);
+					newTag.setOwner(incomingTag.getOwner());
+					rangerAuditFields.populateAuditFieldsForCreate(newTag);
+
+					tagsToCreate.add(newTag);
+					attributesToCreate.put(newTag, incomingTag.getAttributes());
+					mapTags.add(newTag);
+					mapResources.add(resourceInStore);
+					tagsByGuid.put(newTag.getGuid(), newTag);
+
+					associatedTags.put(newTag, newTag);
+					tagsToRetain.put(newTag, newTag);
+
+					continue;
+				}
+
+				tagsToRetain.put(matchingTag, matchingTag);
+
+				boolean isPrivate = isResourcePrivateTag(incomingTag.getOwner());
+
+				if (!isPrivate || StringUtils.equals(incomingTag.getGuid(), matchingTag.getGuid())) {
+					// update the tag with values from incoming tag
+					Map<String, String> existingAttributes = attributesToCreate.containsKey(matchingTag) ? attributesToCreate.get(matchingTag) : attributesByTagId.get(matchingTag.getId());
+					Map<String, String> incomingAttributes = incomingTag.getAttributes() != null ? incomingTag.getAttributes() : new HashMap<String, String>();
+
+					if (existingAttributes == null || !existingAttributes.equals(incomingAttributes) || !XXDBBase.equals(matchingTag.getType(), tagDefId) || !XXDBBase.equals(matchingTag.getOwner(), incomingTag.getOwner())) {
+						matchingTag.setType(tagDefId);
+						matchingTag.setOwner(incomingTag.getOwner());
+
+						if (matchingTag.getId() != null) {
+							matchingTag.setUpdateTime(context.updateTime);
+							matchingTag.setUpdatedByUserId(ContextUtil.getCurrentUserId());
+
+							updatedTagIds.add(matchingTag.getId());
+						}
+
+						attributesToCreate.put(matchingTag, incomingAttributes);
+					}
+				}
+
+				if (!isPrivate && !associatedTags.containsKey(matchingTag)) {
+					mapTags.add(matchingTag);
+					mapResources.add(resourceInStore);
+
+					associatedTags.put(matchingTag, matchingTag);
+				}
+			}
+
+			if (existingMaps != null) {
+				for (XXTagResourceMap existingMap : existingMaps) {
+					XXTag xTag = tagsById.get(existingMap.getTagId());
+
+					if (xTag != null && !tagsToRetain.containsKey(xTag)) {
+						mapIdsToDelete.add(existingMap.getId());
+
+						if (isResourcePrivateTag(xTag.getOwner())) {
+							tagIdsToDelete.add(xTag.getId());
+						}
+
+						context.addChangedResource(resourceInStore.getServiceId(), resourceInStore.getId());
+					}
+				}
+			}
+		}
+
+		daoManager.getXXTag().batchCreate(tagsToCreate);
+
+		daoManager.getEntityManager().flush();
+
+		if (!updatedTagIds.isEmpty()) {
+			for (Long serviceId : daoManager.getXXServiceResource().findServiceIdsByTagIds(updatedTagIds)) {
+				context.addChangedTags(serviceId, updatedTagIds);
+			}
+
+			daoManager.getXXTagAttribute().deleteByTagIds(updatedTagIds);
+		}
+
+		List<XXTagAttribute> attributes = new ArrayList<XXTagAttribute>();
+
+		for (Map.Entry<XXTag, Map<String, String>> entry : attributesToCreate.entrySet()) {
+			if (MapUtils.isNotEmpty(entry.getValue())) {
+				for (Map.Entry<String, String> attr : entry.getValue().entrySet()) {
+					XXTagAttribute xTagAttr = new XXTagAttribute();
+
+					xTagAttr.setTagId(entry.getKey().getId());
+					xTagAttr.setName(attr.getKey());
+					xTagAttr.setValue(attr.getValue());
+					rangerAuditFields.populateAuditFieldsForCreate(xTagAttr);
+
+					attributes.add(xTagAttr);
+				}
+			}
+		}
+
+		daoManager.getXXTagAttribute().batchCreate(attributes);
+
+		List<XXTagResourceMap> tagResourceMaps = new ArrayList<XXTagResourceMap>();
+
+		for (int i = 0; i < mapTags.size(); i++) {
+			XXTagResourceMap xTagResourceMap = new XXTagResourceMap();
+
+			xTagResourceMap.setGuid(guidUtil.genGUID());
+			xTagResourceMap.setTagId(mapTags.get(i).getId());
+			xTagResourceMap.setResourceId(mapResources.get(i).getId());
+			rangerAuditFields.populateAuditFieldsForCreate(xTagResourceMap);
+
+			tagResourceMaps.add(xTagResourceMap);
+
+			context.addChangedResource(mapResources.get(i).getServiceId(), mapResources.get(i).getId());
+		}
+
+		daoManager.getXXTagResourceMap().batchCreate(tagResourceMaps);
+
+		daoManager.getXXTagResourceMap().deleteByIds(mapIdsToDelete);
+		daoManager.getXXTagAttribute().deleteByTagIds(tagIdsToDelete);
+		daoManager.getXXTag().deleteByIds(tagIdsToDelete);
+	}
+
+	// same as ServiceTagsProcessor.findMatchingTag(): by guid, else a private tag of the resource with the same type and attributes
+	private XXTag findMatchingTagInBulk(RangerTag incomingTag, Long tagDefId, Set<XXTag> associatedTags, Map<String, XXTag> tagsByGuid,
+	                                    Map<Long, Map<String, String>> attributesByTagId, Map<XXTag, Map<String, String>> attributesToCreate) {
+		XXTag ret = StringUtils.isNotEmpty(incomingTag.getGuid()) ? tagsByGuid.get(incomingTag.getGuid()) : null;
+
+		if (ret == null && isResourcePrivateTag(incomingTag.getOwner())) {
+			Map<String, String> incomingAttributes = incomingTag.getAttributes() != null ? incomingTag.getAttributes() : new HashMap<String, String>();
+
+			for (XXTag associatedTag : associatedTags) {
+				if (XXDBBase.equals(associatedTag.getType(), tagDefId)) {
+					Map<String, String> attributes = attributesToCreate.containsKey(associatedTag) ? attributesToCreate.get(associatedTag) : attributesByTagId.get(associatedTag.getId());
+
+					if (attributes == null) {
+						attributes = new HashMap<String, String>();
+					}
+
+					if (incomingAttributes.equals(attributes)) {
+						ret = associatedTag;
+						break;
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private void deleteServiceResourcesInBulk(List<String> guids, BulkImportContext context) {
+		List<Long> resourceIds = new ArrayList<Long>();
+
+		for (XXServiceResource xResource : daoManager.getXXServiceResource().findByGuids(guids)) {
+			resourceIds.add(xResource.getId());
+
+			context.addChangedResource(xResource.getServiceId(), xResource.getId());
+		}
+
+		if (resourceIds.isEmpty()) {
+			return;
+		}
+
+		List<Long> privateTagIds = new ArrayList<Long>();
+
+		for (XXTag xTag : daoManager.getXXTag().findByResourceIds(resourceIds)) {
+			if (isResourcePrivateTag(xTag.getOwner())) {
+				privateTagIds.add(xTag.getId());
+			}
+		}
+
+		daoManager.getXXTagResourceMap().deleteByResourceIds(resourceIds);
+		daoManager.getXXTagAttribute().deleteByTagIds(privateTagIds);
+		daoManager.getXXTag().deleteByIds(privateTagIds);
+		daoManager.getXXServiceResourceElementValue().deleteByResourceIds(resourceIds);
+		daoManager.getXXServiceResourceElement().deleteByResourceIds(resourceIds);
+		daoManager.getXXServiceResource().deleteByIds(resourceIds);
+	}
+
+	private void updateTagVersionsInBulk(BulkImportContext context) {
+		int maxDeltaChanges = getMaxTagDeltaChanges();
+
+		for (Long serviceId : context.changedServiceIds) {
+			Set<Long> resourceIds = context.changedResourceIds.get(serviceId);
+			Set<Long> tagIds      = context.changedTagIds.get(serviceId);
+
+			// too many changes to apply to cached tags; record them as a change to the whole service
+			if (size(resourceIds) + size(tagIds) > maxDeltaChanges) {
+				resourceIds = null;
+				tagIds      = null;
+			}
+
+			daoManager.getXXServiceVersionInfo().updateServiceVersionInfoForServiceTagsUpdate(serviceId, context.updateTime, resourceIds, tagIds);
+		}
+	}
+
+	private int getMaxTagDeltaChanges() {
+		return RangerConfiguration.getInstance().getInt(TAG_DELTA_MAX_CHANGES_PROP, DEFAULT_TAG_DELTA_MAX_CHANGES);
+	}
+
+	private int getBulkImportBatchSize() {
+		int ret = RangerConfiguration.getInstance().getInt(TAG_BULK_IMPORT_BATCH_SIZE_PROP, DEFAULT_TAG_BULK_IMPORT_BATCH_SIZE);
+
+		return ret > 0 ? ret : DEFAULT_TAG_BULK_IMPORT_BATCH_SIZE;
+	}
+
+	private static <T> List<T> subList(List<T> list, int fromIndex, int size) {
+		return new ArrayList<T>(list.subList(fromIndex, Math.min(list.size(), fromIndex + size)));
+	}
+
+	private static int size(Set<Long> ids) {
+		return ids == null ? 0 : ids.size();
+	}
+
+	private static boolean isResourcePrivateTag(Short owner) {
+		return owner != null && owner == RangerTag.OWNER_SERVICERESOURCE;
+	}
+
+	private class BulkImportContext {
+		final int                  batchSize;
+		final Date                 updateTime         = DateUtil.getUTCDate();
+		final Set<Long>            changedServiceIds  = new HashSet<Long>();
+		final Map<Long, Set<Long>> changedResourceIds = new HashMap<Long, Set<Long>>();
+		final Map<Long, Set<Long>> changedTagIds      = new HashMap<Long, Set<Long>>();
+		final Map<String, Long>    serviceIds         = new HashMap<String, Long>();
+		final Map<Long, Long>      serviceDefIds      = new HashMap<Long, Long>();
+		final Map<String, Long>    resourceDefIds     = new HashMap<String, Long>();
+		final Map<String, Long>    tagDefIds          = new HashMap<String, Long>();
+
+		BulkImportContext(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		void addChangedResource(Long serviceId, Long resourceId) {
+			changedServiceIds.add(serviceId);
+
+			getOrCreate(changedResourceIds, serviceId).add(resourceId);
+		}
+
+		void addChangedTags(Long serviceId, List<Long> tagIds) {
+			changedServiceIds.add(serviceId);
+
+			getOrCreate(changedTagIds, serviceId).addAll(tagIds);
+		}
+
+		private Set<Long> getOrCreate(Map<Long, Set<Long>> idsByServiceId, Long serviceId) {
+			Set<Long> ret = idsByServiceId.get(serviceId);
+
+			if (ret == null) {
+				ret = new HashSet<Long>();
+
+				idsByServiceId.put(serviceId, ret);
+			}
+
+			return ret;
+		}
+
+		Long getServiceId(String serviceName) {
+			if (StringUtils.isEmpty(serviceName)) {
+				return null;
+			}
+
+			if (!serviceIds.containsKey(serviceName)) {
+				XXService xService = daoManager.getXXService().findByName(serviceName);
+
+				serviceIds.put(serviceName, xService != null ? xService.getId() : null);
+
+				if (xService != null) {
+					serviceDefIds.put(xService.getId(), xService.getType());
+				}
+			}
+
+			return serviceIds.get(serviceName);
+		}
+
+		Long getServiceDefId(Long serviceId) {
+			Long ret = serviceDefIds.get(serviceId);
+
+			if (ret == null) {
+				XXService xService = daoManager.getXXService().getById(serviceId);
+
+				if (xService == null || daoManager.getXXServiceDef().getById(xService.getType()) == null) {
+					throw errorUtil.createRESTException("No Service-Def found for service with ID: " + serviceId, MessageEnums.ERROR_CREATING_OBJECT);
+				}
+
+				ret = xService.getType();
+
+				serviceDefIds.put(serviceId, ret);
+			}
+
+			return ret;
+		}
+
+		Long getResourceDefId(Long serviceDefId, String resourceName) {
+			String key = serviceDefId + ":" + resourceName;
+
+			if (!resourceDefIds.containsKey(key)) {
+				XXResourceDef xResDef = daoManager.getXXResourceDef().findByNameAndServiceDefId(resourceName, serviceDefId);
+
+				resourceDefIds.put(key, xResDef != null ? xResDef.getId() : null);
+			}
+
+			return resourceDefIds.get(key);
+		}
+
+		Long getTagDefId(String tagType) {
+			Long ret = tagDefIds.get(tagType);
+
+			if (ret == null) {
+				XXTagDef xTagDef = daoManager.getXXTagDef().findByName(tagType);
+
+				if (xTagDef == null) {
+					throw errorUtil.createRESTException("No TagDefinition found with name :" + tagType, MessageEnums.INVALID_INPUT_DATA);
+				}
+
+				ret = xTagDef.getId();
+
+				tagDefIds.put(tagType, ret);
+			}
+
+			return ret;
+		}
+	}
 }
@@ -35,6 +35,7 @@ import org.apache.ranger.common.GUIDUtil;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerAdminNameCache;
 import org.apache.ranger.common.RangerCommonEnums;
 import org.apache.ranger.common.RangerConfigUtil;
 import org.apache.ranger.common.RangerConstants;
@@ -198,6 +199,7 @@ public class UserMgr {
 		}
 
 		checkAccess(gjUser);
+		RangerAdminNameCache.getInstance().invalidateAfterTransaction();
 
 		boolean updateUser = false;
 		// Selectively update fields
@@ -30,6 +30,7 @@ import java.util.Set;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.ContextUtil;
 import org.apache.ranger.common.GUIDUtil;
+import org.apache.ranger.common.RangerAdminNameCache;
 import org.apache.ranger.common.RangerCommonEnums;
 import org.apache.ranger.entity.XXGroupPermission;
 import org.apache.ranger.entity.XXModuleDef;
@@ -95,11 +96,17 @@ import org.apache.ranger.view.VXPermMapList;
 import org.apache.ranger.view.VXPortalUser;
 import org.apache.ranger.view.VXUser;
 import org.apache.ranger.view.VXUserGroupInfo;
+import org.apache.ranger.view.VXUserGroupSyncInfo;
 import org.apache.ranger.view.VXUserList;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -155,6 +162,10 @@ public class XUserMgr extends XUserMgrBase {
 	@Autowired
 	GUIDUtil guidUtil;
 
+	@Autowired
+	@Qualifier(value = "bulkTransactionManager")
+	PlatformTransactionManager bulkTxManager;
+
 	static final Logger logger = Logger.getLogger(XUserMgr.class);
 
 
@@ -345,6 +356,7 @@ public class XUserMgr extends XUserMgrBase {
 					+ "username.", MessageEnums.INVALID_INPUT_DATA);
 		}
 		checkAccess(vXUser.getName());
+		RangerAdminNameCache.getInstance().invalidateAfterTransaction();
 		VXPortalUser oldUserProfile = userMgr.getUserProfileByLoginId(vXUser
 				.getName());
 		VXPortalUser vXPortalUser = new VXPortalUser();
@@ -542,6 +554,235 @@ public class XUserMgr extends XUserMgrBase {
 		return vxUGInfo;
 	}
 
+	/**
+	 * Applies a batch of user, group and group-membership changes from usersync. Users, groups
+	 * and memberships are looked up with one query per kind and written with batched inserts,
+	 * instead of the per-user round trips of createXUserGroupFromMap(). The changes are written
+	 * in a transaction of bulkPU, the persistence unit with JDBC batch writing enabled.
+	 *
+	 * @return the users and groups created or updated, with their ids
+	 */
+	public VXUserGroupSyncInfo createOrUpdateXUserGroupsInBulk(final VXUserGroupSyncInfo syncInfo) {
+		checkAdminAccess();
+
+		TransactionTemplate txTemplate = new TransactionTemplate(bulkTxManager);
+
+		return txTemplate.execute(new TransactionCallback<VXUserGroupSyncInfo>() {
+			@Override
+			public VXUserGroupSyncInfo doInTransaction(TransactionStatus status) {
+				daoManager.setBulkWriteEnabled(true);
+
+				try {
+					return applyXUserGroupSyncInfo(syncInfo);
+				} finally {
+					daoManager.setBulkWriteEnabled(false);
+				}
+			}
+		});
+	}
+
+	private VXUserGroupSyncInfo applyXUserGroupSyncInfo(VXUserGroupSyncInfo syncInfo) {
+		List<VXUserGroupInfo> userGroupsToAdd    = syncInfo.getAddOrUpdateUserGroups() != null ? syncInfo.getAddOrUpdateUserGroups() : new ArrayList<VXUserGroupInfo>();
+		List<VXUserGroupInfo> userGroupsToDelete = syncInfo.getDeleteUserGroups() != null ? syncInfo.getDeleteUserGroups() : new ArrayList<VXUserGroupInfo>();
+
+		Map<String, VXGroup> groupsToUpsert = new HashMap<String, VXGroup>();
+		Map<String, VXUser>  usersToUpsert  = new HashMap<String, VXUser>();
+
+		if (syncInfo.getAddOrUpdateGroups() != null) {
+			for (VXGroup vXGroup : syncInfo.getAddOrUpdateGroups()) {
+				groupsToUpsert.put(vXGroup.getName(), vXGroup);
+			}
+		}
+
+		for (VXUserGroupInfo userGroupInfo : userGroupsToAdd) {
+			usersToUpsert.put(userGroupInfo.getXuserInfo().getName(), userGroupInfo.getXuserInfo());
+
+			if (userGroupInfo.getXgroupInfo() != null) {
+				for (VXGroup vXGroup : userGroupInfo.getXgroupInfo()) {
+					groupsToUpsert.put(vXGroup.getName(), vXGroup);
+				}
+			}
+		}
+
+		Map<String, XXGroup> groups = xGroupService.createOrUpdateXGroupsWithOutLogin(groupsToUpsert.values());
+
+		// users new to Ranger also get a login account, as with the /users/default API
+		Set<String> newUserNames = new HashSet<String>(usersToUpsert.keySet());
+
+		for (XXUser xXUser : daoManager.getXXUser().findByUserNames(new ArrayList<String>(usersToUpsert.keySet()))) {
+			newUserNames.remove(xXUser.getName());
+		}
+
+		List<VXPortalUser> newPortalUsers = new ArrayList<VXPortalUser>();
+
+		for (String userName : newUserNames) {
+			VXPortalUser vXPortalUser = new VXPortalUser();
+
+			vXPortalUser.setLoginId(userName);
+			vXPortalUser.setFirstName(userName);
+			vXPortalUser.setLastName(userName);
+
+			vXPortalUser = userMgr.createDefaultAccountUser(vXPortalUser);
+
+			if (vXPortalUser != null) {
+				newPortalUsers.add(vXPortalUser);
+			}
+		}
+
+		Map<String, XXUser> users = xUserService.createOrUpdateXUsersWithOutLogin(usersToUpsert.values());
+
+		// add the memberships the users don't already have
+		Set<String> existingGroupUsers = new HashSet<String>();
+		List<Long>  userIds            = new ArrayList<Long>();
+
+		for (String userName : usersToUpsert.keySet()) {
+			if (!newUserNames.contains(userName)) {
+				userIds.add(users.get(userName).getId());
+			}
+		}
+
+		for (XXGroupUser xXGroupUser : daoManager.getXXGroupUser().findByUserIds(userIds)) {
+			existingGroupUsers.add(xXGroupUser.getUserId() + ":" + xXGroupUser.getParentGroupId());
+		}
+
+		List<VXGroupUser>     groupUsersToAdd = new ArrayList<VXGroupUser>();
+		List<VXUserGroupInfo> retUserGroups   = new ArrayList<VXUserGroupInfo>();
+
+		for (VXUserGroupInfo userGroupInfo : userGroupsToAdd) {
+			XXUser          xXUser       = users.get(userGroupInfo.getXuserInfo().getName());
+			List<VXGroup>   retGroups    = new ArrayList<VXGroup>();
+			VXUserGroupInfo retUserGroup = new VXUserGroupInfo();
+
+			if (userGroupInfo.getXgroupInfo() != null) {
+				for (VXGroup vXGroup : userGroupInfo.getXgroupInfo()) {
+					XXGroup xXGroup = groups.get(vXGroup.getName());
+
+					if (existingGroupUsers.add(xXUser.getId() + ":" + xXGroup.getId())) {
+						VXGroupUser vXGroupUser = new VXGroupUser();
+
+						vXGroupUser.setName(xXGroup.getName());
+						vXGroupUser.setParentGroupId(xXGroup.getId());
+						vXGroupUser.setUserId(xXUser.getId());
+
+						groupUsersToAdd.add(vXGroupUser);
+					}
+
+					retGroups.add(toVXGroup(xXGroup));
+				}
+			}
+
+			retUserGroup.setXuserInfo(toVXUser(xXUser));
+			retUserGroup.setXgroupInfo(retGroups);
+
+			retUserGroups.add(retUserGroup);
+		}
+
+		xGroupUserService.createXGroupUsersWithOutLogin(groupUsersToAdd);
+
+		deleteXGroupUsersInBulk(userGroupsToDelete);
+
+		for (VXPortalUser vXPortalUser : newPortalUsers) {
+			assignPermissionToUser(vXPortalUser, true);
+		}
+
+		List<VXGroup> retGroups = new ArrayList<VXGroup>();
+
+		for (XXGroup xXGroup : groups.values()) {
+			retGroups.add(toVXGroup(xXGroup));
+		}
+
+		VXUserGroupSyncInfo ret = new VXUserGroupSyncInfo();
+
+		ret.setAddOrUpdateUserGroups(retUserGroups);
+		ret.setAddOrUpdateGroups(retGroups);
+		ret.setDeleteUserGroups(userGroupsToDelete);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("createOrUpdateXUserGroupsInBulk(): users=" + users.size() + ", newUsers=" + newUserNames.size()
+					+ ", groups=" + groups.size() + ", addedGroupUsers=" + groupUsersToAdd.size());
+		}
+
+		return ret;
+	}
+
+	private void deleteXGroupUsersInBulk(List<VXUserGroupInfo> userGroupsToDelete) {
+		if (CollectionUtils.isEmpty(userGroupsToDelete)) {
+			return;
+		}
+
+		List<String> userNames  = new ArrayList<String>();
+		List<String> groupNames = new ArrayList<String>();
+
+		for (VXUserGroupInfo userGroupInfo : userGroupsToDelete) {
+			userNames.add(userGroupInfo.getXuserInfo().getName());
+
+			if (userGroupInfo.getXgroupInfo() != null) {
+				for (VXGroup vXGroup : userGroupInfo.getXgroupInfo()) {
+					groupNames.add(vXGroup.getName());
+				}
+			}
+		}
+
+		Map<String, Long> userIds  = new HashMap<String, Long>();
+		Map<String, Long> groupIds = new HashMap<String, Long>();
+
+		for (XXUser xXUser : daoManager.getXXUser().findByUserNames(userNames)) {
+			userIds.put(xXUser.getName(), xXUser.getId());
+		}
+
+		for (XXGroup xXGroup : daoManager.getXXGroup().findByGroupNames(groupNames)) {
+			groupIds.put(xXGroup.getName(), xXGroup.getId());
+		}
+
+		Set<String> groupUsersToDelete = new HashSet<String>();
+
+		for (VXUserGroupInfo userGroupInfo : userGroupsToDelete) {
+			Long userId = userIds.get(userGroupInfo.getXuserInfo().getName());
+
+			if (userId != null && userGroupInfo.getXgroupInfo() != null) {
+				for (VXGroup vXGroup : userGroupInfo.getXgroupInfo()) {
+					Long groupId = groupIds.get(vXGroup.getName());
+
+					if (groupId != null) {
+						groupUsersToDelete.add(userId + ":" + groupId);
+					}
+				}
+			}
+		}
+
+		List<Long> groupUserIds = new ArrayList<Long>();
+
+		for (XXGroupUser xXGroupUser : daoManager.getXXGroupUser().findByUserIds(new ArrayList<Long>(userIds.values()))) {
+			if (groupUsersToDelete.contains(xXGroupUser.getUserId() + ":" + xXGroupUser.getParentGroupId())) {
+				groupUserIds.add(xXGroupUser.getId());
+			}
+		}
+
+		daoManager.getXXGroupUser().deleteByIds(groupUserIds);
+	}
+
+	private VXUser toVXUser(XXUser xXUser) {
+		VXUser ret = new VXUser();
+
+		ret.setId(xXUser.getId());
+		ret.setName(xXUser.getName());
+		ret.setDescription(xXUser.getDescription());
+
+		return ret;
+	}
+
+	private VXGroup toVXGroup(XXGroup xXGroup) {
+		VXGroup ret = new VXGroup();
+
+		ret.setId(xXGroup.getId());
+		ret.setName(xXGroup.getName());
+		ret.setDescription(xXGroup.getDescription());
+		ret.setGroupType(xXGroup.getGroupType());
+		ret.setGroupSource(xXGroup.getGroupSource());
+
+		return ret;
+	}
+
 	public VXUser createXUserWithOutLogin(VXUser vXUser) {
 		checkAdminAccess();
 		return xUserService.createXUserWithOutLogin(vXUser);
@@ -730,6 +971,7 @@ public class XUserMgr extends XUserMgrBase {
 				xGroup, "update");
 		xaBizUtil.createTrxLog(trxLogList);
 		vXGroup = (VXGroup) xGroupService.updateResource(vXGroup);
+		RangerAdminNameCache.getInstance().invalidateAfterTransaction();
 		return vXGroup;
 	}
 	public VXGroupUser updateXGroupUser(VXGroupUser vXGroupUser) {
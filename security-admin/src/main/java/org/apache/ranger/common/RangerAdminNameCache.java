@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Admin-wide cache of user names, group names and user screen names by id,
+ * shared by policy retrievals. Every entry is stamped with the change-version
+ * current when its value was read from the database; invalidate() bumps the
+ * version, so that entries read before a user/group update are never served
+ * after it. Entries also expire after a TTL, to pick up changes made by other
+ * Ranger Admin instances.
+ */
+public class RangerAdminNameCache {
+	private static final Log LOG = LogFactory.getLog(RangerAdminNameCache.class);
+
+	private static final long DEFAULT_TTL_MS = 5 * 60 * 1000L;
+
+	private static volatile RangerAdminNameCache sInstance = null;
+
+	private final Map<Long, CachedName> userNames       = new ConcurrentHashMap<Long, CachedName>();
+	private final Map<Long, CachedName> groupNames      = new ConcurrentHashMap<Long, CachedName>();
+	private final Map<Long, CachedName> userScreenNames = new ConcurrentHashMap<Long, CachedName>();
+	private final AtomicLong            changeVersion   = new AtomicLong(0);
+	private final boolean               isEnabled;
+	private final long                  ttlMs;
+
+	public static RangerAdminNameCache getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerAdminNameCache.class) {
+				if (sInstance == null) {
+					sInstance = new RangerAdminNameCache();
+				}
+			}
+		}
+		return sInstance;
+	}
+
+	private RangerAdminNameCache() {
+		isEnabled = RangerConfiguration.getInstance().getBoolean("ranger.admin.name.cache.enabled", true);
+		ttlMs     = RangerConfiguration.getInstance().getLong("ranger.admin.name.cache.ttl.ms", DEFAULT_TTL_MS);
+	}
+
+	/**
+	 * @return the version to pass to the set methods, read before querying the database
+	 */
+	public long getChangeVersion() {
+		return changeVersion.get();
+	}
+
+	public String getUserName(Long userId) {
+		return get(userNames, userId);
+	}
+
+	public void setUserName(Long userId, String name, long version) {
+		set(userNames, userId, name, version);
+	}
+
+	public String getGroupName(Long groupId) {
+		return get(groupNames, groupId);
+	}
+
+	public void setGroupName(Long groupId, String name, long version) {
+		set(groupNames, groupId, name, version);
+	}
+
+	public String getUserScreenName(Long portalUserId) {
+		return get(userScreenNames, portalUserId);
+	}
+
+	public void setUserScreenName(Long portalUserId, String name, long version) {
+		set(userScreenNames, portalUserId, name, version);
+	}
+
+	public void invalidate() {
+		long version = changeVersion.incrementAndGet();
+
+		userNames.clear();
+		groupNames.clear();
+		userScreenNames.clear();
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerAdminNameCache.invalidate(): changeVersion=" + version);
+		}
+	}
+
+	/**
+	 * Invalidates the cache now and again when the current transaction completes.
+	 * Until the update is committed, other transactions still read the old names
+	 * from the database, and may cache them under the new change-version.
+	 */
+	public void invalidateAfterTransaction() {
+		invalidate();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					invalidate();
+				}
+			});
+		}
+	}
+
+	private String get(Map<Long, CachedName> names, Long id) {
+		if (!isEnabled || id == null) {
+			return null;
+		}
+
+		CachedName cachedName = names.get(id);
+
+		if (cachedName == null) {
+			return null;
+		}
+
+		if (cachedName.version != changeVersion.get() || System.currentTimeMillis() - cachedName.loadTime > ttlMs) {
+			names.remove(id);
+
+			return null;
+		}
+
+		return cachedName.name;
+	}
+
+	private void set(Map<Long, CachedName> names, Long id, String name, long version) {
+		if (!isEnabled || id == null || name == null || version != changeVersion.get()) {
+			return;
+		}
+
+		names.put(id, new CachedName(name, version));
+	}
+
+	private static class CachedName {
+		final String name;
+		final long   version;
+		final long   loadTime;
+
+		CachedName(String name, long version) {
+			this.name     = name;
+			this.version  = version;
+			this.loadTime = System.currentTimeMillis();
+		}
+	}
+}
@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Inverted index of the policies of each service: user, group, policy name and
+ * trigrams of policy names and resource values to policies. Used to narrow the
+ * policies that policy-search predicates are evaluated on.
+ *
+ * The index of a service is built from the policies in RangerServicePoliciesCache,
+ * and is updated incrementally as policies are created, updated or deleted through
+ * this Ranger Admin, when their transactions commit. It is rebuilt when the policy version of the service moves
+ * in any other way, like changes made by another Ranger Admin instance.
+ *
+ * Candidates returned by the index are a superset of the matching policies; the
+ * caller still applies the search predicates on them.
+ */
+public class RangerPolicySearchIndex {
+	private static final Log LOG      = LogFactory.getLog(RangerPolicySearchIndex.class);
+	private static final Log PERF_LOG = RangerPerfTracer.getPerfLogger("policysearchindex");
+
+	private static final int NGRAM_LENGTH = 3;
+
+	private static volatile RangerPolicySearchIndex sInstance = null;
+
+	private final Map<String, ServicePolicyIndex> serviceIndexes = new ConcurrentHashMap<String, ServicePolicyIndex>();
+	private final boolean                         isEnabled;
+
+	public static RangerPolicySearchIndex getInstance() {
+		if (sInstance == null) {
+			synchronized (RangerPolicySearchIndex.class) {
+				if (sInstance == null) {
+					sInstance = new RangerPolicySearchIndex();
+				}
+			}
+		}
+		return sInstance;
+	}
+
+	private RangerPolicySearchIndex() {
+		isEnabled = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.search.index.enabled", true);
+	}
+
+	/**
+	 * @param policies policies of the service at policyVersion, as in RangerServicePoliciesCache
+	 * @return policies that may match the filter; all policies if the filter has no indexed param
+	 */
+	public List<RangerPolicy> getCandidatePolicies(String serviceName, Long policyVersion, List<RangerPolicy> policies, SearchFilter filter) {
+		if (!isEnabled || serviceName == null || policyVersion == null || CollectionUtils.isEmpty(policies) || !hasIndexedParam(filter)) {
+			return policies;
+		}
+
+		RangerPerfTracer perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "RangerPolicySearchIndex.getCandidatePolicies(serviceName=" + serviceName + ")");
+		}
+
+		ServicePolicyIndex index = serviceIndexes.get(serviceName);
+
+		if (index == null || !index.isAtVersion(policyVersion)) {
+			index = new ServicePolicyIndex(policyVersion, policies);
+
+			serviceIndexes.put(serviceName, index);
+		}
+
+		Set<Long>          candidateIds = index.getCandidateIds(filter);
+		List<RangerPolicy> ret;
+
+		if (candidateIds == null) {
+			ret = policies;
+		} else {
+			// the given policies are returned, in their order, not the copies held by the index
+			ret = new ArrayList<RangerPolicy>(candidateIds.size());
+
+			for (RangerPolicy policy : policies) {
+				if (candidateIds.contains(policy.getId())) {
+					ret.add(policy);
+				}
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerPolicySearchIndex.getCandidatePolicies(serviceName=" + serviceName + ", filter=" + filter + "): " + ret.size() + " of " + policies.size() + " policies");
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Applies a policy create/update (deletedPolicyId == null) or delete to the index of the service,
+	 * once the current transaction commits; nothing is applied if it rolls back. The update is applied
+	 * only if the index is at the version just before newPolicyVersion; otherwise the index is dropped,
+	 * to be rebuilt on next search.
+	 */
+	public void policyChanged(final String serviceName, final Long newPolicyVersion, final RangerPolicy policy, final Long deletedPolicyId) {
+		if (!isEnabled || serviceName == null) {
+			return;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status == STATUS_COMMITTED) {
+						applyChange(serviceName, newPolicyVersion, policy, deletedPolicyId);
+					}
+				}
+			});
+		} else {
+			applyChange(serviceName, newPolicyVersion, policy, deletedPolicyId);
+		}
+	}
+
+	private void applyChange(String serviceName, Long newPolicyVersion, RangerPolicy policy, Long deletedPolicyId) {
+		ServicePolicyIndex index = serviceIndexes.get(serviceName);
+
+		if (index != null && !index.applyChange(newPolicyVersion, policy, deletedPolicyId)) {
+			serviceIndexes.remove(serviceName);
+		}
+	}
+
+	public void removeService(String serviceName) {
+		if (serviceName != null) {
+			serviceIndexes.remove(serviceName);
+		}
+	}
+
+	static boolean hasIndexedParam(SearchFilter filter) {
+		return filter != null && (StringUtils.isNotEmpty(filter.getParam(SearchFilter.USER))
+								|| StringUtils.isNotEmpty(filter.getParam(SearchFilter.GROUP))
+								|| StringUtils.isNotEmpty(filter.getParam(SearchFilter.POLICY_NAME))
+								|| StringUtils.length(filter.getParam(SearchFilter.POLICY_NAME_PARTIAL)) >= NGRAM_LENGTH
+								|| StringUtils.length(filter.getParam(SearchFilter.POL_RESOURCE)) >= NGRAM_LENGTH);
+	}
+
+	static Set<String> getNGrams(String value) {
+		Set<String> ret = new HashSet<String>();
+
+		if (value != null) {
+			String str = value.toLowerCase();
+
+			for (int i = 0; i + NGRAM_LENGTH <= str.length(); i++) {
+				ret.add(str.substring(i, i + NGRAM_LENGTH));
+			}
+		}
+
+		return ret;
+	}
+
+	private static class ServicePolicyIndex {
+		private final Map<Long, RangerPolicy>   policies      = new HashMap<Long, RangerPolicy>();
+		private final Map<String, Set<Long>>    userIndex     = new HashMap<String, Set<Long>>();
+		private final Map<String, Set<Long>>    groupIndex    = new HashMap<String, Set<Long>>();
+		private final Map<String, Set<Long>>    nameIndex     = new HashMap<String, Set<Long>>();
+		private final Map<String, Set<Long>>    nameNGrams    = new HashMap<String, Set<Long>>();
+		private final Map<String, Set<Long>>    resourceNGrams = new HashMap<String, Set<Long>>();
+		private long                            policyVersion;
+
+		ServicePolicyIndex(Long policyVersion, List<RangerPolicy> policies) {
+			this.policyVersion = policyVersion;
+
+			for (RangerPolicy policy : policies) {
+				add(policy);
+			}
+		}
+
+		synchronized boolean isAtVersion(Long version) {
+			return version != null && version == policyVersion;
+		}
+
+		synchronized boolean applyChange(Long newPolicyVersion, RangerPolicy policy, Long deletedPolicyId) {
+			if (newPolicyVersion == null || newPolicyVersion != policyVersion + 1) {
+				return false;
+			}
+
+			Long policyId = policy != null ? policy.getId() : deletedPolicyId;
+
+			if (policyId != null) {
+				remove(policyId);
+			}
+
+			if (policy != null) {
+				add(policy);
+			}
+
+			policyVersion = newPolicyVersion;
+
+			return true;
+		}
+
+		// ids of the policies that may match the filter; null if the filter has no indexed param
+		synchronized Set<Long> getCandidateIds(SearchFilter filter) {
+			Set<Long> candidateIds = null;
+
+			String user = filter.getParam(SearchFilter.USER);
+			if (StringUtils.isNotEmpty(user)) {
+				candidateIds = intersect(candidateIds, userIndex.get(user));
+			}
+
+			String group = filter.getParam(SearchFilter.GROUP);
+			if (StringUtils.isNotEmpty(group)) {
+				candidateIds = intersect(candidateIds, groupIndex.get(group));
+			}
+
+			String policyName = filter.getParam(SearchFilter.POLICY_NAME);
+			if (StringUtils.isNotEmpty(policyName)) {
+				candidateIds = intersect(candidateIds, nameIndex.get(policyName));
+			}
+
+			String partialName = filter.getParam(SearchFilter.POLICY_NAME_PARTIAL);
+			if (StringUtils.length(partialName) >= NGRAM_LENGTH) {
+				for (String nGram : getNGrams(partialName)) {
+					candidateIds = intersect(candidateIds, nameNGrams.get(nGram));
+				}
+			}
+
+			String resourceValue = filter.getParam(SearchFilter.POL_RESOURCE);
+			if (StringUtils.length(resourceValue) >= NGRAM_LENGTH) {
+				for (String nGram : getNGrams(resourceValue)) {
+					candidateIds = intersect(candidateIds, resourceNGrams.get(nGram));
+				}
+			}
+
+			return candidateIds;
+		}
+
+		private void add(RangerPolicy policy) {
+			Long policyId = policy == null ? null : policy.getId();
+
+			if (policyId == null) {
+				return;
+			}
+
+			policies.put(policyId, policy);
+
+			addToIndex(nameIndex, policy.getName(), policyId);
+
+			for (String nGram : getNGrams(policy.getName())) {
+				addToIndex(nameNGrams, nGram, policyId);
+			}
+
+			if (policy.getResources() != null) {
+				for (RangerPolicyResource resource : policy.getResources().values()) {
+					if (resource != null && resource.getValues() != null) {
+						for (String value : resource.getValues()) {
+							for (String nGram : getNGrams(value)) {
+								addToIndex(resourceNGrams, nGram, policyId);
+							}
+						}
+					}
+				}
+			}
+
+			for (List<? extends RangerPolicyItem> policyItems : getAllPolicyItems(policy)) {
+				if (policyItems != null) {
+					for (RangerPolicyItem policyItem : policyItems) {
+						if (policyItem.getUsers() != null) {
+							for (String user : policyItem.getUsers()) {
+								addToIndex(userIndex, user, policyId);
+							}
+						}
+
+						if (policyItem.getGroups() != null) {
+							for (String group : policyItem.getGroups()) {
+								addToIndex(groupIndex, group, policyId);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private void remove(Long policyId) {
+			RangerPolicy policy = policies.remove(policyId);
+
+			if (policy == null) {
+				return;
+			}
+
+			// remove via the tokens of the indexed copy of the policy, instead of scanning the index
+			removeFromIndex(nameIndex, policy.getName(), policyId);
+
+			for (String nGram : getNGrams(policy.getName())) {
+				removeFromIndex(nameNGrams, nGram, policyId);
+			}
+
+			if (policy.getResources() != null) {
+				for (RangerPolicyResource resource : policy.getResources().values()) {
+					if (resource != null && resource.getValues() != null) {
+						for (String value : resource.getValues()) {
+							for (String nGram : getNGrams(value)) {
+								removeFromIndex(resourceNGrams, nGram, policyId);
+							}
+						}
+					}
+				}
+			}
+
+			for (List<? extends RangerPolicyItem> policyItems : getAllPolicyItems(policy)) {
+				if (policyItems != null) {
+					for (RangerPolicyItem policyItem : policyItems) {
+						if (policyItem.getUsers() != null) {
+							for (String user : policyItem.getUsers()) {
+								removeFromIndex(userIndex, user, policyId);
+							}
+						}
+
+						if (policyItem.getGroups() != null) {
+							for (String group : policyItem.getGroups()) {
+								removeFromIndex(groupIndex, group, policyId);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private static List<List<? extends RangerPolicyItem>> getAllPolicyItems(RangerPolicy policy) {
+			List<List<? extends RangerPolicyItem>> ret = new ArrayList<List<? extends RangerPolicyItem>>();
+
+			ret.add(policy.getPolicyItems());
+			ret.add(policy.getDenyPolicyItems());
+			ret.add(policy.getAllowExceptions());
+			ret.add(policy.getDenyExceptions());
+			ret.add(policy.getDataMaskPolicyItems());
+			ret.add(policy.getRowFilterPolicyItems());
+
+			return ret;
+		}
+
+		private static void addToIndex(Map<String, Set<Long>> index, String key, Long policyId) {
+			if (key == null) {
+				return;
+			}
+
+			Set<Long> policyIds = index.get(key);
+
+			if (policyIds == null) {
+				policyIds = new HashSet<Long>();
+
+				index.put(key, policyIds);
+			}
+
+			policyIds.add(policyId);
+		}
+
+		private static void removeFromIndex(Map<String, Set<Long>> index, String key, Long policyId) {
+			Set<Long> policyIds = key == null ? null : index.get(key);
+
+			if (policyIds != null) {
+				policyIds.remove(policyId);
+
+				if (policyIds.isEmpty()) {
+					index.remove(key);
+				}
+			}
+		}
+
+		private static Set<Long> intersect(Set<Long> candidateIds, Set<Long> policyIds) {
+			if (policyIds == null) {
+				return Collections.emptySet();
+			}
+
+			if (candidateIds == null) {
+				return new HashSet<Long>(policyIds);
+			}
+
+			candidateIds.retainAll(policyIds);
+
+			return candidateIds;
+		}
+	}
+}
@@ -59,6 +59,7 @@ public class RangerSearchUtil extends SearchUtil {
 		ret.setParam(SearchFilter.POLICY_NAME, request.getParameter(SearchFilter.POLICY_NAME));
 		ret.setParam(SearchFilter.POLICY_NAME_PARTIAL, request.getParameter(SearchFilter.POLICY_NAME_PARTIAL));
 		ret.setParam(SearchFilter.POLICY_ID, request.getParameter(SearchFilter.POLICY_ID));
+		ret.setParam(SearchFilter.POLICY_ID_AFTER, request.getParameter(SearchFilter.POLICY_ID_AFTER));
 		ret.setParam(SearchFilter.IS_ENABLED, request.getParameter(SearchFilter.IS_ENABLED));
 		ret.setParam(SearchFilter.IS_RECURSIVE, request.getParameter(SearchFilter.IS_RECURSIVE));
 		ret.setParam(SearchFilter.USER, request.getParameter(SearchFilter.USER));
@@ -257,7 +258,9 @@ public class RangerSearchUtil extends SearchUtil {
 			} else if (searchField.getDataType() == SearchField.DATA_TYPE.STRING) {
 				String strFieldValue = searchCriteria.getParam(searchField.getClientFieldName());
 				if (strFieldValue != null) {
-					if (searchField.getCustomCondition() == null) {
+					if (searchField.getCustomCondition() == null && searchField.getSearchType() == SearchField.SEARCH_TYPE.EXACT) {
+						whereClause.append(" and ").append(searchField.getFieldName()).append("= :").append(searchField.getClientFieldName());
+					} else if (searchField.getCustomCondition() == null) {
 						whereClause.append(" and ").append("LOWER(").append(searchField.getFieldName()).append(")");
 						if (searchField.getSearchType() == SearchField.SEARCH_TYPE.FULL) {
 							whereClause.append("= :").append(searchField.getClientFieldName());
@@ -338,7 +341,9 @@ public class RangerSearchUtil extends SearchUtil {
 			} else if (searchField.getDataType() == SearchField.DATA_TYPE.STRING) {
 				String strFieldValue = searchCriteria.getParam(searchField.getClientFieldName());
 				if (strFieldValue != null) {
-					if (searchField.getSearchType() == SearchField.SEARCH_TYPE.FULL) {
+					if (searchField.getSearchType() == SearchField.SEARCH_TYPE.EXACT) {
+						query.setParameter(searchField.getClientFieldName(), strFieldValue);
+					} else if (searchField.getSearchType() == SearchField.SEARCH_TYPE.FULL) {
 						query.setParameter(searchField.getClientFieldName(), strFieldValue.trim().toLowerCase());
 					} else {
 						query.setParameter(searchField.getClientFieldName(), "%" + strFieldValue.trim().toLowerCase() + "%");
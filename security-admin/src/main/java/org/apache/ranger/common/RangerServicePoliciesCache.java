@@ -47,6 +47,7 @@ public class RangerServicePoliciesCache {
 	private final int waitTimeInSeconds;
 
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<String, ServicePoliciesWrapper>();
+	private final RangerVersionChangeNotifier versionChangeNotifier = new RangerVersionChangeNotifier("policy");
 
 	public static RangerServicePoliciesCache getInstance() {
 		if (sInstance == null) {
@@ -64,6 +65,10 @@ public class RangerServicePoliciesCache {
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
 	}
 
+	public RangerVersionChangeNotifier getVersionChangeNotifier() {
+		return versionChangeNotifier;
+	}
+
 	public void dump() {
 
 		if (useServicePoliciesCache) {
@@ -164,9 +169,68 @@ public class RangerServicePoliciesCache {
 		return ret;
 	}
 
+	/**
+	 * Returns the serialized (gzip-compressed JSON) form of the given version
+	 * of the service's policies, if one was saved by setSerializedServicePolicies().
+	 */
+	public byte[] getSerializedServicePolicies(String serviceName, Long policyVersion) {
+		byte[] ret = null;
+
+		if (useServicePoliciesCache && policyVersion != null) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				SerializedServicePolicies serialized = servicePoliciesWrapper.getSerializedServicePolicies();
+
+				if (serialized != null && policyVersion.equals(serialized.policyVersion)) {
+					ret = serialized.data;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Saves the serialized form of the given version of the service's policies.
+	 * Ignored if the cache has since moved to a different version.
+	 */
+	public void setSerializedServicePolicies(String serviceName, Long policyVersion, byte[] data) {
+		if (useServicePoliciesCache && policyVersion != null && data != null) {
+			ServicePoliciesWrapper servicePoliciesWrapper = null;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ServicePolicies servicePolicies = servicePoliciesWrapper.getServicePolicies();
+
+				if (servicePolicies != null && policyVersion.equals(servicePolicies.getPolicyVersion())) {
+					servicePoliciesWrapper.setSerializedServicePolicies(new SerializedServicePolicies(policyVersion, data));
+				}
+			}
+		}
+	}
+
+	private static class SerializedServicePolicies {
+		final Long   policyVersion;
+		final byte[] data;
+
+		SerializedServicePolicies(Long policyVersion, byte[] data) {
+			this.policyVersion = policyVersion;
+			this.data          = data;
+		}
+	}
+
 	private class ServicePoliciesWrapper {
 		final Long serviceId;
-		ServicePolicies servicePolicies;
+		volatile ServicePolicies servicePolicies;
+		volatile SerializedServicePolicies serializedServicePolicies = null;
 		Date updateTime = null;
 		long longestDbLoadTimeInMs = -1;
 
@@ -183,6 +247,14 @@ public class RangerServicePoliciesCache {
 			return servicePolicies;
 		}
 
+		SerializedServicePolicies getSerializedServicePolicies() {
+			return serializedServicePolicies;
+		}
+
+		void setSerializedServicePolicies(SerializedServicePolicies serializedServicePolicies) {
+			this.serializedServicePolicies = serializedServicePolicies;
+		}
+
 		Date getUpdateTime() {
 			return updateTime;
 		}
@@ -242,8 +314,11 @@ public class RangerServicePoliciesCache {
 					if (servicePoliciesFromDb.getPolicyVersion() == null) {
 						servicePoliciesFromDb.setPolicyVersion(0L);
 					}
-					servicePolicies = servicePoliciesFromDb;
-					pruneUnusedAttributes();
+					pruneUnusedAttributes(servicePoliciesFromDb);
+					servicePolicies           = servicePoliciesFromDb;
+					serializedServicePolicies = null;
+
+					versionChangeNotifier.versionChanged(serviceName, servicePoliciesFromDb.getPolicyVersion());
 				}
 			}
 
@@ -252,7 +327,7 @@ public class RangerServicePoliciesCache {
 			}
 		}
 
-		private void pruneUnusedAttributes() {
+		private void pruneUnusedAttributes(ServicePolicies servicePolicies) {
 			if (servicePolicies != null) {
 				pruneUnusedPolicyAttributes(servicePolicies.getPolicies());
 				if (servicePolicies.getTagPolicies() != null) {
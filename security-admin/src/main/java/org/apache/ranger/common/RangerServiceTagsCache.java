@@ -22,6 +22,7 @@ package org.apache.ranger.common;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
+import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.store.TagStore;
@@ -30,8 +31,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.util.ServiceTags;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -44,9 +49,11 @@ public class RangerServiceTagsCache {
 
 	private static volatile RangerServiceTagsCache sInstance = null;
 	private final boolean useServiceTagsCache;
+	private final boolean useServiceTagsDelta;
 	private final int waitTimeInSeconds;
 
 	private final Map<String, ServiceTagsWrapper> serviceTagsMap = new HashMap<String, ServiceTagsWrapper>();
+	private final RangerVersionChangeNotifier versionChangeNotifier = new RangerVersionChangeNotifier("tag");
 
 	public static RangerServiceTagsCache getInstance() {
 		if (sInstance == null) {
@@ -61,9 +68,14 @@ public class RangerServiceTagsCache {
 
 	private RangerServiceTagsCache() {
 		useServiceTagsCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.tag.download.usecache", true);
+		useServiceTagsDelta = RangerConfiguration.getInstance().getBoolean("ranger.admin.tag.download.cache.delta.enabled", true);
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.tag.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
 	}
 
+	public RangerVersionChangeNotifier getVersionChangeNotifier() {
+		return versionChangeNotifier;
+	}
+
 	public void dump() {
 
 		if (useServiceTagsCache) {
@@ -163,6 +175,93 @@ public class RangerServiceTagsCache {
 		return ret;
 	}
 
+	/**
+	 * Returns a new ServiceTags with the changes in delta (see TagDBStore.getServiceTagsDelta())
+	 * applied to cached. cached, which may be in use by other requests, is not modified; its
+	 * unchanged resources and tags are shared with the returned ServiceTags.
+	 */
+	static ServiceTags applyDelta(ServiceTags cached, ServiceTags delta) {
+		Map<Long, RangerServiceResource> resources        = new LinkedHashMap<Long, RangerServiceResource>();
+		Map<Long, List<Long>>            resourceToTagIds = new HashMap<Long, List<Long>>(cached.getResourceToTagIds());
+
+		for (RangerServiceResource resource : cached.getServiceResources()) {
+			resources.put(resource.getId(), resource);
+		}
+
+		for (Map.Entry<Long, List<Long>> entry : delta.getResourceToTagIds().entrySet()) {
+			if (CollectionUtils.isEmpty(entry.getValue())) {
+				resources.remove(entry.getKey());
+				resourceToTagIds.remove(entry.getKey());
+			} else {
+				resourceToTagIds.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		for (RangerServiceResource resource : delta.getServiceResources()) {
+			resources.put(resource.getId(), resource);
+		}
+
+		Set<Long>            tagIdsInUse = new HashSet<Long>();
+		Map<Long, RangerTag> tags        = new HashMap<Long, RangerTag>();
+
+		for (List<Long> tagIds : resourceToTagIds.values()) {
+			tagIdsInUse.addAll(tagIds);
+		}
+
+		for (Map.Entry<Long, RangerTag> entry : cached.getTags().entrySet()) {
+			if (tagIdsInUse.contains(entry.getKey())) {
+				tags.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		for (Map.Entry<Long, RangerTag> entry : delta.getTags().entrySet()) {
+			if (tagIdsInUse.contains(entry.getKey())) {
+				tags.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		ServiceTags ret = new ServiceTags();
+
+		ret.setOp(null);
+		ret.setServiceName(cached.getServiceName());
+		ret.setTagVersion(delta.getTagVersion());
+		ret.setTagDefinitions(null);
+		ret.setTags(tags);
+		ret.setServiceResources(new ArrayList<RangerServiceResource>(resources.values()));
+		ret.setResourceToTagIds(resourceToTagIds);
+
+		return ret;
+	}
+
+	private static void pruneUnusedAttributes(ServiceTags serviceTags) {
+		if (serviceTags != null) {
+			serviceTags.setOp(null);
+			serviceTags.setTagUpdateTime(null);
+
+			serviceTags.setTagDefinitions(null);
+
+			for (Map.Entry<Long, RangerTag> entry : serviceTags.getTags().entrySet()) {
+				RangerTag tag = entry.getValue();
+				tag.setCreatedBy(null);
+				tag.setCreateTime(null);
+				tag.setUpdatedBy(null);
+				tag.setUpdateTime(null);
+				tag.setGuid(null);
+			}
+
+			for (RangerServiceResource serviceResource : serviceTags.getServiceResources()) {
+				serviceResource.setCreatedBy(null);
+				serviceResource.setCreateTime(null);
+				serviceResource.setUpdatedBy(null);
+				serviceResource.setUpdateTime(null);
+				serviceResource.setGuid(null);
+
+				serviceResource.setServiceName(null);
+				serviceResource.setResourceSignature(null);
+			}
+		}
+	}
+
 	private class ServiceTagsWrapper {
 		final Long serviceId;
 		ServiceTags serviceTags;
@@ -229,7 +328,23 @@ public class RangerServiceTagsCache {
 
 				long startTimeMs = System.currentTimeMillis();
 
-				ServiceTags serviceTagsFromDb = tagStore.getServiceTags(serviceName);
+				ServiceTags serviceTagsFromDb = null;
+
+				if (useServiceTagsDelta && serviceTags != null && tagStore instanceof TagDBStore) {
+					ServiceTags delta = ((TagDBStore) tagStore).getServiceTagsDelta(serviceName, serviceTags.getTagVersion());
+
+					if (delta != null) {
+						pruneUnusedAttributes(delta);
+
+						serviceTagsFromDb = applyDelta(serviceTags, delta);
+					}
+				}
+
+				if (serviceTagsFromDb == null) {
+					serviceTagsFromDb = tagStore.getServiceTags(serviceName);
+
+					pruneUnusedAttributes(serviceTagsFromDb);
+				}
 
 				long dbLoadTime = System.currentTimeMillis() - startTimeMs;
 
@@ -243,7 +358,8 @@ public class RangerServiceTagsCache {
 						serviceTagsFromDb.setTagVersion(0L);
 					}
 					serviceTags = serviceTagsFromDb;
-					pruneUnusedAttributes();
+
+					versionChangeNotifier.versionChanged(serviceName, serviceTagsFromDb.getTagVersion());
 				}
 			}
 
@@ -252,35 +368,6 @@ public class RangerServiceTagsCache {
 			}
 		}
 
-		private void pruneUnusedAttributes() {
-			if (serviceTags != null) {
-				serviceTags.setOp(null);
-				serviceTags.setTagUpdateTime(null);
-
-				serviceTags.setTagDefinitions(null);
-
-				for (Map.Entry<Long, RangerTag> entry : serviceTags.getTags().entrySet()) {
-					RangerTag tag = entry.getValue();
-					tag.setCreatedBy(null);
-					tag.setCreateTime(null);
-					tag.setUpdatedBy(null);
-					tag.setUpdateTime(null);
-					tag.setGuid(null);
-				}
-
-				for (RangerServiceResource serviceResource : serviceTags.getServiceResources()) {
-					serviceResource.setCreatedBy(null);
-					serviceResource.setCreateTime(null);
-					serviceResource.setUpdatedBy(null);
-					serviceResource.setUpdateTime(null);
-					serviceResource.setGuid(null);
-
-					serviceResource.setServiceName(null);
-					serviceResource.setResourceSignature(null);
-				}
-			}
-		}
-
 		StringBuilder toString(StringBuilder sb) {
 			sb.append("RangerServiceTagsWrapper={");
 
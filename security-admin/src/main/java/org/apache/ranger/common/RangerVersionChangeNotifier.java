@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps track of clients waiting for the policy (or tag) version of a service
+ * to change, and wakes them up when it does. Used by the long-poll endpoints:
+ * the request is put in async mode and dispatched again once the version
+ * changes or the wait times out, so that waiting clients don't hold request
+ * threads.
+ */
+public class RangerVersionChangeNotifier {
+	private static final Log LOG = LogFactory.getLog(RangerVersionChangeNotifier.class);
+
+	public static final String ATTR_CHANGED_VERSION = "org.apache.ranger.longpoll.changedVersion";
+
+	private static final int DEFAULT_LONG_POLL_TIMEOUT_MS = 30 * 1000;
+	private static final int MAX_LONG_POLL_TIMEOUT_MS     = 120 * 1000;
+
+	public interface Listener {
+		void onVersionChange(String serviceName, Long version);
+	}
+
+	private final String                             name;
+	private final Map<String, Long>                  lastNotifiedVersions = new HashMap<String, Long>();
+	private final Map<String, List<ListenerEntry>>   listeners            = new HashMap<String, List<ListenerEntry>>();
+
+	public RangerVersionChangeNotifier(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Registers a listener to be called once the version of the service
+	 * differs from knownVersion.
+	 *
+	 * @return false, without registering, if the version is already known to differ
+	 */
+	public boolean addListener(String serviceName, Long knownVersion, Listener listener) {
+		synchronized (this) {
+			Long lastNotifiedVersion = lastNotifiedVersions.get(serviceName);
+
+			if (lastNotifiedVersion != null && knownVersion != null && lastNotifiedVersion > knownVersion) {
+				return false;
+			}
+
+			List<ListenerEntry> entries = listeners.get(serviceName);
+
+			if (entries == null) {
+				entries = new ArrayList<ListenerEntry>();
+
+				listeners.put(serviceName, entries);
+			}
+
+			entries.add(new ListenerEntry(knownVersion, listener));
+		}
+
+		return true;
+	}
+
+	public void removeListener(String serviceName, Listener listener) {
+		synchronized (this) {
+			List<ListenerEntry> entries = listeners.get(serviceName);
+
+			if (entries != null) {
+				for (Iterator<ListenerEntry> iter = entries.iterator(); iter.hasNext(); ) {
+					if (iter.next().listener == listener) {
+						iter.remove();
+					}
+				}
+
+				if (entries.isEmpty()) {
+					listeners.remove(serviceName);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the current version of the service, and calls the listeners
+	 * that are waiting for a different version.
+	 */
+	public void versionChanged(String serviceName, Long version) {
+		if (serviceName == null || version == null) {
+			return;
+		}
+
+		List<ListenerEntry> toNotify = null;
+
+		synchronized (this) {
+			lastNotifiedVersions.put(serviceName, version);
+
+			List<ListenerEntry> entries = listeners.get(serviceName);
+
+			if (entries != null) {
+				for (Iterator<ListenerEntry> iter = entries.iterator(); iter.hasNext(); ) {
+					ListenerEntry entry = iter.next();
+
+					if (!version.equals(entry.knownVersion)) {
+						if (toNotify == null) {
+							toNotify = new ArrayList<ListenerEntry>();
+						}
+
+						toNotify.add(entry);
+						iter.remove();
+					}
+				}
+
+				if (entries.isEmpty()) {
+					listeners.remove(serviceName);
+				}
+			}
+		}
+
+		if (toNotify != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerVersionChangeNotifier(" + name + "): service=" + serviceName + ", version=" + version + ": notifying " + toNotify.size() + " listeners");
+			}
+
+			for (ListenerEntry entry : toNotify) {
+				try {
+					entry.listener.onVersionChange(serviceName, version);
+				} catch (Throwable excp) {
+					LOG.error("RangerVersionChangeNotifier(" + name + "): listener failed. service=" + serviceName, excp);
+				}
+			}
+		}
+	}
+
+	public Set<String> getWatchedServiceNames() {
+		synchronized (this) {
+			return new HashSet<String>(listeners.keySet());
+		}
+	}
+
+	public int getListenerCount() {
+		int ret = 0;
+
+		synchronized (this) {
+			for (List<ListenerEntry> entries : listeners.values()) {
+				ret += entries.size();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Puts the request in async mode and waits for the version of the service
+	 * to change. The request is dispatched again when the version changes, with
+	 * the new version in request attribute ATTR_CHANGED_VERSION, or when
+	 * timeoutMs elapses, without the attribute.
+	 */
+	public void waitForVersionChange(HttpServletRequest request, final String serviceName, Long knownVersion, long timeoutMs) {
+		final AsyncContext  asyncContext = request.startAsync();
+		final AtomicBoolean isDone       = new AtomicBoolean(false);
+
+		final Listener listener = new Listener() {
+			@Override
+			public void onVersionChange(String serviceName, Long version) {
+				if (isDone.compareAndSet(false, true)) {
+					asyncContext.getRequest().setAttribute(ATTR_CHANGED_VERSION, version);
+					asyncContext.dispatch();
+				}
+			}
+		};
+
+		asyncContext.setTimeout(timeoutMs);
+		asyncContext.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) throws IOException {
+				removeListener(serviceName, listener);
+
+				if (isDone.compareAndSet(false, true)) {
+					asyncContext.dispatch();
+				}
+			}
+
+			@Override
+			public void onError(AsyncEvent event) throws IOException {
+				removeListener(serviceName, listener);
+				isDone.set(true);
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) throws IOException {
+				removeListener(serviceName, listener);
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) throws IOException {
+			}
+		});
+
+		if (!addListener(serviceName, knownVersion, listener)) {
+			Long version;
+
+			synchronized (this) {
+				version = lastNotifiedVersions.get(serviceName);
+			}
+
+			listener.onVersionChange(serviceName, version);
+		}
+	}
+
+	public static boolean isAsyncDispatch(HttpServletRequest request) {
+		return request.getDispatcherType() == DispatcherType.ASYNC;
+	}
+
+	public static Long getChangedVersion(HttpServletRequest request) {
+		Object ret = request.getAttribute(ATTR_CHANGED_VERSION);
+
+		return ret instanceof Long ? (Long) ret : null;
+	}
+
+	public static long getLongPollTimeoutMs(Long requestedTimeoutMs) {
+		long defaultTimeoutMs = PropertiesUtil.getIntProperty("ranger.admin.longpoll.timeout.default.ms", DEFAULT_LONG_POLL_TIMEOUT_MS);
+		long maxTimeoutMs     = PropertiesUtil.getIntProperty("ranger.admin.longpoll.timeout.max.ms", MAX_LONG_POLL_TIMEOUT_MS);
+
+		if (requestedTimeoutMs == null || requestedTimeoutMs <= 0) {
+			return Math.min(defaultTimeoutMs, maxTimeoutMs);
+		}
+
+		return Math.min(requestedTimeoutMs, maxTimeoutMs);
+	}
+
+	/**
+	 * 200 with the new version when the version changed, 304 otherwise.
+	 */
+	public static Response getLongPollResponse(Long changedVersion) {
+		if (changedVersion == null) {
+			return Response.notModified().build();
+		}
+
+		return Response.ok("{\"version\":" + changedVersion + "}", MediaType.APPLICATION_JSON_TYPE).build();
+	}
+
+	private static class ListenerEntry {
+		final Long     knownVersion;
+		final Listener listener;
+
+		ListenerEntry(Long knownVersion, Listener listener) {
+			this.knownVersion = knownVersion;
+			this.listener     = listener;
+		}
+	}
+}
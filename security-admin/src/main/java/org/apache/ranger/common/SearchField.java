@@ -31,7 +31,8 @@ public class SearchField {
 	};
 
 	public enum SEARCH_TYPE {
-		FULL, PARTIAL, LESS_THAN, LESS_EQUAL_THAN, GREATER_THAN, GREATER_EQUAL_THAN
+		// EXACT: case-sensitive match of the whole value; FULL matches ignoring case
+		FULL, PARTIAL, LESS_THAN, LESS_EQUAL_THAN, GREATER_THAN, GREATER_EQUAL_THAN, EXACT
 	};
 
 	private String clientFieldName;
@@ -43,15 +43,19 @@ import org.apache.ranger.db.RangerDaoManagerBase;
 public abstract class BaseDao<T> {
 	static final Logger logger = Logger.getLogger(BaseDao.class);
 
+	protected static final int MAX_IN_CLAUSE_SIZE = 1000;
+
 	protected RangerDaoManager daoManager;
 
+	// set for a DAO of a named persistence unit; other DAOs use the current entity manager of
+	// the DAO manager, which is bulkPU's during a bulk import
 	EntityManager em;
 
 	protected Class<T> tClass;
 
 	public BaseDao(RangerDaoManagerBase daoManager) {
 		this.daoManager = (RangerDaoManager) daoManager;
-		this.init(daoManager.getEntityManager());
+		this.init(null);
 	}
 
 	public BaseDao(RangerDaoManagerBase daoManager, String persistenceContextUnit) {
@@ -79,11 +83,12 @@ public abstract class BaseDao<T> {
 	}
 
 	public EntityManager getEntityManager() {
-		return this.em;
+		return this.em != null ? this.em : daoManager.getEntityManager();
 	}
 
 	public T create(T obj) {
 		T ret = null;
+		EntityManager em = getEntityManager();
 
 		em.persist(obj);
 		em.flush();
@@ -92,7 +97,43 @@ public abstract class BaseDao<T> {
 		return ret;
 	}
 
+	/**
+	 * Persists all objects and flushes once, so that the inserts can be sent
+	 * to the database together instead of one round-trip per object.
+	 */
+	public List<T> batchCreate(List<T> objs) {
+		if (objs == null || objs.isEmpty()) {
+			return objs;
+		}
+
+		EntityManager em = getEntityManager();
+
+		for (T obj : objs) {
+			em.persist(obj);
+		}
+
+		em.flush();
+
+		return objs;
+	}
+
+	/**
+	 * Splits values to be bound to an 'in' clause into lists of at most
+	 * MAX_IN_CLAUSE_SIZE entries, the limit on some databases.
+	 */
+	protected static <V> List<List<V>> partitionForInClause(List<V> values) {
+		List<List<V>> ret = new ArrayList<List<V>>();
+
+		for (int i = 0; i < values.size(); i += MAX_IN_CLAUSE_SIZE) {
+			ret.add(values.subList(i, Math.min(values.size(), i + MAX_IN_CLAUSE_SIZE)));
+		}
+
+		return ret;
+	}
+
 	public T update(T obj) {
+		EntityManager em = getEntityManager();
+
 		em.merge(obj);
 		em.flush();
 		return obj;
@@ -107,6 +148,8 @@ public abstract class BaseDao<T> {
 			return true;
 		}
 
+		EntityManager em = getEntityManager();
+
 		em.remove(obj);
 		em.flush();
 
@@ -119,7 +162,7 @@ public abstract class BaseDao<T> {
 		}
 		T ret = null;
 		try {
-			ret = em.find(tClass, id);
+			ret = getEntityManager().find(tClass, id);
 		} catch (NoResultException e) {
 			return null;
 		}
@@ -134,7 +177,7 @@ public abstract class BaseDao<T> {
 			return ret;
 		}
 		try {
-			TypedQuery<T> qry = em.createNamedQuery(namedQuery, tClass);
+			TypedQuery<T> qry = getEntityManager().createNamedQuery(namedQuery, tClass);
 			qry.setParameter(paramName, refId);
 			ret = qry.getResultList();
 		} catch (NoResultException e) {
@@ -171,7 +214,7 @@ public abstract class BaseDao<T> {
 	
 	public List<T> getAll() {
 		List<T> ret = null;
-		TypedQuery<T> qry = em.createQuery(
+		TypedQuery<T> qry = getEntityManager().createQuery(
 				"SELECT t FROM " + tClass.getSimpleName() + " t", tClass);
 		ret = qry.getResultList();
 		return ret;
@@ -179,7 +222,7 @@ public abstract class BaseDao<T> {
 
 	public Long getAllCount() {
 		Long ret = null;
-		TypedQuery<Long> qry = em.createQuery(
+		TypedQuery<Long> qry = getEntityManager().createQuery(
 				"SELECT count(t) FROM " + tClass.getSimpleName() + " t",
 				Long.class);
 		ret = qry.getSingleResult();
@@ -41,12 +41,30 @@ public class RangerDaoManager extends RangerDaoManagerBase {
 	@PersistenceContext(unitName = "loggingPU")
 	private EntityManager loggingEM;
 
+	@PersistenceContext(unitName = "bulkPU")
+	private EntityManager bulkEM;
+
+	// set while the current thread runs a bulk import, in a transaction of bulkTransactionManager
+	private final ThreadLocal<Boolean> isBulkWriteEnabled = new ThreadLocal<Boolean>();
+
 	@Autowired
 	StringUtil stringUtil;
 
 	@Override
 	public EntityManager getEntityManager() {
-		return em;
+		return Boolean.TRUE.equals(isBulkWriteEnabled.get()) ? bulkEM : em;
+	}
+
+	/**
+	 * While enabled, DAOs used in the current thread use the entity manager of
+	 * bulkPU, whose writes are sent to the database in JDBC batches.
+	 */
+	public void setBulkWriteEnabled(boolean enabled) {
+		if (enabled) {
+			isBulkWriteEnabled.set(Boolean.TRUE);
+		} else {
+			isBulkWriteEnabled.remove();
+		}
 	}
 
 	public EntityManager getEntityManager(String persistenceContextUnit) {
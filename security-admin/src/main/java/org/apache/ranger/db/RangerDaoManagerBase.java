@@ -363,6 +363,9 @@ public abstract class RangerDaoManagerBase {
 		if (className.equals("XXServiceVersionInfo")) {
 			return getXXServiceVersionInfo();
 		}
+		if (className.equals("XXTagChangeLog")) {
+			return getXXTagChangeLog();
+		}
 		logger.error("No DaoManager found for className=" + className, new Throwable());
 		return null;
 	}
@@ -583,5 +586,9 @@ public abstract class RangerDaoManagerBase {
 	public XXServiceVersionInfoDao getXXServiceVersionInfo() {
 		return new XXServiceVersionInfoDao(this);
 	}
+
+	public XXTagChangeLogDao getXXTagChangeLog() {
+		return new XXTagChangeLogDao(this);
+	}
 }
 
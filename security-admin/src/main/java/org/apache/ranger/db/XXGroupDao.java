@@ -25,6 +25,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXGroup;
 
@@ -81,4 +82,33 @@ public class XXGroupDao extends BaseDao<XXGroup> {
 		}
 	}
 
+	/**
+	 * @return [id, name] of groups referenced in policy items of the service
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getIdNamesByServiceId(Long serviceId) {
+		if (serviceId == null) {
+			return null;
+		}
+		try {
+			return getEntityManager()
+					.createNamedQuery("XXGroup.getIdNamesByServiceId")
+					.setParameter("serviceId", serviceId).getResultList();
+		} catch (NoResultException e) {
+			return null;
+		}
+	}
+
+	public List<XXGroup> findByGroupNames(List<String> names) {
+		List<XXGroup> ret = new ArrayList<XXGroup>();
+
+		if (CollectionUtils.isNotEmpty(names)) {
+			for (List<String> chunk : partitionForInClause(names)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXGroup.findByGroupNames", tClass)
+						.setParameter("names", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
 }
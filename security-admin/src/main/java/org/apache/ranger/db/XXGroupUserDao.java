@@ -27,6 +27,7 @@ import java.util.Set;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXGroupUser;
@@ -114,4 +115,29 @@ public class XXGroupUserDao extends BaseDao<XXGroupUser> {
 		}
 	}
 
+	public List<XXGroupUser> findByUserIds(List<Long> userIds) {
+		List<XXGroupUser> ret = new ArrayList<XXGroupUser>();
+
+		if (CollectionUtils.isNotEmpty(userIds)) {
+			for (List<Long> chunk : partitionForInClause(userIds)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXGroupUser.findByUserIds", tClass)
+						.setParameter("userIds", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByIds(List<Long> ids) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(ids)) {
+			for (List<Long> chunk : partitionForInClause(ids)) {
+				ret += getEntityManager().createNamedQuery("XXGroupUser.deleteByIds")
+						.setParameter("ids", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
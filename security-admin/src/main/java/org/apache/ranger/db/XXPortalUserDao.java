@@ -101,4 +101,19 @@ public class XXPortalUserDao extends BaseDao<XXPortalUser> {
 		}
 
 	}
+
+	/**
+	 * @return users that created or last updated policies of the service
+	 */
+	public List<XXPortalUser> findByPolicyServiceId(Long serviceId) {
+		if (serviceId == null) {
+			return null;
+		}
+		try {
+			return getEntityManager().createNamedQuery("XXPortalUser.findByPolicyServiceId", tClass)
+					.setParameter("serviceId", serviceId).getResultList();
+		} catch (NoResultException e) {
+			return null;
+		}
+	}
 }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.common.db.BaseDao;
@@ -95,4 +96,57 @@ public class XXServiceResourceDao extends BaseDao<XXServiceResource> {
 			return new ArrayList<String>();
 		}
 	}
+
+	public List<XXServiceResource> findByGuids(List<String> guids) {
+		List<XXServiceResource> ret = new ArrayList<XXServiceResource>();
+
+		if (CollectionUtils.isNotEmpty(guids)) {
+			for (List<String> chunk : partitionForInClause(guids)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXServiceResource.findByGuids", tClass)
+						.setParameter("guids", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public List<XXServiceResource> findByServiceAndResourceSignatures(Long serviceId, List<String> resourceSignatures) {
+		List<XXServiceResource> ret = new ArrayList<XXServiceResource>();
+
+		if (serviceId != null && CollectionUtils.isNotEmpty(resourceSignatures)) {
+			for (List<String> chunk : partitionForInClause(resourceSignatures)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXServiceResource.findByServiceAndResourceSignatures", tClass)
+						.setParameter("serviceId", serviceId).setParameter("resourceSignatures", chunk)
+						.getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public List<Long> findServiceIdsByTagIds(List<Long> tagIds) {
+		List<Long> ret = new ArrayList<Long>();
+
+		if (CollectionUtils.isNotEmpty(tagIds)) {
+			for (List<Long> chunk : partitionForInClause(tagIds)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXServiceResource.findServiceIdsByTagIds", Long.class)
+						.setParameter("tagIds", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByIds(List<Long> ids) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(ids)) {
+			for (List<Long> chunk : partitionForInClause(ids)) {
+				ret += getEntityManager().createNamedQuery("XXServiceResource.deleteByIds")
+						.setParameter("ids", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
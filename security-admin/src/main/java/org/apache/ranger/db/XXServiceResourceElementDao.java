@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXServiceResourceElement;
 
@@ -70,4 +71,18 @@ public class XXServiceResourceElementDao extends BaseDao<XXServiceResourceElemen
 		} catch (NoResultException e) {
 			return new ArrayList<XXServiceResourceElement>();
 		}
-	}}
+	}
+
+	public int deleteByResourceIds(List<Long> resourceIds) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret += getEntityManager().createNamedQuery("XXServiceResourceElement.deleteByResourceIds")
+						.setParameter("resourceIds", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
+}
@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXServiceResourceElementValue;
 
@@ -96,4 +97,17 @@ public class XXServiceResourceElementValueDao extends BaseDao<XXServiceResourceE
 			return new ArrayList<XXServiceResourceElementValue>();
 		}
 	}
+
+	public int deleteByResourceIds(List<Long> resourceIds) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret += getEntityManager().createNamedQuery("XXServiceResourceElementValue.deleteByResourceIds")
+						.setParameter("resourceIds", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
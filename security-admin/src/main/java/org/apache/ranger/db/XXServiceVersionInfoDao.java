@@ -17,6 +17,8 @@
 
 package org.apache.ranger.db;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -70,7 +72,7 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		try {
 			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByServiceResourceId", tClass).setParameter("resourceId", resourceId).getResultList();
 
-			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
+			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime, Collections.singletonList(resourceId), null);
 		} catch (NoResultException e) {
 			return;
 		}
@@ -84,7 +86,7 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		try {
 			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagId", tClass).setParameter("tagId", tagId).getResultList();
 
-			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
+			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime, null, Collections.singletonList(tagId));
 		} catch (NoResultException e) {
 			return;
 		}
@@ -98,13 +100,31 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 		try {
 			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByTagDefId", tClass).setParameter("tagDefId", tagDefId).getResultList();
 
-			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime);
+			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime, null, null);
 		} catch (NoResultException e) {
 			return;
 		}
 	}
 
-	private void updateTagVersionAndTagUpdateTime(List<XXServiceVersionInfo> serviceVersionInfos, Date updateTime) {
+	/**
+	 * Updates the tag-version of the service once, for changes to the given service-resources
+	 * and tags; when neither is given, the change is recorded as one to the whole service.
+	 */
+	public void updateServiceVersionInfoForServiceTagsUpdate(Long serviceId, Date updateTime, Collection<Long> resourceIds, Collection<Long> tagIds) {
+		if (serviceId == null) {
+			return;
+		}
+
+		try {
+			List<XXServiceVersionInfo> serviceVersionInfos = getEntityManager().createNamedQuery("XXServiceVersionInfo.findByServiceId", tClass).setParameter("serviceId", serviceId).getResultList();
+
+			updateTagVersionAndTagUpdateTime(serviceVersionInfos, updateTime, resourceIds, tagIds);
+		} catch (NoResultException e) {
+			return;
+		}
+	}
+
+	private void updateTagVersionAndTagUpdateTime(List<XXServiceVersionInfo> serviceVersionInfos, Date updateTime, Collection<Long> resourceIds, Collection<Long> tagIds) {
 		if(CollectionUtils.isEmpty(serviceVersionInfos)) {
 			return;
 		}
@@ -122,6 +142,8 @@ public class XXServiceVersionInfoDao extends BaseDao<XXServiceVersionInfo> {
 
 			serviceVersionInfo.setTagVersion(currentTagVersion + 1);
 			serviceVersionInfo.setTagUpdateTime(updateTime);
+
+			daoManager.getXXTagChangeLog().createChangeLogs(serviceVersionInfo.getServiceId(), serviceVersionInfo.getTagVersion(), resourceIds, tagIds);
 		}
 	}
 }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXTagAttribute;
 
@@ -81,4 +82,30 @@ public class XXTagAttributeDao extends BaseDao<XXTagAttribute> {
 			return new ArrayList<XXTagAttribute>();
 		}
 	}
+
+	public List<XXTagAttribute> findByResourceIds(List<Long> resourceIds) {
+		List<XXTagAttribute> ret = new ArrayList<XXTagAttribute>();
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXTagAttribute.findByResourceIds", tClass)
+						.setParameter("resourceIds", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByTagIds(List<Long> tagIds) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(tagIds)) {
+			for (List<Long> chunk : partitionForInClause(tagIds)) {
+				ret += getEntityManager().createNamedQuery("XXTagAttribute.deleteByTagIds")
+						.setParameter("tagIds", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.NoResultException;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.common.DateUtil;
+import org.apache.ranger.common.db.BaseDao;
+import org.apache.ranger.entity.XXTagChangeLog;
+
+public class XXTagChangeLogDao extends BaseDao<XXTagChangeLog> {
+
+	public XXTagChangeLogDao(RangerDaoManagerBase daoManager) {
+		super(daoManager);
+	}
+
+	/**
+	 * @return changes to the service's tags with fromVersion &lt; version &lt;= toVersion, in version order
+	 */
+	public List<XXTagChangeLog> findByServiceIdAndVersionRange(Long serviceId, Long fromVersion, Long toVersion) {
+		if (serviceId == null || fromVersion == null || toVersion == null) {
+			return new ArrayList<XXTagChangeLog>();
+		}
+		try {
+			return getEntityManager().createNamedQuery("XXTagChangeLog.findByServiceIdAndVersionRange", tClass)
+					.setParameter("serviceId", serviceId)
+					.setParameter("fromVersion", fromVersion)
+					.setParameter("toVersion", toVersion).getResultList();
+		} catch (NoResultException e) {
+			return new ArrayList<XXTagChangeLog>();
+		}
+	}
+
+	/**
+	 * Records the changes made to a service's tags in version serviceTagsVersion. When neither
+	 * resourceIds nor tagIds are given, a single entry marks the whole service as changed.
+	 */
+	public void createChangeLogs(Long serviceId, Long serviceTagsVersion, Collection<Long> resourceIds, Collection<Long> tagIds) {
+		if (serviceId == null || serviceTagsVersion == null) {
+			return;
+		}
+
+		Date createTime = DateUtil.getUTCDate();
+
+		List<XXTagChangeLog> changeLogs = new ArrayList<XXTagChangeLog>();
+
+		if (CollectionUtils.isEmpty(resourceIds) && CollectionUtils.isEmpty(tagIds)) {
+			changeLogs.add(createChangeLog(serviceId, serviceTagsVersion, XXTagChangeLog.CHANGE_TYPE_SERVICE, null, null, createTime));
+		} else {
+			if (resourceIds != null) {
+				for (Long resourceId : resourceIds) {
+					changeLogs.add(createChangeLog(serviceId, serviceTagsVersion, XXTagChangeLog.CHANGE_TYPE_SERVICE_RESOURCE, resourceId, null, createTime));
+				}
+			}
+
+			if (tagIds != null) {
+				for (Long tagId : tagIds) {
+					changeLogs.add(createChangeLog(serviceId, serviceTagsVersion, XXTagChangeLog.CHANGE_TYPE_TAG, null, tagId, createTime));
+				}
+			}
+		}
+
+		batchCreate(changeLogs);
+	}
+
+	public int deleteOlderThan(Date olderThan) {
+		if (olderThan == null) {
+			return 0;
+		}
+
+		return getEntityManager().createNamedQuery("XXTagChangeLog.deleteOlderThan")
+				.setParameter("olderThan", olderThan).executeUpdate();
+	}
+
+	private XXTagChangeLog createChangeLog(Long serviceId, Long serviceTagsVersion, int changeType, Long resourceId, Long tagId, Date createTime) {
+		XXTagChangeLog ret = new XXTagChangeLog();
+
+		ret.setServiceId(serviceId);
+		ret.setServiceTagsVersion(serviceTagsVersion);
+		ret.setChangeType(changeType);
+		ret.setServiceResourceId(resourceId);
+		ret.setTagId(tagId);
+		ret.setCreateTime(createTime);
+
+		return ret;
+	}
+}
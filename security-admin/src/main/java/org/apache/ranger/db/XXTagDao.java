@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.common.db.BaseDao;
@@ -138,4 +139,43 @@ public class XXTagDao extends BaseDao<XXTag> {
 			return new ArrayList<XXTag>();
 		}
 	}
+
+	public List<XXTag> findByGuids(List<String> guids) {
+		List<XXTag> ret = new ArrayList<XXTag>();
+
+		if (CollectionUtils.isNotEmpty(guids)) {
+			for (List<String> chunk : partitionForInClause(guids)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXTag.findByGuids", tClass)
+						.setParameter("guids", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public List<XXTag> findByResourceIds(List<Long> resourceIds) {
+		List<XXTag> ret = new ArrayList<XXTag>();
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXTag.findByResourceIds", tClass)
+						.setParameter("resourceIds", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByIds(List<Long> ids) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(ids)) {
+			for (List<Long> chunk : partitionForInClause(ids)) {
+				ret += getEntityManager().createNamedQuery("XXTag.deleteByIds")
+						.setParameter("ids", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXTagResourceMap;
@@ -140,4 +141,43 @@ public class XXTagResourceMapDao extends BaseDao<XXTagResourceMap> {
 			return new ArrayList<XXTagResourceMap>();
 		}
 	}
+
+	public List<XXTagResourceMap> findByResourceIds(List<Long> resourceIds) {
+		List<XXTagResourceMap> ret = new ArrayList<XXTagResourceMap>();
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXTagResourceMap.findByResourceIds", tClass)
+						.setParameter("resourceIds", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByIds(List<Long> ids) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(ids)) {
+			for (List<Long> chunk : partitionForInClause(ids)) {
+				ret += getEntityManager().createNamedQuery("XXTagResourceMap.deleteByIds")
+						.setParameter("ids", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
+
+	public int deleteByResourceIds(List<Long> resourceIds) {
+		int ret = 0;
+
+		if (CollectionUtils.isNotEmpty(resourceIds)) {
+			for (List<Long> chunk : partitionForInClause(resourceIds)) {
+				ret += getEntityManager().createNamedQuery("XXTagResourceMap.deleteByResourceIds")
+						.setParameter("resourceIds", chunk).executeUpdate();
+			}
+		}
+
+		return ret;
+	}
 }
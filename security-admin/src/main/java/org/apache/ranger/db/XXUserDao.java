@@ -20,10 +20,12 @@
  package org.apache.ranger.db;
 
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
 import org.apache.ranger.common.db.BaseDao;
 import org.apache.ranger.entity.XXUser;
@@ -76,4 +78,34 @@ public class XXUserDao extends BaseDao<XXUser> {
 			return null;
 		}
 	}
+
+	/**
+	 * @return [id, name] of users referenced in policy items of the service
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getIdNamesByServiceId(Long serviceId) {
+		if (serviceId == null) {
+			return null;
+		}
+		try {
+			return getEntityManager()
+					.createNamedQuery("XXUser.getIdNamesByServiceId")
+					.setParameter("serviceId", serviceId).getResultList();
+		} catch (NoResultException e) {
+			return null;
+		}
+	}
+
+	public List<XXUser> findByUserNames(List<String> names) {
+		List<XXUser> ret = new ArrayList<XXUser>();
+
+		if (CollectionUtils.isNotEmpty(names)) {
+			for (List<String> chunk : partitionForInClause(names)) {
+				ret.addAll(getEntityManager().createNamedQuery("XXUser.findByUserNames", tClass)
+						.setParameter("names", chunk).getResultList());
+			}
+		}
+
+		return ret;
+	}
 }
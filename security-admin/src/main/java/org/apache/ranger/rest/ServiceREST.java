@@ -19,6 +19,7 @@
 
 package org.apache.ranger.rest;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -26,11 +27,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -39,7 +42,11 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -60,7 +67,9 @@ import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerSearchUtil;
+import org.apache.ranger.common.RangerServicePoliciesCache;
 import org.apache.ranger.common.RangerValidatorFactory;
+import org.apache.ranger.common.RangerVersionChangeNotifier;
 import org.apache.ranger.common.ServiceUtil;
 import org.apache.ranger.common.UserSessionBase;
 import org.apache.ranger.db.RangerDaoManager;
@@ -97,6 +106,7 @@ import org.apache.ranger.view.RangerServiceDefList;
 import org.apache.ranger.view.RangerServiceList;
 import org.apache.ranger.view.VXResponse;
 import org.apache.ranger.view.VXString;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -1490,7 +1500,7 @@ public class ServiceREST {
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getPolicies()");
 			}
 
-			if(isAdminUserWithNoFilterParams(filter)) {
+			if(isAdminUserWithNoFilterParams(filter) || (filter != null && isPaginatedSearchForAdminUser(filter.getParam(SearchFilter.SERVICE_NAME), filter))) {
 				PList<RangerPolicy> policies = svcStore.getPaginatedPolicies(filter);
 
 				ret = toRangerPolicyList(policies);
@@ -1534,7 +1544,7 @@ public class ServiceREST {
 
 	@GET
 	@Path("/policies/downloadExcel")
-	@Produces("application/ms-excel")
+	@Produces("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
 	public void getPoliciesInExcel(@Context HttpServletRequest request,
 			@Context HttpServletResponse response) {
 
@@ -1549,13 +1559,11 @@ public class ServiceREST {
 			if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getPoliciesInExcel()");
 			}
-			List<RangerPolicy> policies=new ArrayList<RangerPolicy>();
 			if (filter != null) {
-				filter.setStartIndex(0);
-				filter.setMaxRows(Integer.MAX_VALUE);
-				policies = svcStore.getPoliciesForReports(filter);
+				svcStore.getPoliciesInExcel(filter, response);
+			} else {
+				svcStore.getPoliciesInExcel(new ArrayList<RangerPolicy>(), response);
 			}
-			svcStore.getPoliciesInExcel(policies, response);
 
 		} catch (WebApplicationException excp) {
 			throw excp;
@@ -1585,13 +1593,11 @@ public class ServiceREST {
 			if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getPoliciesInCsv()");
 			}
-			List<RangerPolicy> policies = new ArrayList<RangerPolicy>();
 			if (filter != null) {
-				filter.setStartIndex(0);
-				filter.setMaxRows(Integer.MAX_VALUE);
-				policies = svcStore.getPoliciesForReports(filter);
+				svcStore.getPoliciesInCSV(filter, response);
+			} else {
+				svcStore.getPoliciesInCSV(new ArrayList<RangerPolicy>(), response);
 			}
-			svcStore.getPoliciesInCSV(policies, response);
 
 		} catch (WebApplicationException excp) {
 			throw excp;
@@ -1604,6 +1610,35 @@ public class ServiceREST {
 		}
 	}
 
+	@GET
+	@Path("/policies/exportJson")
+	@Produces("application/json")
+	public void getPoliciesInJson(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.getPoliciesInJson()");
+		}
+		RangerPerfTracer perf = null;
+
+		SearchFilter filter = searchUtil.getSearchFilter(request, policyService.sortFields);
+
+		try {
+			if (RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getPoliciesInJson()");
+			}
+			svcStore.getPoliciesInJson(filter == null ? new SearchFilter() : filter, response);
+
+		} catch (WebApplicationException excp) {
+			throw excp;
+		} catch (Throwable excp) {
+			LOG.error("Error while exporting policies", excp);
+
+			throw restErrorUtil.createRESTException(excp.getMessage());
+		} finally {
+			RangerPerfTracer.log(perf);
+		}
+	}
+
 
 	public List<RangerPolicy> getPolicies(SearchFilter filter) {
 		if(LOG.isDebugEnabled()) {
@@ -1693,7 +1728,7 @@ public class ServiceREST {
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getServicePolicies(serviceId=" + serviceId + ")");
 			}
 
-			if(isAdminUserWithNoFilterParams(filter)) {
+			if(isAdminUserWithNoFilterParams(filter) || isPaginatedSearchForAdminUser(serviceId, filter)) {
 				PList<RangerPolicy> policies = svcStore.getPaginatedServicePolicies(serviceId, filter);
 
 				ret = toRangerPolicyList(policies);
@@ -1754,7 +1789,7 @@ public class ServiceREST {
 				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getServicePolicies(serviceName=" + serviceName + ")");
 			}
 
-			if(isAdminUserWithNoFilterParams(filter)) {
+			if(isAdminUserWithNoFilterParams(filter) || isPaginatedSearchForAdminUser(serviceName, filter)) {
 				PList<RangerPolicy> policies = svcStore.getPaginatedServicePolicies(serviceName, filter);
 
 				ret = toRangerPolicyList(policies);
@@ -1800,7 +1835,20 @@ public class ServiceREST {
 	@GET
 	@Path("/policies/download/{serviceName}")
 	@Produces({ "application/json", "application/xml" })
-	public ServicePolicies getServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("pluginId") String pluginId, @Context HttpServletRequest request) throws Exception {
+	public Response getServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("pluginId") String pluginId, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @Context HttpServletRequest request) throws Exception {
+		Long            knownVersion = getKnownPolicyVersion(lastKnownVersion, ifNoneMatch);
+		ServicePolicies ret          = null;
+
+		try {
+			ret = getServicePoliciesIfUpdated(serviceName, knownVersion, pluginId, request);
+		} catch (WebApplicationException excp) {
+			throw toNotModifiedException(excp, knownVersion);
+		}
+
+		return toPolicyDownloadResponse(serviceName, ret, request);
+	}
+
+	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion, String pluginId, HttpServletRequest request) throws Exception {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ")");
 		}
@@ -1855,7 +1903,20 @@ public class ServiceREST {
 	@GET
 	@Path("/secure/policies/download/{serviceName}")
 	@Produces({ "application/json", "application/xml" })
-	public ServicePolicies getSecureServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName,@QueryParam("lastKnownVersion") Long lastKnownVersion,@QueryParam("pluginId") String pluginId,@Context HttpServletRequest request) throws Exception {
+	public Response getSecureServicePoliciesIfUpdated(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("pluginId") String pluginId, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @Context HttpServletRequest request) throws Exception {
+		Long            knownVersion = getKnownPolicyVersion(lastKnownVersion, ifNoneMatch);
+		ServicePolicies ret          = null;
+
+		try {
+			ret = getSecureServicePoliciesIfUpdated(serviceName, knownVersion, pluginId, request);
+		} catch (WebApplicationException excp) {
+			throw toNotModifiedException(excp, knownVersion);
+		}
+
+		return toPolicyDownloadResponse(serviceName, ret, request);
+	}
+
+	public ServicePolicies getSecureServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion, String pluginId, HttpServletRequest request) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getSecureServicePoliciesIfUpdated("+ serviceName + ", " + lastKnownVersion + ")");
 		}
@@ -1939,6 +2000,151 @@ public class ServiceREST {
 		return ret;
 	}		
 
+	/*
+	 * Long-poll: returns as soon as the policy version of the service differs from
+	 * lastKnownVersion, or with 304 after timeoutMs. While waiting, the request is
+	 * in async mode and doesn't hold a request thread.
+	 */
+	@GET
+	@Path("/policies/wait/{serviceName}")
+	@Produces({ "application/json" })
+	public Response waitForPolicyVersionChange(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownVersion, @QueryParam("timeoutMs") Long timeoutMs, @Context HttpServletRequest request) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceREST.waitForPolicyVersionChange(" + serviceName + ", " + lastKnownVersion + ")");
+		}
+
+		if (RangerVersionChangeNotifier.isAsyncDispatch(request)) {
+			// dispatched again after the version changed or the wait timed out
+			return RangerVersionChangeNotifier.getLongPollResponse(RangerVersionChangeNotifier.getChangedVersion(request));
+		}
+
+		if (serviceUtil.isValidateHttpsAuthentication(serviceName, request)) {
+			Long currentVersion = svcStore.getServicePolicyVersion(serviceName);
+
+			if (lastKnownVersion == null || currentVersion == null || !currentVersion.equals(lastKnownVersion)) {
+				return RangerVersionChangeNotifier.getLongPollResponse(currentVersion);
+			}
+
+			RangerServicePoliciesCache.getInstance().getVersionChangeNotifier().waitForVersionChange(request, serviceName, lastKnownVersion, RangerVersionChangeNotifier.getLongPollTimeoutMs(timeoutMs));
+		}
+
+		// the response is written when the request is dispatched again
+		return Response.noContent().build();
+	}
+
+	/*
+	 * The ETag of a policy download is the policy version. A client that
+	 * doesn't send lastKnownVersion can still get a 304 with If-None-Match.
+	 */
+	private Long getKnownPolicyVersion(Long lastKnownVersion, String ifNoneMatch) {
+		Long ret = lastKnownVersion;
+
+		if ((ret == null || ret == -1) && StringUtils.isNotBlank(ifNoneMatch)) {
+			String eTag = ifNoneMatch.trim();
+
+			if (eTag.startsWith("W/")) {
+				eTag = eTag.substring(2);
+			}
+
+			eTag = StringUtils.strip(eTag, "\"");
+
+			if (StringUtils.isNumeric(eTag) && !eTag.isEmpty()) {
+				try {
+					ret = Long.valueOf(eTag);
+				} catch (NumberFormatException excp) {
+					LOG.warn("ignoring invalid If-None-Match header: " + ifNoneMatch);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private EntityTag getPolicyDownloadETag(Long policyVersion) {
+		// weak, as the same version is served both gzip-compressed and not
+		return new EntityTag(String.valueOf(policyVersion), true);
+	}
+
+	private WebApplicationException toNotModifiedException(WebApplicationException excp, Long knownVersion) {
+		WebApplicationException ret = excp;
+
+		if (excp.getResponse() != null && excp.getResponse().getStatus() == HttpServletResponse.SC_NOT_MODIFIED && knownVersion != null) {
+			ret = new WebApplicationException(Response.notModified(getPolicyDownloadETag(knownVersion)).build());
+		}
+
+		return ret;
+	}
+
+	/*
+	 * JSON responses to clients that accept gzip are served from the gzip-compressed
+	 * payload cached in RangerServicePoliciesCache, so that the same policy version
+	 * isn't serialized again for every polling plugin.
+	 */
+	private Response toPolicyDownloadResponse(String serviceName, ServicePolicies servicePolicies, HttpServletRequest request) {
+		if (servicePolicies == null) {
+			return Response.noContent().build();
+		}
+
+		EntityTag       eTag    = getPolicyDownloadETag(servicePolicies.getPolicyVersion());
+		ResponseBuilder builder = null;
+
+		if (isGzipJsonAccepted(request)) {
+			byte[] payload = getSerializedServicePolicies(serviceName, servicePolicies);
+
+			if (payload != null) {
+				builder = Response.ok(payload, MediaType.APPLICATION_JSON_TYPE).header(HttpHeaders.CONTENT_ENCODING, "gzip");
+			}
+		}
+
+		if (builder == null) {
+			builder = Response.ok(servicePolicies);
+		}
+
+		return builder.tag(eTag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+	}
+
+	private boolean isGzipJsonAccepted(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		String accept         = request.getHeader(HttpHeaders.ACCEPT);
+
+		return StringUtils.containsIgnoreCase(acceptEncoding, "gzip")
+				&& (StringUtils.isBlank(accept) || StringUtils.containsIgnoreCase(accept, "json") || accept.contains("*/*"));
+	}
+
+	private byte[] getSerializedServicePolicies(String serviceName, ServicePolicies servicePolicies) {
+		RangerServicePoliciesCache cache = RangerServicePoliciesCache.getInstance();
+		byte[]                     ret   = cache.getSerializedServicePolicies(serviceName, servicePolicies.getPolicyVersion());
+
+		if (ret == null) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getSerializedServicePolicies(serviceName=" + serviceName + ",policyVersion=" + servicePolicies.getPolicyVersion() + ")");
+			}
+
+			try {
+				ByteArrayOutputStream out     = new ByteArrayOutputStream();
+				GZIPOutputStream      gzipOut = new GZIPOutputStream(out);
+
+				try {
+					new ObjectMapper().writeValue(gzipOut, servicePolicies);
+				} finally {
+					gzipOut.close();
+				}
+
+				ret = out.toByteArray();
+
+				cache.setSerializedServicePolicies(serviceName, servicePolicies.getPolicyVersion(), ret);
+			} catch (IOException excp) {
+				LOG.error("failed to serialize policies for service " + serviceName + ", version=" + servicePolicies.getPolicyVersion(), excp);
+			} finally {
+				RangerPerfTracer.log(perf);
+			}
+		}
+
+		return ret;
+	}
+
 	private void createPolicyDownloadAudit(String serviceName, Long lastKnownVersion, String pluginId, int httpRespCode, HttpServletRequest request) {
 		try {
 			String ipAddress = request.getHeader("X-FORWARDED-FOR");
@@ -2181,11 +2387,7 @@ public class ServiceREST {
 							userGroups = daoManager.getXXGroupUser().findGroupNamesByUserName(userName);
 						}
 
-						for (RangerPolicy policy : listToFilter) {
-							if (policyEngine.isAccessAllowed(policy.getResources(), userName, userGroups, RangerPolicyEngine.ADMIN_ACCESS)) {
-								ret.add(policy);
-							}
-						}
+						ret.addAll(policyEngine.filterAllowedPolicies(listToFilter, userName, userGroups, RangerPolicyEngine.ADMIN_ACCESS));
 					}
 
 				}
@@ -2329,6 +2531,36 @@ public class ServiceREST {
 			   (bizUtil.isAdmin() || bizUtil.isKeyAdmin());
 	}
 
+	/*
+	 * true if the filter can be evaluated by the database and the user can see all policies of
+	 * the service, so that applyAdminAccessFilter() would not remove any policy from the page
+	 */
+	boolean isPaginatedSearchForAdminUser(String serviceName, SearchFilter filter) {
+		if (StringUtils.isEmpty(serviceName) || !policyService.isPaginatedSearchSupported(filter)) {
+			return false;
+		}
+
+		return isAdminOfAllServicePolicies(daoManager.getXXService().findByName(serviceName));
+	}
+
+	boolean isPaginatedSearchForAdminUser(Long serviceId, SearchFilter filter) {
+		if (serviceId == null || !policyService.isPaginatedSearchSupported(filter)) {
+			return false;
+		}
+
+		return isAdminOfAllServicePolicies(daoManager.getXXService().getById(serviceId));
+	}
+
+	private boolean isAdminOfAllServicePolicies(XXService xService) {
+		if (xService == null) {
+			return false;
+		}
+
+		boolean isKmsService = xService.getType().equals(EmbeddedServiceDefsUtil.instance().getKmsServiceDefId());
+
+		return isKmsService ? bizUtil.isKeyAdmin() : bizUtil.isAdmin();
+	}
+
 	private RangerPolicyList toRangerPolicyList(PList<RangerPolicy> policyList) {
 		RangerPolicyList ret = new RangerPolicyList();
 
@@ -24,6 +24,7 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.model.RangerTagDef;
@@ -55,14 +56,23 @@ public class ServiceTagsProcessor {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("serviceTags:	op=" + serviceTags.getOp());
 			}
-			String op = serviceTags.getOp();
+			String     op           = serviceTags.getOp();
+			TagDBStore bulkTagStore = getBulkTagStore();
 
 			if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_ADD_OR_UPDATE)) {
-				addOrUpdate(serviceTags);
+				if (bulkTagStore != null) {
+					bulkTagStore.addOrUpdateServiceTagsInBulk(serviceTags);
+				} else {
+					addOrUpdate(serviceTags);
+				}
 			} else if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_DELETE)) {
 				delete(serviceTags);
 			} else if (StringUtils.equalsIgnoreCase(op, ServiceTags.OP_REPLACE)) {
-				replace(serviceTags);
+				if (bulkTagStore != null) {
+					bulkTagStore.replaceServiceTagsInBulk(serviceTags);
+				} else {
+					replace(serviceTags);
+				}
 			} else {
 				LOG.error("Unknown op, op=" + op);
 			}
@@ -81,6 +91,15 @@ public class ServiceTagsProcessor {
 		}
 	}
 
+	// bulk mode: rows are diffed and written per batch, instead of one tag-store call per object
+	private TagDBStore getBulkTagStore() {
+		if (tagStore instanceof TagDBStore && ((TagDBStore) tagStore).isBulkImportEnabled()) {
+			return (TagDBStore) tagStore;
+		}
+
+		return null;
+	}
+
 	// Map tagdef, tag, serviceResource ids to created ids and use them in tag-resource-mapping
 	private void addOrUpdate(ServiceTags serviceTags) throws Exception {
 		if (LOG.isDebugEnabled()) {
@@ -27,6 +27,8 @@ import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.biz.ServiceDBStore;
 import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerServiceTagsCache;
+import org.apache.ranger.common.RangerVersionChangeNotifier;
 import org.apache.ranger.db.RangerDaoManager;
 import org.apache.ranger.entity.XXService;
 import org.apache.ranger.entity.XXServiceDef;
@@ -48,8 +50,11 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
 
 import java.util.List;
 
@@ -1126,6 +1131,39 @@ public class TagREST {
         return ret;
     }
     
+    // Long-poll: returns as soon as the tag version of the service differs from
+    // lastKnownVersion, or with 304 after timeoutMs
+    @GET
+    @Path(TagRESTConstants.TAGS_WAIT + "{serviceName}")
+    @Produces({ "application/json" })
+    public Response waitForTagVersionChange(@PathParam("serviceName") String serviceName,
+                                            @QueryParam(TagRESTConstants.LAST_KNOWN_TAG_VERSION_PARAM) Long lastKnownVersion, @QueryParam("timeoutMs") Long timeoutMs,
+                                            @Context HttpServletRequest request) {
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("==> TagREST.waitForTagVersionChange(" + serviceName + ", " + lastKnownVersion + ")");
+        }
+
+        if (RangerVersionChangeNotifier.isAsyncDispatch(request)) {
+            // dispatched again after the version changed or the wait timed out
+            return RangerVersionChangeNotifier.getLongPollResponse(RangerVersionChangeNotifier.getChangedVersion(request));
+        }
+
+        Long currentVersion = tagStore.getTagVersion(serviceName);
+
+        if (currentVersion == null) {
+            throw restErrorUtil.createRESTException(HttpServletResponse.SC_NOT_FOUND, "tag version not found for service " + serviceName, false);
+        }
+
+        if (lastKnownVersion == null || !currentVersion.equals(lastKnownVersion)) {
+            return RangerVersionChangeNotifier.getLongPollResponse(currentVersion);
+        }
+
+        RangerServiceTagsCache.getInstance().getVersionChangeNotifier().waitForVersionChange(request, serviceName, lastKnownVersion, RangerVersionChangeNotifier.getLongPollTimeoutMs(timeoutMs));
+
+        // the response is written when the request is dispatched again
+        return Response.noContent().build();
+    }
+
     @GET
     @Path(TagRESTConstants.TAGS_SECURE_DOWNLOAD + "{serviceName}")
     @Produces({ "application/json", "application/xml" })
@@ -35,6 +35,7 @@ public class TagRESTConstants {
 	static final String TAGTYPES_LOOKUP_RESOURCE = "/types/lookup/";
 	static final String TAGS_DOWNLOAD            = "/download/";
 	static final String TAGS_SECURE_DOWNLOAD            = "/secure/download/";
+	static final String TAGS_WAIT                = "/wait/";
 
 	public static final String SERVICE_NAME_PARAM           = "serviceName";
 	public static final String LAST_KNOWN_TAG_VERSION_PARAM = "lastKnownVersion";
@@ -77,6 +77,7 @@ import org.apache.ranger.view.VXString;
 import org.apache.ranger.view.VXStringList;
 import org.apache.ranger.view.VXUser;
 import org.apache.ranger.view.VXUserGroupInfo;
+import org.apache.ranger.view.VXUserGroupSyncInfo;
 import org.apache.ranger.view.VXUserList;
 import org.apache.ranger.view.VXUserPermission;
 import org.apache.ranger.view.VXUserPermissionList;
@@ -278,6 +279,14 @@ public class XUserREST {
 	public VXUserGroupInfo createXUserGroupFromMap(VXUserGroupInfo vXUserGroupInfo) {
 		return  xUserMgr.createXUserGroupFromMap(vXUserGroupInfo);
 	} 
+
+	@POST
+	@Path("/usergroups/bulk")
+	@Produces({ "application/xml", "application/json" })
+	@PreAuthorize("hasRole('ROLE_SYS_ADMIN')")
+	public VXUserGroupSyncInfo createOrUpdateXUserGroupsInBulk(VXUserGroupSyncInfo vXUserGroupSyncInfo) {
+		return xUserMgr.createOrUpdateXUserGroupsInBulk(vXUserGroupSyncInfo);
+	}
 	
 	@POST
 	@Path("/secure/users")
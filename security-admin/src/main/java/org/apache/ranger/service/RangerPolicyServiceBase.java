@@ -17,6 +17,13 @@
 
 package org.apache.ranger.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.common.GUIDUtil;
 import org.apache.ranger.common.MessageEnums;
@@ -36,7 +43,21 @@ public abstract class RangerPolicyServiceBase<T extends XXPolicyBase, V extends
 
 	@Autowired
 	GUIDUtil guidUtil;
-	
+
+	// Search params that paginatedSearchFields evaluate with the same meaning as the
+	// in-memory predicates (AbstractPredicateUtil); other params need all policies loaded
+	private static final Set<String> PAGINATED_SEARCH_PARAMS = new HashSet<String>(Arrays.asList(
+			SearchFilter.SERVICE_TYPE, SearchFilter.SERVICE_TYPE_ID, SearchFilter.SERVICE_NAME, SearchFilter.SERVICE_ID,
+			SearchFilter.POLICY_ID, SearchFilter.POLICY_ID_AFTER, SearchFilter.POLICY_NAME, SearchFilter.POLICY_NAME_PARTIAL,
+			SearchFilter.GUID, SearchFilter.IS_ENABLED, SearchFilter.IS_RECURSIVE, SearchFilter.POLICY_TYPE,
+			SearchFilter.USER, SearchFilter.GROUP, SearchFilter.POL_RESOURCE));
+
+	/*
+	 * Search fields for paginated policy search. Conditions on policy items and resources
+	 * are subqueries instead of joins, so that each policy is returned (and counted) once.
+	 */
+	public final List<SearchField> paginatedSearchFields = new ArrayList<SearchField>();
+
 	public RangerPolicyServiceBase() {
 		super();
 		searchFields.add(new SearchField(SearchFilter.SERVICE_TYPE, "xSvcDef.name", DATA_TYPE.STRING, SEARCH_TYPE.FULL,
@@ -67,12 +88,64 @@ public abstract class RangerPolicyServiceBase<T extends XXPolicyBase, V extends
 				SEARCH_TYPE.PARTIAL));
 		searchFields.add(new SearchField(SearchFilter.POLICY_TYPE, "obj.policyType", DATA_TYPE.INTEGER, SEARCH_TYPE.FULL));
 
+		paginatedSearchFields.add(new SearchField(SearchFilter.SERVICE_TYPE, "xSvcDef.name", DATA_TYPE.STRING, SEARCH_TYPE.EXACT,
+				"XXServiceDef xSvcDef, XXService xSvc", "xSvc.type = xSvcDef.id and xSvc.id = obj.service"));
+		paginatedSearchFields.add(new SearchField(SearchFilter.SERVICE_TYPE_ID, "xSvc.type", DATA_TYPE.INTEGER,
+				SEARCH_TYPE.FULL, "XXServiceDef xSvcDef, XXService xSvc", "xSvc.type = xSvcDef.id and xSvc.id = obj.service"));
+		paginatedSearchFields.add(new SearchField(SearchFilter.SERVICE_NAME, "xSvc.name", DATA_TYPE.STRING, SEARCH_TYPE.EXACT,
+				"XXServiceDef xSvcDef, XXService xSvc", "xSvc.type = xSvcDef.id and xSvc.id = obj.service"));
+		paginatedSearchFields.add(new SearchField(SearchFilter.SERVICE_ID, "obj.service", DATA_TYPE.INTEGER, SEARCH_TYPE.FULL));
+		paginatedSearchFields.add(new SearchField(SearchFilter.IS_ENABLED, "obj.isEnabled", DATA_TYPE.BOOLEAN, SEARCH_TYPE.FULL));
+		paginatedSearchFields.add(new SearchField(SearchFilter.POLICY_ID, "obj.id", DATA_TYPE.INTEGER, SEARCH_TYPE.FULL));
+		paginatedSearchFields.add(new SearchField(SearchFilter.POLICY_NAME, "obj.name", DATA_TYPE.STRING, SEARCH_TYPE.EXACT));
+		paginatedSearchFields.add(new SearchField(SearchFilter.POLICY_NAME_PARTIAL, "obj.name", DATA_TYPE.STRING, SEARCH_TYPE.PARTIAL));
+		paginatedSearchFields.add(new SearchField(SearchFilter.GUID, "obj.guid", DATA_TYPE.STRING, SEARCH_TYPE.FULL));
+		paginatedSearchFields.add(new SearchField(SearchFilter.POLICY_TYPE, "obj.policyType", DATA_TYPE.INTEGER, SEARCH_TYPE.FULL));
+		paginatedSearchFields.add(customSearchField(SearchFilter.POLICY_ID_AFTER, DATA_TYPE.INTEGER, SEARCH_TYPE.GREATER_THAN,
+				"obj.id > :" + SearchFilter.POLICY_ID_AFTER));
+		paginatedSearchFields.add(customSearchField(SearchFilter.IS_RECURSIVE, DATA_TYPE.BOOLEAN, SEARCH_TYPE.FULL,
+				"obj.id in (select xPolRes.policyId from XXPolicyResource xPolRes where xPolRes.isRecursive = :" + SearchFilter.IS_RECURSIVE + ")"));
+		paginatedSearchFields.add(customSearchField(SearchFilter.USER, DATA_TYPE.STRING, SEARCH_TYPE.EXACT,
+				"obj.id in (select xPolItem.policyId from XXPolicyItem xPolItem, XXPolicyItemUserPerm userPerm, XXUser xUser"
+						+ " where userPerm.policyItemId = xPolItem.id and xUser.id = userPerm.userId and xUser.name = :" + SearchFilter.USER + ")"));
+		paginatedSearchFields.add(customSearchField(SearchFilter.GROUP, DATA_TYPE.STRING, SEARCH_TYPE.EXACT,
+				"obj.id in (select xPolItem.policyId from XXPolicyItem xPolItem, XXPolicyItemGroupPerm grpPerm, XXGroup xGrp"
+						+ " where grpPerm.policyItemId = xPolItem.id and xGrp.id = grpPerm.groupId and xGrp.name = :" + SearchFilter.GROUP + ")"));
+		paginatedSearchFields.add(customSearchField(SearchFilter.POL_RESOURCE, DATA_TYPE.STRING, SEARCH_TYPE.PARTIAL,
+				"obj.id in (select polRes.policyId from XXPolicyResource polRes, XXPolicyResourceMap resMap"
+						+ " where resMap.resourceId = polRes.id and LOWER(resMap.value) like :" + SearchFilter.POL_RESOURCE + ")"));
+
 		sortFields.add(new SortField(SearchFilter.CREATE_TIME, "obj.createTime"));
 		sortFields.add(new SortField(SearchFilter.UPDATE_TIME, "obj.updateTime"));
 		sortFields.add(new SortField(SearchFilter.POLICY_ID, "obj.id", true, SORT_ORDER.ASC));
 		sortFields.add(new SortField(SearchFilter.POLICY_NAME, "obj.name"));
 	}
 
+	/**
+	 * @return true if all search params of the filter can be evaluated with paginatedSearchFields
+	 */
+	public boolean isPaginatedSearchSupported(SearchFilter filter) {
+		Map<String, String> params = filter == null ? null : filter.getParams();
+
+		if (params != null) {
+			for (String paramName : params.keySet()) {
+				if (!PAGINATED_SEARCH_PARAMS.contains(paramName)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static SearchField customSearchField(String clientFieldName, DATA_TYPE dataType, SEARCH_TYPE searchType, String customCondition) {
+		SearchField ret = new SearchField(clientFieldName, null, dataType, searchType);
+
+		ret.setCustomCondition(customCondition);
+
+		return ret;
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	protected XXPolicyBase mapViewToEntityBean(RangerPolicy vObj, XXPolicyBase xObj, int OPERATION_CONTEXT) {
@@ -21,9 +21,12 @@
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.AppConstants;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
@@ -130,6 +133,56 @@ public class XGroupService extends XGroupServiceBase<XXGroup, VXGroup> {
 		return vxGroup;
 	}
 
+	/**
+	 * Creates the given groups, or updates them if they already exist, with one lookup and one
+	 * batched insert for the whole collection.
+	 *
+	 * @return the groups, keyed by name
+	 */
+	public Map<String, XXGroup> createOrUpdateXGroupsWithOutLogin(Collection<VXGroup> vxGroups) {
+		Map<String, XXGroup> ret = new HashMap<String, XXGroup>();
+
+		if (CollectionUtils.isEmpty(vxGroups)) {
+			return ret;
+		}
+
+		List<String> names = new ArrayList<String>(vxGroups.size());
+
+		for (VXGroup vxGroup : vxGroups) {
+			names.add(vxGroup.getName());
+		}
+
+		for (XXGroup xxGroup : rangerDaoManager.getXXGroup().findByGroupNames(names)) {
+			ret.put(xxGroup.getName(), xxGroup);
+		}
+
+		boolean       setAuditUser = rangerDaoManager.getXXPortalUser().getById(createdByUserId) != null;
+		List<XXGroup> newGroups    = new ArrayList<XXGroup>();
+
+		for (VXGroup vxGroup : vxGroups) {
+			XXGroup xxGroup = ret.get(vxGroup.getName());
+
+			if (xxGroup == null) {
+				xxGroup = new XXGroup();
+
+				newGroups.add(xxGroup);
+			}
+
+			xxGroup = mapViewToEntityBean(vxGroup, xxGroup, 0);
+
+			if (setAuditUser) {
+				xxGroup.setAddedByUserId(createdByUserId);
+				xxGroup.setUpdatedByUserId(createdByUserId);
+			}
+
+			ret.put(xxGroup.getName(), xxGroup);
+		}
+
+		getDao().batchCreate(newGroups);
+
+		return ret;
+	}
+
 	public VXGroup readResourceWithOutLogin(Long id) {
 		XXGroup resource = getDao().getById(id);
 		if (resource == null) {
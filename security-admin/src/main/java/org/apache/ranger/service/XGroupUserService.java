@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.common.AppConstants;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
@@ -97,6 +98,33 @@ public class XGroupUserService extends
 		return vxGroupUser;
 	}
 
+	/**
+	 * Creates the given group memberships with one batched insert. Unlike
+	 * createXGroupUserWithOutLogin(), parentGroupId and userId must already be set.
+	 */
+	public List<XXGroupUser> createXGroupUsersWithOutLogin(List<VXGroupUser> vxGroupUsers) {
+		List<XXGroupUser> ret = new ArrayList<XXGroupUser>();
+
+		if (CollectionUtils.isEmpty(vxGroupUsers)) {
+			return ret;
+		}
+
+		boolean setAuditUser = rangerDaoManager.getXXPortalUser().getById(createdByUserId) != null;
+
+		for (VXGroupUser vxGroupUser : vxGroupUsers) {
+			XXGroupUser xxGroupUser = mapViewToEntityBean(vxGroupUser, new XXGroupUser(), 0);
+
+			if (setAuditUser) {
+				xxGroupUser.setAddedByUserId(createdByUserId);
+				xxGroupUser.setUpdatedByUserId(createdByUserId);
+			}
+
+			ret.add(xxGroupUser);
+		}
+
+		return getDao().batchCreate(ret);
+	}
+
 	public VXGroupUser readResourceWithOutLogin(Long id) {
 		XXGroupUser resource = getDao().getById(id);
 		if (resource == null) {
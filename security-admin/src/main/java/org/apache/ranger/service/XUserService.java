@@ -21,11 +21,14 @@
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.common.AppConstants;
 import org.apache.ranger.common.MessageEnums;
@@ -183,6 +186,57 @@ public class XUserService extends XUserServiceBase<XXUser, VXUser> {
 		return vxUser;
 	}
 
+	/**
+	 * Creates the given users, or updates them if they already exist, with one lookup and one
+	 * batched insert for the whole collection. Existing users are updated in place and written
+	 * out when the transaction is flushed.
+	 *
+	 * @return the users, keyed by name
+	 */
+	public Map<String, XXUser> createOrUpdateXUsersWithOutLogin(Collection<VXUser> vxUsers) {
+		Map<String, XXUser> ret = new HashMap<String, XXUser>();
+
+		if (CollectionUtils.isEmpty(vxUsers)) {
+			return ret;
+		}
+
+		List<String> names = new ArrayList<String>(vxUsers.size());
+
+		for (VXUser vxUser : vxUsers) {
+			names.add(vxUser.getName());
+		}
+
+		for (XXUser xxUser : daoManager.getXXUser().findByUserNames(names)) {
+			ret.put(xxUser.getName(), xxUser);
+		}
+
+		boolean      setAuditUser = daoManager.getXXPortalUser().getById(createdByUserId) != null;
+		List<XXUser> newUsers     = new ArrayList<XXUser>();
+
+		for (VXUser vxUser : vxUsers) {
+			XXUser xxUser = ret.get(vxUser.getName());
+
+			if (xxUser == null) {
+				xxUser = new XXUser();
+
+				newUsers.add(xxUser);
+			}
+
+			xxUser = mapViewToEntityBean(vxUser, xxUser, 0);
+
+			if (setAuditUser) {
+				xxUser.setAddedByUserId(createdByUserId);
+				xxUser.setUpdatedByUserId(createdByUserId);
+			}
+
+			ret.put(xxUser.getName(), xxUser);
+		}
+
+		getDao().batchCreate(newUsers);
+
+		return ret;
+	}
+
 	public VXUser readResourceWithOutLogin(Long id) {
 		XXUser resource = getDao().getById(id);
 		if (resource == null) {
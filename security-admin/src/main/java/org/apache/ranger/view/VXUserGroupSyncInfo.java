@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+ package org.apache.ranger.view;
+
+/**
+ * UserGroupSyncInfo: a batch of user, group and group-membership changes sent by usersync
+ *
+ */
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonAutoDetect.Visibility;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+@JsonAutoDetect(getterVisibility=Visibility.NONE, setterVisibility=Visibility.NONE, fieldVisibility=Visibility.ANY)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL )
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+public class VXUserGroupSyncInfo extends VXDataObject implements java.io.Serializable  {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Users to create or update, each with the groups to create or update and add the user to
+	 */
+	List<VXUserGroupInfo> addOrUpdateUserGroups;
+	/**
+	 * Users, each with the groups to remove the user from
+	 */
+	List<VXUserGroupInfo> deleteUserGroups;
+	/**
+	 * Groups to create or update, independent of their members
+	 */
+	List<VXGroup> addOrUpdateGroups;
+
+	public VXUserGroupSyncInfo ( ) {
+	}
+
+	public List<VXUserGroupInfo> getAddOrUpdateUserGroups() {
+		return addOrUpdateUserGroups;
+	}
+
+	public void setAddOrUpdateUserGroups(List<VXUserGroupInfo> addOrUpdateUserGroups) {
+		this.addOrUpdateUserGroups = addOrUpdateUserGroups;
+	}
+
+	public List<VXUserGroupInfo> getDeleteUserGroups() {
+		return deleteUserGroups;
+	}
+
+	public void setDeleteUserGroups(List<VXUserGroupInfo> deleteUserGroups) {
+		this.deleteUserGroups = deleteUserGroups;
+	}
+
+	public List<VXGroup> getAddOrUpdateGroups() {
+		return addOrUpdateGroups;
+	}
+
+	public void setAddOrUpdateGroups(List<VXGroup> addOrUpdateGroups) {
+		this.addOrUpdateGroups = addOrUpdateGroups;
+	}
+
+}
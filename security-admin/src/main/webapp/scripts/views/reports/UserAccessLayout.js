@@ -479,6 +479,8 @@ define(function(require) {'use strict';
 				url = url + urlString;
 				if (e === "xlsFormat") {
 						url = url + '/service/plugins/policies/downloadExcel?';
+				} else if (e === "jsonFormat") {
+						url = url + '/service/plugins/policies/exportJson?';
 				} else {
 						url = url + '/service/plugins/policies/csv?';
 				}
@@ -743,6 +745,14 @@ define(function(require) {'use strict';
 					}
 				}
 				this.previousSearchUrl = urlString + "/service/plugins/policies/downloadExcel?";
+			} else if(el.data('id') === "jsonFormat") {
+				if(!that.searchedFlag) {
+					var urlString = XAUtil.getBaseUrl();
+					if(urlString.slice(-1) === "/") {
+						urlString = urlString.slice(0,-1);
+					}
+					this.previousSearchUrl = urlString + "/service/plugins/policies/exportJson?";
+				}
 			} else {
 				if(!that.searchedFlag) {
 					var urlString = XAUtil.getBaseUrl();
@@ -17,6 +17,8 @@
 
 package org.apache.ranger.biz;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -24,7 +26,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.persistence.EntityManager;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.ranger.common.ContextUtil;
+import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RangerFactory;
 import org.apache.ranger.common.StringUtil;
 import org.apache.ranger.common.UserSessionBase;
@@ -64,6 +72,9 @@ import org.apache.ranger.view.RangerServiceDefList;
 import org.apache.ranger.view.RangerServiceList;
 import org.apache.ranger.view.VXString;
 import org.apache.ranger.view.VXUser;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Rule;
@@ -74,12 +85,15 @@ import org.junit.runners.MethodSorters;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class TestServiceDBStore {
 	private static Long Id = 8L;
+	private static final String POLICY_EXPORT_PAGE_SIZE_PROP = "ranger.admin.policy.export.page.size";
 
 	@InjectMocks
 	ServiceDBStore serviceDBStore = new ServiceDBStore();
@@ -2803,4 +2817,203 @@ public class TestServiceDBStore {
 		//Assert.assertNull(policy);
 		Assert.assertEquals(3, policy.getPolicyItems().size());
 	}
+
+	@Test
+	public void test42getPoliciesInCSV() throws Exception {
+		RangerPolicy rangerPolicy = rangerPolicy();
+		rangerPolicy.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+		rangerPolicy.getPolicyItems().get(0).getUsers().add("user1");
+		rangerPolicy.getPolicyItems().get(0).getAccesses().add(new RangerPolicyItemAccess("read", true));
+
+		List<RangerPolicy> policies = new ArrayList<RangerPolicy>();
+		policies.add(rangerPolicy);
+
+		XXServiceDao xServiceDao = Mockito.mock(XXServiceDao.class);
+		XXServiceDefDao xServiceDefDao = Mockito.mock(XXServiceDefDao.class);
+		XXService xService = xService();
+		XXServiceDef xServiceDef = serviceDef();
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+		Mockito.when(xServiceDao.findByName(rangerPolicy.getService())).thenReturn(xService);
+		Mockito.when(daoManager.getXXServiceDef()).thenReturn(xServiceDefDao);
+		Mockito.when(xServiceDefDao.getById(xService.getType())).thenReturn(xServiceDef);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+		Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+
+		serviceDBStore.getPoliciesInCSV(policies, response);
+
+		String[] lines = out.toString("UTF-8").split("\n");
+		Assert.assertEquals(2, lines.length);
+		Assert.assertEquals("ID|Name|Resources|Groups|Users|Accesses|Service Type|Status", lines[0]);
+		Assert.assertTrue(lines[1].startsWith(rangerPolicy.getId() + "|" + rangerPolicy.getName() + "|"));
+		Assert.assertTrue(lines[1].contains("|user1|read|"));
+		Mockito.verify(response).setContentType("text/csv");
+	}
+
+	@Test
+	public void test43getPaginatedPoliciesForUserSearchesDirectGrantsInDb() throws Exception {
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.USER, "user1");
+
+		XXGroupUserDao xGroupUserDao = Mockito.mock(XXGroupUserDao.class);
+		Mockito.when(daoManager.getXXGroupUser()).thenReturn(xGroupUserDao);
+		Mockito.when(policyService.isPaginatedSearchSupported(filter)).thenCallRealMethod();
+		Mockito.when(policyService.searchResources(Mockito.eq(filter), Mockito.anyList(), Mockito.anyList(), Mockito.any(RangerPolicyList.class)))
+				.thenReturn(new ArrayList<XXPolicy>());
+
+		PList<RangerPolicy> dbRangerPolicyList = serviceDBStore.getPaginatedPolicies(filter);
+
+		Assert.assertTrue(dbRangerPolicyList.getList().isEmpty());
+		// like the in-memory user predicate, only policies granted to the user by name match
+		Mockito.verify(xGroupUserDao, Mockito.never()).findGroupNamesByUserName(Mockito.anyString());
+		Mockito.verify(policyService).searchResources(Mockito.eq(filter), Mockito.eq(policyService.paginatedSearchFields), Mockito.anyList(), Mockito.any(RangerPolicyList.class));
+	}
+
+	@Test
+	public void test44getPoliciesInJsonPagedOnPolicyId() throws Exception {
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.SERVICE_NAME, "HDFS_1");
+
+		EntityManager entityManager = mockPolicyExport(filter, 3, -1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		PropertiesUtil.getPropertiesMap().put(POLICY_EXPORT_PAGE_SIZE_PROP, "2");
+		try {
+			serviceDBStore.getPoliciesInJson(filter, mockResponse(out));
+		} finally {
+			PropertiesUtil.getPropertiesMap().remove(POLICY_EXPORT_PAGE_SIZE_PROP);
+		}
+
+		JsonNode policies = new ObjectMapper().readTree(out.toString("UTF-8")).get("policies");
+		Assert.assertEquals(3, policies.size());
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(i + 1, policies.get(i).get("id").getLongValue());
+		}
+		// one query per page, each following page starting after the last id of the previous one
+		Mockito.verify(policyService, Mockito.times(2)).searchResources(Mockito.any(SearchFilter.class), Mockito.anyList(), Mockito.anyList(), Mockito.any(RangerPolicyList.class));
+		Mockito.verify(entityManager).clear();
+	}
+
+	@Test
+	public void test45getPoliciesInJsonFailureIsNotHidden() throws Exception {
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.SERVICE_NAME, "HDFS_1");
+
+		mockPolicyExport(filter, 3, 2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		PropertiesUtil.getPropertiesMap().put(POLICY_EXPORT_PAGE_SIZE_PROP, "2");
+		try {
+			serviceDBStore.getPoliciesInJson(filter, mockResponse(out));
+			Assert.fail("export failure was not reported");
+		} catch (RuntimeException excp) {
+			Assert.assertEquals("database failure", excp.getMessage());
+		} finally {
+			PropertiesUtil.getPropertiesMap().remove(POLICY_EXPORT_PAGE_SIZE_PROP);
+		}
+
+		// the policies written before the failure are not completed into a valid document
+		String json = out.toString("UTF-8");
+		Assert.assertTrue(json.contains("\"id\":2"));
+		try {
+			new ObjectMapper().readTree(json);
+			Assert.fail("partial export is a valid document");
+		} catch (JsonProcessingException excp) {
+			// expected
+		}
+	}
+
+	/*
+	 * Returns policies 1..policyCount of service 'Id', a page at a time, for the keyset-paged export;
+	 * the query for the page after policy 'failAfterId' fails.
+	 */
+	private EntityManager mockPolicyExport(SearchFilter filter, final int policyCount, final long failAfterId) {
+		XXServiceDao xServiceDao = Mockito.mock(XXServiceDao.class);
+		EntityManager entityManager = Mockito.mock(EntityManager.class);
+		XXPolicyResourceDao xXPolicyResourceDao = Mockito.mock(XXPolicyResourceDao.class);
+		XXPolicyResourceMapDao xXPolicyResourceMapDao = Mockito.mock(XXPolicyResourceMapDao.class);
+		XXPolicyItemDao xXPolicyItemDao = Mockito.mock(XXPolicyItemDao.class);
+		XXPolicyItemUserPermDao xXPolicyItemUserPermDao = Mockito.mock(XXPolicyItemUserPermDao.class);
+		XXPolicyItemGroupPermDao xXPolicyItemGroupPermDao = Mockito.mock(XXPolicyItemGroupPermDao.class);
+		XXPolicyItemAccessDao xXPolicyItemAccessDao = Mockito.mock(XXPolicyItemAccessDao.class);
+		XXPolicyItemConditionDao xXPolicyItemConditionDao = Mockito.mock(XXPolicyItemConditionDao.class);
+		XXPolicyItemDataMaskInfoDao xXPolicyItemDataMaskInfoDao = Mockito.mock(XXPolicyItemDataMaskInfoDao.class);
+		XXPolicyItemRowFilterInfoDao xXPolicyItemRowFilterInfoDao = Mockito.mock(XXPolicyItemRowFilterInfoDao.class);
+		XXService xService = xService();
+
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+		Mockito.when(xServiceDao.getById(Id)).thenReturn(xService);
+		Mockito.when(daoManager.getXXPolicyResource()).thenReturn(xXPolicyResourceDao);
+		Mockito.when(daoManager.getXXPolicyResourceMap()).thenReturn(xXPolicyResourceMapDao);
+		Mockito.when(daoManager.getXXPolicyItem()).thenReturn(xXPolicyItemDao);
+		Mockito.when(daoManager.getXXPolicyItemUserPerm()).thenReturn(xXPolicyItemUserPermDao);
+		Mockito.when(daoManager.getXXPolicyItemGroupPerm()).thenReturn(xXPolicyItemGroupPermDao);
+		Mockito.when(daoManager.getXXPolicyItemAccess()).thenReturn(xXPolicyItemAccessDao);
+		Mockito.when(daoManager.getXXPolicyItemCondition()).thenReturn(xXPolicyItemConditionDao);
+		Mockito.when(daoManager.getXXPolicyItemDataMaskInfo()).thenReturn(xXPolicyItemDataMaskInfoDao);
+		Mockito.when(daoManager.getXXPolicyItemRowFilterInfo()).thenReturn(xXPolicyItemRowFilterInfoDao);
+		Mockito.when(daoManager.getEntityManager()).thenReturn(entityManager);
+
+		Mockito.when(policyService.isPaginatedSearchSupported(filter)).thenReturn(true);
+		Mockito.when(policyService.searchResources(Mockito.any(SearchFilter.class), Mockito.anyList(), Mockito.anyList(), Mockito.any(RangerPolicyList.class)))
+				.thenAnswer(new Answer<List<XXPolicy>>() {
+					@Override
+					public List<XXPolicy> answer(InvocationOnMock invocation) {
+						SearchFilter pageFilter = (SearchFilter) invocation.getArguments()[0];
+						String       idAfter    = pageFilter.getParam(SearchFilter.POLICY_ID_AFTER);
+						long         startId    = idAfter == null ? 1 : Long.parseLong(idAfter) + 1;
+
+						if (startId - 1 == failAfterId) {
+							throw new RuntimeException("database failure");
+						}
+
+						List<XXPolicy> ret = new ArrayList<XXPolicy>();
+						for (long id = startId; id <= policyCount && ret.size() < pageFilter.getMaxRows(); id++) {
+							XXPolicy xPolicy = new XXPolicy();
+							xPolicy.setId(id);
+							xPolicy.setService(Id);
+							xPolicy.setName("policy-" + id);
+							ret.add(xPolicy);
+						}
+						return ret;
+					}
+				});
+
+		return entityManager;
+	}
+
+	private HttpServletResponse mockResponse(final ByteArrayOutputStream out) throws IOException {
+		HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+		Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		});
+		return response;
+	}
 }
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.biz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.apache.ranger.common.GUIDUtil;
+import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXResourceDefDao;
+import org.apache.ranger.db.XXServiceDao;
+import org.apache.ranger.db.XXServiceResourceDao;
+import org.apache.ranger.db.XXServiceResourceElementDao;
+import org.apache.ranger.db.XXServiceResourceElementValueDao;
+import org.apache.ranger.db.XXServiceVersionInfoDao;
+import org.apache.ranger.db.XXTagAttributeDao;
+import org.apache.ranger.db.XXTagAttributeDefDao;
+import org.apache.ranger.db.XXTagChangeLogDao;
+import org.apache.ranger.db.XXTagDao;
+import org.apache.ranger.db.XXTagDefDao;
+import org.apache.ranger.db.XXTagResourceMapDao;
+import org.apache.ranger.entity.XXDBBase;
+import org.apache.ranger.entity.XXResourceDef;
+import org.apache.ranger.entity.XXService;
+import org.apache.ranger.entity.XXServiceResource;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.apache.ranger.entity.XXTag;
+import org.apache.ranger.entity.XXTagChangeLog;
+import org.apache.ranger.entity.XXTagDef;
+import org.apache.ranger.entity.XXTagResourceMap;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.store.RangerServiceResourceSignature;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.service.RangerAuditFields;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TestTagDBStore {
+	private static final Long SERVICE_ID  = 10L;
+	private static final Long RESOURCE_ID = 100L;
+	private static final Long TAG_ID      = 200L;
+	private static final Long TAG_DEF_ID  = 7L;
+
+	@InjectMocks
+	TagDBStore tagDBStore = new TagDBStore();
+
+	@Mock
+	RangerDaoManager daoManager;
+
+	@Mock
+	RESTErrorUtil errorUtil;
+
+	@Mock
+	RangerAuditFields<XXDBBase> rangerAuditFields;
+
+	@Mock
+	GUIDUtil guidUtil;
+
+	@Mock
+	PlatformTransactionManager bulkTxManager;
+
+	@Mock
+	EntityManager entityManager;
+
+	@Mock
+	XXServiceDao xServiceDao;
+
+	@Mock
+	XXResourceDefDao xResourceDefDao;
+
+	@Mock
+	XXTagDefDao xTagDefDao;
+
+	@Mock
+	XXServiceResourceDao xServiceResourceDao;
+
+	@Mock
+	XXServiceResourceElementDao xServiceResourceElementDao;
+
+	@Mock
+	XXServiceResourceElementValueDao xServiceResourceElementValueDao;
+
+	@Mock
+	XXTagDao xTagDao;
+
+	@Mock
+	XXTagAttributeDao xTagAttributeDao;
+
+	@Mock
+	XXTagResourceMapDao xTagResourceMapDao;
+
+	@Mock
+	XXServiceVersionInfoDao xServiceVersionInfoDao;
+
+	@Mock
+	XXTagChangeLogDao xTagChangeLogDao;
+
+	@Mock
+	XXTagAttributeDefDao xTagAttributeDefDao;
+
+	@Before
+	public void setUp() {
+		XXService     xService     = new XXService();
+		XXResourceDef xResourceDef = new XXResourceDef();
+		XXTagDef      xTagDef      = new XXTagDef();
+
+		xService.setId(SERVICE_ID);
+		xService.setType(1L);
+		xResourceDef.setId(5L);
+		xTagDef.setId(TAG_DEF_ID);
+
+		Mockito.when(daoManager.getEntityManager()).thenReturn(entityManager);
+		Mockito.when(daoManager.getXXService()).thenReturn(xServiceDao);
+		Mockito.when(daoManager.getXXResourceDef()).thenReturn(xResourceDefDao);
+		Mockito.when(daoManager.getXXTagDef()).thenReturn(xTagDefDao);
+		Mockito.when(daoManager.getXXServiceResource()).thenReturn(xServiceResourceDao);
+		Mockito.when(daoManager.getXXServiceResourceElement()).thenReturn(xServiceResourceElementDao);
+		Mockito.when(daoManager.getXXServiceResourceElementValue()).thenReturn(xServiceResourceElementValueDao);
+		Mockito.when(daoManager.getXXTag()).thenReturn(xTagDao);
+		Mockito.when(daoManager.getXXTagAttribute()).thenReturn(xTagAttributeDao);
+		Mockito.when(daoManager.getXXTagResourceMap()).thenReturn(xTagResourceMapDao);
+		Mockito.when(daoManager.getXXServiceVersionInfo()).thenReturn(xServiceVersionInfoDao);
+		Mockito.when(daoManager.getXXTagChangeLog()).thenReturn(xTagChangeLogDao);
+		Mockito.when(daoManager.getXXTagAttributeDef()).thenReturn(xTagAttributeDefDao);
+
+		Mockito.when(xServiceDao.findByName("hdfsdev")).thenReturn(xService);
+		Mockito.when(xResourceDefDao.findByNameAndServiceDefId("path", 1L)).thenReturn(xResourceDef);
+		Mockito.when(xTagDefDao.findByName("PII")).thenReturn(xTagDef);
+		Mockito.when(guidUtil.genGUID()).thenReturn("generated-guid");
+	}
+
+	@Test
+	public void testAddOrUpdateInBulkCreatesResourceAndTag() throws Exception {
+		Mockito.when(xServiceResourceDao.batchCreate(Mockito.<List<XXServiceResource>>any())).thenAnswer(new AssignIds<XXServiceResource>(RESOURCE_ID));
+		Mockito.when(xTagDao.batchCreate(Mockito.<List<XXTag>>any())).thenAnswer(new AssignIds<XXTag>(TAG_ID));
+
+		tagDBStore.addOrUpdateServiceTagsInBulk(createServiceTags(Collections.singletonList(1L)));
+
+		// written through the entity manager of bulkPU, in a transaction of its own
+		InOrder inOrder = Mockito.inOrder(bulkTxManager, daoManager, xServiceResourceDao);
+
+		inOrder.verify(bulkTxManager).getTransaction(Mockito.any(TransactionDefinition.class));
+		inOrder.verify(daoManager).setBulkWriteEnabled(true);
+		inOrder.verify(xServiceResourceDao).batchCreate(Mockito.<List<XXServiceResource>>any());
+		inOrder.verify(daoManager).setBulkWriteEnabled(false);
+		inOrder.verify(bulkTxManager).commit(Mockito.any(TransactionStatus.class));
+
+		ArgumentCaptor<List> mapsCaptor = ArgumentCaptor.forClass(List.class);
+
+		Mockito.verify(xTagResourceMapDao).batchCreate(mapsCaptor.capture());
+
+		List<?> maps = mapsCaptor.getValue();
+
+		Assert.assertEquals(1, maps.size());
+		Assert.assertEquals(TAG_ID, ((XXTagResourceMap) maps.get(0)).getTagId());
+		Assert.assertEquals(RESOURCE_ID, ((XXTagResourceMap) maps.get(0)).getResourceId());
+
+		Mockito.verify(xServiceVersionInfoDao, Mockito.times(1)).updateServiceVersionInfoForServiceTagsUpdate(Mockito.eq(SERVICE_ID), Mockito.any(Date.class),
+				Mockito.eq(Collections.singleton(RESOURCE_ID)), (Collection<Long>) Mockito.isNull());
+		Mockito.verify(xServiceVersionInfoDao, Mockito.never()).updateServiceVersionInfoForServiceResourceUpdate(Mockito.anyLong(), Mockito.any(Date.class));
+	}
+
+	@Test
+	public void testAddOrUpdateInBulkRemovesStalePrivateTag() throws Exception {
+		ServiceTags       serviceTags = createServiceTags(new ArrayList<Long>());
+		XXServiceResource existing    = new XXServiceResource();
+		XXTag             staleTag    = new XXTag();
+		XXTagResourceMap  staleMap    = new XXTagResourceMap();
+
+		existing.setId(RESOURCE_ID);
+		existing.setGuid("res-1");
+		existing.setServiceId(SERVICE_ID);
+		existing.setResourceSignature(new RangerServiceResourceSignature(serviceTags.getServiceResources().get(0)).getSignature());
+
+		staleTag.setId(TAG_ID);
+		staleTag.setType(TAG_DEF_ID);
+		staleTag.setOwner(RangerTag.OWNER_SERVICERESOURCE);
+
+		staleMap.setId(300L);
+		staleMap.setTagId(TAG_ID);
+		staleMap.setResourceId(RESOURCE_ID);
+
+		Mockito.when(xServiceResourceDao.findByGuids(Collections.singletonList("res-1"))).thenReturn(Collections.singletonList(existing));
+		Mockito.when(xTagDao.findByResourceIds(Collections.singletonList(RESOURCE_ID))).thenReturn(Collections.singletonList(staleTag));
+		Mockito.when(xTagResourceMapDao.findByResourceIds(Collections.singletonList(RESOURCE_ID))).thenReturn(Collections.singletonList(staleMap));
+
+		tagDBStore.addOrUpdateServiceTagsInBulk(serviceTags);
+
+		Mockito.verify(xTagResourceMapDao).deleteByIds(Collections.singletonList(300L));
+		Mockito.verify(xTagDao).deleteByIds(Collections.singletonList(TAG_ID));
+		Mockito.verify(xServiceResourceElementDao, Mockito.never()).deleteByResourceIds(Mockito.<List<Long>>any());
+		Mockito.verify(xServiceVersionInfoDao, Mockito.times(1)).updateServiceVersionInfoForServiceTagsUpdate(Mockito.eq(SERVICE_ID), Mockito.any(Date.class),
+				Mockito.eq(Collections.singleton(RESOURCE_ID)), (Collection<Long>) Mockito.isNull());
+	}
+
+	@Test
+	public void testAddOrUpdateInBulkFailureIsRolledBack() throws Exception {
+		Mockito.when(xServiceResourceDao.findByGuids(Mockito.<List<String>>any())).thenThrow(new RuntimeException("database failure"));
+
+		try {
+			tagDBStore.addOrUpdateServiceTagsInBulk(createServiceTags(Collections.singletonList(1L)));
+			Assert.fail("bulk import failure was not reported");
+		} catch (RuntimeException excp) {
+			Assert.assertEquals("database failure", excp.getMessage());
+		}
+
+		Mockito.verify(daoManager).setBulkWriteEnabled(false);
+		Mockito.verify(bulkTxManager).rollback(Mockito.any(TransactionStatus.class));
+		Mockito.verify(bulkTxManager, Mockito.never()).commit(Mockito.any(TransactionStatus.class));
+	}
+
+	@Test
+	public void testGetServiceTagsDeltaReturnsChangedResource() throws Exception {
+		XXServiceResource xResource = new XXServiceResource();
+		XXTag             xTag      = new XXTag();
+		XXTagDef          xTagDef   = new XXTagDef();
+		XXTagResourceMap  xMap      = new XXTagResourceMap();
+
+		xResource.setId(RESOURCE_ID);
+		xResource.setServiceId(SERVICE_ID);
+		xTag.setId(TAG_ID);
+		xTag.setType(TAG_DEF_ID);
+		xTagDef.setId(TAG_DEF_ID);
+		xTagDef.setName("PII");
+		xMap.setTagId(TAG_ID);
+		xMap.setResourceId(RESOURCE_ID);
+
+		Mockito.when(xServiceVersionInfoDao.findByServiceId(SERVICE_ID)).thenReturn(createServiceVersionInfo(6L));
+		Mockito.when(xTagChangeLogDao.findByServiceIdAndVersionRange(SERVICE_ID, 5L, 6L)).thenReturn(Collections.singletonList(
+				createChangeLog(6L, XXTagChangeLog.CHANGE_TYPE_SERVICE_RESOURCE, RESOURCE_ID)));
+		Mockito.when(xServiceResourceDao.getById(RESOURCE_ID)).thenReturn(xResource);
+		Mockito.when(xTagResourceMapDao.findByResourceIds(Collections.singletonList(RESOURCE_ID))).thenReturn(Collections.singletonList(xMap));
+		Mockito.when(xTagDao.getById(TAG_ID)).thenReturn(xTag);
+		Mockito.when(xTagDefDao.getById(TAG_DEF_ID)).thenReturn(xTagDef);
+
+		ServiceTags delta = tagDBStore.getServiceTagsDelta("hdfsdev", 5L);
+
+		Assert.assertNotNull(delta);
+		Assert.assertEquals(Long.valueOf(6L), delta.getTagVersion());
+		Assert.assertEquals(1, delta.getServiceResources().size());
+		Assert.assertEquals(Collections.singletonList(TAG_ID), delta.getResourceToTagIds().get(RESOURCE_ID));
+		Assert.assertEquals("PII", delta.getTags().get(TAG_ID).getType());
+	}
+
+	@Test
+	public void testGetServiceTagsDeltaFallsBackToFullReload() throws Exception {
+		Mockito.when(xServiceVersionInfoDao.findByServiceId(SERVICE_ID)).thenReturn(createServiceVersionInfo(7L));
+
+		// version 6 has no change-log, e.g. it was purged
+		Mockito.when(xTagChangeLogDao.findByServiceIdAndVersionRange(SERVICE_ID, 5L, 7L)).thenReturn(Collections.singletonList(
+				createChangeLog(7L, XXTagChangeLog.CHANGE_TYPE_SERVICE_RESOURCE, RESOURCE_ID)));
+
+		Assert.assertNull(tagDBStore.getServiceTagsDelta("hdfsdev", 5L));
+
+		// a change to the whole service, like a tag-def update
+		Mockito.when(xTagChangeLogDao.findByServiceIdAndVersionRange(SERVICE_ID, 6L, 7L)).thenReturn(Collections.singletonList(
+				createChangeLog(7L, XXTagChangeLog.CHANGE_TYPE_SERVICE, null)));
+
+		Assert.assertNull(tagDBStore.getServiceTagsDelta("hdfsdev", 6L));
+
+		Mockito.verify(xServiceResourceDao, Mockito.never()).getById(Mockito.anyLong());
+	}
+
+	private XXServiceVersionInfo createServiceVersionInfo(Long tagVersion) {
+		XXServiceVersionInfo ret = new XXServiceVersionInfo();
+
+		ret.setServiceId(SERVICE_ID);
+		ret.setTagVersion(tagVersion);
+
+		return ret;
+	}
+
+	private XXTagChangeLog createChangeLog(Long version, int changeType, Long resourceId) {
+		XXTagChangeLog ret = new XXTagChangeLog();
+
+		ret.setServiceId(SERVICE_ID);
+		ret.setServiceTagsVersion(version);
+		ret.setChangeType(changeType);
+		ret.setServiceResourceId(resourceId);
+
+		return ret;
+	}
+
+	private ServiceTags createServiceTags(List<Long> tagIds) {
+		RangerServiceResource resource = new RangerServiceResource();
+		RangerTag             tag      = new RangerTag("PII", new HashMap<String, String>());
+
+		resource.setId(1L);
+		resource.setGuid("res-1");
+		resource.setServiceName("hdfsdev");
+		resource.setResourceElements(Collections.singletonMap("path", new RangerPolicyResource("/finance")));
+
+		tag.setId(1L);
+		tag.setGuid("tag-1");
+
+		Map<Long, RangerTag>  tags             = new HashMap<Long, RangerTag>();
+		Map<Long, List<Long>> resourceToTagIds = new HashMap<Long, List<Long>>();
+
+		tags.put(1L, tag);
+		resourceToTagIds.put(1L, tagIds);
+
+		ServiceTags ret = new ServiceTags();
+
+		ret.setServiceName("hdfsdev");
+		ret.setServiceResources(Collections.singletonList(resource));
+		ret.setTags(tags);
+		ret.setResourceToTagIds(resourceToTagIds);
+
+		return ret;
+	}
+
+	private static class AssignIds<T extends XXDBBase> implements Answer<List<T>> {
+		private long nextId;
+
+		AssignIds(long firstId) {
+			this.nextId = firstId;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public List<T> answer(InvocationOnMock invocation) {
+			List<T> objs = (List<T>) invocation.getArguments()[0];
+
+			for (T obj : objs) {
+				obj.setId(nextId++);
+			}
+
+			return objs;
+		}
+	}
+}
@@ -17,6 +17,7 @@
 package org.apache.ranger.biz;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -48,6 +49,7 @@ import org.apache.ranger.entity.XXAuthSession;
 import org.apache.ranger.entity.XXGroup;
 import org.apache.ranger.entity.XXGroupGroup;
 import org.apache.ranger.entity.XXGroupPermission;
+import org.apache.ranger.entity.XXGroupUser;
 import org.apache.ranger.entity.XXModuleDef;
 import org.apache.ranger.entity.XXPolicy;
 import org.apache.ranger.entity.XXPortalUser;
@@ -83,6 +85,7 @@ import org.apache.ranger.view.VXPortalUser;
 import org.apache.ranger.view.VXStringList;
 import org.apache.ranger.view.VXUser;
 import org.apache.ranger.view.VXUserGroupInfo;
+import org.apache.ranger.view.VXUserGroupSyncInfo;
 import org.apache.ranger.view.VXUserList;
 import org.apache.ranger.view.VXUserPermission;
 import org.apache.ranger.view.VXString;
@@ -93,10 +96,15 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 
 @RunWith(MockitoJUnitRunner.class)
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -165,6 +173,9 @@ public class TestXUserMgr {
 
 	@Mock
 	ServiceDBStore svcStore;
+
+	@Mock
+	PlatformTransactionManager bulkTxManager;
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
 
@@ -1810,4 +1821,122 @@ public class TestXUserMgr {
 				.getLoginId());
 		Assert.assertNotNull(vXStringList);
 	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void test49CreateOrUpdateXUserGroupsInBulk() {
+		setup();
+		XXUserDao xxUserDao = Mockito.mock(XXUserDao.class);
+		XXGroupDao xxGroupDao = Mockito.mock(XXGroupDao.class);
+		XXGroupUserDao xxGroupUserDao = Mockito.mock(XXGroupUserDao.class);
+		XXModuleDefDao xxModuleDefDao = Mockito.mock(XXModuleDefDao.class);
+
+		XXUser user1 = xxUser(1L, "user1");
+		XXUser user2 = xxUser(2L, "user2");
+		XXGroup group1 = xxGroup(10L, "group1");
+		XXGroup group2 = xxGroup(11L, "group2");
+		XXGroup group3 = xxGroup(12L, "group3");
+
+		// user1 is already in group1 and group3
+		List<XXGroupUser> groupUsers = new ArrayList<XXGroupUser>();
+		groupUsers.add(xxGroupUser(100L, user1, group1));
+		groupUsers.add(xxGroupUser(101L, user1, group3));
+
+		Map<String, XXUser> users = new HashMap<String, XXUser>();
+		users.put("user1", user1);
+		users.put("user2", user2);
+
+		Map<String, XXGroup> groups = new HashMap<String, XXGroup>();
+		groups.put("group1", group1);
+		groups.put("group2", group2);
+
+		List<VXUserGroupInfo> addOrUpdateUserGroups = new ArrayList<VXUserGroupInfo>();
+		addOrUpdateUserGroups.add(vxUserGroupInfo("user1", "group1", "group2"));
+		addOrUpdateUserGroups.add(vxUserGroupInfo("user2", "group2"));
+
+		List<VXUserGroupInfo> deleteUserGroups = new ArrayList<VXUserGroupInfo>();
+		deleteUserGroups.add(vxUserGroupInfo("user1", "group3"));
+
+		VXUserGroupSyncInfo syncInfo = new VXUserGroupSyncInfo();
+		syncInfo.setAddOrUpdateUserGroups(addOrUpdateUserGroups);
+		syncInfo.setDeleteUserGroups(deleteUserGroups);
+
+		Mockito.when(daoManager.getXXUser()).thenReturn(xxUserDao);
+		Mockito.when(daoManager.getXXGroup()).thenReturn(xxGroupDao);
+		Mockito.when(daoManager.getXXGroupUser()).thenReturn(xxGroupUserDao);
+		Mockito.when(daoManager.getXXModuleDef()).thenReturn(xxModuleDefDao);
+		Mockito.when(xxUserDao.findByUserNames(Mockito.anyList())).thenReturn(new ArrayList<XXUser>(Arrays.asList(user1)));
+		Mockito.when(xxGroupDao.findByGroupNames(Mockito.anyList())).thenReturn(new ArrayList<XXGroup>(Arrays.asList(group3)));
+		Mockito.when(xxGroupUserDao.findByUserIds(Mockito.anyList())).thenReturn(groupUsers);
+		Mockito.when(xGroupService.createOrUpdateXGroupsWithOutLogin(Mockito.anyCollection())).thenReturn(groups);
+		Mockito.when(xUserService.createOrUpdateXUsersWithOutLogin(Mockito.anyCollection())).thenReturn(users);
+		Mockito.when(userMgr.createDefaultAccountUser((VXPortalUser) Mockito.anyObject())).thenReturn(new VXPortalUser());
+
+		VXUserGroupSyncInfo ret = xUserMgr.createOrUpdateXUserGroupsInBulk(syncInfo);
+
+		Assert.assertEquals(2, ret.getAddOrUpdateUserGroups().size());
+		Assert.assertEquals(Long.valueOf(1L), ret.getAddOrUpdateUserGroups().get(0).getXuserInfo().getId());
+		Assert.assertEquals(2, ret.getAddOrUpdateUserGroups().get(0).getXgroupInfo().size());
+
+		// only user2 is new to Ranger
+		Mockito.verify(userMgr, Mockito.times(1)).createDefaultAccountUser((VXPortalUser) Mockito.anyObject());
+
+		// user1 is added to group2 and user2 to group2; user1 is already in group1
+		ArgumentCaptor<List> groupUsersCaptor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(xGroupUserService).createXGroupUsersWithOutLogin(groupUsersCaptor.capture());
+		List<VXGroupUser> addedGroupUsers = groupUsersCaptor.getValue();
+		Assert.assertEquals(2, addedGroupUsers.size());
+		for (VXGroupUser vXGroupUser : addedGroupUsers) {
+			Assert.assertEquals(group2.getId(), vXGroupUser.getParentGroupId());
+		}
+
+		Mockito.verify(xxGroupUserDao).deleteByIds(Arrays.asList(101L));
+
+		// written in a bulkPU transaction
+		InOrder inOrder = Mockito.inOrder(bulkTxManager, daoManager, xGroupUserService);
+
+		inOrder.verify(bulkTxManager).getTransaction(Mockito.any(TransactionDefinition.class));
+		inOrder.verify(daoManager).setBulkWriteEnabled(true);
+		inOrder.verify(xGroupUserService).createXGroupUsersWithOutLogin(Mockito.anyList());
+		inOrder.verify(daoManager).setBulkWriteEnabled(false);
+		inOrder.verify(bulkTxManager).commit(Mockito.any(TransactionStatus.class));
+	}
+
+	private XXUser xxUser(Long id, String name) {
+		XXUser ret = new XXUser();
+		ret.setId(id);
+		ret.setName(name);
+		return ret;
+	}
+
+	private XXGroup xxGroup(Long id, String name) {
+		XXGroup ret = new XXGroup();
+		ret.setId(id);
+		ret.setName(name);
+		return ret;
+	}
+
+	private XXGroupUser xxGroupUser(Long id, XXUser user, XXGroup group) {
+		XXGroupUser ret = new XXGroupUser();
+		ret.setId(id);
+		ret.setUserId(user.getId());
+		ret.setParentGroupId(group.getId());
+		ret.setName(group.getName());
+		return ret;
+	}
+
+	private VXUserGroupInfo vxUserGroupInfo(String userName, String... groupNames) {
+		VXUser vXUser = new VXUser();
+		vXUser.setName(userName);
+		List<VXGroup> vXGroups = new ArrayList<VXGroup>();
+		for (String groupName : groupNames) {
+			VXGroup vXGroup = new VXGroup();
+			vXGroup.setName(groupName);
+			vXGroups.add(vXGroup);
+		}
+		VXUserGroupInfo ret = new VXUserGroupInfo();
+		ret.setXuserInfo(vXUser);
+		ret.setXgroupInfo(vXGroups);
+		return ret;
+	}
 }
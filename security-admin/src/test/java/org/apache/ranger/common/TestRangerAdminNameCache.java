@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TestRangerAdminNameCache {
+
+	private static final Long USER_ID = 1001L;
+
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		RangerAdminNameCache.getInstance().invalidate();
+	}
+
+	@Test
+	public void testRenameThenLookup() {
+		RangerAdminNameCache nameCache = RangerAdminNameCache.getInstance();
+
+		TransactionSynchronizationManager.initSynchronization();
+
+		// user1 is renamed to user2 in a transaction
+		nameCache.invalidateAfterTransaction();
+
+		// a concurrent lookup still reads the committed name from the database
+		nameCache.setUserName(USER_ID, "user1", nameCache.getChangeVersion());
+		Assert.assertEquals("user1", nameCache.getUserName(USER_ID));
+
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+
+		// after the commit, the old name is not served and the new one can be cached
+		Assert.assertNull(nameCache.getUserName(USER_ID));
+
+		nameCache.setUserName(USER_ID, "user2", nameCache.getChangeVersion());
+		Assert.assertEquals("user2", nameCache.getUserName(USER_ID));
+	}
+
+	@Test
+	public void testInvalidateWithoutTransaction() {
+		RangerAdminNameCache nameCache = RangerAdminNameCache.getInstance();
+
+		nameCache.setUserName(USER_ID, "user1", nameCache.getChangeVersion());
+		Assert.assertEquals("user1", nameCache.getUserName(USER_ID));
+
+		nameCache.invalidateAfterTransaction();
+
+		Assert.assertNull(nameCache.getUserName(USER_ID));
+	}
+}
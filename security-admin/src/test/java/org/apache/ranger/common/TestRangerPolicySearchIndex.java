@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.SearchFilter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TestRangerPolicySearchIndex {
+
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testCandidatesByUserGroupAndResource() {
+		RangerPolicySearchIndex index    = RangerPolicySearchIndex.getInstance();
+		List<RangerPolicy>      policies = new ArrayList<RangerPolicy>();
+
+		policies.add(policy(1L, "finance-read", "/data/finance", "user1", "analysts"));
+		policies.add(policy(2L, "hr-read", "/data/hr", "user2", "hr"));
+		policies.add(policy(3L, "finance-write", "/data/finance/reports", "user2", "analysts"));
+
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.USER, "user2");
+		List<RangerPolicy> candidates = index.getCandidatePolicies("svc1", 5L, policies, filter);
+		Assert.assertEquals(Arrays.asList(2L, 3L), ids(candidates));
+		// the caller's policies are returned, not the index's copies
+		Assert.assertSame(policies.get(1), candidates.get(0));
+
+		filter = new SearchFilter();
+		filter.setParam(SearchFilter.GROUP, "analysts");
+		filter.setParam(SearchFilter.POL_RESOURCE, "FINANCE/rep");
+		Assert.assertEquals(Arrays.asList(3L), ids(index.getCandidatePolicies("svc1", 5L, policies, filter)));
+
+		filter = new SearchFilter();
+		filter.setParam(SearchFilter.POLICY_NAME_PARTIAL, "nance");
+		Assert.assertEquals(Arrays.asList(1L, 3L), ids(index.getCandidatePolicies("svc1", 5L, policies, filter)));
+
+		filter = new SearchFilter();
+		filter.setParam(SearchFilter.IS_ENABLED, "true");
+		Assert.assertSame(policies, index.getCandidatePolicies("svc1", 5L, policies, filter));
+	}
+
+	@Test
+	public void testIncrementalUpdate() {
+		RangerPolicySearchIndex index    = RangerPolicySearchIndex.getInstance();
+		List<RangerPolicy>      policies = new ArrayList<RangerPolicy>();
+
+		policies.add(policy(1L, "p1", "/a", "user1", "g1"));
+		policies.add(policy(2L, "p2", "/b", "user2", "g2"));
+
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.USER, "user3");
+		Assert.assertTrue(index.getCandidatePolicies("svc2", 1L, policies, filter).isEmpty());
+
+		// policy 2 now grants user3; policy 1 is deleted
+		index.policyChanged("svc2", 2L, policy(2L, "p2", "/b", "user3", "g2"), null);
+		index.policyChanged("svc2", 3L, null, 1L);
+
+		Assert.assertEquals(Arrays.asList(2L), ids(index.getCandidatePolicies("svc2", 3L, policies, filter)));
+
+		filter = new SearchFilter();
+		filter.setParam(SearchFilter.USER, "user1");
+		Assert.assertTrue(index.getCandidatePolicies("svc2", 3L, policies, filter).isEmpty());
+
+		// version moved without an incremental update: rebuilt from the given policies
+		List<RangerPolicy> reloadedPolicies = new ArrayList<RangerPolicy>();
+		reloadedPolicies.add(policy(1L, "p1", "/a", "user1", "g1"));
+		Assert.assertEquals(Arrays.asList(1L), ids(index.getCandidatePolicies("svc2", 7L, reloadedPolicies, filter)));
+	}
+
+	@Test
+	public void testChangeAppliedOnCommitOnly() {
+		RangerPolicySearchIndex index    = RangerPolicySearchIndex.getInstance();
+		List<RangerPolicy>      policies = new ArrayList<RangerPolicy>();
+
+		policies.add(policy(1L, "p1", "/a", "user1", "g1"));
+		policies.add(policy(2L, "p2", "/b", "user2", "g2"));
+
+		SearchFilter filter = new SearchFilter();
+		filter.setParam(SearchFilter.USER, "user3");
+		Assert.assertTrue(index.getCandidatePolicies("svc3", 1L, policies, filter).isEmpty());
+
+		// the update of policy 2 to user3 is rolled back
+		TransactionSynchronizationManager.initSynchronization();
+		index.policyChanged("svc3", 2L, policy(2L, "p2", "/b", "user3", "g2"), null);
+		completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		// another change moves the version to 2: the index is rebuilt, instead of having the rolled back change
+		Assert.assertTrue(index.getCandidatePolicies("svc3", 2L, policies, filter).isEmpty());
+
+		// the update of policy 1 to user3 is committed
+		TransactionSynchronizationManager.initSynchronization();
+		index.policyChanged("svc3", 3L, policy(1L, "p1", "/a", "user3", "g1"), null);
+		Assert.assertTrue(index.getCandidatePolicies("svc3", 2L, policies, filter).isEmpty());
+		completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+		Assert.assertEquals(Arrays.asList(1L), ids(index.getCandidatePolicies("svc3", 3L, policies, filter)));
+	}
+
+	private static void completeTransaction(int status) {
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+		TransactionSynchronizationManager.clearSynchronization();
+
+		for (TransactionSynchronization synchronization : synchronizations) {
+			synchronization.afterCompletion(status);
+		}
+	}
+
+	private static RangerPolicy policy(Long id, String name, String path, String user, String group) {
+		RangerPolicy     ret  = new RangerPolicy();
+		RangerPolicyItem item = new RangerPolicyItem();
+
+		item.getUsers().add(user);
+		item.getGroups().add(group);
+
+		ret.setId(id);
+		ret.setName(name);
+		ret.getResources().put("path", new RangerPolicyResource(path));
+		ret.getPolicyItems().add(item);
+
+		return ret;
+	}
+
+	private static List<Long> ids(List<RangerPolicy> policies) {
+		List<Long> ret = new ArrayList<Long>();
+
+		for (RangerPolicy policy : policies) {
+			ret.add(policy.getId());
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRangerServiceTagsCache {
+
+	@Test
+	public void testApplyDelta() {
+		ServiceTags cached = createServiceTags(5L);
+
+		addResource(cached, 1L, 10L);
+		addResource(cached, 2L, 20L);
+		addResource(cached, 3L, 30L);
+
+		ServiceTags delta = createServiceTags(6L);
+
+		addResource(delta, 2L, 21L);                              // resource 2: tag 20 replaced with tag 21
+		delta.getResourceToTagIds().put(3L, new ArrayList<Long>()); // resource 3: deleted
+		delta.getTags().put(10L, createTag(10L, "PCI"));           // tag 10: updated
+
+		ServiceTags ret = RangerServiceTagsCache.applyDelta(cached, delta);
+
+		Assert.assertEquals(Long.valueOf(6L), ret.getTagVersion());
+		Assert.assertEquals(2, ret.getServiceResources().size());
+		Assert.assertEquals(Long.valueOf(1L), ret.getServiceResources().get(0).getId());
+		Assert.assertSame(delta.getServiceResources().get(0), ret.getServiceResources().get(1));
+		Assert.assertEquals(Arrays.asList(21L), ret.getResourceToTagIds().get(2L));
+		Assert.assertFalse(ret.getResourceToTagIds().containsKey(3L));
+		Assert.assertEquals(2, ret.getTags().size());
+		Assert.assertEquals("PCI", ret.getTags().get(10L).getType());
+		Assert.assertTrue(ret.getTags().containsKey(21L));
+
+		// the cached ServiceTags is left unchanged
+		Assert.assertEquals(Long.valueOf(5L), cached.getTagVersion());
+		Assert.assertEquals(3, cached.getServiceResources().size());
+		Assert.assertEquals(3, cached.getTags().size());
+		Assert.assertEquals("PII", cached.getTags().get(10L).getType());
+	}
+
+	private ServiceTags createServiceTags(Long tagVersion) {
+		ServiceTags ret = new ServiceTags();
+
+		ret.setServiceName("hdfsdev");
+		ret.setTagVersion(tagVersion);
+		ret.setTags(new HashMap<Long, RangerTag>());
+		ret.setServiceResources(new ArrayList<RangerServiceResource>());
+		ret.setResourceToTagIds(new HashMap<Long, List<Long>>());
+
+		return ret;
+	}
+
+	private void addResource(ServiceTags serviceTags, Long resourceId, Long tagId) {
+		RangerServiceResource resource = new RangerServiceResource();
+
+		resource.setId(resourceId);
+
+		serviceTags.getServiceResources().add(resource);
+		serviceTags.getResourceToTagIds().put(resourceId, new ArrayList<Long>(Arrays.asList(tagId)));
+		serviceTags.getTags().put(tagId, createTag(tagId, "PII"));
+	}
+
+	private RangerTag createTag(Long tagId, String type) {
+		RangerTag ret = new RangerTag(type, new HashMap<String, String>());
+
+		ret.setId(tagId);
+
+		return ret;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRangerVersionChangeNotifier {
+
+	@Test
+	public void testListenerCalledOnlyOnChange() {
+		RangerVersionChangeNotifier notifier = new RangerVersionChangeNotifier("test");
+		final List<Long>            versions = new ArrayList<Long>();
+
+		boolean isAdded = notifier.addListener("svc1", 5L, new RangerVersionChangeNotifier.Listener() {
+			@Override
+			public void onVersionChange(String serviceName, Long version) {
+				versions.add(version);
+			}
+		});
+
+		Assert.assertTrue(isAdded);
+		Assert.assertTrue(notifier.getWatchedServiceNames().contains("svc1"));
+
+		notifier.versionChanged("svc1", 5L);
+		notifier.versionChanged("svc2", 6L);
+		Assert.assertTrue(versions.isEmpty());
+		Assert.assertEquals(1, notifier.getListenerCount());
+
+		notifier.versionChanged("svc1", 6L);
+		notifier.versionChanged("svc1", 7L);
+		Assert.assertEquals(1, versions.size());
+		Assert.assertEquals(Long.valueOf(6L), versions.get(0));
+		Assert.assertEquals(0, notifier.getListenerCount());
+		Assert.assertTrue(notifier.getWatchedServiceNames().isEmpty());
+	}
+
+	@Test
+	public void testAddListenerWithStaleVersion() {
+		RangerVersionChangeNotifier notifier = new RangerVersionChangeNotifier("test");
+
+		notifier.versionChanged("svc1", 10L);
+
+		boolean isAdded = notifier.addListener("svc1", 9L, new RangerVersionChangeNotifier.Listener() {
+			@Override
+			public void onVersionChange(String serviceName, Long version) {
+			}
+		});
+
+		Assert.assertFalse(isAdded);
+		Assert.assertEquals(0, notifier.getListenerCount());
+	}
+
+	@Test
+	public void testLongPollResponse() {
+		Assert.assertEquals(304, RangerVersionChangeNotifier.getLongPollResponse(null).getStatus());
+
+		Response response = RangerVersionChangeNotifier.getLongPollResponse(12L);
+
+		Assert.assertEquals(200, response.getStatus());
+		Assert.assertEquals("{\"version\":12}", response.getEntity());
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ranger.db;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class TestPersistenceUnits {
+
+	@Test
+	public void testBulkUnitHasEveryDefaultUnitClass() throws Exception {
+		Map<String, Set<String>> classesByUnit = getClassesByUnit();
+
+		Set<String> missing = new HashSet<String>(classesByUnit.get("defaultPU"));
+
+		missing.removeAll(classesByUnit.get("bulkPU"));
+
+		// DAOs use the entity manager of bulkPU during a bulk write
+		Assert.assertTrue("classes of defaultPU missing in bulkPU: " + missing, missing.isEmpty());
+	}
+
+	private Map<String, Set<String>> getClassesByUnit() throws Exception {
+		Map<String, Set<String>> ret = new HashMap<String, Set<String>>();
+		InputStream              in  = getClass().getClassLoader().getResourceAsStream("META-INF/persistence.xml");
+
+		try {
+			Document doc   = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+			NodeList units = doc.getElementsByTagName("persistence-unit");
+
+			for (int i = 0; i < units.getLength(); i++) {
+				Element     unit    = (Element) units.item(i);
+				NodeList    classes = unit.getElementsByTagName("class");
+				Set<String> names   = new HashSet<String>();
+
+				for (int j = 0; j < classes.getLength(); j++) {
+					names.add(classes.item(j).getTextContent().trim());
+				}
+
+				ret.put(unit.getAttribute("name"), names);
+			}
+		} finally {
+			in.close();
+		}
+
+		return ret;
+	}
+}
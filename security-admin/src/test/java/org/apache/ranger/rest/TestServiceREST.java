@@ -16,6 +16,7 @@
  */
 package org.apache.ranger.rest;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -23,9 +24,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.admin.client.datatype.RESTResponse;
@@ -81,6 +86,7 @@ import org.apache.ranger.view.RangerServiceDefList;
 import org.apache.ranger.view.RangerServiceList;
 import org.apache.ranger.view.VXResponse;
 import org.apache.ranger.view.VXString;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Rule;
@@ -1419,4 +1425,52 @@ public class TestServiceREST {
 
 		assert(true);
 	}
+
+	@Test
+	public void test44getServicePoliciesIfUpdatedCompressed() throws Exception {
+		HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+		String serviceName = "HDFS_1";
+		ServicePolicies servicePolicies = new ServicePolicies();
+		servicePolicies.setServiceName(serviceName);
+		servicePolicies.setPolicyVersion(5L);
+		servicePolicies.setPolicies(new ArrayList<RangerPolicy>());
+
+		Mockito.when(serviceUtil.isValidateHttpsAuthentication(serviceName, request)).thenReturn(true);
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, 4L)).thenReturn(servicePolicies);
+		Mockito.when(request.getHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip, deflate");
+		Mockito.when(request.getHeader(HttpHeaders.ACCEPT)).thenReturn("application/json");
+
+		Response response = serviceREST.getServicePoliciesIfUpdated(serviceName, 4L, "1", null, request);
+
+		Assert.assertEquals(200, response.getStatus());
+		Assert.assertEquals("gzip", response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+		Assert.assertEquals(new EntityTag("5", true), response.getMetadata().getFirst(HttpHeaders.ETAG));
+
+		ServicePolicies downloaded = new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream((byte[]) response.getEntity())), ServicePolicies.class);
+
+		Assert.assertEquals(serviceName, downloaded.getServiceName());
+		Assert.assertEquals(Long.valueOf(5L), downloaded.getPolicyVersion());
+	}
+
+	@Test
+	public void test45getServicePoliciesIfUpdatedNotModified() throws Exception {
+		HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+		String serviceName = "HDFS_1";
+
+		Mockito.when(serviceUtil.isValidateHttpsAuthentication(serviceName, request)).thenReturn(true);
+		Mockito.when(svcStore.getServicePoliciesIfUpdated(serviceName, 5L)).thenReturn(null);
+		Mockito.when(restErrorUtil.createRESTException(Mockito.anyInt(), Mockito.anyString(), Mockito.anyBoolean()))
+				.thenReturn(new WebApplicationException(Response.status(304).build()));
+
+		try {
+			serviceREST.getServicePoliciesIfUpdated(serviceName, null, "1", "W/\"5\"", request);
+
+			Assert.fail("expected 304 Not Modified");
+		} catch (WebApplicationException excp) {
+			Assert.assertEquals(304, excp.getResponse().getStatus());
+			Assert.assertEquals(new EntityTag("5", true), excp.getResponse().getMetadata().getFirst(HttpHeaders.ETAG));
+		}
+
+		Mockito.verify(svcStore).getServicePoliciesIfUpdated(serviceName, 5L);
+	}
 }
@@ -38,6 +38,7 @@ import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.util.SearchFilter;
 import org.apache.ranger.security.context.RangerContextHolder;
 import org.apache.ranger.security.context.RangerSecurityContext;
 import org.junit.Assert;
@@ -236,4 +237,21 @@ public class TestRangerPolicyServiceBase {
 		Mockito.verify(daoManager).getXXService();
 	}
 
+	@Test
+	public void test4isPaginatedSearchSupported() {
+		SearchFilter filter = new SearchFilter();
+
+		Assert.assertTrue(policyService.isPaginatedSearchSupported(null));
+		Assert.assertTrue(policyService.isPaginatedSearchSupported(filter));
+
+		filter.setParam(SearchFilter.SERVICE_NAME, "hdfsdev");
+		filter.setParam(SearchFilter.USER, "user1");
+		filter.setParam(SearchFilter.GROUP, "finance");
+		filter.setParam(SearchFilter.POL_RESOURCE, "/finance");
+		filter.setParam(SearchFilter.POLICY_ID_AFTER, "100");
+		Assert.assertTrue(policyService.isPaginatedSearchSupported(filter));
+
+		filter.setParam(SearchFilter.RESOURCE_PREFIX + "path", "/finance");
+		Assert.assertFalse(policyService.isPaginatedSearchSupported(filter));
+	}
 }
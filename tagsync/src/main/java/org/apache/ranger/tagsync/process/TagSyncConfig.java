@@ -72,6 +72,16 @@ public class TagSyncConfig extends Configuration {
 
 	private static final String TAGSYNC_ATLAS_REST_SOURCE_DOWNLOAD_INTERVAL_PROP = "ranger.tagsync.source.atlasrest.download.interval.millis";
 
+	private static final String TAGSYNC_ATLAS_REST_SOURCE_INCREMENTAL_PROP = "ranger.tagsync.source.atlasrest.incremental";
+
+	private static final String TAGSYNC_ATLAS_REST_SOURCE_FINGERPRINT_FILENAME_PROP = "ranger.tagsync.source.atlasrest.fingerprint.filename";
+
+	private static final String TAGSYNC_ATLAS_SOURCE_BATCH_SIZE_PROP = "ranger.tagsync.source.atlas.batch.size";
+
+	private static final String TAGSYNC_ATLAS_SOURCE_BATCH_INTERVAL_PROP = "ranger.tagsync.source.atlas.batch.interval.millis";
+
+	private static final String TAGSYNC_ATLAS_SOURCE_UPLOAD_RETRY_MAX_INTERVAL_PROP = "ranger.tagsync.source.atlas.upload.retry.max.interval.millis";
+
 	private static final String TAGSYNC_ATLAS_REST_SSL_CONFIG_FILE_PROP = "ranger.tagsync.source.atlasrest.ssl.config.filename";
 
 	public static final String TAGSYNC_FILESOURCE_FILENAME_PROP = "ranger.tagsync.source.file.filename";
@@ -92,6 +102,9 @@ public class TagSyncConfig extends Configuration {
 	private static final long DEFAULT_TAGSYNC_ATLASREST_SOURCE_DOWNLOAD_INTERVAL = 900000;
 	private static final long DEFAULT_TAGSYNC_FILESOURCE_MOD_TIME_CHECK_INTERVAL = 60000;
 	private static final long DEFAULT_TAGSYNC_SOURCE_RETRY_INITIALIZATION_INTERVAL = 10000;
+	private static final int DEFAULT_TAGSYNC_ATLAS_SOURCE_BATCH_SIZE = 500;
+	private static final long DEFAULT_TAGSYNC_ATLAS_SOURCE_BATCH_INTERVAL = 5000;
+	private static final long DEFAULT_TAGSYNC_ATLAS_SOURCE_UPLOAD_RETRY_MAX_INTERVAL = 60000;
 
 	private static final String AUTH_TYPE = "hadoop.security.authentication";
 	private static final String NAME_RULES = "hadoop.security.auth_to_local";
@@ -236,6 +249,54 @@ public class TagSyncConfig extends Configuration {
 		return ret;
 	}
 
+	static public boolean isTagSourceAtlasRESTIncremental(Properties prop) {
+		String val = prop.getProperty(TAGSYNC_ATLAS_REST_SOURCE_INCREMENTAL_PROP);
+		return val != null && val.trim().equalsIgnoreCase("true");
+	}
+
+	static public String getTagSourceAtlasRESTFingerprintFileName(Properties prop) {
+		return prop.getProperty(TAGSYNC_ATLAS_REST_SOURCE_FINGERPRINT_FILENAME_PROP);
+	}
+
+	static public int getTagSourceAtlasBatchSize(Properties prop) {
+		String val = prop.getProperty(TAGSYNC_ATLAS_SOURCE_BATCH_SIZE_PROP);
+		int ret = DEFAULT_TAGSYNC_ATLAS_SOURCE_BATCH_SIZE;
+		if (StringUtils.isNotBlank(val)) {
+			try {
+				ret = Integer.valueOf(val);
+			} catch (NumberFormatException exception) {
+				// Ignore
+			}
+		}
+		return ret;
+	}
+
+	static public long getTagSourceAtlasBatchIntervalInMillis(Properties prop) {
+		String val = prop.getProperty(TAGSYNC_ATLAS_SOURCE_BATCH_INTERVAL_PROP);
+		long ret = DEFAULT_TAGSYNC_ATLAS_SOURCE_BATCH_INTERVAL;
+		if (StringUtils.isNotBlank(val)) {
+			try {
+				ret = Long.valueOf(val);
+			} catch (NumberFormatException exception) {
+				// Ignore
+			}
+		}
+		return ret;
+	}
+
+	static public long getTagSourceAtlasUploadRetryMaxIntervalInMillis(Properties prop) {
+		String val = prop.getProperty(TAGSYNC_ATLAS_SOURCE_UPLOAD_RETRY_MAX_INTERVAL_PROP);
+		long ret = DEFAULT_TAGSYNC_ATLAS_SOURCE_UPLOAD_RETRY_MAX_INTERVAL;
+		if (StringUtils.isNotBlank(val)) {
+			try {
+				ret = Long.valueOf(val);
+			} catch (NumberFormatException exception) {
+				// Ignore
+			}
+		}
+		return ret;
+	}
+
 	static public String getTagSinkClassName(Properties prop) {
 		String val = prop.getProperty(TAGSYNC_SINK_CLASS_PROP);
 		if (StringUtils.equalsIgnoreCase(val, "ranger")) {
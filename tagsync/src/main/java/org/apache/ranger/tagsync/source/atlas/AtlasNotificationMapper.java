@@ -36,7 +36,9 @@ import org.apache.ranger.plugin.model.RangerTagDef.RangerTagAttributeDef;
 import org.apache.ranger.plugin.util.ServiceTags;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -108,6 +110,78 @@ public class AtlasNotificationMapper {
 		return ret;
 	}
 
+	/**
+	 * Maps a batch of notifications to the ServiceTags to upload: one with the deleted service-resources
+	 * and one with the updated service-resources of each service. As each notification carries all the
+	 * traits of its entity, only the last notification of each entity is used.
+	 */
+	public static List<ServiceTags> processEntityNotifications(List<EntityNotification> entityNotifications) {
+		Map<String, EntityNotification> latestNotifications = new LinkedHashMap<String, EntityNotification>();
+
+		for (EntityNotification entityNotification : entityNotifications) {
+			if (isNotificationHandled(entityNotification)) {
+				IReferenceableInstance entity = entityNotification.getEntity();
+
+				if (entity != null && AtlasResourceMapperUtil.isEntityTypeHandled(entity.getTypeName())) {
+					String guid = entity.getId()._getId();
+					String key  = StringUtils.isNotBlank(guid) ? guid : ("#" + latestNotifications.size());
+
+					latestNotifications.remove(key);
+					latestNotifications.put(key, entityNotification);
+				} else {
+					logUnhandledEntityNotification(entityNotification);
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("processEntityNotifications(): " + entityNotifications.size() + " notifications for " + latestNotifications.size() + " entities");
+		}
+
+		Map<String, ServiceTags> deletes = new HashMap<String, ServiceTags>();
+		Map<String, ServiceTags> updates = new HashMap<String, ServiceTags>();
+
+		for (EntityNotification entityNotification : latestNotifications.values()) {
+			try {
+				IReferenceableInstance entity           = entityNotification.getEntity();
+				AtlasEntityWithTraits  entityWithTraits = new AtlasEntityWithTraits(entity, entityNotification.getAllTraits());
+
+				if (entityNotification.getOperationType() == EntityNotification.OperationType.ENTITY_DELETE) {
+					ServiceTags deleted = buildServiceTagsForEntityDeleteNotification(entityWithTraits);
+
+					if (deleted != null) {
+						ServiceTags serviceTags = createOrGetServiceTags(deletes, deleted.getServiceName());
+
+						for (RangerServiceResource serviceResource : deleted.getServiceResources()) {
+							serviceResource.setId((long)serviceTags.getServiceResources().size());
+							serviceTags.getServiceResources().add(serviceResource);
+						}
+					}
+				} else if (entity.getId().getState() == Id.EntityState.ACTIVE) {
+					buildServiceTags(entityWithTraits, updates);
+				} else {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Ignoring entityNotification for entity that is not ACTIVE: " + entityWithTraits);
+					}
+				}
+			} catch (Exception exception) {
+				LOG.error("createServiceTags() failed!! ", exception);
+			}
+		}
+
+		removeDuplicateTagDefs(updates.values());
+
+		List<ServiceTags> ret = new ArrayList<ServiceTags>();
+
+		for (ServiceTags serviceTags : deletes.values()) {
+			serviceTags.setOp(ServiceTags.OP_DELETE);
+			ret.add(serviceTags);
+		}
+		ret.addAll(updates.values());
+
+		return ret;
+	}
+
 	public static Map<String, ServiceTags> processEntitiesWithTraits(List<AtlasEntityWithTraits> atlasEntities) {
 		Map<String, ServiceTags> ret = null;
 
@@ -120,6 +194,49 @@ public class AtlasNotificationMapper {
 		return ret;
 	}
 
+	/**
+	 * Maps the changes found by an incremental download to the ServiceTags to upload: one with the
+	 * service-resources of the deleted entities and one with the changed service-resources of each service.
+	 */
+	public static List<ServiceTags> processEntitiesWithTraits(List<AtlasEntityWithTraits> changedEntities, Collection<String> deletedGuids) {
+		List<ServiceTags> ret = new ArrayList<ServiceTags>();
+
+		if (CollectionUtils.isNotEmpty(deletedGuids)) {
+			ServiceTags deletes = new ServiceTags();
+
+			for (String guid : deletedGuids) {
+				RangerServiceResource serviceResource = new RangerServiceResource();
+
+				serviceResource.setId((long)deletes.getServiceResources().size());
+				serviceResource.setGuid(guid);
+
+				deletes.getServiceResources().add(serviceResource);
+			}
+
+			deletes.setOp(ServiceTags.OP_DELETE);
+
+			ret.add(deletes);
+		}
+
+		Map<String, ServiceTags> updates = new HashMap<String, ServiceTags>();
+
+		if (CollectionUtils.isNotEmpty(changedEntities)) {
+			for (AtlasEntityWithTraits entityWithTraits : changedEntities) {
+				try {
+					buildServiceTags(entityWithTraits, updates);
+				} catch (Exception exception) {
+					LOG.error("Failed to build serviceTags for entity:" + entityWithTraits.getEntity().getId()._getId(), exception);
+				}
+			}
+		}
+
+		removeDuplicateTagDefs(updates.values());
+
+		ret.addAll(updates.values());
+
+		return ret;
+	}
+
 	static private boolean isNotificationHandled(EntityNotification entityNotification) {
 		boolean ret = false;
 
@@ -189,9 +306,20 @@ public class AtlasNotificationMapper {
 			}
 		}
 
-		// Remove duplicate tag definitions
-		if(CollectionUtils.isNotEmpty(ret.values())) {
-			for (ServiceTags serviceTag : ret.values()) {
+		removeDuplicateTagDefs(ret.values());
+
+		if (MapUtils.isNotEmpty(ret)) {
+			for (Map.Entry<String, ServiceTags> entry : ret.entrySet()) {
+				ServiceTags serviceTags = entry.getValue();
+				serviceTags.setOp(ServiceTags.OP_REPLACE);
+			}
+		}
+		return ret;
+	}
+
+	static private void removeDuplicateTagDefs(Collection<ServiceTags> serviceTagsList) {
+		if(CollectionUtils.isNotEmpty(serviceTagsList)) {
+			for (ServiceTags serviceTag : serviceTagsList) {
 				if(MapUtils.isNotEmpty(serviceTag.getTagDefinitions())) {
 					Map<String, RangerTagDef> uniqueTagDefs = new HashMap<String, RangerTagDef>();
 
@@ -229,14 +357,6 @@ public class AtlasNotificationMapper {
 				}
 			}
 		}
-
-		if (MapUtils.isNotEmpty(ret)) {
-			for (Map.Entry<String, ServiceTags> entry : ret.entrySet()) {
-				ServiceTags serviceTags = entry.getValue();
-				serviceTags.setOp(ServiceTags.OP_REPLACE);
-			}
-		}
-		return ret;
 	}
 
 	static private ServiceTags buildServiceTags(AtlasEntityWithTraits entityWithTraits, Map<String, ServiceTags> serviceTagsMap) throws Exception {
@@ -28,16 +28,23 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationInterface;
 import org.apache.atlas.notification.NotificationModule;
 import org.apache.atlas.notification.entity.EntityNotification;
 
 import org.apache.ranger.tagsync.model.AbstractTagSource;
+import org.apache.ranger.tagsync.process.TagSyncConfig;
 import org.apache.ranger.plugin.util.ServiceTags;
 
+import kafka.consumer.ConsumerTimeoutException;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Properties;
 import java.util.List;
 
@@ -49,6 +56,13 @@ public class AtlasTagSource extends AbstractTagSource {
 	public static final String TAGSYNC_ATLAS_KAFKA_ENDPOINTS = "atlas.kafka.bootstrap.servers";
 	public static final String TAGSYNC_ATLAS_ZOOKEEPER_ENDPOINT = "atlas.kafka.zookeeper.connect";
 	public static final String TAGSYNC_ATLAS_CONSUMER_GROUP = "atlas.kafka.entities.group.id";
+	public static final String TAGSYNC_ATLAS_CONSUMER_TIMEOUT = "atlas.kafka.consumer.timeout.ms";
+
+	private static final long UPLOAD_RETRY_INITIAL_INTERVAL_IN_MILLIS = 1000;
+
+	private int  batchSize;
+	private long batchIntervalInMillis;
+	private long uploadRetryMaxIntervalInMillis;
 
 	private ConsumerRunnable consumerTask;
 	private Thread myThread = null;
@@ -102,16 +116,39 @@ public class AtlasTagSource extends AbstractTagSource {
 		}
 
 		if (ret) {
+			batchSize             = Math.max(1, TagSyncConfig.getTagSourceAtlasBatchSize(properties));
+			batchIntervalInMillis = TagSyncConfig.getTagSourceAtlasBatchIntervalInMillis(properties);
+			uploadRetryMaxIntervalInMillis = Math.max(UPLOAD_RETRY_INITIAL_INTERVAL_IN_MILLIS, TagSyncConfig.getTagSourceAtlasUploadRetryMaxIntervalInMillis(properties));
+
+			// without a consumer timeout, hasNext() blocks until the next notification and a partial batch would wait for it
+			if (StringUtils.isBlank(atlasProperties.getProperty(TAGSYNC_ATLAS_CONSUMER_TIMEOUT))) {
+				try {
+					ApplicationProperties.get().setProperty(TAGSYNC_ATLAS_CONSUMER_TIMEOUT, String.valueOf(Math.max(100L, batchIntervalInMillis)));
+				} catch (AtlasException exception) {
+					LOG.warn("Cannot set '" + TAGSYNC_ATLAS_CONSUMER_TIMEOUT + "'; a partial batch will be uploaded only after the next notification", exception);
+				}
+			}
+
 			NotificationModule notificationModule = new NotificationModule();
 
 			Injector injector = Guice.createInjector(notificationModule);
 
 			Provider<NotificationInterface> consumerProvider = injector.getProvider(NotificationInterface.class);
 			NotificationInterface notification = consumerProvider.get();
-			List<NotificationConsumer<EntityNotification>> iterators = notification.createConsumers(NotificationInterface.NotificationType.ENTITIES, 1);
+			List<NotificationConsumer<EntityNotification>> iterators;
+
+			if (notification instanceof KafkaNotification) {
+				// offsets are committed after the notifications read are uploaded
+				iterators = ((KafkaNotification) notification).createConsumers(NotificationInterface.NotificationType.ENTITIES, 1, false);
+			} else {
+				iterators = notification.createConsumers(NotificationInterface.NotificationType.ENTITIES, 1);
+			}
 
 			consumerTask = new ConsumerRunnable(iterators.get(0));
 
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("batchSize=" + batchSize + ", batchIntervalInMillis=" + batchIntervalInMillis + ", uploadRetryMaxIntervalInMillis=" + uploadRetryMaxIntervalInMillis);
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -159,6 +196,13 @@ public class AtlasTagSource extends AbstractTagSource {
 
 		private final NotificationConsumer<EntityNotification> consumer;
 
+		private final List<EntityNotification> batch = new ArrayList<EntityNotification>();
+		private long batchStartTime;
+
+		private long notificationCount;
+		private long uploadCount;
+		private long maxCommitDelayInMillis;
+
 		private ConsumerRunnable(NotificationConsumer<EntityNotification> consumer) {
 			this.consumer = consumer;
 		}
@@ -167,6 +211,8 @@ public class AtlasTagSource extends AbstractTagSource {
 			boolean ret = false;
 			try {
 				ret = consumer.hasNext();
+			} catch (ConsumerTimeoutException exception) {
+				// no notification within the consumer timeout
 			} catch (Exception exception) {
 				LOG.error("EntityNotification consumer threw exception, IGNORING...:", exception);
 			}
@@ -187,22 +233,75 @@ public class AtlasTagSource extends AbstractTagSource {
 								LOG.debug("Notification=" + getPrintableEntityNotification(notification));
 							}
 
-							ServiceTags serviceTags = AtlasNotificationMapper.processEntityNotification(notification);
-							if (serviceTags != null) {
-								updateSink(serviceTags);
+							if (batch.isEmpty()) {
+								batchStartTime = System.currentTimeMillis();
 							}
+							batch.add(notification);
 						} else {
 							LOG.error("Null entityNotification received from Kafka!! Ignoring..");
 						}
 						// Move iterator forward
 						consumer.next();
 					}
+
+					if (!batch.isEmpty() && (batch.size() >= batchSize || System.currentTimeMillis() - batchStartTime >= batchIntervalInMillis)) {
+						uploadBatchWithRetry();
+					}
+				} catch (InterruptedException exception) {
+					LOG.info("ConsumerRunnable interrupted; " + batch.size() + " notifications not uploaded, their offsets are not committed");
+					return;
 				} catch (Exception exception) {
 					LOG.error("Caught exception..: ", exception);
 					return;
 				}
 			}
 		}
+
+		/*
+		 * Uploads the batch, retrying it until it succeeds: notifications are not read, nor their
+		 * offsets committed, past a batch that could not be uploaded. The wait between retries
+		 * doubles after every failure, up to uploadRetryMaxIntervalInMillis.
+		 */
+		private void uploadBatchWithRetry() throws InterruptedException {
+			long retryIntervalInMillis = UPLOAD_RETRY_INITIAL_INTERVAL_IN_MILLIS;
+
+			while (!uploadBatch()) {
+				LOG.error("Failed to upload tags for " + batch.size() + " notifications; retrying in " + retryIntervalInMillis + " ms");
+
+				Thread.sleep(retryIntervalInMillis);
+
+				retryIntervalInMillis = Math.min(retryIntervalInMillis * 2, uploadRetryMaxIntervalInMillis);
+			}
+		}
+
+		private boolean uploadBatch() {
+			long uploadStartTime = System.currentTimeMillis();
+
+			List<ServiceTags> serviceTagsList = AtlasNotificationMapper.processEntityNotifications(batch);
+
+			for (ServiceTags serviceTags : serviceTagsList) {
+				if (!updateSink(serviceTags)) {
+					return false;
+				}
+			}
+
+			consumer.commit();
+
+			long commitTime       = System.currentTimeMillis();
+			long commitDelay      = commitTime - batchStartTime;
+
+			notificationCount     += batch.size();
+			uploadCount           += serviceTagsList.size();
+			maxCommitDelayInMillis = Math.max(maxCommitDelayInMillis, commitDelay);
+
+			// commit delay: time from reading the first notification of the batch to committing its offset
+			LOG.info("AtlasTagSource: uploaded " + serviceTagsList.size() + " serviceTags for " + batch.size() + " notifications in "
+					+ (commitTime - uploadStartTime) + " ms, commitDelay=" + commitDelay + " ms; totals: notifications=" + notificationCount
+					+ ", uploads=" + uploadCount + ", maxCommitDelay=" + maxCommitDelayInMillis + " ms");
+
+			batch.clear();
+
+			return true;
+		}
 	}
 }
-
@@ -22,6 +22,7 @@ package org.apache.ranger.tagsync.source.atlasrest;
 import com.google.gson.Gson;
 
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -40,9 +41,20 @@ import org.apache.ranger.tagsync.source.atlas.AtlasEntityWithTraits;
 import org.apache.ranger.tagsync.source.atlas.AtlasNotificationMapper;
 import org.apache.ranger.tagsync.source.atlas.AtlasResourceMapperUtil;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 	private static final Log LOG = LogFactory.getLog(AtlasRESTTagSource.class);
@@ -51,6 +63,12 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 
 	private long sleepTimeBetweenCycleInMillis;
 
+	private boolean isIncremental;
+	private String fingerprintFileName;
+
+	// entity guid => fingerprint, as of the last successful synchUp(); null until a full snapshot is uploaded
+	private Map<String, String> entityFingerprints = null;
+
 	AtlasRESTUtil atlasRESTUtil = null;
 
 	private String authenticationType;
@@ -103,6 +121,12 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 		boolean ret = AtlasResourceMapperUtil.initializeAtlasResourceMappers(properties);
 
 		sleepTimeBetweenCycleInMillis = TagSyncConfig.getTagSourceAtlasDownloadIntervalInMillis(properties);
+		isIncremental = TagSyncConfig.isTagSourceAtlasRESTIncremental(properties);
+		fingerprintFileName = TagSyncConfig.getTagSourceAtlasRESTFingerprintFileName(properties);
+
+		if (isIncremental) {
+			entityFingerprints = loadEntityFingerprints();
+		}
 
 		String restUrl       = TagSyncConfig.getAtlasRESTEndpoint(properties);
 		String sslConfigFile = TagSyncConfig.getAtlasRESTSslConfigFile(properties);
@@ -127,6 +151,8 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 			LOG.debug("keytab=" + keytab);
 			LOG.debug("nameRules=" + nameRules);
 			LOG.debug("kerberized=" + kerberized);
+			LOG.debug("isIncremental=" + isIncremental);
+			LOG.debug("fingerprintFileName=" + fingerprintFileName);
 		}
 
 		if (StringUtils.isNotEmpty(restUrl)) {
@@ -194,6 +220,12 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 
 	public void synchUp() {
 
+		if (isIncremental) {
+			synchUpIncremental();
+
+			return;
+		}
+
 		List<AtlasEntityWithTraits> atlasEntitiesWithTraits = atlasRESTUtil.getEntitiesWithTraits();
 
 		if (CollectionUtils.isNotEmpty(atlasEntitiesWithTraits)) {
@@ -207,14 +239,7 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 
 			if (MapUtils.isNotEmpty(serviceTagsMap)) {
 				for (Map.Entry<String, ServiceTags> entry : serviceTagsMap.entrySet()) {
-					if (LOG.isDebugEnabled()) {
-						Gson gsonBuilder = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z")
-								.setPrettyPrinting()
-								.create();
-						String serviceTagsString = gsonBuilder.toJson(entry.getValue());
-
-						LOG.debug("serviceTags=" + serviceTagsString);
-					}
+					logServiceTags(entry.getValue());
 					updateSink(entry.getValue());
 				}
 			}
@@ -222,5 +247,103 @@ public class AtlasRESTTagSource extends AbstractTagSource implements Runnable {
 
 	}
 
-}
+	/*
+	 * Uploads only the entities whose fingerprint changed since the last successful cycle, and deletes the
+	 * ones that are gone. A full snapshot is uploaded when there are no fingerprints yet.
+	 */
+	private void synchUpIncremental() {
+		Map<String, String> fingerprints = new HashMap<String, String>();
+
+		List<AtlasEntityWithTraits> changedEntities = atlasRESTUtil.getEntitiesWithTraits(entityFingerprints, fingerprints);
+
+		if (changedEntities == null) {
+			LOG.error("Failed to download Atlas entities, will retry in next cycle");
+			return;
+		}
+
+		boolean isSuccess = true;
+
+		if (entityFingerprints == null) {
+			LOG.info("No entity fingerprints found, uploading all " + changedEntities.size() + " Atlas entities with traits");
+
+			Map<String, ServiceTags> serviceTagsMap = AtlasNotificationMapper.processEntitiesWithTraits(changedEntities);
+
+			if (serviceTagsMap == null) {
+				return;
+			}
+
+			for (ServiceTags serviceTags : serviceTagsMap.values()) {
+				logServiceTags(serviceTags);
+				isSuccess = updateSink(serviceTags) && isSuccess;
+			}
+		} else {
+			Set<String> deletedGuids = new HashSet<String>(entityFingerprints.keySet());
+
+			deletedGuids.removeAll(fingerprints.keySet());
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("synchUpIncremental(): entities=" + fingerprints.size() + ", changed=" + changedEntities.size() + ", deleted=" + deletedGuids.size());
+			}
+
+			for (ServiceTags serviceTags : AtlasNotificationMapper.processEntitiesWithTraits(changedEntities, deletedGuids)) {
+				logServiceTags(serviceTags);
+				isSuccess = updateSink(serviceTags) && isSuccess;
+			}
+		}
+
+		// on failure, the same changes are found again in next cycle
+		if (isSuccess) {
+			entityFingerprints = fingerprints;
 
+			saveEntityFingerprints();
+		}
+	}
+
+	private Map<String, String> loadEntityFingerprints() {
+		Map<String, String> ret = null;
+
+		if (StringUtils.isNotBlank(fingerprintFileName)) {
+			File fingerprintFile = new File(fingerprintFileName);
+
+			if (fingerprintFile.exists()) {
+				try (Reader reader = new InputStreamReader(new FileInputStream(fingerprintFile), Charset.forName("UTF-8"))) {
+					ret = new Gson().fromJson(reader, new TypeToken<Map<String, String>>() {}.getType());
+				} catch (Exception exception) {
+					LOG.warn("Failed to read entity fingerprints from " + fingerprintFileName + ", a full snapshot will be uploaded", exception);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private void saveEntityFingerprints() {
+		if (StringUtils.isNotBlank(fingerprintFileName)) {
+			File fingerprintFile = new File(fingerprintFileName);
+			File tmpFile         = new File(fingerprintFileName + ".tmp");
+
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), Charset.forName("UTF-8"))) {
+				new Gson().toJson(entityFingerprints, writer);
+			} catch (Exception exception) {
+				LOG.error("Failed to write entity fingerprints to " + tmpFile, exception);
+				return;
+			}
+
+			if (!tmpFile.renameTo(fingerprintFile)) {
+				LOG.error("Failed to rename " + tmpFile + " to " + fingerprintFile);
+			}
+		}
+	}
+
+	private void logServiceTags(ServiceTags serviceTags) {
+		if (LOG.isDebugEnabled()) {
+			Gson gsonBuilder = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z")
+					.setPrettyPrinting()
+					.create();
+			String serviceTagsString = gsonBuilder.toJson(serviceTags);
+
+			LOG.debug("serviceTags=" + serviceTagsString);
+		}
+	}
+
+}
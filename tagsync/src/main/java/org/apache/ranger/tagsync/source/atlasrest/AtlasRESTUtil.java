@@ -25,6 +25,7 @@ import org.apache.atlas.typesystem.IReferenceableInstance;
 import org.apache.atlas.typesystem.IStruct;
 import org.apache.atlas.typesystem.Struct;
 import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.apache.atlas.typesystem.persistence.Id;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -42,6 +43,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @SuppressWarnings("unchecked")
 public class AtlasRESTUtil {
@@ -62,6 +65,7 @@ public class AtlasRESTUtil {
 	private static final String SUPER_TYPES_ATTRIBUTE           = "superTypes";
 	private static final String ATTRIBUTE_DEFINITIONS_ATTRIBUTE = "attributeDefinitions";
 	private static final String NAME_ATTRIBUTE                  = "name";
+	private static final String QUALIFIED_NAME_ATTRIBUTE        = "qualifiedName";
 
 	private final Gson gson = new Gson();
 
@@ -89,6 +93,17 @@ public class AtlasRESTUtil {
 	}
 
 	public List<AtlasEntityWithTraits> getEntitiesWithTraits() {
+		return getEntitiesWithTraits(null, null);
+	}
+
+	/**
+	 * Downloads the entities having traits. When fingerprints is given, it is populated with the fingerprint
+	 * (version, qualifiedName and traits) of each ACTIVE entity, by guid; entities whose fingerprint is the
+	 * same as in prevFingerprints are then left out of the result, without resolving their trait super-types.
+	 *
+	 * @return the entities, or null if Atlas types or entities could not be listed
+	 */
+	public List<AtlasEntityWithTraits> getEntitiesWithTraits(Map<String, String> prevFingerprints, Map<String, String> fingerprints) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> getEntriesWithTraits()");
 		}
@@ -99,6 +114,11 @@ public class AtlasRESTUtil {
 
 		List<String> types = getAttribute(typesResponse, RESULTS_ATTRIBUTE, List.class);
 
+		if (types == null) {
+			LOG.error("Failed to get Atlas types");
+			return null;
+		}
+
 		if (CollectionUtils.isNotEmpty(types)) {
 
 			for (String type : types) {
@@ -112,6 +132,11 @@ public class AtlasRESTUtil {
 
 				Map<String, Object> entitiesResponse = atlasAPI(API_ATLAS_ENTITIES + type);
 
+				if (entitiesResponse == null || !entitiesResponse.containsKey(RESULTS_ATTRIBUTE)) {
+					LOG.error("Failed to get Atlas entities of type:" + type);
+					return null;
+				}
+
 				List<String> guids = getAttribute(entitiesResponse, RESULTS_ATTRIBUTE, List.class);
 
 				if (CollectionUtils.isEmpty(guids)) {
@@ -127,10 +152,45 @@ public class AtlasRESTUtil {
 
 					Map<String, Object> definition = getAttribute(entityResponse, DEFINITION_ATTRIBUTE, Map.class);
 
+					if (definition == null) {
+						String prevFingerprint = prevFingerprints != null ? prevFingerprints.get(guid) : null;
+
+						// an entity that could not be fetched is taken as unchanged, not as deleted
+						if (prevFingerprint != null && fingerprints != null) {
+							fingerprints.put(guid, prevFingerprint);
+						}
+
+						LOG.warn("Could not get Atlas entity, type=" + type + ", guid=" + guid);
+						continue;
+					}
+
 					Map<String, Object> traitsAttribute = getAttribute(definition, TRAITS_ATTRIBUTE, Map.class);
 
 					if (MapUtils.isNotEmpty(traitsAttribute)) {
 
+						IReferenceableInstance entity = InstanceSerialization.fromJsonReferenceable(gson.toJson(definition), true);
+
+						if (entity == null) {
+							if (LOG.isInfoEnabled()) {
+								LOG.info("Could not create Atlas entity from its definition, type=" + type + ", guid=" + guid);
+							}
+							continue;
+						}
+
+						if (fingerprints != null) {
+							if (entity.getId().getState() != Id.EntityState.ACTIVE) {
+								continue;
+							}
+
+							String fingerprint = getFingerprint(entity, definition, traitsAttribute);
+
+							fingerprints.put(guid, fingerprint);
+
+							if (prevFingerprints != null && fingerprint.equals(prevFingerprints.get(guid))) {
+								continue;
+							}
+						}
+
 						List<IStruct> allTraits = new LinkedList<>();
 
 						for (Map.Entry<String, Object> entry : traitsAttribute.entrySet()) {
@@ -152,16 +212,8 @@ public class AtlasRESTUtil {
 							allTraits.addAll(superTypes);
 						}
 
-						IReferenceableInstance entity = InstanceSerialization.fromJsonReferenceable(gson.toJson(definition), true);
-
-						if (entity != null) {
-							AtlasEntityWithTraits entityWithTraits = new AtlasEntityWithTraits(entity, allTraits);
-							ret.add(entityWithTraits);
-						} else {
-							if (LOG.isInfoEnabled()) {
-								LOG.info("Could not create Atlas entity from its definition, type=" + type + ", guid=" + guid);
-							}
-						}
+						AtlasEntityWithTraits entityWithTraits = new AtlasEntityWithTraits(entity, allTraits);
+						ret.add(entityWithTraits);
 
 					}
 
@@ -175,6 +227,25 @@ public class AtlasRESTUtil {
 		return ret;
 	}
 
+	private String getFingerprint(IReferenceableInstance entity, Map<String, Object> definition, Map<String, Object> traitsAttribute) {
+		StringBuilder sb = new StringBuilder();
+
+		Map<String, Object> values = getAttribute(definition, VALUES_ATTRIBUTE, Map.class);
+
+		sb.append(entity.getId().getVersion()).append(';');
+		sb.append(getAttribute(values, QUALIFIED_NAME_ATTRIBUTE, Object.class));
+
+		for (String traitName : new TreeSet<String>(traitsAttribute.keySet())) {
+			Map<String, Object> trait       = (Map<String, Object>) traitsAttribute.get(traitName);
+			Map<String, Object> traitValues = getAttribute(trait, VALUES_ATTRIBUTE, Map.class);
+
+			sb.append(';').append(traitName).append('=');
+			sb.append(traitValues != null ? new TreeMap<String, Object>(traitValues) : "{}");
+		}
+
+		return sb.toString();
+	}
+
 	private Map<String, Object> getTraitType(String traitName) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> getTraitType(" + traitName + ")");
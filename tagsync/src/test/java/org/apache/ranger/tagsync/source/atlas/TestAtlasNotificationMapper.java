@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.tagsync.source.atlas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.atlas.notification.entity.EntityNotification;
+import org.apache.atlas.notification.entity.EntityNotification.OperationType;
+import org.apache.atlas.notification.entity.EntityNotificationImpl;
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestAtlasNotificationMapper {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		AtlasResourceMapperUtil.initializeAtlasResourceMappers(new Properties());
+	}
+
+	@Test
+	public void testProcessEntityNotifications() throws Exception {
+		List<EntityNotification> notifications = new ArrayList<EntityNotification>();
+
+		notifications.add(createNotification("1", "hive_table", "db1.t1@cl1", OperationType.TRAIT_ADD, "PII"));
+		notifications.add(createNotification("2", "hive_table", "db1.t2@cl1", OperationType.TRAIT_ADD, "PII"));
+		notifications.add(createNotification("1", "hive_table", "db1.t1@cl1", OperationType.TRAIT_ADD, "PII", "PCI")); // supersedes the first
+		notifications.add(createNotification("2", "hive_table", "db1.t2@cl1", OperationType.ENTITY_CREATE));        // not handled
+		notifications.add(createNotification("3", "hive_db", "db2@cl1", OperationType.ENTITY_DELETE));
+
+		List<ServiceTags> serviceTagsList = AtlasNotificationMapper.processEntityNotifications(notifications);
+
+		Assert.assertEquals(2, serviceTagsList.size());
+
+		ServiceTags deletes = serviceTagsList.get(0);
+		Assert.assertEquals(ServiceTags.OP_DELETE, deletes.getOp());
+		Assert.assertEquals(1, deletes.getServiceResources().size());
+		Assert.assertEquals("3", deletes.getServiceResources().get(0).getGuid());
+
+		ServiceTags updates = serviceTagsList.get(1);
+		Assert.assertEquals(ServiceTags.OP_ADD_OR_UPDATE, updates.getOp());
+		Assert.assertEquals("cl1_hive", updates.getServiceName());
+		Assert.assertEquals(2, updates.getServiceResources().size());
+		Assert.assertEquals(3, updates.getTags().size());
+		Assert.assertEquals(2, updates.getTagDefinitions().size());
+
+		for (RangerServiceResource serviceResource : updates.getServiceResources()) {
+			int expectedTagCount = serviceResource.getGuid().equals("1") ? 2 : 1;
+
+			Assert.assertEquals(expectedTagCount, updates.getResourceToTagIds().get(serviceResource.getId()).size());
+		}
+	}
+
+	private EntityNotification createNotification(String guid, String typeName, String qualifiedName, OperationType opType, String... traitNames) throws Exception {
+		Map<String, Object> values = new HashMap<String, Object>();
+
+		values.put(AtlasHiveResourceMapper.ENTITY_ATTRIBUTE_QUALIFIED_NAME, qualifiedName);
+
+		List<IStruct> traits = new ArrayList<IStruct>();
+
+		for (String traitName : Arrays.asList(traitNames)) {
+			traits.add(new Struct(traitName));
+		}
+
+		return new EntityNotificationImpl(new Referenceable(guid, typeName, values), opType, traits);
+	}
+}
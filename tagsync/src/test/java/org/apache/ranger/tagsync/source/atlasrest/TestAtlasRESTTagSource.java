@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.tagsync.source.atlasrest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.atlas.typesystem.IStruct;
+import org.apache.atlas.typesystem.Referenceable;
+import org.apache.atlas.typesystem.Struct;
+import org.apache.atlas.typesystem.json.InstanceSerialization;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.tagsync.model.TagSink;
+import org.apache.ranger.tagsync.source.atlas.AtlasHiveResourceMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestAtlasRESTTagSource {
+
+	private final Map<String, String> entities = new LinkedHashMap<String, String>(); // guid => definition
+	private final List<ServiceTags>   uploaded = new ArrayList<ServiceTags>();
+
+	private HttpServer server;
+	private File       fingerprintFile;
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				String ret;
+
+				if (path.equals("/api/atlas/types")) {
+					ret = "{\"results\":[\"hive_table\"]}";
+				} else if (path.equals("/api/atlas/entities")) {
+					StringBuilder sb = new StringBuilder("{\"results\":[");
+
+					for (String guid : entities.keySet()) {
+						sb.append(sb.charAt(sb.length() - 1) == '[' ? "" : ",").append('"').append(guid).append('"');
+					}
+
+					ret = sb.append("]}").toString();
+				} else if (path.startsWith("/api/atlas/entities/")) {
+					ret = "{\"definition\":" + entities.get(path.substring("/api/atlas/entities/".length())) + "}";
+				} else {
+					String traitName = path.substring("/api/atlas/types/".length());
+
+					ret = "{\"definition\":{\"traitTypes\":[{\"typeName\":\"" + traitName + "\",\"superTypes\":[],\"attributeDefinitions\":[]}]}}";
+				}
+
+				byte[] response = ret.getBytes(Charset.forName("UTF-8"));
+
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, response.length);
+
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(response);
+				}
+			}
+		});
+
+		server.start();
+
+		fingerprintFile = File.createTempFile("atlas-fingerprints", ".json");
+		fingerprintFile.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+
+		fingerprintFile.delete();
+	}
+
+	@Test
+	public void testIncrementalSynchUp() throws Exception {
+		addEntity("1", "db1.t1@cl1", "PII");
+		addEntity("2", "db1.t2@cl1", "PII");
+
+		AtlasRESTTagSource tagSource = createTagSource();
+
+		tagSource.synchUp();
+
+		Assert.assertEquals(1, uploaded.size());
+		Assert.assertEquals(ServiceTags.OP_REPLACE, uploaded.get(0).getOp());
+		Assert.assertEquals(2, uploaded.get(0).getServiceResources().size());
+		Assert.assertTrue(fingerprintFile.exists());
+
+		// no changes: nothing to upload
+		uploaded.clear();
+		tagSource.synchUp();
+
+		Assert.assertEquals(0, uploaded.size());
+
+		addEntity("1", "db1.t1@cl1", "PII", "PCI");
+		entities.remove("2");
+		addEntity("3", "db1.t3@cl1", "PII");
+
+		uploaded.clear();
+		tagSource.synchUp();
+
+		Assert.assertEquals(2, uploaded.size());
+		Assert.assertEquals(ServiceTags.OP_DELETE, uploaded.get(0).getOp());
+		Assert.assertEquals(1, uploaded.get(0).getServiceResources().size());
+		Assert.assertEquals("2", uploaded.get(0).getServiceResources().get(0).getGuid());
+		Assert.assertEquals(ServiceTags.OP_ADD_OR_UPDATE, uploaded.get(1).getOp());
+		Assert.assertEquals(2, uploaded.get(1).getServiceResources().size());
+		Assert.assertEquals(3, uploaded.get(1).getTags().size());
+
+		// fingerprints are read back by a restarted tag source, so no full snapshot is uploaded
+		uploaded.clear();
+		createTagSource().synchUp();
+
+		Assert.assertEquals(0, uploaded.size());
+	}
+
+	private AtlasRESTTagSource createTagSource() {
+		Properties props = new Properties();
+
+		props.setProperty("ranger.tagsync.source.atlasrest.endpoint", "http://localhost:" + server.getAddress().getPort());
+		props.setProperty("ranger.tagsync.source.atlasrest.incremental", "true");
+		props.setProperty("ranger.tagsync.source.atlasrest.fingerprint.filename", fingerprintFile.getAbsolutePath());
+
+		AtlasRESTTagSource ret = new AtlasRESTTagSource();
+
+		Assert.assertTrue(ret.initialize(props));
+
+		ret.setTagSink(new TagSink() {
+			@Override
+			public boolean initialize(Properties properties) {
+				return true;
+			}
+
+			@Override
+			public ServiceTags upload(ServiceTags toUpload) throws Exception {
+				uploaded.add(toUpload);
+
+				return toUpload;
+			}
+
+			@Override
+			public boolean start() {
+				return true;
+			}
+
+			@Override
+			public void stop() {
+			}
+		});
+
+		return ret;
+	}
+
+	private void addEntity(String guid, String qualifiedName, String... traitNames) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		Map<String, IStruct> traits = new HashMap<String, IStruct>();
+
+		values.put(AtlasHiveResourceMapper.ENTITY_ATTRIBUTE_QUALIFIED_NAME, qualifiedName);
+
+		for (String traitName : traitNames) {
+			traits.put(traitName, new Struct(traitName));
+		}
+
+		Referenceable entity = new Referenceable(guid, "hive_table", values, new ArrayList<String>(traits.keySet()), traits);
+
+		entities.put(guid, InstanceSerialization.toJson(entity, true));
+	}
+}
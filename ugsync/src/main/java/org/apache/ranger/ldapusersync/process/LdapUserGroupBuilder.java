@@ -24,15 +24,25 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.naming.Context;
 import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.SearchControls;
@@ -54,7 +64,6 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 	
 	private static final Logger LOG = Logger.getLogger(LdapUserGroupBuilder.class);
 	
-	private static final int PAGE_SIZE = 500;
 
   private String ldapUrl;
   private String ldapBindDn;
@@ -99,6 +108,23 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
   private boolean  groupUserMapSyncEnabled = false;
 
   private Map<String, UserInfo> userGroupMap;
+
+  // incremental sync: entries with a change attribute at or above highWaterMark are read, until the
+  // next full sync. groupMemberDns holds the members seen for each group, to find users removed from it
+  private boolean deltaSyncEnabled = false;
+  private long fullSyncIntervalInMillis;
+  private String[] changeAttributes;
+  private String highWaterMark;
+  private String nextHighWaterMark;
+  private long lastFullSyncTime = 0;
+  private volatile boolean searchFailed = false;
+  private Map<String, Set<String>> groupMemberDns = new HashMap<String, Set<String>>();
+
+  // searches of multiple bases, and the group searches of each user, run searchThreads at a time
+  private int searchThreads = 1;
+  private ExecutorService searchExecutor;
+  private final Map<String, Long> searchTimeInMillisByBase = new LinkedHashMap<String, Long>();
+  private static final int GROUPS_OF_USERS_CHUNK_SIZE = 1000;
   
 	public static void main(String[] args) throws Throwable {
 		LdapUserGroupBuilder  ugBuilder = new LdapUserGroupBuilder();
@@ -163,6 +189,27 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 		ldapContext.addToEnvironment(Context.REFERRAL, ldapReferral) ;
 	}
 	
+	/**
+	 * Opens a context for a search worker. Its connection is kept in the JNDI connection pool when
+	 * closed, and reused by the next sync.
+	 */
+	private LdapContext createPooledLdapContext() throws NamingException {
+		Properties env = new Properties();
+		env.put(Context.INITIAL_CONTEXT_FACTORY,
+				"com.sun.jndi.ldap.LdapCtxFactory");
+		env.put(Context.PROVIDER_URL, ldapUrl);
+		if (ldapUrl.startsWith("ldaps") && (config.getSSLTrustStorePath() != null && !config.getSSLTrustStorePath().trim().isEmpty())) {
+			env.put("java.naming.ldap.factory.socket", "org.apache.ranger.ldapusersync.process.CustomSSLSocketFactory");
+		}
+		env.put(Context.SECURITY_PRINCIPAL, ldapBindDn);
+		env.put(Context.SECURITY_CREDENTIALS, ldapBindPassword);
+		env.put(Context.SECURITY_AUTHENTICATION, ldapAuthenticationMechanism);
+		env.put(Context.REFERRAL, ldapReferral);
+		env.put("com.sun.jndi.ldap.connect.pool", "true");
+
+		return new InitialLdapContext(env, null);
+	}
+
 	private void setConfig() throws Throwable {
 		LOG.info("LdapUserGroupBuilder initialization started");
 
@@ -175,6 +222,25 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
     //ldapBindPassword = "admin-password";
     ldapAuthenticationMechanism = config.getLdapAuthenticationMechanism();
     ldapReferral = config.getContextReferral();
+
+    // JNDI doesn't pool StartTLS connections, so these searches stay on the single context
+    searchThreads = config.isStartTlsEnabled() ? 1 : config.getSearchThreads();
+    if (searchExecutor != null) {
+      searchExecutor.shutdown();
+      searchExecutor = null;
+    }
+    if (searchThreads > 1) {
+      searchExecutor = Executors.newFixedThreadPool(searchThreads, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "LdapUserGroupBuilder-search-" + threadCount.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
 		searchBase = config.getSearchBase();
 		
 		userSearchBase = config.getUserSearchBase().split(";");
@@ -203,6 +269,15 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 			}
 		}
 		
+		deltaSyncEnabled = config.isDeltaSyncEnabled();
+		fullSyncIntervalInMillis = config.getFullSyncIntervalInMillis();
+		changeAttributes = config.getDeltaSyncChangeAttributes();
+		highWaterMark = null;
+		lastFullSyncTime = 0;
+		if (deltaSyncEnabled) {
+			userSearchAttributes.addAll(Arrays.asList(changeAttributes));
+		}
+
 		userSearchControls = new SearchControls();
 		userSearchControls.setSearchScope(userSearchScope);
 		userSearchControls.setReturningAttributes(userSearchAttributes.toArray(
@@ -238,6 +313,9 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
     Set<String> groupSearchAttributes = new HashSet<String>();
     groupSearchAttributes.add(groupNameAttribute);
     groupSearchAttributes.add(groupMemberAttributeName);
+    if (deltaSyncEnabled) {
+      groupSearchAttributes.addAll(Arrays.asList(changeAttributes));
+    }
 	
     groupSearchControls.setReturningAttributes(groupSearchAttributes.toArray(
 			new String[groupSearchAttributes.size()]));
@@ -273,6 +351,10 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
           + ", groupSearchFirstEnabled: " + groupSearchFirstEnabled
           + ", userSearchEnabled: " + userSearchEnabled
           + ",  ldapReferral: " + ldapReferral
+          + ",  deltaSyncEnabled: " + deltaSyncEnabled
+          + ",  changeAttributes: " + Arrays.toString(changeAttributes)
+          + ",  fullSyncIntervalInMillis: " + fullSyncIntervalInMillis
+          + ",  searchThreads: " + searchThreads
       );
 		}
 
@@ -296,20 +378,32 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 	@Override
 	public void updateSink(UserGroupSink sink) throws Throwable {
 		LOG.info("LDAPUserGroupBuilder updateSink started");
-		userGroupMap = new HashMap<String, UserInfo>();
+		if (deltaSyncEnabled && highWaterMark != null
+				&& (System.currentTimeMillis() - lastFullSyncTime) < fullSyncIntervalInMillis) {
+			updateSinkWithChanges(sink);
+			return;
+		}
+
+		long fullSyncStartTime = System.currentTimeMillis();
+		nextHighWaterMark = null;
+		searchFailed = false;
+		groupMemberDns = new HashMap<String, Set<String>>();
+		userGroupMap = new LinkedHashMap<String, UserInfo>();
+		synchronized (this) {
+			searchTimeInMillisByBase.clear();
+		}
 		if (!groupSearchFirstEnabled) {
 			LOG.info("Performing user search first");
 			getUsers(sink);
 			
 			LOG.debug("Total No. of users saved = " + userGroupMap.size());
-			//Iterator<UserInfo> userInfoIterator = userGroupMap.
+			if (groupSearchEnabled) {
+				// Perform group search
+				LOG.info("groupSearch is enabled, would search for groups and compute memberships");
+				getGroupsOfUsers(new ArrayList<UserInfo>(userGroupMap.values()));
+			}
 			for (UserInfo userInfo : userGroupMap.values()) {
 				String userName = userInfo.getUserName();
-				if (groupSearchEnabled) {
-					// Perform group search
-					LOG.info("groupSearch is enabled, would search for groups and compute memberships");
-					getGroups(sink, userInfo);
-				}
 				List<String> groupList = userInfo.getGroups();
 				if (userNameCaseConversionFlag) {
 					if (userNameLowerCaseFlag) {
@@ -334,7 +428,7 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 			
 		} else {
 			LOG.info("Performing Group search first");
-			getGroups(sink, null);
+			getGroups(sink);
 			if (userSearchEnabled) {
 				LOG.info("User search is enabled and hence computing user membership.");
 				getUsers(sink);
@@ -367,354 +461,736 @@ public class LdapUserGroupBuilder extends AbstractUserGroupSource {
 				}
 			}
 		}
+
+		LOG.info("LDAPUserGroupBuilder search time by search base (ms): " + getSearchTimeInMillisByBase());
+
+		if (deltaSyncEnabled) {
+			if (searchFailed) {
+				LOG.warn("LDAPUserGroupBuilder: full sync had search failures; the next sync will be a full sync too");
+			} else if (nextHighWaterMark == null) {
+				LOG.warn("LDAPUserGroupBuilder: none of the change attributes " + Arrays.toString(changeAttributes)
+						+ " were returned by the LDAP server; the next sync will be a full sync too");
+			} else {
+				lastFullSyncTime = fullSyncStartTime;
+			}
+			highWaterMark = searchFailed ? null : nextHighWaterMark;
+		}
 	}
 	
 	private void getUsers(UserGroupSink sink) throws Throwable {
-		UserInfo userInfo;
-		NamingEnumeration<SearchResult> userSearchResultEnum = null;
-		NamingEnumeration<SearchResult> groupSearchResultEnum = null;
-		try {
-			createLdapContext();
-			int total;
-			// Activate paged results
-			if (pagedResultsEnabled)   {
-				ldapContext.setRequestControls(new Control[]{
-						new PagedResultsControl(pagedResultsSize, Control.NONCRITICAL) });
+		// When multiple OUs are configured, they are searched in parallel; their entries are
+		// processed one at a time, in the configured order of the OUs.
+		UserEntryHandler handler = new UserEntryHandler(sink);
+
+		searchBases(userSearchBase, extendedUserSearchFilter, userSearchControls, handler);
+
+		LOG.info("LDAPUserGroupBuilder.getUsers() completed with user count: "
+				+ handler.counter);
+	}
+
+	private class UserEntryHandler implements SearchResultHandler {
+		private final UserGroupSink sink;
+		private int counter = 0;
+
+		UserEntryHandler(UserGroupSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void process(SearchResult userEntry) throws Throwable {
+			UserInfo userInfo;
+			Attributes attributes =   userEntry.getAttributes();
+
+			trackChange(attributes);
+
+			Attribute userNameAttr  = attributes.get(userNameAttribute);
+			if (userNameAttr == null)  {
+				if (LOG.isInfoEnabled())  {
+					LOG.info(userNameAttribute + " missing for entry " + userEntry.getNameInNamespace() +
+							", skipping sync");
+				}
+				return;
 			}
 
-			// When multiple OUs are configured, go through each OU as the user search base to search for users.
-			for (int ou=0; ou<userSearchBase.length; ou++) {
-				byte[] cookie = null;
-				int counter = 0;
-				try {
-				do {
-					userSearchResultEnum = ldapContext
-							.search(userSearchBase[ou], extendedUserSearchFilter,
-									userSearchControls);
-					
-					while (userSearchResultEnum.hasMore()) {
-						// searchResults contains all the user entries
-						final SearchResult userEntry = userSearchResultEnum.next();
+			String userName = (String) userNameAttr.get();
 
-						if (userEntry == null)  {
-							if (LOG.isInfoEnabled())  {
-								LOG.info("userEntry null, skipping sync for the entry");
-							}
-							continue;
-						}
+			if (userName == null || userName.trim().isEmpty())  {
+				if (LOG.isInfoEnabled())  {
+					LOG.info(userNameAttribute + " empty for entry " + userEntry.getNameInNamespace() +
+							", skipping sync");
+				}
+				return;
+			}
 
-						Attributes attributes =   userEntry.getAttributes();
-						if (attributes == null)  {
-							if (LOG.isInfoEnabled())  {
-								LOG.info("attributes  missing for entry " + userEntry.getNameInNamespace() +
-										", skipping sync");
-							}
-							continue;
-						}
+			if (!groupSearchFirstEnabled) {
+				userInfo = new UserInfo(userName, userEntry.getNameInNamespace());
+				Set<String> groups = new HashSet<String>();
 
-						Attribute userNameAttr  = attributes.get(userNameAttribute);
-						if (userNameAttr == null)  {
-							if (LOG.isInfoEnabled())  {
-								LOG.info(userNameAttribute + " missing for entry " + userEntry.getNameInNamespace() +
-										", skipping sync");
-							}
-							continue;
+				// Get all the groups from the group name attribute of the user only when group search is not enabled.
+				if (!groupSearchEnabled) {
+					groups.addAll(getGroupsFromUserEntry(attributes));
+				}
+
+				userInfo.addGroups(groups);
+
+				//populate the userGroupMap with username, userInfo.
+				//userInfo contains details of user that will be later used for
+				//group search to compute group membership as well as to call sink.addOrUpdateUser()
+				if (userGroupMap.containsKey(userName)) {
+					LOG.warn("user object with username " + userName + " already exists and is replaced with the latest user object." );
+				}
+				userGroupMap.put(userName, userInfo);
+
+				//List<String> groupList = new ArrayList<String>(groups);
+				List<String> groupList = userInfo.getGroups();
+				counter++;
+				if (counter <= 2000) {
+					if (LOG.isInfoEnabled()) {
+						LOG.info("Updating user count: " + counter
+								+ ", userName: " + userName + ", groupList: "
+								+ groupList);
+					}
+					if ( counter == 2000 ) {
+						LOG.info("===> 2000 user records have been synchronized so far. From now on, only a summary progress log will be written for every 100 users. To continue to see detailed log for every user, please enable Trace level logging. <===");
+					}
+				} else {
+					if (LOG.isTraceEnabled()) {
+						LOG.trace("Updating user count: " + counter
+								+ ", userName: " + userName + ", groupList: "
+								+ groupList);
+					} else  {
+						if ( counter % 100 == 0) {
+							LOG.info("Synced " + counter + " users till now");
 						}
+					}
+				}
+			} else {
+				// If the user from the search result is present in the usersList,
+				// then update user name in the userInfo map with the value from the search result
+				// and update ranger admin.
+				String userFullName = (userEntry.getNameInNamespace()).toLowerCase();
+				LOG.debug("Chekcing if the user " + userFullName + " is part of the retrieved groups");
+
+				userInfo = userGroupMap.get(userFullName);
+				if (userInfo == null) {
+					userInfo = userGroupMap.get(userName.toLowerCase());
+				}
+				if (userInfo != null) {
+					counter++;
+					LOG.info("Updating username for " + userFullName + " with " + userName);
+					userInfo.updateUserName(userName);
+					List<String> groupList = userInfo.getGroups();
+					userName = transformUserName(userName);
+
+					try {
+						sink.addOrUpdateUser(userName, groupList);
+					} catch (Throwable t) {
+						LOG.error("sink.addOrUpdateUser failed with exception: " + t.getMessage()
+						+ ", for user: " + userName
+						+ ", groups: " + groupList);
+					}
+				}
+			}
+		}
+	}
+
+	// If group based search is enabled, then first retrieve all the groups based on the group configuration.
+	private void getGroups(UserGroupSink sink) throws Throwable {
+		GroupEntryHandler handler = new GroupEntryHandler(sink);
 
-						String userName = (String) userNameAttr.get();
+		searchBases(groupSearchBase, extendedAllGroupsSearchFilter, groupSearchControls, handler);
+
+		LOG.info("LDAPUserGroupBuilder.getGroups() completed with group count: "
+				+ handler.counter);
+	}
+
+	private class GroupEntryHandler implements SearchResultHandler {
+		private final UserGroupSink sink;
+		private int counter = 0;
+
+		GroupEntryHandler(UserGroupSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void process(SearchResult groupEntry) throws Throwable {
+			counter++;
+			trackChange(groupEntry.getAttributes());
+			String gName = getGroupName(groupEntry);
+			if (gName == null) {
+				if (LOG.isInfoEnabled())  {
+					LOG.info(groupNameAttribute + " empty for entry " + groupEntry.getNameInNamespace() +
+							", skipping sync");
+				}
+				return;
+			}
+			// update the group name to ranger admin
+			// check for group members and populate userInfo object with user's full name and group mapping
+			Attribute groupMemberAttr = groupEntry.getAttributes().get(groupMemberAttributeName);
+			LOG.debug("Update Ranger admin with " + gName);
+			sink.addOrUpdateGroup(gName);
+			recordGroupMember(gName, null);
+			int userCount = 0;
+			if (groupMemberAttr == null || groupMemberAttr.size() <= 0) {
+				LOG.info("No members available for " + gName);
+				return;
+			}
+			NamingEnumeration<?> userEnum = groupMemberAttr.getAll();
+			while (userEnum.hasMore()) {
+				String originalUserFullName = (String) userEnum.next();
+				if (originalUserFullName == null || originalUserFullName.trim().isEmpty()) {
+					continue;
+				}
+				String userFullName = originalUserFullName.toLowerCase();
+				userCount++;
+				UserInfo userInfo = userGroupMap.get(userFullName);
+				if (userInfo == null) {
+					userInfo = new UserInfo(userFullName, originalUserFullName); // Preserving the original full name for later
+					userGroupMap.put(userFullName, userInfo);
+				}
+				LOG.info("Adding " + gName + " to user " + userInfo.getUserFullName());
+				userInfo.addGroup(gName);
+				recordGroupMember(gName, originalUserFullName);
+			}
+			LOG.info("No. of members in the group " + gName + " = " + userCount);
+		}
+	}
 
-						if (userName == null || userName.trim().isEmpty())  {
+	// computes the group memberships of the given users, one group search per user and group search base.
+	// The searches are submitted a chunk of users at a time, so that pending searches stay bounded.
+	private void getGroupsOfUsers(List<UserInfo> users) throws Throwable {
+		for (int start = 0; start < users.size(); start += GROUPS_OF_USERS_CHUNK_SIZE) {
+			List<SearchTask> tasks = new ArrayList<SearchTask>();
+			for (final UserInfo userInfo : users.subList(start, Math.min(users.size(), start + GROUPS_OF_USERS_CHUNK_SIZE))) {
+				SearchResultHandler handler = new SearchResultHandler() {
+					@Override
+					public void process(SearchResult groupEntry) throws Throwable {
+						trackChange(groupEntry.getAttributes());
+						String gName = getGroupName(groupEntry);
+						if (gName == null) {
 							if (LOG.isInfoEnabled())  {
-								LOG.info(userNameAttribute + " empty for entry " + userEntry.getNameInNamespace() +
+								LOG.info(groupNameAttribute + " empty for entry " + groupEntry.getNameInNamespace() +
 										", skipping sync");
 							}
-							continue;
+							return;
+						}
+						if (LOG.isInfoEnabled())  {
+							LOG.info("computed groups for user: " + userInfo.getUserName() +", groups: " + gName);
 						}
+						userInfo.addGroup(gName);
+						recordGroupMember(gName, userInfo.getUserFullName());
+					}
+				};
+				for (String base : groupSearchBase) {
+					tasks.add(new SearchTask(base, extendedGroupSearchFilter,
+							new Object[]{userInfo.getUserFullName(), userInfo.getUserName()}, groupSearchControls, handler));
+				}
+			}
 
-						if (!groupSearchFirstEnabled) {
-							userInfo = new UserInfo(userName, userEntry.getNameInNamespace());
-							Set<String> groups = new HashSet<String>();
-
-							// Get all the groups from the group name attribute of the user only when group search is not enabled.
-							if (!groupSearchEnabled) {
-								for (String useGroupNameAttribute : userGroupNameAttributeSet) {
-									Attribute userGroupfAttribute = userEntry.getAttributes().get(useGroupNameAttribute);
-									if (userGroupfAttribute != null) {
-										NamingEnumeration<?> groupEnum = userGroupfAttribute.getAll();
-										while (groupEnum.hasMore()) {
-											String gName = getShortGroupName((String) groupEnum
-													.next());
-											if (groupNameCaseConversionFlag) {
-												if (groupNameLowerCaseFlag) {
-													gName = gName.toLowerCase();
-												} else {
-													gName = gName.toUpperCase();
-												}
-											}
-											if (groupNameRegExInst != null) {
-												gName = groupNameRegExInst.transform(gName);
-											}
-											groups.add(gName);
-										}
-									}
-								}
-							}
+			execute(tasks);
+		}
+	}
 
-							userInfo.addGroups(groups);
-							
-							//populate the userGroupMap with username, userInfo. 
-							//userInfo contains details of user that will be later used for
-							//group search to compute group membership as well as to call sink.addOrUpdateUser()
-							if (userGroupMap.containsKey(userName)) {
-								LOG.warn("user object with username " + userName + " already exists and is replaced with the latest user object." );
-							}
-							userGroupMap.put(userName, userInfo);
-
-							//List<String> groupList = new ArrayList<String>(groups);
-							List<String> groupList = userInfo.getGroups();
-							counter++;
-							if (counter <= 2000) { 
-								if (LOG.isInfoEnabled()) {
-									LOG.info("Updating user count: " + counter
-											+ ", userName: " + userName + ", groupList: "
-											+ groupList);
-								}
-								if ( counter == 2000 ) {
-									LOG.info("===> 2000 user records have been synchronized so far. From now on, only a summary progress log will be written for every 100 users. To continue to see detailed log for every user, please enable Trace level logging. <===");
-								}
-							} else {
-								if (LOG.isTraceEnabled()) {
-									LOG.trace("Updating user count: " + counter
-											+ ", userName: " + userName + ", groupList: "
-											+ groupList);
-								} else  {
-									if ( counter % 100 == 0) {
-										LOG.info("Synced " + counter + " users till now");
-									}
-								}
-							}
-						} else {
-							// If the user from the search result is present in the usersList, 
-							// then update user name in the userInfo map with the value from the search result
-							// and update ranger admin.
-							String userFullName = (userEntry.getNameInNamespace()).toLowerCase();
-							LOG.debug("Chekcing if the user " + userFullName + " is part of the retrieved groups");
-							
-							userInfo = userGroupMap.get(userFullName);
-							if (userInfo == null) {
-								userInfo = userGroupMap.get(userName.toLowerCase());
-							}
-							if (userInfo != null) {
-								counter++;
-								LOG.info("Updating username for " + userFullName + " with " + userName);
-								userInfo.updateUserName(userName);
-								List<String> groupList = userInfo.getGroups();
-								if (userNameCaseConversionFlag) {
-									if (userNameLowerCaseFlag) {
-										userName = userName.toLowerCase() ;
-									}
-									else {
-										userName = userName.toUpperCase() ;
-									}
-								}
+	private void searchBases(String[] bases, String filter, SearchControls searchControls, SearchResultHandler handler) throws Throwable {
+		List<SearchTask> tasks = new ArrayList<SearchTask>();
+		for (String base : bases) {
+			tasks.add(new SearchTask(base, filter, null, searchControls, handler));
+		}
 
-								if (userNameRegExInst != null) {
-									userName = userNameRegExInst.transform(userName);
-								}
-								
-								try {
-									sink.addOrUpdateUser(userName, groupList);
-								} catch (Throwable t) {
-									LOG.error("sink.addOrUpdateUser failed with exception: " + t.getMessage()
-									+ ", for user: " + userName
-									+ ", groups: " + groupList);
-								}
-							} 
-						}
+		execute(tasks);
 
-					}
+		for (SearchTask task : tasks) {
+			LOG.info("LDAPUserGroupBuilder: search of " + task.base + " returned "
+					+ (task.failed ? "an error after " : "") + task.entryCount + " entries"
+					+ " in " + task.elapsedMillis + " ms");
+		}
+	}
 
-					// Examine the paged results control response
-					Control[] controls = ldapContext.getResponseControls();
-					if (controls != null) {
-						for (int i = 0; i < controls.length; i++) {
-							if (controls[i] instanceof PagedResultsResponseControl) {
-								PagedResultsResponseControl prrc =
-										(PagedResultsResponseControl)controls[i];
-								total = prrc.getResultSize();
-								if (total != 0) {
-									LOG.debug("END-OF-PAGE total : " + total);
-								} else {
-									LOG.debug("END-OF-PAGE total : unknown");
-								}
-								cookie = prrc.getCookie();
-							}
+	/**
+	 * Runs the searches, up to searchThreads of them at a time, each worker on its own pooled
+	 * connection. The handlers get the entries in task order, as with a single thread: the
+	 * entries of the first unfinished task are passed on as its pages arrive, and those of later
+	 * tasks are buffered until the tasks before them are done. Handlers are called one at a time.
+	 * A failed search is logged and marked as failed.
+	 */
+	private void execute(final List<SearchTask> tasks) throws Throwable {
+		final OrderedSearchTasks orderedTasks = new OrderedSearchTasks(tasks);
+		int workerCount = Math.min(searchThreads, tasks.size());
+
+		if (workerCount <= 1 || searchExecutor == null) {
+			try {
+				createLdapContext();
+				runSearchTasks(ldapContext, orderedTasks);
+			} finally {
+				closeLdapContext();
+			}
+		} else {
+			List<Future<Void>> workers = new ArrayList<Future<Void>>();
+			for (int i = 0; i < workerCount; i++) {
+				workers.add(searchExecutor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						LdapContext ctx = createPooledLdapContext();
+						try {
+							runSearchTasks(ctx, orderedTasks);
+						} finally {
+							ctx.close();
 						}
-					} else {
-						LOG.debug("No controls were sent from the server");
+						return null;
 					}
-					// Re-activate paged results
-					if (pagedResultsEnabled)   {
-						ldapContext.setRequestControls(new Control[]{
-								new PagedResultsControl(PAGE_SIZE, cookie, Control.CRITICAL) });
+				}));
+			}
+
+			Throwable failure = null;
+			for (Future<Void> worker : workers) {
+				try {
+					worker.get();
+				} catch (ExecutionException e) {
+					failure = e.getCause();
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		for (SearchTask task : tasks) {
+			addSearchTime(task.base, task.elapsedMillis);
+		}
+	}
+
+	private void runSearchTasks(LdapContext ctx, final OrderedSearchTasks orderedTasks) {
+		for (int i = orderedTasks.nextTask.getAndIncrement(); i < orderedTasks.tasks.size(); i = orderedTasks.nextTask.getAndIncrement()) {
+			final SearchTask task = orderedTasks.tasks.get(i);
+			long startTime = System.currentTimeMillis();
+			try {
+				search(ctx, task.base, task.filter, task.filterArgs, task.searchControls, new SearchResultHandler() {
+					@Override
+					public void process(SearchResult entry) throws Throwable {
+						orderedTasks.add(task, entry);
 					}
-				} while (cookie != null);
-				LOG.info("LDAPUserGroupBuilder.getUsers() completed with user count: "
-						+ counter);
-				} catch (Throwable t) {
-					LOG.error("LDAPUserGroupBuilder.getUsers() failed with exception: " + t);
-					LOG.info("LDAPUserGroupBuilder.getUsers() user count: "
-							+ counter);
+				});
+			} catch (Throwable t) {
+				searchFailed = true;
+				task.failed = true;
+				LOG.error("LDAPUserGroupBuilder: search of " + task.base + " with filter " + task.filter + " failed with exception: " + t);
+			}
+			orderedTasks.done(task);
+			task.elapsedMillis = System.currentTimeMillis() - startTime;
+		}
+	}
+
+	/*
+	 * Passes the entries of the tasks to their handlers in task order. Handlers update userGroupMap
+	 * and the sink, which are not thread-safe, so they are called under the lock of this object.
+	 */
+	private class OrderedSearchTasks {
+		final List<SearchTask> tasks;
+		final AtomicInteger    nextTask = new AtomicInteger();
+
+		// the first task that is not done; its entries are passed on as they arrive
+		private int head = 0;
+
+		OrderedSearchTasks(List<SearchTask> tasks) {
+			this.tasks = tasks;
+		}
+
+		synchronized void add(SearchTask task, SearchResult entry) {
+			task.entryCount++;
+
+			if (task == tasks.get(head)) {
+				process(task, entry);
+			} else {
+				task.pendingEntries.add(entry);
+			}
+		}
+
+		synchronized void done(SearchTask task) {
+			task.done = true;
+
+			while (head < tasks.size()) {
+				SearchTask headTask = tasks.get(head);
+
+				for (SearchResult entry : headTask.pendingEntries) {
+					process(headTask, entry);
+				}
+				headTask.pendingEntries.clear();
+
+				if (!headTask.done) {
+					break;
 				}
+
+				head++;
 			}
+		}
 
-		} finally {
-			if (userSearchResultEnum != null) {
-				userSearchResultEnum.close();
+		private void process(SearchTask task, SearchResult entry) {
+			if (task.processFailed) {
+				return;
 			}
-			if (groupSearchResultEnum != null) {
-				groupSearchResultEnum.close();
+
+			try {
+				task.handler.process(entry);
+			} catch (Throwable t) {
+				searchFailed = true;
+				task.failed = true;
+				task.processFailed = true;
+				LOG.error("LDAPUserGroupBuilder: processing an entry of " + task.base + " with filter " + task.filter + " failed with exception: " + t);
 			}
-			closeLdapContext();
 		}
 	}
-	
-	private void getGroups(UserGroupSink sink, UserInfo userInfo) throws Throwable {
-		NamingEnumeration<SearchResult> groupSearchResultEnum = null;
+
+	private synchronized void addSearchTime(String base, long elapsedMillis) {
+		Long total = searchTimeInMillisByBase.get(base);
+		searchTimeInMillisByBase.put(base, total == null ? elapsedMillis : (total + elapsedMillis));
+	}
+
+	/**
+	 * @return the time spent searching each search base, and processing its entries, in the last
+	 *         full sync, to see which subtree dominates it
+	 */
+	public synchronized Map<String, Long> getSearchTimeInMillisByBase() {
+		return new LinkedHashMap<String, Long>(searchTimeInMillisByBase);
+	}
+
+	private interface SearchResultHandler {
+		void process(SearchResult entry) throws Throwable;
+	}
+
+	private static class SearchTask {
+		final String              base;
+		final String              filter;
+		final Object[]            filterArgs;
+		final SearchControls      searchControls;
+		final SearchResultHandler handler;
+
+		// entries received while an earlier task is still running
+		final List<SearchResult> pendingEntries = new ArrayList<SearchResult>();
+
+		int     entryCount;
+		boolean failed;
+		boolean processFailed;
+		boolean done;
+		long    elapsedMillis;
+
+		SearchTask(String base, String filter, Object[] filterArgs, SearchControls searchControls, SearchResultHandler handler) {
+			this.base           = base;
+			this.filter         = filter;
+			this.filterArgs     = filterArgs;
+			this.searchControls = searchControls;
+			this.handler        = handler;
+		}
+	}
+
+	/**
+	 * Sends only the users whose entries changed since the last sync, and the current and previous
+	 * members of groups that changed, each with all of its groups.
+	 */
+	private void updateSinkWithChanges(UserGroupSink sink) throws Throwable {
+		LOG.info("Performing incremental sync of LDAP entries changed since " + highWaterMark);
+
+		String changeFilter = getChangeFilter(highWaterMark);
+		Map<String, SearchResult> usersToUpdate = new LinkedHashMap<String, SearchResult>();
+		Map<String, String> changedMemberDns = new LinkedHashMap<String, String>();
+		int counter = 0;
+
+		nextHighWaterMark = highWaterMark;
+
 		try {
 			createLdapContext();
-			int total;
-			// Activate paged results
-			if (pagedResultsEnabled)   {
-				ldapContext.setRequestControls(new Control[]{
-						new PagedResultsControl(pagedResultsSize, Control.NONCRITICAL) });
-			}
-			for (int ou=0; ou<groupSearchBase.length; ou++) {
-				byte[] cookie = null;
-				int counter = 0;
-				try {
-					do {
-						if (!groupSearchFirstEnabled) {
-							if (userInfo == null) {
-								// Should never reach this.
-								LOG.error("No user information provided for group search!");
-								return;
-							}
-							groupSearchResultEnum = ldapContext
-									.search(groupSearchBase[ou], extendedGroupSearchFilter,
-											new Object[]{userInfo.getUserFullName(), userInfo.getUserName()},
-											groupSearchControls);
-						} else {
-							// If group based search is enabled, then first retrieve all the groups based on the group configuration. 
-							groupSearchResultEnum = ldapContext
-									.search(groupSearchBase[ou], extendedAllGroupsSearchFilter,
-											groupSearchControls);
+
+			if (!groupSearchFirstEnabled || userSearchEnabled) {
+				for (String base : userSearchBase) {
+					for (SearchResult userEntry : search(ldapContext, base, "(&" + extendedUserSearchFilter + changeFilter + ")", null, userSearchControls)) {
+						trackChange(userEntry.getAttributes());
+						usersToUpdate.put(userEntry.getNameInNamespace().toLowerCase(), userEntry);
+					}
+				}
+			}
+
+			if (groupSearchEnabled || groupSearchFirstEnabled) {
+				for (String base : groupSearchBase) {
+					for (SearchResult groupEntry : search(ldapContext, base, "(&" + extendedAllGroupsSearchFilter + changeFilter + ")", null, groupSearchControls)) {
+						trackChange(groupEntry.getAttributes());
+
+						String gName = getGroupName(groupEntry);
+						if (gName == null) {
+							continue;
 						}
-						while (groupSearchResultEnum.hasMore()) {
-							final SearchResult groupEntry = groupSearchResultEnum.next();
-							if (groupEntry != null) {
-								counter++;
-								Attribute groupNameAttr = groupEntry.getAttributes().get(groupNameAttribute);
-								if (groupNameAttr == null) {
-									if (LOG.isInfoEnabled())  {
-										LOG.info(groupNameAttribute + " empty for entry " + groupEntry.getNameInNamespace() +
-												", skipping sync");
-									}
-									continue;
-								}
-								String gName = (String) groupNameAttr.get();
-								if (groupNameCaseConversionFlag) {
-									if (groupNameLowerCaseFlag) {
-										gName = gName.toLowerCase();
-									} else {
-										gName = gName.toUpperCase();
-									}
-								}
-								if (groupNameRegExInst != null) {
-									gName = groupNameRegExInst.transform(gName);
-								}
-								if (!groupSearchFirstEnabled) {
-									//computedGroups.add(gName);
-									if (LOG.isInfoEnabled())  {
-										LOG.info("computed groups for user: " + userInfo.getUserName() +", groups: " + gName);
-									}
-									userInfo.addGroup(gName);
-								} else {
-									// If group based search is enabled, then
-									// update the group name to ranger admin
-									// check for group members and populate userInfo object with user's full name and group mapping
-									Attribute groupMemberAttr = groupEntry.getAttributes().get(groupMemberAttributeName);
-									LOG.debug("Update Ranger admin with " + gName);
-									sink.addOrUpdateGroup(gName);
-									int userCount = 0;
-									if (groupMemberAttr == null || groupMemberAttr.size() <= 0) {
-										LOG.info("No members available for " + gName);
-										continue;
-									}
-									NamingEnumeration<?> userEnum = groupMemberAttr.getAll();
-									while (userEnum.hasMore()) {
-										String originalUserFullName = (String) userEnum.next();
-										if (originalUserFullName == null || originalUserFullName.trim().isEmpty()) {
-											continue;
-										}
-										String userFullName = originalUserFullName.toLowerCase();
-										userCount++;
-										if (!userGroupMap.containsKey(userFullName)) {
-											userInfo = new UserInfo(userFullName, originalUserFullName); // Preserving the original full name for later
-											userGroupMap.put(userFullName, userInfo);
-										} else {
-											userInfo = userGroupMap.get(userFullName);
-										}
-										LOG.info("Adding " + gName + " to user " + userInfo.getUserFullName());
-										userInfo.addGroup(gName);
-									}
-									LOG.info("No. of members in the group " + gName + " = " + userCount);
+						if (groupSearchFirstEnabled) {
+							sink.addOrUpdateGroup(gName);
+						}
+
+						Set<String> memberDns = new HashSet<String>();
+						Attribute groupMemberAttr = groupEntry.getAttributes().get(groupMemberAttributeName);
+						if (groupMemberAttr != null) {
+							NamingEnumeration<?> memberEnum = groupMemberAttr.getAll();
+							while (memberEnum.hasMore()) {
+								String memberDn = (String) memberEnum.next();
+								if (memberDn != null && !memberDn.trim().isEmpty()) {
+									memberDns.add(memberDn.toLowerCase());
+									changedMemberDns.put(memberDn.toLowerCase(), memberDn);
 								}
 							}
 						}
-						// Examine the paged results control response
-						Control[] controls = ldapContext.getResponseControls();
-						if (controls != null) {
-							for (int i = 0; i < controls.length; i++) {
-								if (controls[i] instanceof PagedResultsResponseControl) {
-									PagedResultsResponseControl prrc =
-											(PagedResultsResponseControl)controls[i];
-									total = prrc.getResultSize();
-									if (total != 0) {
-										LOG.debug("END-OF-PAGE total : " + total);
-									} else {
-										LOG.debug("END-OF-PAGE total : unknown");
-									}
-									cookie = prrc.getCookie();
+
+						Set<String> previousMemberDns = groupMemberDns.put(gName, memberDns);
+						if (previousMemberDns != null) {
+							for (String memberDn : previousMemberDns) {
+								if (!changedMemberDns.containsKey(memberDn)) {
+									changedMemberDns.put(memberDn, memberDn);
 								}
 							}
-						} else {
-							LOG.debug("No controls were sent from the server");
 						}
-						// Re-activate paged results
-						if (pagedResultsEnabled)   {
-							ldapContext.setRequestControls(new Control[]{
-									new PagedResultsControl(PAGE_SIZE, cookie, Control.CRITICAL) });
-						}
-					} while (cookie != null);
-					LOG.info("LDAPUserGroupBuilder.getGroups() completed with group count: "
-							+ counter);
-				} catch (Throwable t) {
-					LOG.error("LDAPUserGroupBuilder.getGroups() failed with exception: " + t);
-					LOG.info("LDAPUserGroupBuilder.getGroups() group count: "
-							+ counter);
+					}
 				}
 			}
 
-		} finally {
-			if (groupSearchResultEnum != null) {
-				groupSearchResultEnum.close();
+			for (Map.Entry<String, String> memberDn : changedMemberDns.entrySet()) {
+				if (!usersToUpdate.containsKey(memberDn.getKey())) {
+					usersToUpdate.put(memberDn.getKey(), lookupUser(memberDn.getValue()));
+				}
 			}
+
+			for (Map.Entry<String, SearchResult> entry : usersToUpdate.entrySet()) {
+				SearchResult userEntry = entry.getValue();
+				String userDn;
+				String userName;
+
+				if (userEntry != null) {
+					userDn = userEntry.getNameInNamespace();
+					Attribute userNameAttr = userEntry.getAttributes().get(userNameAttribute);
+					userName = userNameAttr != null ? (String) userNameAttr.get() : null;
+				} else if (groupSearchFirstEnabled && !userSearchEnabled) {
+					userDn = changedMemberDns.get(entry.getKey());
+					userName = getShortUserName(userDn);
+				} else {
+					continue; // a group member that isn't in the user search bases
+				}
+
+				if (userName == null || userName.trim().isEmpty()) {
+					continue;
+				}
+
+				List<String> groupList;
+				if (groupSearchEnabled || groupSearchFirstEnabled) {
+					groupList = getGroupsOfMember(userDn, userName);
+				} else {
+					groupList = getGroupsFromUserEntry(userEntry.getAttributes());
+				}
+
+				// as in a full sync, users in group-first mode are only those that belong to a group
+				if (groupSearchFirstEnabled && groupList.isEmpty() && !changedMemberDns.containsKey(entry.getKey())) {
+					continue;
+				}
+
+				userName = transformUserName(userName);
+
+				try {
+					sink.addOrUpdateUser(userName, groupList);
+					counter++;
+				} catch (Throwable t) {
+					LOG.error("sink.addOrUpdateUser failed with exception: " + t.getMessage()
+					+ ", for user: " + userName
+					+ ", groups: " + groupList);
+				}
+			}
+		} finally {
 			closeLdapContext();
 		}
+
+		highWaterMark = nextHighWaterMark;
+
+		LOG.info("LDAPUserGroupBuilder incremental sync completed with user count: " + counter + ", highWaterMark: " + highWaterMark);
+	}
+
+	private String getChangeFilter(String since) {
+		StringBuilder ret = new StringBuilder("(|");
+		for (String changeAttribute : changeAttributes) {
+			ret.append("(").append(changeAttribute).append(">=").append(since).append(")");
+		}
+		return ret.append(")").toString();
+	}
+
+	private void trackChange(Attributes attributes) throws Throwable {
+		if (!deltaSyncEnabled || attributes == null) {
+			return;
+		}
+		for (String changeAttribute : changeAttributes) {
+			Attribute attr = attributes.get(changeAttribute);
+			if (attr != null) {
+				String value = (String) attr.get();
+				if (value != null && (nextHighWaterMark == null || compareChangeValues(value, nextHighWaterMark) > 0)) {
+					nextHighWaterMark = value;
+				}
+			}
+		}
+	}
+
+	// uSNChanged-like attributes are numbers; modifyTimestamp-like ones are generalized time strings
+	private static int compareChangeValues(String value1, String value2) {
+		try {
+			return Long.valueOf(value1.trim()).compareTo(Long.valueOf(value2.trim()));
+		} catch (NumberFormatException e) {
+			return value1.compareTo(value2);
+		}
+	}
+
+	private void recordGroupMember(String gName, String memberDn) {
+		if (!deltaSyncEnabled) {
+			return;
+		}
+		Set<String> memberDns = groupMemberDns.get(gName);
+		if (memberDns == null) {
+			memberDns = new HashSet<String>();
+			groupMemberDns.put(gName, memberDns);
+		}
+		if (memberDn != null) {
+			memberDns.add(memberDn.toLowerCase());
+		}
+	}
+
+	private SearchResult lookupUser(String userDn) throws Throwable {
+		if (groupSearchFirstEnabled && !userSearchEnabled) {
+			return null;
+		}
+
+		boolean inUserSearchBase = false;
+		for (String base : userSearchBase) {
+			if (userDn.toLowerCase().endsWith(base.trim().toLowerCase())) {
+				inUserSearchBase = true;
+				break;
+			}
+		}
+		if (!inUserSearchBase) {
+			return null;
+		}
+
+		SearchControls lookupControls = new SearchControls();
+		lookupControls.setSearchScope(SearchControls.OBJECT_SCOPE);
+		lookupControls.setReturningAttributes(userSearchControls.getReturningAttributes());
+
+		try {
+			List<SearchResult> results = search(ldapContext, userDn, extendedUserSearchFilter, null, lookupControls);
+			return results.isEmpty() ? null : results.get(0);
+		} catch (NameNotFoundException e) {
+			return null; // the user was deleted
+		}
+	}
+
+	private List<String> getGroupsOfMember(String userDn, String userName) throws Throwable {
+		String memberFilter = "(&" + extendedAllGroupsSearchFilter + "(|(" + groupMemberAttributeName + "={0})(" + groupMemberAttributeName + "={1})))";
+		Set<String> groups = new HashSet<String>();
+
+		for (String base : groupSearchBase) {
+			for (SearchResult groupEntry : search(ldapContext, base, memberFilter, new Object[]{userDn, userName}, groupSearchControls)) {
+				String gName = getGroupName(groupEntry);
+				if (gName != null) {
+					groups.add(gName);
+					recordGroupMember(gName, userDn);
+				}
+			}
+		}
+
+		return new ArrayList<String>(groups);
+	}
+
+	private List<String> getGroupsFromUserEntry(Attributes attributes) throws Throwable {
+		Set<String> groups = new HashSet<String>();
+
+		for (String useGroupNameAttribute : userGroupNameAttributeSet) {
+			Attribute userGroupfAttribute = attributes.get(useGroupNameAttribute);
+			if (userGroupfAttribute != null) {
+				NamingEnumeration<?> groupEnum = userGroupfAttribute.getAll();
+				while (groupEnum.hasMore()) {
+					groups.add(transformGroupName(getShortGroupName((String) groupEnum.next())));
+				}
+			}
+		}
+
+		return new ArrayList<String>(groups);
+	}
+
+	private String getGroupName(SearchResult groupEntry) throws Throwable {
+		Attribute groupNameAttr = groupEntry.getAttributes().get(groupNameAttribute);
+		if (groupNameAttr == null) {
+			return null;
+		}
+		return transformGroupName((String) groupNameAttr.get());
+	}
+
+	private String transformGroupName(String gName) {
+		if (groupNameCaseConversionFlag) {
+			gName = groupNameLowerCaseFlag ? gName.toLowerCase() : gName.toUpperCase();
+		}
+		if (groupNameRegExInst != null) {
+			gName = groupNameRegExInst.transform(gName);
+		}
+		return gName;
+	}
+
+	private String transformUserName(String userName) {
+		if (userNameCaseConversionFlag) {
+			userName = userNameLowerCaseFlag ? userName.toLowerCase() : userName.toUpperCase();
+		}
+		if (userNameRegExInst != null) {
+			userName = userNameRegExInst.transform(userName);
+		}
+		return userName;
+	}
+
+	private List<SearchResult> search(LdapContext ctx, String base, String filter, Object[] filterArgs, SearchControls searchControls) throws Throwable {
+		final List<SearchResult> ret = new ArrayList<SearchResult>();
+
+		search(ctx, base, filter, filterArgs, searchControls, new SearchResultHandler() {
+			@Override
+			public void process(SearchResult entry) {
+				ret.add(entry);
+			}
+		});
+
+		return ret;
+	}
+
+	private void search(LdapContext ctx, String base, String filter, Object[] filterArgs, SearchControls searchControls, SearchResultHandler handler) throws Throwable {
+		byte[] cookie = null;
+
+		if (pagedResultsEnabled) {
+			ctx.setRequestControls(new Control[]{
+					new PagedResultsControl(pagedResultsSize, Control.NONCRITICAL) });
+		}
+
+		do {
+			NamingEnumeration<SearchResult> searchResultEnum = filterArgs == null
+					? ctx.search(base, filter, searchControls)
+					: ctx.search(base, filter, filterArgs, searchControls);
+			try {
+				while (searchResultEnum.hasMore()) {
+					SearchResult entry = searchResultEnum.next();
+					if (entry != null && entry.getAttributes() != null) {
+						handler.process(entry);
+					}
+				}
+			} finally {
+				searchResultEnum.close();
+			}
+
+			cookie = null;
+			Control[] controls = ctx.getResponseControls();
+			if (controls != null) {
+				for (Control control : controls) {
+					if (control instanceof PagedResultsResponseControl) {
+						cookie = ((PagedResultsResponseControl) control).getCookie();
+					}
+				}
+			}
+			if (pagedResultsEnabled) {
+				ctx.setRequestControls(new Control[]{
+						new PagedResultsControl(pagedResultsSize, cookie, Control.CRITICAL) });
+			}
+		} while (cookie != null);
 	}
 
-	
 	private static String getShortGroupName(String longGroupName) throws InvalidNameException {
 		if (longGroupName == null) {
 			return null;
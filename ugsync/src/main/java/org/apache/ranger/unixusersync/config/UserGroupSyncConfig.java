@@ -67,6 +67,11 @@ public class UserGroupSyncConfig  {
 	public static final String  UGSYNC_MAX_RECORDS_PER_API_CALL_PROP  = 	"ranger.usersync.policymanager.maxrecordsperapicall" ;
 
 	public static final String  UGSYNC_MOCK_RUN_PROP  = 	"ranger.usersync.policymanager.mockrun" ;
+
+	public static final String  UGSYNC_PM_BULK_ENABLED_PROP  = 	"ranger.usersync.policymanager.bulk.enabled" ;
+
+	public static final String  UGSYNC_PM_BULK_BATCH_SIZE_PROP  = 	"ranger.usersync.policymanager.bulk.batchsize" ;
+	private static final int    DEFAULT_UGSYNC_PM_BULK_BATCH_SIZE = 1000 ;
 	
 	public static final String UGSYNC_SOURCE_FILE_PROC =	"ranger.usersync.filesource.file";
 
@@ -166,6 +171,18 @@ public class UserGroupSyncConfig  {
   private static final String LGSYNC_GROUP_USER_MAP_SYNC_ENABLED = "ranger.usersync.group.usermapsyncenabled";
   private static final boolean DEFAULT_LGSYNC_GROUP_USER_MAP_SYNC_ENABLED = false;
 
+  private static final String LGSYNC_DELTA_SYNC_ENABLED = "ranger.usersync.ldap.deltasync";
+  private static final boolean DEFAULT_LGSYNC_DELTA_SYNC_ENABLED = false;
+
+  private static final String LGSYNC_DELTA_SYNC_CHANGE_ATTRIBUTES = "ranger.usersync.ldap.deltasync.changeattributes";
+  private static final String DEFAULT_LGSYNC_DELTA_SYNC_CHANGE_ATTRIBUTES = "modifyTimestamp,createTimestamp";
+
+  private static final String LGSYNC_FULL_SYNC_INTERVAL_IN_MILLIS = "ranger.usersync.ldap.fullsync.intervalinmillis";
+  private static final long DEFAULT_LGSYNC_FULL_SYNC_INTERVAL_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+  private static final String LGSYNC_SEARCH_THREADS = "ranger.usersync.ldap.searchthreads";
+  private static final int DEFAULT_LGSYNC_SEARCH_THREADS = 4;
+
   private static final String LGSYNC_GROUP_SEARCH_BASE = "ranger.usersync.group.searchbase";
 
   private static final String LGSYNC_GROUP_SEARCH_SCOPE = "ranger.usersync.group.searchscope";
@@ -383,6 +400,24 @@ public class UserGroupSyncConfig  {
 		return (val != null && val.trim().equalsIgnoreCase("true")) ;
 	}
 
+	public boolean isPolicyMgrBulkEnabled() {
+		String val = prop.getProperty(UGSYNC_PM_BULK_ENABLED_PROP) ;
+		return (val == null || val.trim().isEmpty() || Boolean.valueOf(val.trim())) ;
+	}
+
+	public int getPolicyMgrBulkBatchSize() {
+		int ret = DEFAULT_UGSYNC_PM_BULK_BATCH_SIZE ;
+		String val = prop.getProperty(UGSYNC_PM_BULK_BATCH_SIZE_PROP) ;
+		if (val != null && !val.trim().isEmpty()) {
+			try {
+				ret = Integer.parseInt(val.trim()) ;
+			} catch (NumberFormatException e) {
+				LOG.warn("Invalid value [" + val + "] for " + UGSYNC_PM_BULK_BATCH_SIZE_PROP + ", using default " + ret) ;
+			}
+		}
+		return ret ;
+	}
+
 	public String getPolicyManagerBaseURL() {
 		return prop.getProperty(UGSYNC_PM_URL_PROP) ;
 	}
@@ -709,6 +744,53 @@ public class UserGroupSyncConfig  {
     return groupUserMapSyncEnabled;
   }
 
+  public boolean isDeltaSyncEnabled() {
+    boolean deltaSyncEnabled;
+    String val = prop.getProperty(LGSYNC_DELTA_SYNC_ENABLED);
+    if(val == null || val.trim().isEmpty()) {
+      deltaSyncEnabled = DEFAULT_LGSYNC_DELTA_SYNC_ENABLED;
+    } else {
+      deltaSyncEnabled  = Boolean.valueOf(val);
+    }
+    return deltaSyncEnabled;
+  }
+
+  /**
+   * @return the attributes whose values grow with every change to an entry, like modifyTimestamp or
+   * uSNChanged; entries with a value at or above the last one seen are read in an incremental sync
+   */
+  public String[] getDeltaSyncChangeAttributes() {
+    String val = prop.getProperty(LGSYNC_DELTA_SYNC_CHANGE_ATTRIBUTES);
+    if(val == null || val.trim().isEmpty()) {
+      val = DEFAULT_LGSYNC_DELTA_SYNC_CHANGE_ATTRIBUTES;
+    }
+    List<String> ret = new ArrayList<String>();
+    for (String attr : val.split(",")) {
+      if (!attr.trim().isEmpty()) {
+        ret.add(attr.trim());
+      }
+    }
+    return ret.toArray(new String[ret.size()]);
+  }
+
+  public long getFullSyncIntervalInMillis() {
+    long fullSyncInterval = DEFAULT_LGSYNC_FULL_SYNC_INTERVAL_IN_MILLIS;
+    String val = prop.getProperty(LGSYNC_FULL_SYNC_INTERVAL_IN_MILLIS);
+    if(val != null && !val.trim().isEmpty()) {
+      fullSyncInterval = Long.parseLong(val.trim());
+    }
+    return fullSyncInterval;
+  }
+
+  public int getSearchThreads() {
+    int searchThreads = DEFAULT_LGSYNC_SEARCH_THREADS;
+    String val = prop.getProperty(LGSYNC_SEARCH_THREADS);
+    if(val != null && !val.trim().isEmpty()) {
+      searchThreads = Integer.parseInt(val.trim());
+    }
+    return searchThreads;
+  }
+
   public String getGroupSearchBase() throws Throwable {
     String val =  prop.getProperty(LGSYNC_GROUP_SEARCH_BASE);
     if(val == null || val.trim().isEmpty()) {
@@ -952,4 +1034,14 @@ public class UserGroupSyncConfig  {
     public void setGroupObjectClass(String groupObjectClass) {
         prop.setProperty(LGSYNC_GROUP_OBJECT_CLASS, groupObjectClass);
     }
+
+    /* Used only for unit testing */
+    public void setDeltaSyncEnabled(boolean deltaSyncEnabled) {
+        prop.setProperty(LGSYNC_DELTA_SYNC_ENABLED, String.valueOf(deltaSyncEnabled));
+    }
+
+    /* Used only for unit testing */
+    public void setSearchThreads(int searchThreads) {
+        prop.setProperty(LGSYNC_SEARCH_THREADS, String.valueOf(searchThreads));
+    }
 }
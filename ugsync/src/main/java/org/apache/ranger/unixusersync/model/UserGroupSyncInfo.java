@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.unixusersync.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserGroupSyncInfo {
+
+	List<UserGroupInfo> addOrUpdateUserGroups = new ArrayList<UserGroupInfo>();
+	List<UserGroupInfo> deleteUserGroups = new ArrayList<UserGroupInfo>();
+	List<XGroupInfo> addOrUpdateGroups = new ArrayList<XGroupInfo>();
+
+	public List<UserGroupInfo> getAddOrUpdateUserGroups() {
+		return addOrUpdateUserGroups;
+	}
+	public void setAddOrUpdateUserGroups(List<UserGroupInfo> addOrUpdateUserGroups) {
+		this.addOrUpdateUserGroups = addOrUpdateUserGroups;
+	}
+	public List<UserGroupInfo> getDeleteUserGroups() {
+		return deleteUserGroups;
+	}
+	public void setDeleteUserGroups(List<UserGroupInfo> deleteUserGroups) {
+		this.deleteUserGroups = deleteUserGroups;
+	}
+	public List<XGroupInfo> getAddOrUpdateGroups() {
+		return addOrUpdateGroups;
+	}
+	public void setAddOrUpdateGroups(List<XGroupInfo> addOrUpdateGroups) {
+		this.addOrUpdateGroups = addOrUpdateGroups;
+	}
+}
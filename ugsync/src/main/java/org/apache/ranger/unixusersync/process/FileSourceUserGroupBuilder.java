@@ -33,6 +33,7 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.log4j.Logger;
 import org.apache.ranger.unixusersync.config.UserGroupSyncConfig;
 import org.apache.ranger.usergroupsync.AbstractUserGroupSource;
+import org.apache.ranger.usergroupsync.BulkUserGroupSink;
 import org.apache.ranger.usergroupsync.UserGroupSink;
 import org.apache.ranger.usergroupsync.UserGroupSource;
 
@@ -62,6 +63,9 @@ public class FileSourceUserGroupBuilder extends AbstractUserGroupSource {
 		ugSink.init();
 
 		filesourceUGBuilder.updateSink(ugSink);
+		if (ugSink instanceof BulkUserGroupSink) {
+			((BulkUserGroupSink) ugSink).flush();
+		}
 		
 		if ( LOG.isDebugEnabled()) {
 			filesourceUGBuilder.print(); 
@@ -30,7 +30,9 @@ import java.security.PrivilegedAction;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.net.ssl.HostnameVerifier;
@@ -66,10 +68,11 @@ import org.apache.ranger.unixusersync.model.XGroupInfo;
 import org.apache.ranger.unixusersync.model.XUserGroupInfo;
 import org.apache.ranger.unixusersync.model.XUserInfo;
 import org.apache.ranger.unixusersync.model.UserGroupInfo;
-import org.apache.ranger.usergroupsync.UserGroupSink;
+import org.apache.ranger.unixusersync.model.UserGroupSyncInfo;
+import org.apache.ranger.usergroupsync.BulkUserGroupSink;
 import org.apache.ranger.usersync.util.UserSyncUtil;
 
-public class PolicyMgrUserGroupBuilder implements UserGroupSink {
+public class PolicyMgrUserGroupBuilder implements BulkUserGroupSink {
 	
 	private static final Logger LOG = Logger.getLogger(PolicyMgrUserGroupBuilder.class) ;
 	
@@ -93,6 +96,8 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 	private static final String PM_DEL_USER_GROUP_LINK_URI = "/service/xusers/group/${groupName}/user/${userName}" ; // DELETE
 	
 	private static final String PM_ADD_LOGIN_USER_URI = "/service/users/default" ;			// POST
+
+	private static final String PM_USER_GROUP_BULK_URI = "/service/xusers/usergroups/bulk" ;	// POST
 	private static final String GROUP_SOURCE_EXTERNAL ="1";
 	
 	private static String LOCAL_HOSTNAME = "unknown" ;
@@ -109,6 +114,15 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 	private HashMap<String,XUserInfo>  	userId2XUserInfoMap = new HashMap<String,XUserInfo>() ;
 	private HashMap<String,XUserInfo>  	userName2XUserInfoMap = new HashMap<String,XUserInfo>() ;
 	private HashMap<String,XGroupInfo>  groupName2XGroupInfoMap = new HashMap<String,XGroupInfo>() ;
+
+	// changes buffered until the next flush(), when bulk updates are enabled
+	private boolean isBulkEnabled = true ;
+	private int bulkBatchSize = 1000 ;
+	private Map<String,UserGroupInfo> pendingAddUserGroups = new LinkedHashMap<String,UserGroupInfo>() ;
+	private Map<String,UserGroupInfo> pendingDelUserGroups = new LinkedHashMap<String,UserGroupInfo>() ;
+	private Map<String,XGroupInfo>    pendingAddGroups     = new LinkedHashMap<String,XGroupInfo>() ;
+	// after a failed flush, the changes stay buffered until the flush at the end of the sync cycle
+	private boolean isFlushFailed = false ;
 	
 	private String keyStoreFile =  null ;
 	private String keyStoreFilepwd = null; 
@@ -151,6 +165,8 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 		recordsToPullPerCall = config.getMaxRecordsPerAPICall() ;
 		policyMgrBaseUrl = config.getPolicyManagerBaseURL() ;
 		isMockRun = config.isMockRunEnabled() ;
+		isBulkEnabled = config.isPolicyMgrBulkEnabled() ;
+		bulkBatchSize = config.getPolicyMgrBulkBatchSize() ;
 		
 		if (isMockRun) {
 			LOG.setLevel(Level.DEBUG) ;
@@ -324,6 +340,11 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 		if (groups == null) {
 			groups = new ArrayList<String>() ;
 		}
+
+		if (isBulkEnabled && ! isMockRun) {
+			addOrUpdateUserInBulk(userName, user, groups) ;
+			return ;
+		}
 		
 		if (user == null) {    // Does not exists
 
@@ -400,6 +421,276 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 		}
 	}
 	
+	/**
+	 * Buffers the difference between the user's groups and what Ranger Admin has, to be sent
+	 * with the changes for other users in one request by flush().
+	 */
+	private void addOrUpdateUserInBulk(String userName, XUserInfo user, List<String> groups) {
+		List<String> addGroups = new ArrayList<String>() ;
+		List<String> delGroups = new ArrayList<String>() ;
+
+		if (user == null) {
+			addGroups.addAll(groups) ;
+		} else {
+			List<String> oldGroups = user.getGroups() ;
+
+			for(String group : groups) {
+				if (! oldGroups.contains(group)) {
+					addGroups.add(group) ;
+				} else {
+					XGroupInfo groupInfo = groupName2XGroupInfoMap.get(group) ;
+					if (groupInfo != null && ! GROUP_SOURCE_EXTERNAL.equals(groupInfo.getGroupSource())) {
+						addGroups.add(group) ;
+					}
+				}
+			}
+
+			for(String group : oldGroups) {
+				if (! groups.contains(group)) {
+					delGroups.add(group) ;
+				}
+			}
+		}
+
+		// the diff is against the cache, which a pending change for this user hasn't updated yet
+		pendingAddUserGroups.remove(userName) ;
+		pendingDelUserGroups.remove(userName) ;
+
+		if (user == null || ! addGroups.isEmpty()) {
+			UserGroupInfo ugInfo = new UserGroupInfo() ;
+
+			ugInfo.setXuserInfo(newXUserInfo(userName)) ;
+			ugInfo.setXgroupInfo(getXGroupInfoListForBulk(addGroups)) ;
+
+			pendingAddUserGroups.put(userName, ugInfo) ;
+		}
+
+		if (! delGroups.isEmpty()) {
+			UserGroupInfo ugInfo = new UserGroupInfo() ;
+			List<XGroupInfo> xGroupInfoList = new ArrayList<XGroupInfo>() ;
+
+			for(String group : delGroups) {
+				XGroupInfo groupInfo = new XGroupInfo() ;
+				groupInfo.setName(group) ;
+				xGroupInfoList.add(groupInfo) ;
+			}
+
+			ugInfo.setXuserInfo(newXUserInfo(userName)) ;
+			ugInfo.setXgroupInfo(xGroupInfoList) ;
+
+			pendingDelUserGroups.put(userName, ugInfo) ;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("INFO: addOrUpdateUserInBulk(" + userName + "): addGroups=" + addGroups + ", delGroups=" + delGroups) ;
+		}
+
+		flushIfBatchFull() ;
+	}
+
+	private XUserInfo newXUserInfo(String aUserName) {
+		XUserInfo ret = new XUserInfo() ;
+
+		ret.setName(aUserName) ;
+		ret.setDescription(aUserName + " - add from Unix box") ;
+
+		return ret ;
+	}
+
+	private List<XGroupInfo> getXGroupInfoListForBulk(List<String> aGroupList) {
+		List<XGroupInfo> ret = new ArrayList<XGroupInfo>() ;
+
+		for(String groupName : aGroupList) {
+			XGroupInfo group = groupName2XGroupInfoMap.get(groupName) ;
+
+			if (group == null) {
+				group = addXGroupInfo(groupName) ;
+			} else {
+				XGroupInfo copy = new XGroupInfo() ;
+
+				copy.setName(group.getName()) ;
+				copy.setDescription(group.getDescription()) ;
+				copy.setGroupType(group.getGroupType()) ;
+				copy.setGroupSource(GROUP_SOURCE_EXTERNAL) ;
+
+				group = copy ;
+			}
+
+			ret.add(group) ;
+		}
+
+		return ret ;
+	}
+
+	private void flushIfBatchFull() {
+		if (! isFlushFailed && getPendingCount() >= bulkBatchSize) {
+			flush() ;
+		}
+	}
+
+	private int getPendingCount() {
+		return pendingAddUserGroups.size() + pendingDelUserGroups.size() + pendingAddGroups.size() ;
+	}
+
+	@Override
+	public void flush() {
+		if (getPendingCount() == 0) {
+			return ;
+		}
+
+		UserGroupSyncInfo syncInfo = new UserGroupSyncInfo() ;
+
+		syncInfo.getAddOrUpdateUserGroups().addAll(pendingAddUserGroups.values()) ;
+		syncInfo.getDeleteUserGroups().addAll(pendingDelUserGroups.values()) ;
+		syncInfo.getAddOrUpdateGroups().addAll(pendingAddGroups.values()) ;
+
+		LOG.info("Sending " + syncInfo.getAddOrUpdateUserGroups().size() + " user(s) to add/update, " + syncInfo.getDeleteUserGroups().size()
+				+ " user(s) to remove from groups and " + syncInfo.getAddOrUpdateGroups().size() + " group(s) to add to Ranger Admin") ;
+
+		final String jsonString = new GsonBuilder().create().toJson(syncInfo) ;
+
+		ClientResponse response = null ;
+
+		try {
+			if (authenticationType != null && AUTH_KERBEROS.equalsIgnoreCase(authenticationType) && SecureClientLogin.isKerberosCredentialExists(principal, keytab)) {
+				Subject sub = SecureClientLogin.loginUserFromKeytab(principal, keytab, nameRules);
+				response = Subject.doAs(sub, new PrivilegedAction<ClientResponse>() {
+					@Override
+					public ClientResponse run() {
+						return postUserGroupSyncInfo(jsonString) ;
+					}
+				});
+			} else {
+				response = postUserGroupSyncInfo(jsonString) ;
+			}
+		} catch (Throwable t) {
+			LOG.error("Failed to send user/group changes to Ranger Admin; will retry in the next sync cycle : ", t) ;
+			isFlushFailed = true ;
+			return ;
+		}
+
+		if (response.getStatus() == 404) {
+			LOG.warn("Ranger Admin doesn't support bulk user/group updates; sending changes one user at a time") ;
+			isBulkEnabled = false ;
+			clearPending() ;
+			sendUserGroupSyncInfoPerUser(syncInfo) ;
+		} else if (response.getStatus() != 200) {
+			LOG.error("Failed to send user/group changes to Ranger Admin; will retry in the next sync cycle : status=" + response.getStatus() + ", response=" + response.getEntity(String.class)) ;
+			isFlushFailed = true ;
+			return ;
+		} else {
+			clearPending() ;
+
+			String responseString = response.getEntity(String.class) ;
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RESPONSE: [" + responseString + "]") ;
+			}
+
+			UserGroupSyncInfo ret = new GsonBuilder().create().fromJson(responseString, UserGroupSyncInfo.class) ;
+
+			if (ret != null) {
+				updateUserGroupCache(ret, syncInfo) ;
+			}
+		}
+
+		isFlushFailed = false ;
+	}
+
+	private void clearPending() {
+		pendingAddUserGroups.clear() ;
+		pendingDelUserGroups.clear() ;
+		pendingAddGroups.clear() ;
+	}
+
+	ClientResponse postUserGroupSyncInfo(String jsonString) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("USER GROUP SYNC INFO" + jsonString) ;
+		}
+
+		WebResource r = getClient().resource(getURL(PM_USER_GROUP_BULK_URI)) ;
+
+		return r.accept(MediaType.APPLICATION_JSON_TYPE).type(MediaType.APPLICATION_JSON_TYPE).post(ClientResponse.class, jsonString) ;
+	}
+
+	private void updateUserGroupCache(UserGroupSyncInfo ret, UserGroupSyncInfo request) {
+		if (ret.getAddOrUpdateGroups() != null) {
+			for(XGroupInfo group : ret.getAddOrUpdateGroups()) {
+				addGroupToList(group) ;
+			}
+		}
+
+		if (ret.getAddOrUpdateUserGroups() != null) {
+			for(UserGroupInfo ugInfo : ret.getAddOrUpdateUserGroups()) {
+				XUserInfo user = userName2XUserInfoMap.get(ugInfo.getXuserInfo().getName()) ;
+
+				if (user == null) {
+					user = ugInfo.getXuserInfo() ;
+					user.setGroupNameList(new ArrayList<String>()) ;
+					addUserToList(user) ;
+				}
+
+				if (ugInfo.getXgroupInfo() != null) {
+					for(XGroupInfo group : ugInfo.getXgroupInfo()) {
+						addGroupToList(group) ;
+						if (! user.getGroups().contains(group.getName())) {
+							user.getGroups().add(group.getName()) ;
+						}
+					}
+				}
+			}
+		}
+
+		for(UserGroupInfo ugInfo : request.getDeleteUserGroups()) {
+			XUserInfo user = userName2XUserInfoMap.get(ugInfo.getXuserInfo().getName()) ;
+
+			if (user != null) {
+				for(XGroupInfo group : ugInfo.getXgroupInfo()) {
+					delUserGroupFromList(user, group) ;
+				}
+			}
+		}
+	}
+
+	private void sendUserGroupSyncInfoPerUser(UserGroupSyncInfo syncInfo) {
+		for(XGroupInfo group : syncInfo.getAddOrUpdateGroups()) {
+			addOrUpdateGroup(group.getName()) ;
+		}
+
+		for(UserGroupInfo ugInfo : syncInfo.getAddOrUpdateUserGroups()) {
+			String userName = ugInfo.getXuserInfo().getName() ;
+			XUserInfo user = userName2XUserInfoMap.get(userName) ;
+
+			try {
+				if (user == null) {
+					List<String> groups = new ArrayList<String>() ;
+					for(XGroupInfo group : ugInfo.getXgroupInfo()) {
+						groups.add(group.getName()) ;
+					}
+					addMUser(userName) ;
+					addUserGroupInfo(userName, groups) ;
+				} else {
+					addUserGroupInfo(ugInfo) ;
+				}
+			} catch(Throwable t) {
+				LOG.error("PolicyMgrUserGroupBuilder.addUserGroupInfo failed with exception: " + t.getMessage()
+				+ ", for user-group entry: " + ugInfo);
+			}
+		}
+
+		for(UserGroupInfo ugInfo : syncInfo.getDeleteUserGroups()) {
+			XUserInfo user = userName2XUserInfoMap.get(ugInfo.getXuserInfo().getName()) ;
+
+			if (user != null) {
+				List<String> groups = new ArrayList<String>() ;
+				for(XGroupInfo group : ugInfo.getXgroupInfo()) {
+					groups.add(group.getName()) ;
+				}
+				delXUserGroupInfo(user, groups) ;
+			}
+		}
+	}
+
 	private void buildGroupList() {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyMgrUserGroupBuilder.buildGroupList");
@@ -507,7 +798,7 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 	    }
 	}
 
-	private UserGroupInfo addUserGroupInfo(String userName, List<String> groups){
+	UserGroupInfo addUserGroupInfo(String userName, List<String> groups){
 		if(LOG.isDebugEnabled()) {
 	 		LOG.debug("==> PolicyMgrUserGroupBuilder.addUserGroupInfo " + userName + " and groups");
 	 	}
@@ -788,7 +1079,7 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 
 	}
 	
-	private MUserInfo addMUser(String aUserName) {
+	MUserInfo addMUser(String aUserName) {
 		MUserInfo ret = null;
 		MUserInfo userInfo = new MUserInfo();
 
@@ -983,6 +1274,12 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 		
 		if (group == null) {    // Does not exists
 			
+			if (isBulkEnabled && ! isMockRun) {
+				pendingAddGroups.put(groupName, addXGroupInfo(groupName)) ;
+				flushIfBatchFull() ;
+				return ;
+			}
+
 			//* Build the group info object and do the rest call
  			if ( ! isMockRun ) {
  				group = addGroupInfo(groupName);
@@ -993,7 +1290,7 @@ public class PolicyMgrUserGroupBuilder implements UserGroupSink {
 		}
 	}
 	
-	private XGroupInfo addGroupInfo(final String groupName){
+	XGroupInfo addGroupInfo(final String groupName){
 		XGroupInfo ret = null;
 		XGroupInfo group = null;
 		
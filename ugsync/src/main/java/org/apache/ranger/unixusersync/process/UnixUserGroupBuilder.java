@@ -25,8 +25,11 @@ import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -49,6 +52,10 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 	static final String LINUX_GET_ALL_USERS_CMD = "getent passwd" ;
 	static final String LINUX_GET_ALL_GROUPS_CMD = "getent group" ;
 	static final String LINUX_GET_GROUP_CMD = "getent group %s" ;
+	// followed by the quoted names or ids of up to COMMAND_BATCH_SIZE users or groups
+	static final String LINUX_GET_USERS_CMD = "getent passwd" ;
+	static final String LINUX_GET_GROUPS_CMD = "getent group" ;
+	static final int COMMAND_BATCH_SIZE = 1000 ;
 
 	// mainly for testing purposes
 	// there might be a better way
@@ -73,7 +80,7 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 
 	private UserGroupSyncConfig config = UserGroupSyncConfig.getInstance() ;
 	private Map<String,List<String>> user2GroupListMap = new HashMap<String,List<String>>();
-	private Map<String,List<String>>  	internalUser2GroupListMap = new HashMap<String,List<String>>();
+	private Map<String,Set<String>>  	internalUser2GroupListMap = new HashMap<String,Set<String>>();
 	private Map<String,String>			groupId2groupNameMap = new HashMap<String,String>() ;
 	private int 						minimumUserId  = 0 ;
 	private int							minimumGroupId = 0 ;
@@ -149,17 +156,18 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 	
 	private void buildUserGroupInfo() throws Throwable {
 		user2GroupListMap = new HashMap<String,List<String>>();
+		internalUser2GroupListMap = new HashMap<String,Set<String>>();
 		groupId2groupNameMap = new HashMap<String, String>();
 
 		if (OS.startsWith("Mac")) {
-			buildUnixGroupList(MAC_GET_ALL_GROUPS_CMD, MAC_GET_GROUP_CMD, false);
-			buildUnixUserList(MAC_GET_ALL_USERS_CMD);
+			buildUnixGroupList(MAC_GET_ALL_GROUPS_CMD, MAC_GET_GROUP_CMD, null, false);
+			buildUnixUserList(MAC_GET_ALL_USERS_CMD, null);
 		} else {
 			if (!OS.startsWith("Linux")) {
 				LOG.warn("Platform not recognized assuming Linux compatible");
 			}
-			buildUnixGroupList(LINUX_GET_ALL_GROUPS_CMD, LINUX_GET_GROUP_CMD, true);
-			buildUnixUserList(LINUX_GET_ALL_USERS_CMD);
+			buildUnixGroupList(LINUX_GET_ALL_GROUPS_CMD, LINUX_GET_GROUP_CMD, LINUX_GET_GROUPS_CMD, true);
+			buildUnixUserList(LINUX_GET_ALL_USERS_CMD, LINUX_GET_USERS_CMD);
 		}
 
 		lastUpdateTime = System.currentTimeMillis() ;
@@ -181,7 +189,7 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 		}
 	}
 	
-	private void buildUnixUserList(String command) throws Throwable {
+	private void buildUnixUserList(String command, String usersBatchCmd) throws Throwable {
 		BufferedReader reader = null;
 		Map<String, String> userName2uid = new HashMap<String, String>();
 
@@ -240,17 +248,7 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 					userName2uid.put(userName, userId);
 					String groupName = groupId2groupNameMap.get(groupId);
 					if (groupName != null) {
-						List<String> groupList = new ArrayList<String>();
-						groupList.add(groupName);
-						// do we already know about this use's membership to other groups?  If so add those, too
-						if (internalUser2GroupListMap.containsKey(userName)) {
-							List<String> map = internalUser2GroupListMap.get(userName);
-
-							// there could be duplicates
-							map.remove(groupName);
-							groupList.addAll(map);
-						}
-						user2GroupListMap.put(userName, groupList);
+						user2GroupListMap.put(userName, getGroupList(userName, groupName));
 					} else {
 						// we are ignoring the possibility that this user was present in /etc/groups.
 						LOG.warn("Group Name could not be found for group id: [" + groupId + "]. Skipping adding user [" + userName + "] with id [" + userId + "].");
@@ -268,11 +266,53 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 			return;
 
 		// this does a reverse check as not all users might be listed in getent passwd
-		if (enumerateGroupMembers) {
+		if (enumerateGroupMembers && usersBatchCmd != null) {
+			LOG.debug("Start drill down group members");
+			final Set<String> unresolvedUsers = new HashSet<String>();
+			for (String user : internalUser2GroupListMap.keySet()) {
+				// skip users we already now about
+				if (!user2GroupListMap.containsKey(user)) {
+					unresolvedUsers.add(user);
+				}
+			}
+
+			// the groups of each user are those with the user as a member, plus its primary group
+			readCommandOutput(usersBatchCmd, new ArrayList<String>(unresolvedUsers), new LineHandler() {
+				@Override
+				public void handleLine(String line) {
+					String[] tokens = line.split(":");
+					if (tokens.length < 4) {
+						LOG.warn("Unable to parse: " + line);
+						return;
+					}
+
+					String userName = tokens[0];
+					unresolvedUsers.remove(userName);
+
+					int numUserId = -1;
+					try {
+						numUserId = Integer.parseInt(tokens[2]);
+					} catch (NumberFormatException nfe) {
+						numUserId = -1;
+					}
+					if (numUserId < minimumUserId && numUserId != -1) {
+						LOG.debug("Skipping user [" + userName + "] since its userid [" + tokens[2] + "] is less than minuserid limit [" + minimumUserId + "].");
+						return;
+					}
+
+					user2GroupListMap.put(userName, getGroupList(userName, groupId2groupNameMap.get(tokens[3])));
+				}
+			});
+
+			for (String user : unresolvedUsers) {
+				LOG.warn("User " + user + " could not be resolved");
+			}
+			LOG.debug("End drill down group members");
+		} else if (enumerateGroupMembers) {
 			String line = null;
 
 			LOG.debug("Start drill down group members");
-			for (Map.Entry<String, List<String>> entry : internalUser2GroupListMap.entrySet()) {
+			for (Map.Entry<String, Set<String>> entry : internalUser2GroupListMap.entrySet()) {
 				// skip users we already now about
 				if (user2GroupListMap.containsKey(entry.getKey()))
 					continue;
@@ -330,6 +370,23 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 		}
 	}
 
+	// the user's primary group, if any, followed by the groups that have the user as a member
+	private List<String> getGroupList(String userName, String primaryGroupName) {
+		List<String> groupList = new ArrayList<String>();
+		if (primaryGroupName != null) {
+			groupList.add(primaryGroupName);
+		}
+		Set<String> memberOf = internalUser2GroupListMap.get(userName);
+		if (memberOf != null) {
+			for (String groupName : memberOf) {
+				if (!groupName.equals(primaryGroupName)) {
+					groupList.add(groupName);
+				}
+			}
+		}
+		return groupList;
+	}
+
 	private void parseMembers(String line) {
 		if (line == null || line.isEmpty())
 			return;
@@ -358,19 +415,17 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 
 		if (groupMembers != null && !groupMembers.trim().isEmpty()) {
 			for (String user : groupMembers.split(",")) {
-				List<String> groupList = internalUser2GroupListMap.get(user);
+				Set<String> groupList = internalUser2GroupListMap.get(user);
 				if (groupList == null) {
-					groupList = new ArrayList<String>();
+					groupList = new LinkedHashSet<String>();
 					internalUser2GroupListMap.put(user, groupList);
 				}
-				if (!groupList.contains(groupName)) {
-					groupList.add(groupName);
-				}
+				groupList.add(groupName);
 			}
 		}
 	}
 
-	private void buildUnixGroupList(String allGroupsCmd, String groupCmd, boolean useGid) throws Throwable {
+	private void buildUnixGroupList(String allGroupsCmd, String groupCmd, String groupsBatchCmd, boolean useGid) throws Throwable {
 		LOG.debug("Start enumerating groups");
 		BufferedReader reader = null;
 
@@ -404,7 +459,18 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 		if (!useNss)
 			return;
 
-		if (enumerateGroupMembers) {
+		LineHandler memberParser = new LineHandler() {
+			@Override
+			public void handleLine(String line) {
+				parseMembers(line);
+			}
+		};
+
+		if (enumerateGroupMembers && groupsBatchCmd != null) {
+			LOG.debug("Start enumerating group members");
+			readCommandOutput(groupsBatchCmd, new ArrayList<String>(groupId2groupNameMap.keySet()), memberParser);
+			LOG.debug("End enumerating group members");
+		} else if (enumerateGroupMembers) {
 			LOG.debug("Start enumerating group members");
 			String line = null;
 			Map<String,String> copy = new HashMap<String, String>(groupId2groupNameMap);
@@ -437,7 +503,11 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 			LOG.debug("End enumerating group members");
 		}
 
-		if (config.getEnumerateGroups() != null) {
+		if (config.getEnumerateGroups() != null && groupsBatchCmd != null) {
+			LOG.debug("Adding extra groups");
+			readCommandOutput(groupsBatchCmd, Arrays.asList(config.getEnumerateGroups().split(",")), memberParser);
+			LOG.debug("Done adding extra groups");
+		} else if (config.getEnumerateGroups() != null) {
 			String line = null;
 			String[] groups = config.getEnumerateGroups().split(",");
 
@@ -465,6 +535,41 @@ public class UnixUserGroupBuilder implements UserGroupSource {
 		}
 	}
 
+	/**
+	 * Runs the command once for every COMMAND_BATCH_SIZE keys, with the keys appended to it, and
+	 * passes each line of the output to the handler as it is read.
+	 */
+	private void readCommandOutput(String command, List<String> keys, LineHandler handler) throws Throwable {
+		for (int i = 0; i < keys.size(); i += COMMAND_BATCH_SIZE) {
+			StringBuilder cmd = new StringBuilder(command);
+			for (String key : keys.subList(i, Math.min(i + COMMAND_BATCH_SIZE, keys.size()))) {
+				cmd.append(" '").append(key.trim()).append("'");
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Executing: bash -c " + cmd);
+			}
+
+			Process process = Runtime.getRuntime().exec(new String[]{"bash", "-c", cmd.toString()});
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+			try {
+				String line = null;
+				while ((line = reader.readLine()) != null) {
+					if (!line.trim().isEmpty()) {
+						handler.handleLine(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	private interface LineHandler {
+		void handleLine(String line);
+	}
+
 	@VisibleForTesting
 	Map<String,List<String>> getUser2GroupListMap() {
 		return user2GroupListMap;
@@ -56,6 +56,7 @@ public class UserGroupSync implements Runnable {
 
 					LOG.info("Begin: initial load of user/group from source==>sink");
 					ugSource.updateSink(ugSink);
+					flushSink();
 					LOG.info("End: initial load of user/group from source==>sink");
 
 					initDone = true ;
@@ -117,6 +118,8 @@ public class UserGroupSync implements Runnable {
 				else {
 					LOG.debug("UserGroupSource: no change found for synchronization.") ;
 				}
+				// also sends changes that a previous cycle failed to send
+				flushSink();
 			}
 		}catch(Throwable t){
 			LOG.error("Failed to sync user/group : ", t);
@@ -124,4 +127,10 @@ public class UserGroupSync implements Runnable {
 		
 	}
 
+	private void flushSink() throws Throwable {
+		if (ugSink instanceof BulkUserGroupSink) {
+			((BulkUserGroupSink) ugSink).flush();
+		}
+	}
+
 }
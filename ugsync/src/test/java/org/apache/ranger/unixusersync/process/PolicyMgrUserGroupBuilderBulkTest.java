@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.unixusersync.process;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.ranger.unixusersync.model.MUserInfo;
+import org.apache.ranger.unixusersync.model.UserGroupInfo;
+import org.apache.ranger.unixusersync.model.UserGroupSyncInfo;
+import org.apache.ranger.unixusersync.model.XGroupInfo;
+import org.apache.ranger.unixusersync.model.XUserInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.gson.Gson;
+import com.sun.jersey.api.client.ClientResponse;
+
+public class PolicyMgrUserGroupBuilderBulkTest {
+
+    private static final Gson GSON = new Gson();
+
+    private TestPolicyMgrUserGroupBuilder sink;
+
+    @Before
+    public void setup() {
+        sink = new TestPolicyMgrUserGroupBuilder();
+    }
+
+    @Test
+    public void testChangesAreBufferedUntilFlush() {
+        sink.addOrUpdateGroup("group3");
+        sink.addOrUpdateUser("user1", Arrays.asList("group1", "group2"));
+
+        assertTrue(sink.requests.isEmpty());
+
+        sink.responses.add(response(200, userGroups("user1", "group1", "group2")));
+        sink.flush();
+
+        assertEquals(1, sink.requests.size());
+
+        UserGroupSyncInfo request = sink.requests.get(0);
+
+        assertEquals(1, request.getAddOrUpdateUserGroups().size());
+        assertEquals("user1", request.getAddOrUpdateUserGroups().get(0).getXuserInfo().getName());
+        assertEquals(Arrays.asList("group1", "group2"), groupNames(request.getAddOrUpdateUserGroups().get(0)));
+        assertEquals(1, request.getAddOrUpdateGroups().size());
+        assertEquals("group3", request.getAddOrUpdateGroups().get(0).getName());
+        assertTrue(request.getDeleteUserGroups().isEmpty());
+
+        // nothing is left to send
+        sink.flush();
+
+        assertEquals(1, sink.requests.size());
+    }
+
+    @Test
+    public void testOnlyChangesAgainstCacheAreSent() {
+        sink.addOrUpdateUser("user1", Arrays.asList("group1", "group2"));
+        sink.responses.add(response(200, userGroups("user1", "group1", "group2")));
+        sink.flush();
+
+        // same groups as Ranger Admin has
+        sink.addOrUpdateUser("user1", Arrays.asList("group1", "group2"));
+        sink.flush();
+
+        assertEquals(1, sink.requests.size());
+
+        sink.addOrUpdateUser("user1", Arrays.asList("group2", "group3"));
+        sink.responses.add(response(200, userGroups("user1", "group3")));
+        sink.flush();
+
+        assertEquals(2, sink.requests.size());
+
+        UserGroupSyncInfo request = sink.requests.get(1);
+
+        assertEquals(1, request.getAddOrUpdateUserGroups().size());
+        assertEquals(Arrays.asList("group3"), groupNames(request.getAddOrUpdateUserGroups().get(0)));
+        assertEquals(1, request.getDeleteUserGroups().size());
+        assertEquals("user1", request.getDeleteUserGroups().get(0).getXuserInfo().getName());
+        assertEquals(Arrays.asList("group1"), groupNames(request.getDeleteUserGroups().get(0)));
+
+        // the cache now has the new groups
+        sink.addOrUpdateUser("user1", Arrays.asList("group2", "group3"));
+        sink.flush();
+
+        assertEquals(2, sink.requests.size());
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() {
+        sink.addOrUpdateUser("user1", Arrays.asList("group1"));
+
+        sink.responses.add(response(500, "error"));
+        sink.flush();
+
+        sink.responses.add(response(200, userGroups("user1", "group1")));
+        sink.flush();
+
+        assertEquals(2, sink.requests.size());
+        assertEquals(GSON.toJson(sink.requests.get(0)), GSON.toJson(sink.requests.get(1)));
+
+        sink.flush();
+
+        assertEquals(2, sink.requests.size());
+    }
+
+    @Test
+    public void testFallbackToPerUserCallsOn404() {
+        sink.addOrUpdateGroup("group2");
+        sink.addOrUpdateUser("user1", Arrays.asList("group1"));
+
+        sink.responses.add(response(404, ""));
+        sink.flush();
+
+        assertEquals(1, sink.requests.size());
+        assertEquals(Arrays.asList("group2"), sink.addedGroups);
+        assertEquals(Arrays.asList("user1"), sink.addedUsers);
+        assertEquals(Arrays.asList("user1:[group1]"), sink.addedUserGroups);
+
+        // later changes go out one user at a time
+        sink.addOrUpdateUser("user2", Arrays.asList("group1"));
+        sink.flush();
+
+        assertEquals(1, sink.requests.size());
+        assertEquals(Arrays.asList("user1", "user2"), sink.addedUsers);
+        assertEquals(Arrays.asList("user1:[group1]", "user2:[group1]"), sink.addedUserGroups);
+    }
+
+    private static ClientResponse response(int status, String entity) {
+        ClientResponse ret = Mockito.mock(ClientResponse.class);
+
+        Mockito.when(ret.getStatus()).thenReturn(status);
+        Mockito.when(ret.getEntity(String.class)).thenReturn(entity);
+
+        return ret;
+    }
+
+    // the response of Ranger Admin for a user added to the given groups
+    private static String userGroups(String userName, String... groupNames) {
+        UserGroupInfo    ugInfo = new UserGroupInfo();
+        XUserInfo        user   = new XUserInfo();
+        List<XGroupInfo> groups = new ArrayList<XGroupInfo>();
+
+        user.setName(userName);
+
+        for (String groupName : groupNames) {
+            XGroupInfo group = new XGroupInfo();
+
+            group.setName(groupName);
+            group.setGroupSource("1");
+
+            groups.add(group);
+        }
+
+        ugInfo.setXuserInfo(user);
+        ugInfo.setXgroupInfo(groups);
+
+        UserGroupSyncInfo ret = new UserGroupSyncInfo();
+
+        ret.getAddOrUpdateUserGroups().add(ugInfo);
+        ret.getAddOrUpdateGroups().addAll(groups);
+
+        return GSON.toJson(ret);
+    }
+
+    private static List<String> groupNames(UserGroupInfo ugInfo) {
+        List<String> ret = new ArrayList<String>();
+
+        for (XGroupInfo group : ugInfo.getXgroupInfo()) {
+            ret.add(group.getName());
+        }
+
+        return ret;
+    }
+
+    /*
+     * Records the requests instead of calling Ranger Admin.
+     */
+    static class TestPolicyMgrUserGroupBuilder extends PolicyMgrUserGroupBuilder {
+        final List<UserGroupSyncInfo>    requests        = new ArrayList<UserGroupSyncInfo>();
+        final LinkedList<ClientResponse> responses       = new LinkedList<ClientResponse>();
+        final List<String>               addedGroups     = new ArrayList<String>();
+        final List<String>               addedUsers      = new ArrayList<String>();
+        final List<String>               addedUserGroups = new ArrayList<String>();
+
+        @Override
+        ClientResponse postUserGroupSyncInfo(String jsonString) {
+            requests.add(GSON.fromJson(jsonString, UserGroupSyncInfo.class));
+
+            return responses.removeFirst();
+        }
+
+        @Override
+        MUserInfo addMUser(String aUserName) {
+            addedUsers.add(aUserName);
+
+            return null;
+        }
+
+        @Override
+        UserGroupInfo addUserGroupInfo(String userName, List<String> groups) {
+            addedUserGroups.add(userName + ":" + groups);
+
+            return null;
+        }
+
+        @Override
+        XGroupInfo addGroupInfo(String groupName) {
+            addedGroups.add(groupName);
+
+            return null;
+        }
+    }
+}
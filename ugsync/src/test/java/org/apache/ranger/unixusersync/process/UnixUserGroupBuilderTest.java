@@ -23,6 +23,7 @@ import org.apache.ranger.unixusersync.config.UserGroupSyncConfig;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -88,6 +89,32 @@ public class UnixUserGroupBuilderTest {
         assertThat(groups, anyOf(hasValue("wheel"), hasValue("root")));
     }
 
+    @Test
+    public void testBuilderNssEnumerate() throws Throwable {
+        config.setProperty("ranger.usersync.unix.backend", "nss");
+
+        UnixUserGroupBuilder builder = new UnixUserGroupBuilder();
+        builder.init();
+        Map<String, List<String>> expectedUsers = builder.getUser2GroupListMap();
+
+        config.setProperty("ranger.usersync.group.enumerate", "true");
+        try {
+            builder = new UnixUserGroupBuilder();
+            builder.init();
+        } finally {
+            config.setProperty("ranger.usersync.group.enumerate", "false");
+        }
+
+        Map<String, String> groups = builder.getGroupId2groupNameMap();
+        assertThat(groups.get("0"), anyOf(equalTo("wheel"), equalTo("root")));
+
+        // enumerating group members only adds users not listed by getent passwd
+        Map<String, List<String>> users = builder.getUser2GroupListMap();
+        for (Map.Entry<String, List<String>> entry : expectedUsers.entrySet()) {
+            assertEquals(new HashSet<>(entry.getValue()), new HashSet<>(users.get(entry.getKey())));
+        }
+    }
+
     @Test
     public void testMinUidGid() throws Throwable {
         config.setProperty("ranger.usersync.unix.backend", "nss");
@@ -21,6 +21,14 @@ package org.apache.ranger.usergroupsync;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.entry.DefaultModification;
+import org.apache.directory.api.ldap.model.entry.ModificationOperation;
+import org.apache.directory.api.ldap.model.name.Dn;
 
 import org.apache.directory.server.annotations.CreateLdapConnectionPool;
 import org.apache.directory.server.core.annotations.ApplyLdifFiles;
@@ -554,6 +562,97 @@ public class LdapUserGroupTest extends AbstractLdapTestUnit{
 		assertEquals(0, sink.getTotalGroups());
 	}
 
+	@Test
+	public void testMultipleOUsWithSerialSearch() throws Throwable {
+		config.setUserSearchBase("cn=users,DC=ranger,DC=qe,DC=hortonworks,DC=com;ou=HadoopUsers,DC=ranger,DC=qe,DC=hortonworks,DC=com;ou=BusinessUsers,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+		config.setUserSearchFilter("cn=*");
+		config.setGroupSearchBase("OU=HdpGroups,OU=HadoopUsers,DC=ranger,DC=qe,DC=hortonworks,DC=com;OU=Groups,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+		config.setGroupSearchFilter("cn=*");
+		config.setUserGroupMemberAttributeName("member");
+		config.setUserObjectClass("organizationalPerson");
+		config.setGroupObjectClass("groupOfNames");
+		config.setGroupSearchEnabled(true);
+		config.setGroupSearchFirstEnabled(false);
+		config.setSearchThreads(4);
+		ldapBuilder.init();
+		PolicyMgrUserGroupBuilderTest sink = new PolicyMgrUserGroupBuilderTest();
+		sink.init();
+		ldapBuilder.updateSink(sink);
+
+		// searching one base at a time gives the same users and groups
+		config.setSearchThreads(1);
+		try {
+			LdapUserGroupBuilder serialLdapBuilder = new LdapUserGroupBuilder();
+			serialLdapBuilder.init();
+			PolicyMgrUserGroupBuilderTest serialSink = new PolicyMgrUserGroupBuilderTest();
+			serialSink.init();
+			serialLdapBuilder.updateSink(serialSink);
+			assertEquals(sink.getAllUsers(), serialSink.getAllUsers());
+			assertEquals(sink.getAllGroups(), serialSink.getAllGroups());
+			for (String user : sink.getAllUsers()) {
+				assertEquals(new HashSet<>(sink.getUserGroups(user)), new HashSet<>(serialSink.getUserGroups(user)));
+			}
+		} finally {
+			config.setSearchThreads(4);
+		}
+
+		assertEquals(111, sink.getTotalUsers());
+		assertEquals(11, sink.getTotalGroups());
+		Map<String, Long> searchTimes = ldapBuilder.getSearchTimeInMillisByBase();
+		assertEquals(5, searchTimes.size());
+		assertTrue(searchTimes.containsKey("ou=BusinessUsers,DC=ranger,DC=qe,DC=hortonworks,DC=com"));
+		assertTrue(searchTimes.containsKey("OU=Groups,DC=ranger,DC=qe,DC=hortonworks,DC=com"));
+	}
+
+	@Test
+	public void testUpdateSinkWithDeltaSync() throws Throwable {
+		config.setUserSearchBase("cn=users,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+		config.setUserSearchFilter("");
+		config.setGroupSearchBase("OU=Groups,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+		config.setGroupSearchFilter("");
+		config.setUserGroupMemberAttributeName("member");
+		config.setUserObjectClass("organizationalPerson");
+		config.setGroupObjectClass("groupOfNames");
+		config.setGroupSearchEnabled(true);
+		config.setPagedResultsEnabled(true);
+		config.setGroupSearchFirstEnabled(false);
+		config.setDeltaSyncEnabled(true);
+		try {
+			ldapBuilder.init();
+			PolicyMgrUserGroupBuilderTest sink = new PolicyMgrUserGroupBuilderTest();
+			sink.init();
+			ldapBuilder.updateSink(sink);
+			assertEquals(109, sink.getTotalUsers());
+			assertTrue(sink.getUserGroups("User1010").contains("Group11"));
+
+			modifyGroup11Member(ModificationOperation.REMOVE_ATTRIBUTE, "CN=User1010,CN=Users,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+
+			// only the users affected by the change are sent, with their current groups
+			sink = new PolicyMgrUserGroupBuilderTest();
+			sink.init();
+			ldapBuilder.updateSink(sink);
+			assertTrue(sink.getTotalUsers() < 109);
+			assertFalse(sink.getUserGroups("User1010").contains("Group11"));
+			assertTrue(sink.getUserGroups("User1009").contains("Group11"));
+
+			modifyGroup11Member(ModificationOperation.ADD_ATTRIBUTE, "CN=User1010,CN=Users,DC=ranger,DC=qe,DC=hortonworks,DC=com");
+		} finally {
+			config.setDeltaSyncEnabled(false);
+		}
+	}
+
+	// the change log is disabled so that the framework doesn't revert the change after shutdown()
+	private void modifyGroup11Member(ModificationOperation operation, String memberDn) throws Exception {
+		getService().getChangeLog().setEnabled(false);
+		try {
+			getService().getAdminSession().modify(
+					new Dn(getService().getSchemaManager(), "CN=Group11,OU=Groups,DC=ranger,DC=qe,DC=hortonworks,DC=com"),
+					new DefaultModification(operation, "member", memberDn));
+		} finally {
+			getService().getChangeLog().setEnabled(true);
+		}
+	}
+
 	@After
 	public void shutdown() throws Exception {
 		if (getService().isStarted()) {
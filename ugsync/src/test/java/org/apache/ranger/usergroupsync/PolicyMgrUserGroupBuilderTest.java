@@ -19,8 +19,10 @@
 
 package org.apache.ranger.usergroupsync;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.ranger.unixusersync.process.PolicyMgrUserGroupBuilder;
@@ -28,17 +30,20 @@ import org.apache.ranger.unixusersync.process.PolicyMgrUserGroupBuilder;
 public class PolicyMgrUserGroupBuilderTest extends PolicyMgrUserGroupBuilder {
         private Set<String> allGroups;
         private Set<String> allUsers;
+        private Map<String, List<String>> userGroups;
 
         @Override
         public void init() throws Throwable {
                 allGroups = new HashSet<>();
                 allUsers = new HashSet<>();
+                userGroups = new HashMap<>();
         }
 
         @Override
         public void addOrUpdateUser(String user, List<String> groups) {
                 allGroups.addAll(groups);
                 allUsers.add(user);
+                userGroups.put(user, groups);
                 //System.out.println("Username: " + user + " and associated groups: " + groups);
         }
         
@@ -63,4 +68,8 @@ public class PolicyMgrUserGroupBuilderTest extends PolicyMgrUserGroupBuilder {
         public Set<String> getAllUsers() {
                 return allUsers;
         }
+
+        public List<String> getUserGroups(String user) {
+                return userGroups.get(user);
+        }
 }
\ No newline at end of file